@@ -8,6 +8,10 @@ import org.joml.Vector3f;
  * 摄像机类
  */
 public class Camera {
+    // 正交投影的近、远平面（沿视线方向到相机的距离）
+    private static final float NEAR_PLANE = -1.0f;
+    private static final float FAR_PLANE = 1.0f;
+
     private Matrix4f projectionMatrix;
     private Matrix4f viewMatrix;
     private float aspectRatio;
@@ -19,6 +23,12 @@ public class Camera {
     
     // 视锥体平面
     private Vector4f[] frustumPlanes = new Vector4f[6];
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f inverseViewProjection = new Matrix4f();
+    private final Vector3f corner = new Vector3f();
+
+    // 视锥体在XY平面上的包围矩形
+    private float visibleMinX, visibleMinY, visibleMaxX, visibleMaxY;
     
     /**
      * 构造函数
@@ -107,7 +117,7 @@ public class Camera {
         float width = 2.0f / zoom;
         float height = width / aspectRatio;
         projectionMatrix.identity();
-        projectionMatrix.ortho(-width/2, width/2, -height/2, height/2, -1.0f, 1.0f);
+        projectionMatrix.ortho(-width/2, width/2, -height/2, height/2, NEAR_PLANE, FAR_PLANE);
         updateFrustumPlanes();
     }
 
@@ -125,7 +135,7 @@ public class Camera {
      * 更新视锥体平面
      */
     private void updateFrustumPlanes() {
-        Matrix4f vp = new Matrix4f(projectionMatrix).mul(viewMatrix);
+        Matrix4f vp = viewProjection.set(projectionMatrix).mul(viewMatrix);
         
         // 提取视锥体平面
         // 左平面
@@ -140,6 +150,49 @@ public class Camera {
         frustumPlanes[4].set(vp.m03() + vp.m02(), vp.m13() + vp.m12(), vp.m23() + vp.m22(), vp.m33() + vp.m32()).normalize3();
         // 远平面
         frustumPlanes[5].set(vp.m03() - vp.m02(), vp.m13() - vp.m12(), vp.m23() - vp.m22(), vp.m33() - vp.m32()).normalize3();
+
+        // 视锥体8个角点在XY平面上的包围矩形，用于空间索引查询
+        vp.invert(inverseViewProjection);
+        visibleMinX = visibleMinY = Float.POSITIVE_INFINITY;
+        visibleMaxX = visibleMaxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            corner.set((i & 1) == 0 ? -1 : 1, (i & 2) == 0 ? -1 : 1, (i & 4) == 0 ? -1 : 1);
+            inverseViewProjection.transformProject(corner);
+            visibleMinX = Math.min(visibleMinX, corner.x);
+            visibleMinY = Math.min(visibleMinY, corner.y);
+            visibleMaxX = Math.max(visibleMaxX, corner.x);
+            visibleMaxY = Math.max(visibleMaxY, corner.y);
+        }
+    }
+
+    /**
+     * 计算世界坐标点的归一化视图深度：视图空间中沿视线方向的距离按近、远平面映射到[0, 1]，
+     * 越小离相机越近，视锥体外的点超出该范围
+     * @param x x坐标
+     * @param y y坐标
+     * @param z z坐标
+     * @return 归一化深度
+     */
+    public float getViewDepth(float x, float y, float z) {
+        // 视图矩阵第3行与位置的点积为视图空间z，相机朝-z方向观察
+        float viewZ = viewMatrix.m02() * x + viewMatrix.m12() * y + viewMatrix.m22() * z + viewMatrix.m32();
+        return (-viewZ - NEAR_PLANE) / (FAR_PLANE - NEAR_PLANE);
+    }
+
+    /**
+     * 获取近平面距离
+     * @return 近平面距离
+     */
+    public float getNearPlane() {
+        return NEAR_PLANE;
+    }
+
+    /**
+     * 获取远平面距离
+     * @return 远平面距离
+     */
+    public float getFarPlane() {
+        return FAR_PLANE;
     }
 
     /**
@@ -151,15 +204,31 @@ public class Camera {
      * @return 是否在视锥体内
      */
     public boolean isInFrustum(float x, float y, float z, float radius) {
-        Vector4f pos = new Vector4f(x, y, z, 1.0f);
         for (Vector4f plane : frustumPlanes) {
-            if (plane.dot(pos) + radius < 0) {
+            if (plane.x * x + plane.y * y + plane.z * z + plane.w + radius < 0) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * 获取视锥体平面（左、右、下、上、近、远，法线指向视锥体内部）
+     * @return 视锥体平面数组（只读）
+     */
+    public Vector4f[] getFrustumPlanes() {
+        return frustumPlanes;
+    }
+
+    /**
+     * 获取视锥体在XY平面上的包围矩形
+     * @param out 输出（x: 最小x, y: 最小y, z: 最大x, w: 最大y）
+     * @return 输出
+     */
+    public Vector4f getVisibleBounds(Vector4f out) {
+        return out.set(visibleMinX, visibleMinY, visibleMaxX, visibleMaxY);
+    }
+
     /**
      * 获取投影矩阵
      * @return 投影矩阵
@@ -175,4 +244,36 @@ public class Camera {
     public Matrix4f getViewMatrix() {
         return viewMatrix;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 获取位置
+     * @return 位置
+     */
+    public Vector3f getPosition() {
+        return position;
+    }
+
+    /**
+     * 获取旋转
+     * @return 旋转
+     */
+    public Vector3f getRotation() {
+        return rotation;
+    }
+
+    /**
+     * 获取缩放
+     * @return 缩放
+     */
+    public float getZoom() {
+        return zoom;
+    }
+
+    /**
+     * 获取视图比例
+     * @return 视图比例
+     */
+    public float getAspectRatio() {
+        return aspectRatio;
+    }
+}
@@ -0,0 +1,110 @@
+package com.hmengine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * 计算着色器类（需要OpenGL 4.3）
+ */
+public class ComputeShader {
+    private int shaderProgram;
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
+
+    /**
+     * 构造函数
+     * @param computePath 计算着色器路径
+     */
+    public ComputeShader(String computePath) {
+        createShader(computePath);
+    }
+
+    /**
+     * 加载着色器源码
+     * @param path 着色器路径
+     * @return 着色器源码
+     */
+    private String loadShaderSource(String path) {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(path)) {
+            if (is == null) {
+                throw new RuntimeException("无法找到着色器文件: " + path);
+            }
+            byte[] bytes = is.readAllBytes();
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("读取着色器文件失败: " + path, e);
+        }
+    }
+
+    /**
+     * 创建着色器
+     * @param computePath 计算着色器路径
+     */
+    private void createShader(String computePath) {
+        int computeShader = glCreateShader(GL_COMPUTE_SHADER);
+        glShaderSource(computeShader, loadShaderSource(computePath));
+        glCompileShader(computeShader);
+        if (glGetShaderi(computeShader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String infoLog = glGetShaderInfoLog(computeShader);
+            glDeleteShader(computeShader);
+            throw new RuntimeException("着色器编译错误 (COMPUTE): " + infoLog);
+        }
+
+        shaderProgram = glCreateProgram();
+        glAttachShader(shaderProgram, computeShader);
+        glLinkProgram(shaderProgram);
+        glDeleteShader(computeShader);
+        if (glGetProgrami(shaderProgram, GL_LINK_STATUS) == GL_FALSE) {
+            throw new RuntimeException("着色器程序链接错误: " + glGetProgramInfoLog(shaderProgram));
+        }
+    }
+
+    /**
+     * 使用着色器
+     */
+    public void use() {
+        glUseProgram(shaderProgram);
+    }
+
+    /**
+     * 获取uniform变量位置（带缓存）
+     * @param name 变量名
+     * @return 变量位置，不存在时为-1
+     */
+    public int getUniformLocation(String name) {
+        Integer location = uniformLocations.get(name);
+        if (location == null) {
+            location = glGetUniformLocation(shaderProgram, name);
+            uniformLocations.put(name, location);
+        }
+        return location;
+    }
+
+    /**
+     * 分派计算任务
+     * @param groupsX x方向工作组数
+     */
+    public void dispatch(int groupsX) {
+        glDispatchCompute(groupsX, 1, 1);
+    }
+
+    /**
+     * 清理
+     */
+    public void cleanup() {
+        glDeleteProgram(shaderProgram);
+    }
+
+    /**
+     * 获取着色器程序ID
+     * @return 着色器程序ID
+     */
+    public int getProgramId() {
+        return shaderProgram;
+    }
+}
@@ -0,0 +1,564 @@
+package com.hmengine;
+
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.pipeline.RenderSnapshot;
+import com.hmengine.pipeline.SnapshotExchange;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 游戏循环类
+ * 模拟以固定步长推进，渲染频率与模拟频率无关：每帧把经过的真实时间累积起来，
+ * 按固定步长消耗，剩余不足一步的部分作为插值系数交给渲染，这样在高刷新率下每帧画面仍然不同，
+ * 在卡顿时模拟速度也保持正确。
+ * 帧率控制有三种模式：垂直同步、不限制、以及按目标帧率限制（先休眠再自旋等待，兼顾精度和CPU占用）。
+ * 监听器实现PipelinedListener时可以启用流水线模式：模拟在独立线程上运行并发布快照，
+ * 渲染线程在最新的两个快照之间按模拟时间插值绘制（比模拟晚一个步长），两者并行执行。
+ * 每帧结束时调用任务系统的帧屏障（流水线模式下由模拟线程在每次发布快照后调用）。
+ */
+public class GameLoop {
+    // 帧率控制模式
+    public static final int PACING_VSYNC = 0;
+    public static final int PACING_UNCAPPED = 1;
+    public static final int PACING_CAPPED = 2;
+
+    // 计时统计的平滑系数
+    private static final double SMOOTHING = 0.1;
+
+    private final Window window;
+    private final GameLoopListener listener;
+
+    private double fixedStep = 1.0 / 60.0;
+    private int maxUpdatesPerFrame = 5;
+    private double maxFrameTime = 0.25;
+    private int pacingMode = PACING_VSYNC;
+    private double targetFps = 144.0;
+    private volatile boolean running;
+    private boolean pipelined = false;
+    private JobSystem jobSystem;
+
+    // 流水线模式：模拟线程发布快照，渲染线程取最新的快照
+    private final SnapshotExchange exchange = new SnapshotExchange();
+    private volatile Throwable simulationError;
+
+    // 单次休眠的实际耗时估计（纳秒），用于决定何时从休眠切换到自旋
+    private double sleepMean = 1.0e6;
+    private double sleepVariance = 0.0;
+
+    // 统计数据（毫秒，指数平滑）
+    // 流水线模式下模拟耗时、步数和模拟时间由模拟线程写入，其余由渲染线程写入，每个字段只有一个写入线程，
+    // 两个线程（以及调用getter的线程）都可能读取，因此全部为volatile
+    private volatile double updateTime;
+    private volatile double renderTime;
+    private volatile double presentTime;
+    private volatile double waitTime;
+    private volatile double frameTime;
+    private volatile int updatesLastFrame;
+    private volatile long frameCount;
+    private volatile double simulationTime;
+    private volatile double droppedTime;
+    private volatile float alpha;
+
+    /**
+     * 构造函数
+     * @param window 窗口（已初始化）
+     * @param listener 游戏循环监听器
+     */
+    public GameLoop(Window window, GameLoopListener listener) {
+        if (window == null || listener == null) {
+            throw new IllegalArgumentException("窗口和监听器不能为空");
+        }
+        this.window = window;
+        this.listener = listener;
+    }
+
+    /**
+     * 运行游戏循环，直到窗口关闭或调用stop
+     */
+    public void run() {
+        if (pipelined) {
+            runPipelined();
+            return;
+        }
+        running = true;
+        applyPacingMode();
+        long previous = System.nanoTime();
+        long deadline = previous;
+        double accumulator = 0.0;
+
+        while (running && !window.shouldClose()) {
+            long frameStart = System.nanoTime();
+            double elapsed = (frameStart - previous) / 1.0e9;
+            previous = frameStart;
+            // 长时间停顿（调试断点、拖动窗口）后不补算全部时间
+            if (elapsed > maxFrameTime) {
+                droppedTime += elapsed - maxFrameTime;
+                elapsed = maxFrameTime;
+            }
+            accumulator += elapsed;
+
+            window.pollEvents();
+
+            int updates = 0;
+            while (accumulator >= fixedStep) {
+                // 死亡螺旋保护：一帧内更新次数达到上限后丢弃积压的整步，模拟暂时变慢而不是越积越多
+                if (updates == maxUpdatesPerFrame) {
+                    double excess = accumulator - accumulator % fixedStep;
+                    droppedTime += excess;
+                    accumulator -= excess;
+                    break;
+                }
+                listener.update((float) fixedStep);
+                accumulator -= fixedStep;
+                simulationTime += fixedStep;
+                updates++;
+            }
+            long updateEnd = System.nanoTime();
+
+            alpha = (float) (accumulator / fixedStep);
+            listener.render(alpha);
+            // 等待本帧提交的异步任务并归还临时内存
+            jobs().completeFrame();
+            long renderEnd = System.nanoTime();
+
+            window.swapBuffers();
+            long presentEnd = System.nanoTime();
+
+            deadline = pace(deadline, presentEnd);
+            long frameEnd = System.nanoTime();
+
+            updatesLastFrame = updates;
+            frameCount++;
+            recordFrame(frameStart, updateEnd, renderEnd, presentEnd, frameEnd);
+        }
+        running = false;
+    }
+
+    /**
+     * 流水线模式：模拟线程按固定步长推进并发布快照，当前线程（窗口所在线程）只处理事件和绘制
+     */
+    private void runPipelined() {
+        PipelinedListener pipeline = (PipelinedListener) listener;
+        running = true;
+        simulationError = null;
+        applyPacingMode();
+        Thread simulation = new Thread(() -> simulate(pipeline), "simulation");
+        simulation.setDaemon(true);
+        simulation.start();
+
+        long deadline = System.nanoTime();
+        try {
+            while (running && !window.shouldClose()) {
+                long frameStart = System.nanoTime();
+                window.pollEvents();
+                long eventsEnd = System.nanoTime();
+
+                RenderSnapshot snapshot = exchange.acquire();
+                if (snapshot != null) {
+                    RenderSnapshot previous = exchange.getPrevious();
+                    if (previous == null) {
+                        previous = snapshot;
+                    }
+                    alpha = interpolation(previous, snapshot, eventsEnd);
+                    pipeline.render(previous, snapshot, alpha);
+                }
+                long renderEnd = System.nanoTime();
+
+                window.swapBuffers();
+                long presentEnd = System.nanoTime();
+
+                deadline = pace(deadline, presentEnd);
+                long frameEnd = System.nanoTime();
+                frameCount++;
+                recordFrame(frameStart, eventsEnd, renderEnd, presentEnd, frameEnd);
+
+                if (simulationError != null) {
+                    throw new RuntimeException("模拟线程异常", simulationError);
+                }
+            }
+        } finally {
+            running = false;
+            try {
+                simulation.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 计算流水线模式的插值系数
+     * 渲染时刻对应的模拟时间取最新快照的模拟时间加上它发布后经过的真实时间，再减去一个步长，
+     * 这样在下一个快照到达之前，画面从上一个快照平滑过渡到最新的快照
+     * @param previous 上一个快照
+     * @param latest 最新的快照
+     * @param now 当前时刻（System.nanoTime）
+     * @return 插值系数，0为上一个快照，1为最新的快照
+     */
+    private float interpolation(RenderSnapshot previous, RenderSnapshot latest, long now) {
+        double span = latest.getSimulationTime() - previous.getSimulationTime();
+        if (span <= 0.0) {
+            return 1.0f;
+        }
+        double renderTime = latest.getSimulationTime() + (now - latest.getCaptureTime()) / 1.0e9 - fixedStep;
+        double t = (renderTime - previous.getSimulationTime()) / span;
+        return (float) Math.max(0.0, Math.min(1.0, t));
+    }
+
+    /**
+     * 模拟线程主循环：积累真实时间，按固定步长更新，有更新时捕获并发布快照，否则等到下一步
+     * @param pipeline 监听器
+     */
+    private void simulate(PipelinedListener pipeline) {
+        try {
+            long previous = System.nanoTime();
+            double accumulator = 0.0;
+            while (running) {
+                long start = System.nanoTime();
+                double elapsed = (start - previous) / 1.0e9;
+                previous = start;
+                if (elapsed > maxFrameTime) {
+                    droppedTime += elapsed - maxFrameTime;
+                    elapsed = maxFrameTime;
+                }
+                accumulator += elapsed;
+
+                int updates = 0;
+                while (accumulator >= fixedStep) {
+                    if (updates == maxUpdatesPerFrame) {
+                        double excess = accumulator - accumulator % fixedStep;
+                        droppedTime += excess;
+                        accumulator -= excess;
+                        break;
+                    }
+                    pipeline.update((float) fixedStep);
+                    accumulator -= fixedStep;
+                    simulationTime += fixedStep;
+                    updates++;
+                }
+
+                if (updates > 0) {
+                    RenderSnapshot snapshot = exchange.getBack();
+                    snapshot.clear();
+                    snapshot.setSimulationTime(simulationTime);
+                    pipeline.capture(snapshot);
+                    snapshot.setCaptureTime(System.nanoTime());
+                    exchange.publish();
+                    // 渲染线程只使用同步的parallelFor，异步任务和模拟线程的临时内存都在这里结算
+                    jobs().completeFrame();
+                    updatesLastFrame = updates;
+                    updateTime = smooth(updateTime, (System.nanoTime() - start) / 1.0e6);
+                }
+
+                // 距离下一步还有时间就休眠，不自旋占用渲染线程需要的核心
+                long remaining = start + (long) ((fixedStep - accumulator) * 1.0e9) - System.nanoTime();
+                if (remaining > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+            }
+        } catch (Throwable e) {
+            simulationError = e;
+            running = false;
+        }
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+
+    /**
+     * 设置每帧调用帧屏障的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * PACING_CAPPED模式下等待到下一帧的截止时刻
+     * @param deadline 上一帧的截止时刻
+     * @param now 当前时刻
+     * @return 本帧的截止时刻
+     */
+    private long pace(long deadline, long now) {
+        if (pacingMode != PACING_CAPPED) {
+            return now;
+        }
+        long period = (long) (1.0e9 / targetFps);
+        deadline += period;
+        // 落后超过一帧时从当前时刻重新计时，不连续快速补帧
+        if (deadline < now - period) {
+            return now;
+        }
+        waitUntil(deadline);
+        return deadline;
+    }
+
+    /**
+     * 记录一帧各阶段的耗时
+     */
+    private void recordFrame(long frameStart, long updateEnd, long renderEnd, long presentEnd, long frameEnd) {
+        if (!pipelined) {
+            // 流水线模式下模拟耗时由模拟线程记录
+            updateTime = smooth(updateTime, (updateEnd - frameStart) / 1.0e6);
+        }
+        renderTime = smooth(renderTime, (renderEnd - updateEnd) / 1.0e6);
+        presentTime = smooth(presentTime, (presentEnd - renderEnd) / 1.0e6);
+        waitTime = smooth(waitTime, (frameEnd - presentEnd) / 1.0e6);
+        frameTime = smooth(frameTime, (frameEnd - frameStart) / 1.0e6);
+    }
+
+    /**
+     * 请求在当前帧结束后退出循环
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * 混合等待：剩余时间大于休眠误差估计时每次休眠1毫秒，之后自旋到截止时刻
+     * @param deadline 截止时刻（System.nanoTime）
+     */
+    private void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > sleepMean + Math.sqrt(sleepVariance)) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(1_000_000L);
+            double observed = System.nanoTime() - start;
+            // 用指数平均跟踪休眠的实际耗时和波动，系统定时器精度变化时自动适应
+            double delta = observed - sleepMean;
+            sleepMean += 0.05 * delta;
+            sleepVariance = 0.95 * (sleepVariance + 0.05 * delta * delta);
+            remaining = deadline - System.nanoTime();
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 按帧率控制模式设置窗口的交换间隔
+     */
+    private void applyPacingMode() {
+        window.setSwapInterval(pacingMode == PACING_VSYNC ? 1 : 0);
+    }
+
+    private double smooth(double average, double sample) {
+        return frameCount <= 1 ? sample : average + (sample - average) * SMOOTHING;
+    }
+
+    /**
+     * 设置是否使用流水线模式（需在run之前调用，监听器必须实现PipelinedListener）
+     * @param pipelined 是否使用流水线模式
+     */
+    public void setPipelined(boolean pipelined) {
+        if (pipelined && !(listener instanceof PipelinedListener)) {
+            throw new IllegalArgumentException("流水线模式需要监听器实现PipelinedListener");
+        }
+        if (running) {
+            throw new IllegalStateException("游戏循环运行中不能切换流水线模式");
+        }
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * 判断是否使用流水线模式
+     * @return 是否使用流水线模式
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * 设置模拟的固定步长
+     * @param fixedStep 步长（秒）
+     */
+    public void setFixedStep(double fixedStep) {
+        if (fixedStep <= 0.0) {
+            throw new IllegalArgumentException("固定步长必须大于0: " + fixedStep);
+        }
+        this.fixedStep = fixedStep;
+    }
+
+    /**
+     * 获取模拟的固定步长
+     * @return 步长（秒）
+     */
+    public double getFixedStep() {
+        return fixedStep;
+    }
+
+    /**
+     * 设置每帧最多执行的模拟步数（死亡螺旋保护）
+     * @param maxUpdatesPerFrame 最多步数
+     */
+    public void setMaxUpdatesPerFrame(int maxUpdatesPerFrame) {
+        if (maxUpdatesPerFrame < 1) {
+            throw new IllegalArgumentException("每帧最多步数必须至少为1: " + maxUpdatesPerFrame);
+        }
+        this.maxUpdatesPerFrame = maxUpdatesPerFrame;
+    }
+
+    /**
+     * 获取每帧最多执行的模拟步数
+     * @return 最多步数
+     */
+    public int getMaxUpdatesPerFrame() {
+        return maxUpdatesPerFrame;
+    }
+
+    /**
+     * 设置单帧计入的最长时间，超出部分直接丢弃
+     * @param maxFrameTime 最长时间（秒）
+     */
+    public void setMaxFrameTime(double maxFrameTime) {
+        if (maxFrameTime <= 0.0) {
+            throw new IllegalArgumentException("单帧最长时间必须大于0: " + maxFrameTime);
+        }
+        this.maxFrameTime = maxFrameTime;
+    }
+
+    /**
+     * 获取单帧计入的最长时间
+     * @return 最长时间（秒）
+     */
+    public double getMaxFrameTime() {
+        return maxFrameTime;
+    }
+
+    /**
+     * 设置帧率控制模式，运行中设置在下一帧生效
+     * @param pacingMode PACING_VSYNC、PACING_UNCAPPED或PACING_CAPPED
+     */
+    public void setPacingMode(int pacingMode) {
+        if (pacingMode < PACING_VSYNC || pacingMode > PACING_CAPPED) {
+            throw new IllegalArgumentException("未知的帧率控制模式: " + pacingMode);
+        }
+        this.pacingMode = pacingMode;
+        if (running) {
+            applyPacingMode();
+        }
+    }
+
+    /**
+     * 获取帧率控制模式
+     * @return 帧率控制模式
+     */
+    public int getPacingMode() {
+        return pacingMode;
+    }
+
+    /**
+     * 设置PACING_CAPPED模式下的目标帧率
+     * @param targetFps 目标帧率
+     */
+    public void setTargetFps(double targetFps) {
+        if (targetFps <= 0.0) {
+            throw new IllegalArgumentException("目标帧率必须大于0: " + targetFps);
+        }
+        this.targetFps = targetFps;
+    }
+
+    /**
+     * 获取目标帧率
+     * @return 目标帧率
+     */
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * 获取平均模拟耗时（包括事件处理）
+     * @return 毫秒
+     */
+    public double getUpdateTime() {
+        return updateTime;
+    }
+
+    /**
+     * 获取平均渲染耗时（提交绘制命令）
+     * @return 毫秒
+     */
+    public double getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * 获取平均交换缓冲区耗时（垂直同步时包括等待刷新）
+     * @return 毫秒
+     */
+    public double getPresentTime() {
+        return presentTime;
+    }
+
+    /**
+     * 获取平均帧率限制等待时间
+     * @return 毫秒
+     */
+    public double getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * 获取平均帧时间
+     * @return 毫秒
+     */
+    public double getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * 获取平均帧率
+     * @return 帧率
+     */
+    public double getFps() {
+        return frameTime > 0.0 ? 1000.0 / frameTime : 0.0;
+    }
+
+    /**
+     * 获取上一帧执行的模拟步数
+     * @return 步数
+     */
+    public int getUpdatesLastFrame() {
+        return updatesLastFrame;
+    }
+
+    /**
+     * 获取已渲染的帧数
+     * @return 帧数
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 获取已模拟的总时间
+     * @return 秒
+     */
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    /**
+     * 获取因停顿或死亡螺旋保护而丢弃的总时间
+     * @return 秒
+     */
+    public double getDroppedTime() {
+        return droppedTime;
+    }
+
+    /**
+     * 获取上一帧的插值系数
+     * @return 插值系数
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * 判断循环是否在运行
+     * @return 是否在运行
+     */
+    public boolean isRunning() {
+        return running;
+    }
+}
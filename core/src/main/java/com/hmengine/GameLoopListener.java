@@ -0,0 +1,18 @@
+package com.hmengine;
+
+/**
+ * 游戏循环监听器接口
+ */
+public interface GameLoopListener {
+    /**
+     * 以固定步长推进模拟
+     * @param dt 固定步长（秒）
+     */
+    void update(float dt);
+
+    /**
+     * 渲染一帧
+     * @param alpha 插值系数（0到1），表示当前时刻位于上一次和下一次模拟状态之间的位置
+     */
+    void render(float alpha);
+}
@@ -0,0 +1,24 @@
+package com.hmengine;
+
+import com.hmengine.pipeline.RenderSnapshot;
+
+/**
+ * 流水线模式的游戏循环监听器接口
+ * update和capture在模拟线程调用，render(RenderSnapshot, RenderSnapshot, float)在创建窗口的渲染线程调用。
+ * 两个线程之间只通过快照交换数据，模拟线程不能调用OpenGL，渲染线程不能访问模拟线程的场景。
+ */
+public interface PipelinedListener extends GameLoopListener {
+    /**
+     * 把当前模拟状态写入快照（模拟线程）
+     * @param snapshot 已清空的快照
+     */
+    void capture(RenderSnapshot snapshot);
+
+    /**
+     * 在上一个快照和最新的快照之间插值绘制（渲染线程）
+     * @param previous 上一个快照，只发布过一个快照时与snapshot相同
+     * @param snapshot 最新的快照
+     * @param alpha 插值系数，0为上一个快照，1为最新的快照
+     */
+    void render(RenderSnapshot previous, RenderSnapshot snapshot, float alpha);
+}
@@ -1,21 +1,93 @@
 package com.hmengine;
 
+import com.hmengine.ecs.EntityWorld;
 import com.hmengine.geometry.Mesh;
-import org.joml.Vector3f;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.render.CommandList;
+import com.hmengine.render.CommandRecorder;
+import com.hmengine.render.DynamicBatcher;
+import com.hmengine.render.FrustumCuller;
+import com.hmengine.render.GpuCuller;
+import com.hmengine.render.InstancedRenderer;
+import com.hmengine.render.MeshBufferCache;
+import com.hmengine.render.RenderQueue;
+import com.hmengine.render.RenderStats;
+import com.hmengine.render.StaticBatcher;
+import org.joml.Vector4f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
 /**
  * 渲染器类
  */
 public class Renderer {
-    private int VAO;
-    private int VBO;
     private Shader shader;
     private Camera camera;
     private Scene scene;
+
+    // 网格GPU缓冲区缓存，网格移出场景时释放
+    private final MeshBufferCache bufferCache = new MeshBufferCache();
+
+    // 实例化渲染：共享几何数据的网格合并为一次绘制
+    private final InstancedRenderer instancedRenderer = new InstancedRenderer(bufferCache);
+    private Shader instanceShader;
+    private boolean instancingEnabled = false;
+
+    // 动态合批：小网格在CPU上变换后合并为一次绘制
+    private final DynamicBatcher batcher = new DynamicBatcher(65536);
+    private Shader batchShader;
+    private boolean batchingEnabled = false;
+
+    // 静态合批：静态网格按区域烘焙为带索引的合并缓冲区
+    private final StaticBatcher staticBatcher = new StaticBatcher();
+    private boolean staticBatchingEnabled = true;
+    private List<Mesh> unbatchedStaticMeshes = new ArrayList<>();
+
+    // 实体世界：大量简单二维物体按SoA存储，通过动态合批绘制
+    private EntityWorld entityWorld;
+
+    // GPU剔除：计算着色器剔除后用间接绘制一次提交（需要OpenGL 4.3）。
+    // 还没有在真实驱动上跑通GpuCullingCheck，必须用该系统属性显式开启
+    public static final String GPU_CULLING_PROPERTY = "hmengine.experimentalGpuCulling";
+    private final GpuCuller gpuCuller = new GpuCuller();
+    private ComputeShader cullShader;
+    private Shader indirectShader;
+    private boolean gpuCullingEnabled = false;
+
+    private final SceneListener sceneListener = new SceneListener() {
+        @Override
+        public void onMeshAdded(Mesh mesh) {
+            bufferCache.retain(mesh.getMeshData());
+        }
+
+        @Override
+        public void onMeshRemoved(Mesh mesh) {
+            if (bufferCache.release(mesh.getMeshData())) {
+                instancedRenderer.release(mesh.getMeshData());
+            }
+        }
+    };
     
+    // 批量视锥体剔除：候选网格的包围球以SoA形式一次性测试
+    private final FrustumCuller frustumCuller = new FrustumCuller();
+    private Mesh[] cullCandidates = new Mesh[256];
+
+    // 空间索引查询结果（每帧复用）
+    private final List<Mesh> spatialCandidates = new ArrayList<>();
+    private final Vector4f visibleBounds = new Vector4f();
+
+    // 渲染命令队列和每帧统计
+    // 可见网格较多时由工作线程并行录制绘制命令
+    private static final int PARALLEL_RECORD_THRESHOLD = 4096;
+    private final CommandRecorder commandRecorder = new CommandRecorder();
+    private boolean parallelRecordingEnabled = true;
+
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final RenderStats stats = new RenderStats();
+
     // 控制网格线和轮廓线显示的布尔变量
     private boolean showGridLines = true;
 
@@ -28,20 +100,7 @@ public class Renderer {
         this.shader = shader;
         this.camera = camera;
         this.scene = new Scene();
-        init();
-    }
-
-    /**
-     * 初始化
-     */
-    private void init() {
-        // 创建VAO和VBO
-        VAO = glGenVertexArrays();
-        VBO = glGenBuffers();
-        glBindVertexArray(VAO);
-        glBindBuffer(GL_ARRAY_BUFFER, VBO);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0L);
-        glEnableVertexAttribArray(0);
+        this.scene.addListener(sceneListener);
     }
 
     /**
@@ -49,7 +108,17 @@ public class Renderer {
      * @param scene 场景
      */
     public void setScene(Scene scene) {
+        if (this.scene == scene) {
+            return;
+        }
+        this.scene.removeListener(sceneListener);
+        instancedRenderer.cleanup();
+        bufferCache.clear();
         this.scene = scene;
+        this.scene.addListener(sceneListener);
+        for (Mesh mesh : scene.getMeshes()) {
+            bufferCache.retain(mesh.getMeshData());
+        }
     }
 
     /**
@@ -69,63 +138,293 @@ public class Renderer {
     }
 
     /**
-     * 更新缓冲区
+     * 渲染
+     */
+    public void render() {
+        stats.reset();
+        // 批量更新本帧修改过的变换，之后各渲染路径读取的模型矩阵都是最新的
+        scene.updateTransforms();
+        boolean entities = entityWorld != null && batchShader != null;
+        if (entities) {
+            entityWorld.update();
+        }
+        boolean instanced = instancingEnabled && instanceShader != null;
+        if (instanced) {
+            instancedRenderer.begin();
+        }
+        boolean gpuCulled = gpuCullingEnabled && cullShader != null && indirectShader != null;
+        if (gpuCulled) {
+            gpuCuller.begin();
+        }
+        boolean batched = batchingEnabled && batchShader != null && !gpuCulled;
+        boolean staticBatched = staticBatchingEnabled && batchShader != null;
+        if (batched || staticBatched || entities) {
+            // 批次写满时会在收集过程中直接提交，因此先绑定合批着色器
+            batcher.begin();
+            batchShader.use();
+            batchShader.setProjectionMatrix(camera.getProjectionMatrix());
+            batchShader.setViewMatrix(camera.getViewMatrix());
+            stats.addStateChange();
+        }
+        renderQueue.clear();
+        int shaderSlot = renderQueue.shaderSlot(shader);
+
+        frustumCuller.clear();
+        if (staticBatched) {
+            // 静态网格集合变化时重新烘焙，之后每帧只绘制可见区域
+            if (staticBatcher.isStale(scene, scene.getStaticVersion())) {
+                unbatchedStaticMeshes = staticBatcher.rebuild(scene, scene.getStaticVersion(), scene.getStaticMeshes());
+            }
+            staticBatcher.render(batchShader, camera, showGridLines, stats);
+        }
+
+        if (!gpuCulled && scene.getSpatialIndex() != null) {
+            // 先用空间索引取出视锥体包围矩形内的网格，再做精确剔除
+            camera.getVisibleBounds(visibleBounds);
+            scene.queryRect(visibleBounds.x, visibleBounds.y, visibleBounds.z, visibleBounds.w, spatialCandidates);
+            for (int i = 0; i < spatialCandidates.size(); i++) {
+                Mesh mesh = spatialCandidates.get(i);
+                if (!staticBatched || !staticBatcher.isBaked(mesh)) {
+                    collect(mesh, false);
+                }
+            }
+            spatialCandidates.clear();
+        } else if (staticBatched) {
+            // 收集动态网格和无法烘焙的静态网格
+            for (Mesh mesh : scene.getDynamicMeshes()) {
+                collect(mesh, gpuCulled);
+            }
+            for (Mesh mesh : unbatchedStaticMeshes) {
+                collect(mesh, gpuCulled);
+            }
+        } else {
+            // 收集场景中所有物体
+            for (Mesh mesh : scene.getMeshes()) {
+                collect(mesh, gpuCulled);
+            }
+        }
+
+        // 批量剔除后按渲染路径分发可见网格
+        int candidates = frustumCuller.size();
+        if (candidates > 0) {
+            int visible = frustumCuller.cull(camera);
+            stats.addInstancesDrawn(visible);
+            stats.addInstancesCulled(candidates - visible);
+            if (parallelRecordingEnabled && visible >= PARALLEL_RECORD_THRESHOLD) {
+                submitRecorded(batched, instanced, shaderSlot);
+            } else {
+                for (int i = frustumCuller.nextVisible(0); i >= 0; i = frustumCuller.nextVisible(i + 1)) {
+                    dispatch(cullCandidates[i], batched, instanced, shaderSlot);
+                }
+            }
+            Arrays.fill(cullCandidates, 0, candidates, null);
+        }
+
+        if (entities) {
+            entityWorld.render(camera, batcher, batchShader, showGridLines, stats);
+        }
+
+        if (batched || entities) {
+            batcher.flush(batchShader, showGridLines, stats);
+        }
+
+        renderQueue.sort();
+        executeQueue();
+
+        if (gpuCulled) {
+            gpuCuller.render(cullShader, indirectShader, camera, showGridLines, stats);
+        }
+
+        if (instanced) {
+            instanceShader.use();
+            instanceShader.setProjectionMatrix(camera.getProjectionMatrix());
+            instanceShader.setViewMatrix(camera.getViewMatrix());
+            stats.addStateChange();
+            instancedRenderer.flush(instanceShader, showGridLines, stats);
+        }
+    }
+
+    /**
+     * 收集网格：GPU剔除模式下直接交给GPU，否则加入批量剔除的候选
      * @param mesh 网格
+     * @param gpuCulled 是否启用GPU剔除
      */
-    private void updateBuffer(Mesh mesh) {
-        glBindBuffer(GL_ARRAY_BUFFER, VBO);
-        glBufferData(GL_ARRAY_BUFFER, mesh.getVertices(), GL_STATIC_DRAW);
+    private void collect(Mesh mesh, boolean gpuCulled) {
+        // GPU剔除模式下由计算着色器做视锥体检查
+        if (gpuCulled) {
+            gpuCuller.add(mesh);
+            return;
+        }
+
+        int index = frustumCuller.add(mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldZ(), mesh.getWorldBoundingRadius());
+        if (index == cullCandidates.length) {
+            cullCandidates = Arrays.copyOf(cullCandidates, cullCandidates.length * 2);
+        }
+        cullCandidates[index] = mesh;
     }
 
     /**
-     * 渲染
+     * 对可见网格按渲染路径分发：动态合批、实例化或渲染队列
+     * @param mesh 网格
+     * @param batched 是否启用动态合批
+     * @param instanced 是否启用实例化渲染
+     * @param shaderSlot 主着色器槽位
      */
-    public void render() {
-        // 渲染场景中的所有物体
-        for (Mesh mesh : scene.getMeshes()) {
-            // 检查物体是否在视锥体内
-            Vector3f position = mesh.getPosition();
-            float radius = 0.1f; // 假设物体的包围球半径为0.1
-            if (!camera.isInFrustum(position.x, position.y, position.z, radius)) {
-                continue; // 如果不在视锥体内，跳过渲染
+    private void dispatch(Mesh mesh, boolean batched, boolean instanced, int shaderSlot) {
+        // 顶点数不超过阈值的网格合入动态批次
+        if (batched && batcher.accepts(mesh)) {
+            batcher.add(mesh, batchShader, showGridLines, stats);
+            return;
+        }
+
+        // 实例化模式下只收集实例数据，循环结束后统一绘制；需要三维旋转的网格走渲染队列
+        if (instanced && mesh.isAffine()) {
+            instancedRenderer.add(mesh);
+            return;
+        }
+
+        enqueue(mesh, shaderSlot);
+    }
+
+    /**
+     * 由工作线程并行录制可见网格的命令列表，再在当前线程上按列表顺序合并提交：
+     * 合批顶点已由工作线程写入映射缓冲区，实例数据批量交给实例化渲染器，其余网格加入渲染队列
+     * @param batched 是否启用动态合批
+     * @param instanced 是否启用实例化渲染
+     * @param shaderSlot 主着色器槽位
+     */
+    private void submitRecorded(boolean batched, boolean instanced, int shaderSlot) {
+        commandRecorder.record(frustumCuller, cullCandidates, batcher, batched, instanced);
+        if (batched) {
+            commandRecorder.submitBatches(batchShader, showGridLines, stats);
+        }
+        if (instanced) {
+            commandRecorder.submitInstances(instancedRenderer);
+        }
+        for (int l = 0; l < commandRecorder.getListCount(); l++) {
+            CommandList list = commandRecorder.getList(l);
+            for (int i = 0; i < list.getQueuedCount(); i++) {
+                enqueue(list.getQueued(i), shaderSlot);
             }
-            
-            // 更新顶点数据
-            updateBuffer(mesh);
-            
-            // 使用主着色器绘制填充部分
-            shader.use();
-            shader.setProjectionMatrix(camera.getProjectionMatrix());
-            shader.setViewMatrix(camera.getViewMatrix());
-            shader.setModelMatrix(mesh.getModelMatrix());
-            shader.setColor(
-                mesh.getColor().x,
-                mesh.getColor().y,
-                mesh.getColor().z,
-                mesh.getColor().w
-            );
-            
-            // 绘制填充部分
-            glBindVertexArray(VAO);
-            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
-            glDrawArrays(mesh.getPrimitiveType(), 0, mesh.getVertexCount());
+        }
+    }
+
+    /**
+     * 把网格加入渲染队列（需要网格线时再加一条线框命令，排序后紧跟在该网格的填充命令之后）
+     * @param mesh 网格
+     * @param shaderSlot 主着色器槽位
+     */
+    private void enqueue(Mesh mesh, int shaderSlot) {
+        int vao = bufferCache.getVertexArray(mesh.getMeshData());
+        float depth = camera.getViewDepth(mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldZ());
+        renderQueue.submit(RenderQueue.makeKey(RenderQueue.PASS_FILL, shaderSlot,
+            mesh.getPrimitiveType(), vao, depth), mesh);
+        if (showGridLines) {
+            renderQueue.submit(RenderQueue.makeKey(RenderQueue.PASS_LINES, shaderSlot,
+                mesh.getPrimitiveType(), vao, depth), mesh);
+        }
+    }
 
-            // 绘制网格线
-            if (showGridLines) {
-                shader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
-                glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
-                glDrawArrays(mesh.getPrimitiveType(), 0, mesh.getVertexCount());
+    /**
+     * 执行排序后的渲染队列，只在排序键字段变化时切换状态
+     */
+    private void executeQueue() {
+        int count = renderQueue.size();
+        stats.addSubmittedCommands(count);
+        if (count == 0) {
+            return;
+        }
+
+        int currentPass = -1;
+        int currentShader = -1;
+        int currentBuffer = -1;
+        int currentAffine = -1;
+        Shader active = null;
+        for (int i = 0; i < count; i++) {
+            long key = renderQueue.getKey(i);
+            Mesh mesh = renderQueue.getMesh(i);
+
+            int shaderSlot = RenderQueue.getShader(key);
+            if (shaderSlot != currentShader) {
+                currentShader = shaderSlot;
+                active = renderQueue.shaderAt(shaderSlot);
+                active.use();
+                active.setProjectionMatrix(camera.getProjectionMatrix());
+                active.setViewMatrix(camera.getViewMatrix());
+                currentPass = -1; // 新着色器需要重新设置通道相关的uniform
+                currentAffine = -1;
+                stats.addStateChange();
+            }
+
+            int pass = RenderQueue.getPass(key);
+            if (pass != currentPass) {
+                currentPass = pass;
+                if (pass == RenderQueue.PASS_LINES) {
+                    active.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+                    glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+                } else {
+                    glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+                }
+                stats.addStateChange();
+            }
+
+            int buffer = RenderQueue.getBuffer(key);
+            if (buffer != currentBuffer) {
+                currentBuffer = buffer;
+                bufferCache.bind(mesh.getMeshData());
+                stats.addStateChange();
             }
+
+            // 二维网格只上传3x2仿射矩阵，着色器不支持或需要三维旋转时上传4x4矩阵
+            int affine = active.supportsAffine() && mesh.isAffine() ? 1 : 0;
+            if (affine != currentAffine) {
+                currentAffine = affine;
+                if (active.supportsAffine()) {
+                    active.setAffineMode(affine == 1);
+                }
+            }
+            if (affine == 1) {
+                active.setModelAffine(mesh.getAffineMatrix());
+            } else {
+                active.setModelMatrix(mesh.getModelMatrix());
+            }
+            if (pass == RenderQueue.PASS_FILL) {
+                active.setColor(
+                    mesh.getColor().x,
+                    mesh.getColor().y,
+                    mesh.getColor().z,
+                    mesh.getColor().w
+                );
+            }
+            glDrawArrays(mesh.getPrimitiveType(), 0, mesh.getVertexCount());
+            stats.addDrawCall();
         }
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glBindVertexArray(0);
     }
 
     /**
      * 清理
      */
     public void cleanup() {
-        glDeleteVertexArrays(VAO);
-        glDeleteBuffers(VBO);
+        scene.removeListener(sceneListener);
+        instancedRenderer.cleanup();
+        commandRecorder.cleanup();
+        batcher.cleanup();
+        staticBatcher.cleanup();
+        gpuCuller.cleanup();
+        bufferCache.clear();
         shader.cleanup();
+        if (instanceShader != null) {
+            instanceShader.cleanup();
+        }
+        if (batchShader != null) {
+            batchShader.cleanup();
+        }
+        if (cullShader != null) {
+            cullShader.cleanup();
+            indirectShader.cleanup();
+        }
     }
     
     /**
@@ -143,4 +442,191 @@ public class Renderer {
     public void setShowGridLines(boolean showGridLines) {
         this.showGridLines = showGridLines;
     }
+
+    /**
+     * 设置实例化着色器，设置后可启用实例化渲染
+     * @param instanceShader 实例化着色器（如instanced.vert/instanced.frag）
+     */
+    public void setInstanceShader(Shader instanceShader) {
+        this.instanceShader = instanceShader;
+    }
+
+    /**
+     * 获取是否启用实例化渲染
+     * @return 是否启用实例化渲染
+     */
+    public boolean isInstancingEnabled() {
+        return instancingEnabled;
+    }
+
+    /**
+     * 设置是否启用实例化渲染（需要先设置实例化着色器）
+     * @param instancingEnabled 是否启用实例化渲染
+     */
+    public void setInstancingEnabled(boolean instancingEnabled) {
+        this.instancingEnabled = instancingEnabled;
+    }
+
+    /**
+     * 判断是否启用并行命令录制
+     * @return 是否启用
+     */
+    public boolean isParallelRecordingEnabled() {
+        return parallelRecordingEnabled;
+    }
+
+    /**
+     * 设置是否启用并行命令录制（可见网格较多时由工作线程录制命令列表，OpenGL调用仍在渲染线程）
+     * @param parallelRecordingEnabled 是否启用
+     */
+    public void setParallelRecordingEnabled(boolean parallelRecordingEnabled) {
+        this.parallelRecordingEnabled = parallelRecordingEnabled;
+    }
+
+    /**
+     * 设置命令录制和视锥体剔除使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        commandRecorder.setJobSystem(jobSystem);
+        frustumCuller.setJobSystem(jobSystem);
+    }
+
+    /**
+     * 设置合批着色器，设置后可启用动态合批
+     * @param batchShader 合批着色器（如batch.vert/batch.frag）
+     */
+    public void setBatchShader(Shader batchShader) {
+        this.batchShader = batchShader;
+    }
+
+    /**
+     * 设置实体世界，其中的精灵在设置了合批着色器时随场景一起绘制
+     * @param entityWorld 实体世界，为null时不绘制
+     */
+    public void setEntityWorld(EntityWorld entityWorld) {
+        this.entityWorld = entityWorld;
+    }
+
+    /**
+     * 获取实体世界
+     * @return 实体世界
+     */
+    public EntityWorld getEntityWorld() {
+        return entityWorld;
+    }
+
+    /**
+     * 获取是否启用动态合批
+     * @return 是否启用动态合批
+     */
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    /**
+     * 设置是否启用动态合批（需要先设置合批着色器）
+     * @param batchingEnabled 是否启用动态合批
+     */
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    /**
+     * 设置动态合批的顶点数阈值，超过阈值的网格单独绘制
+     * @param vertexThreshold 顶点数阈值
+     */
+    public void setBatchVertexThreshold(int vertexThreshold) {
+        batcher.setVertexThreshold(vertexThreshold);
+    }
+
+    /**
+     * 获取是否启用静态合批
+     * @return 是否启用静态合批
+     */
+    public boolean isStaticBatchingEnabled() {
+        return staticBatchingEnabled;
+    }
+
+    /**
+     * 设置是否启用静态合批（需要先设置合批着色器），关闭时静态网格按动态网格绘制
+     * @param staticBatchingEnabled 是否启用静态合批
+     */
+    public void setStaticBatchingEnabled(boolean staticBatchingEnabled) {
+        this.staticBatchingEnabled = staticBatchingEnabled;
+    }
+
+    /**
+     * 设置静态合批的区域大小（世界单位）
+     * @param regionSize 区域大小
+     */
+    public void setStaticRegionSize(float regionSize) {
+        staticBatcher.setRegionSize(regionSize);
+    }
+
+    /**
+     * 判断当前OpenGL上下文是否支持GPU剔除
+     * @return 是否支持
+     */
+    public boolean isGpuCullingSupported() {
+        return GpuCuller.isSupported();
+    }
+
+    /**
+     * 设置GPU剔除所需的着色器
+     * @param cullShader 剔除计算着色器（如cull.comp）
+     * @param indirectShader 间接绘制着色器（如indirect.vert/indirect.frag）
+     */
+    public void setGpuCullingShaders(ComputeShader cullShader, Shader indirectShader) {
+        this.cullShader = cullShader;
+        this.indirectShader = indirectShader;
+    }
+
+    /**
+     * 获取是否启用GPU剔除
+     * @return 是否启用GPU剔除
+     */
+    public boolean isGpuCullingEnabled() {
+        return gpuCullingEnabled;
+    }
+
+    /**
+     * 设置是否启用GPU剔除（需要OpenGL 4.3并先设置着色器），启用后动态网格全部走GPU剔除路径。
+     * GPU剔除仍是实验功能，只有以-Dhmengine.experimentalGpuCulling=true启动时才会真正启用，否则保持CPU剔除
+     * @param gpuCullingEnabled 是否启用GPU剔除
+     */
+    public void setGpuCullingEnabled(boolean gpuCullingEnabled) {
+        if (gpuCullingEnabled && !Boolean.getBoolean(GPU_CULLING_PROPERTY)) {
+            System.err.println("GPU剔除尚未验证，使用CPU剔除（用-D" + GPU_CULLING_PROPERTY + "=true开启）");
+            return;
+        }
+        if (gpuCullingEnabled && !GpuCuller.isSupported()) {
+            throw new IllegalStateException("当前OpenGL上下文不支持GPU剔除（需要OpenGL 4.3）");
+        }
+        this.gpuCullingEnabled = gpuCullingEnabled;
+    }
+
+    /**
+     * 设置GPU剔除是否每帧回读可见实例数（用于统计，会等待GPU完成剔除）
+     * @param readback 是否回读
+     */
+    public void setGpuCullingStatsReadback(boolean readback) {
+        gpuCuller.setStatsReadback(readback);
+    }
+
+    /**
+     * 获取GPU剔除器（用于查询登记的几何体数等统计）
+     * @return GPU剔除器
+     */
+    public GpuCuller getGpuCuller() {
+        return gpuCuller;
+    }
+
+    /**
+     * 获取上一帧的渲染统计
+     * @return 渲染统计
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
 }
\ No newline at end of file
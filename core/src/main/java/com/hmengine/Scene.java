@@ -1,50 +1,751 @@
 package com.hmengine;
 
+import com.hmengine.ecs.Entity;
+import com.hmengine.ecs.EntityRegistry;
 import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.TransformListener;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import com.hmengine.spatial.SpatialIndex;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
 
 /**
  * 场景类
  */
 public class Scene {
-    private List<Mesh> meshes;
+    // 同一层级深度的脏网格超过该数量时并行更新模型矩阵
+    private static final int PARALLEL_TRANSFORM_THRESHOLD = 4096;
+
+    // 延迟命令类型
+    private static final byte COMMAND_ADD = 0;
+    private static final byte COMMAND_REMOVE = 1;
+    private static final byte COMMAND_SET_STATIC = 2;
+    private static final byte COMMAND_SET_DYNAMIC = 3;
+    private static final byte COMMAND_CLEAR = 4;
+
+    // 网格保存在紧密数组中，移除时用末尾元素填补空位，因此遍历顺序不固定
+    private final MeshList meshes = new MeshList();
+    private final List<Mesh> meshesView = Collections.unmodifiableList(meshes);
+    private List<SceneListener> listeners;
+
+    // 静态网格（放置后不再移动）单独保存，由渲染器烘焙为合并缓冲区
+    private final MeshList dynamicMeshes = new MeshList();
+    private final List<Mesh> dynamicMeshesView = Collections.unmodifiableList(dynamicMeshes);
+    private final MeshList staticMeshes = new MeshList();
+    private final List<Mesh> staticMeshesView = Collections.unmodifiableList(staticMeshes);
+    private int staticVersion;
+
+    // 网格句柄（格式与Entity相同：低位为槽位，高位为代数），网格移除后旧句柄失效
+    private final EntityRegistry handles = new EntityRegistry();
+    private Mesh[] slotMeshes = new Mesh[256];
+    private int[] slotHandles = new int[256];
+    private int[] slotIndices = new int[256];      // 在meshes中的下标，延迟添加尚未应用时为-1
+    private int[] slotPartIndices = new int[256];  // 在dynamicMeshes或staticMeshes中的下标
+    private boolean[] slotStatic = new boolean[256];
+    private boolean[] slotRemoving = new boolean[256];  // 已记录延迟移除，允许同一网格重新添加
+
+    // 延迟修改：beginUpdate和endUpdate之间的增删记录为命令，在endUpdate时按顺序一次性应用
+    private int updateDepth;
+    private byte[] commandTypes = new byte[64];
+    private int[] commandHandles = new int[64];
+    private int commandCount;
+
+    // 空间索引（按XY位置组织网格），默认不使用，由setSpatialIndex开启；网格变换后在updateTransforms中增量更新
+    private SpatialIndex spatialIndex;
+    private final TransformListener transformListener = this::onTransformChanged;
+
+    // 本帧变换被修改过的网格，在updateTransforms中批量更新模型矩阵和空间索引
+    private Set<Mesh> movedMeshes;
+    private Mesh[] transformQueue = new Mesh[256];
+    private int[] depthStart = new int[9];
+    // 同一深度的网格数量较多时分块并行更新模型矩阵
+    private JobSystem jobSystem;
+    private final RangeJob transformJob = (from, to, scratch) -> {
+        for (int i = from; i < to; i++) {
+            transformQueue[i].updateModelMatrix();
+        }
+    };
 
     /**
      * 构造函数
      */
     public Scene() {
-        this.meshes = new ArrayList<>();
+        this.listeners = new ArrayList<>();
+        this.movedMeshes = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * 添加网格（同一网格同一时间只能属于一个场景）
+     * @param mesh 网格
+     * @return 网格句柄
+     */
+    public int addMesh(Mesh mesh) {
+        return add(mesh, false);
     }
 
     /**
-     * 添加网格
+     * 添加静态网格（添加后不应再修改其变换和颜色）
      * @param mesh 网格
+     * @return 网格句柄
      */
-    public void addMesh(Mesh mesh) {
-        meshes.add(mesh);
+    public int addStaticMesh(Mesh mesh) {
+        return add(mesh, true);
     }
 
     /**
      * 移除网格
      * @param mesh 网格
+     * @return 网格是否在场景中
+     */
+    public boolean removeMesh(Mesh mesh) {
+        int handle = mesh.getSceneHandle();
+        return isValid(handle) && slotMeshes[Entity.index(handle)] == mesh && removeMesh(handle);
+    }
+
+    /**
+     * 按句柄移除网格，O(1)
+     * @param handle 网格句柄
+     * @return 句柄是否有效
+     */
+    public boolean removeMesh(int handle) {
+        if (!isValid(handle)) {
+            return false;
+        }
+        if (updateDepth > 0) {
+            int slot = Entity.index(handle);
+            if (!slotRemoving[slot]) {
+                slotRemoving[slot] = true;
+                record(COMMAND_REMOVE, handle);
+            }
+            return true;
+        }
+        detach(handle);
+        return true;
+    }
+
+    /**
+     * 判断句柄是否有效（网格已添加且未移除，延迟添加尚未应用时也有效）
+     * @param handle 网格句柄
+     * @return 是否有效
+     */
+    public boolean isValid(int handle) {
+        return handles.isAlive(handle);
+    }
+
+    /**
+     * 按句柄获取网格
+     * @param handle 网格句柄
+     * @return 网格，句柄无效时返回null
+     */
+    public Mesh getMesh(int handle) {
+        return isValid(handle) ? slotMeshes[Entity.index(handle)] : null;
+    }
+
+    /**
+     * 设置网格是否为静态
+     * @param mesh 场景中的网格
+     * @param isStatic 是否为静态
+     */
+    public void setStatic(Mesh mesh, boolean isStatic) {
+        int handle = mesh.getSceneHandle();
+        if (!isValid(handle) || slotMeshes[Entity.index(handle)] != mesh) {
+            return;
+        }
+        if (updateDepth > 0) {
+            record(isStatic ? COMMAND_SET_STATIC : COMMAND_SET_DYNAMIC, handle);
+            return;
+        }
+        applyStatic(handle, isStatic);
+    }
+
+    /**
+     * 判断网格是否为静态
+     * @param mesh 网格
+     * @return 是否为静态
+     */
+    public boolean isStatic(Mesh mesh) {
+        int handle = mesh.getSceneHandle();
+        if (!isValid(handle)) {
+            return false;
+        }
+        int slot = Entity.index(handle);
+        return slotMeshes[slot] == mesh && slotIndices[slot] >= 0 && slotStatic[slot];
+    }
+
+    /**
+     * 标记静态网格已修改（修改了静态网格的变换或颜色后调用），触发重新烘焙
+     */
+    public void markStaticDirty() {
+        staticVersion++;
+    }
+
+    /**
+     * 获取静态网格集合的版本，集合变化时递增
+     * @return 版本
      */
-    public void removeMesh(Mesh mesh) {
-        meshes.remove(mesh);
+    public int getStaticVersion() {
+        return staticVersion;
     }
 
     /**
-     * 获取网格列表
+     * 获取网格列表（只读）
      * @return 网格列表
      */
     public List<Mesh> getMeshes() {
-        return meshes;
+        return meshesView;
+    }
+
+    /**
+     * 获取动态网格列表（只读）
+     * @return 动态网格列表
+     */
+    public List<Mesh> getDynamicMeshes() {
+        return dynamicMeshesView;
+    }
+
+    /**
+     * 获取静态网格列表（只读）
+     * @return 静态网格列表
+     */
+    public List<Mesh> getStaticMeshes() {
+        return staticMeshesView;
     }
 
     /**
      * 清除网格
      */
     public void clear() {
+        if (updateDepth > 0) {
+            for (int i = 0; i < meshes.size(); i++) {
+                slotRemoving[meshes.slots[i]] = true;
+            }
+            for (int i = 0; i < commandCount; i++) {
+                if (commandTypes[i] == COMMAND_ADD) {
+                    slotRemoving[Entity.index(commandHandles[i])] = true;
+                }
+            }
+            record(COMMAND_CLEAR, -1);
+            return;
+        }
+        for (int i = 0; i < meshes.size(); i++) {
+            int slot = meshes.slots[i];
+            Mesh mesh = slotMeshes[slot];
+            mesh.setTransformListener(null);
+            for (SceneListener listener : listeners) {
+                listener.onMeshRemoved(mesh);
+            }
+            release(slot);
+        }
+        if (staticMeshes.size() > 0) {
+            staticVersion++;
+        }
         meshes.clear();
+        dynamicMeshes.clear();
+        staticMeshes.clear();
+        movedMeshes.clear();
+        if (spatialIndex != null) {
+            spatialIndex.clear();
+        }
+    }
+
+    /**
+     * 开始一段延迟修改：直到对应的endUpdate为止，增删网格和切换静态状态只记录为命令，
+     * 网格列表保持不变，渲染器或其他代码可以安全遍历。可以嵌套调用。
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * 结束延迟修改，最外层调用时按记录顺序一次性应用所有命令
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("endUpdate没有对应的beginUpdate");
+        }
+        if (--updateDepth == 0) {
+            flushCommands();
+        }
+    }
+
+    /**
+     * 判断是否处于延迟修改中
+     * @return 是否延迟
+     */
+    public boolean isUpdating() {
+        return updateDepth > 0;
+    }
+
+    /**
+     * 获取尚未应用的命令数量
+     * @return 命令数量
+     */
+    public int getPendingCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * 立即应用所有已记录的命令（通常由endUpdate调用）
+     */
+    public void flushCommands() {
+        int depth = updateDepth;
+        updateDepth = 0;
+        // 应用过程中监听器可能再次修改场景，新命令会直接执行
+        int count = commandCount;
+        commandCount = 0;
+        for (int i = 0; i < count; i++) {
+            int handle = commandHandles[i];
+            switch (commandTypes[i]) {
+                case COMMAND_ADD:
+                    if (isValid(handle)) {
+                        attach(handle);
+                    }
+                    break;
+                case COMMAND_REMOVE:
+                    if (isValid(handle)) {
+                        detach(handle);
+                    }
+                    break;
+                case COMMAND_SET_STATIC:
+                case COMMAND_SET_DYNAMIC:
+                    if (isValid(handle)) {
+                        applyStatic(handle, commandTypes[i] == COMMAND_SET_STATIC);
+                    }
+                    break;
+                default:
+                    clear();
+                    break;
+            }
+        }
+        updateDepth = depth;
+    }
+
+    /**
+     * 分配句柄并添加网格，延迟修改中只记录命令
+     * @param mesh 网格
+     * @param isStatic 是否为静态
+     * @return 网格句柄
+     */
+    private int add(Mesh mesh, boolean isStatic) {
+        if (mesh == null) {
+            throw new IllegalArgumentException("网格不能为空");
+        }
+        int current = mesh.getSceneHandle();
+        if (isValid(current) && slotMeshes[Entity.index(current)] == mesh && !slotRemoving[Entity.index(current)]) {
+            throw new IllegalArgumentException("网格已经在场景中");
+        }
+        int handle = handles.create();
+        int slot = Entity.index(handle);
+        if (slot >= slotMeshes.length) {
+            int capacity = Math.max(slot + 1, slotMeshes.length * 2);
+            slotMeshes = Arrays.copyOf(slotMeshes, capacity);
+            slotHandles = Arrays.copyOf(slotHandles, capacity);
+            slotIndices = Arrays.copyOf(slotIndices, capacity);
+            slotPartIndices = Arrays.copyOf(slotPartIndices, capacity);
+            slotStatic = Arrays.copyOf(slotStatic, capacity);
+            slotRemoving = Arrays.copyOf(slotRemoving, capacity);
+        }
+        slotMeshes[slot] = mesh;
+        slotHandles[slot] = handle;
+        slotIndices[slot] = -1;
+        slotStatic[slot] = isStatic;
+        slotRemoving[slot] = false;
+        mesh.setSceneHandle(handle);
+        if (updateDepth > 0) {
+            record(COMMAND_ADD, handle);
+        } else {
+            attach(handle);
+        }
+        return handle;
+    }
+
+    /**
+     * 把已分配句柄的网格放入列表
+     * @param handle 网格句柄
+     */
+    private void attach(int handle) {
+        int slot = Entity.index(handle);
+        Mesh mesh = slotMeshes[slot];
+        slotIndices[slot] = meshes.push(mesh, slot);
+        if (slotStatic[slot]) {
+            slotPartIndices[slot] = staticMeshes.push(mesh, slot);
+            staticVersion++;
+        } else {
+            slotPartIndices[slot] = dynamicMeshes.push(mesh, slot);
+        }
+        track(mesh);
+        for (SceneListener listener : listeners) {
+            listener.onMeshAdded(mesh);
+        }
+    }
+
+    /**
+     * 把网格从列表中换出并回收句柄
+     * @param handle 网格句柄
+     */
+    private void detach(int handle) {
+        int slot = Entity.index(handle);
+        Mesh mesh = slotMeshes[slot];
+        if (slotIndices[slot] >= 0) {
+            int index = slotIndices[slot];
+            int moved = meshes.removeAt(index);
+            if (moved >= 0) {
+                slotIndices[moved] = index;
+            }
+            MeshList part = slotStatic[slot] ? staticMeshes : dynamicMeshes;
+            int partIndex = slotPartIndices[slot];
+            moved = part.removeAt(partIndex);
+            if (moved >= 0) {
+                slotPartIndices[moved] = partIndex;
+            }
+            if (slotStatic[slot]) {
+                staticVersion++;
+            }
+            untrack(mesh);
+            for (SceneListener listener : listeners) {
+                listener.onMeshRemoved(mesh);
+            }
+        }
+        release(slot);
+    }
+
+    /**
+     * 回收槽位；网格已用新句柄重新加入时保留其新句柄
+     * @param slot 槽位
+     */
+    private void release(int slot) {
+        Mesh mesh = slotMeshes[slot];
+        int handle = slotHandles[slot];
+        if (mesh.getSceneHandle() == handle) {
+            mesh.setSceneHandle(-1);
+        }
+        slotMeshes[slot] = null;
+        slotIndices[slot] = -1;
+        slotRemoving[slot] = false;
+        handles.destroy(handle);
+    }
+
+    /**
+     * 在动态和静态列表之间移动网格
+     * @param handle 网格句柄
+     * @param isStatic 是否为静态
+     */
+    private void applyStatic(int handle, boolean isStatic) {
+        int slot = Entity.index(handle);
+        if (slotStatic[slot] == isStatic) {
+            return;
+        }
+        if (slotIndices[slot] >= 0) {
+            MeshList from = isStatic ? dynamicMeshes : staticMeshes;
+            MeshList to = isStatic ? staticMeshes : dynamicMeshes;
+            int partIndex = slotPartIndices[slot];
+            int moved = from.removeAt(partIndex);
+            if (moved >= 0) {
+                slotPartIndices[moved] = partIndex;
+            }
+            slotPartIndices[slot] = to.push(slotMeshes[slot], slot);
+            staticVersion++;
+        }
+        slotStatic[slot] = isStatic;
+    }
+
+    /**
+     * 记录一条延迟命令
+     * @param type 命令类型
+     * @param handle 网格句柄
+     */
+    private void record(byte type, int handle) {
+        if (commandCount == commandTypes.length) {
+            commandTypes = Arrays.copyOf(commandTypes, commandCount * 2);
+            commandHandles = Arrays.copyOf(commandHandles, commandCount * 2);
+        }
+        commandTypes[commandCount] = type;
+        commandHandles[commandCount] = handle;
+        commandCount++;
+    }
+
+    /**
+     * 设置空间索引（默认不使用，区域查询和渲染剔除逐个检查网格），场景中已有的网格会被重新插入
+     * @param spatialIndex 空间索引，null表示不使用空间索引
+     */
+    public void setSpatialIndex(SpatialIndex spatialIndex) {
+        if (this.spatialIndex != null) {
+            this.spatialIndex.clear();
+        }
+        this.spatialIndex = spatialIndex;
+        if (spatialIndex != null) {
+            spatialIndex.clear();
+            for (Mesh mesh : meshes) {
+                spatialIndex.insert(mesh, mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldBoundingRadius());
+            }
+        }
+    }
+
+    /**
+     * 获取空间索引
+     * @return 空间索引，未使用时为null
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * 查询包围圆与矩形相交的网格
+     * @param minX 最小x
+     * @param minY 最小y
+     * @param maxX 最大x
+     * @param maxY 最大y
+     * @param result 结果列表（追加，不清空）
+     * @return 找到的数量
+     */
+    public int queryRect(float minX, float minY, float maxX, float maxY, List<Mesh> result) {
+        if (spatialIndex != null) {
+            return spatialIndex.queryRect(minX, minY, maxX, maxY, result);
+        }
+        int count = 0;
+        for (Mesh mesh : meshes) {
+            float x = mesh.getWorldX();
+            float y = mesh.getWorldY();
+            float r = mesh.getWorldBoundingRadius();
+            if (x + r >= minX && x - r <= maxX && y + r >= minY && y - r <= maxY) {
+                result.add(mesh);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查询包围圆与给定圆相交的网格
+     * @param x 圆心x
+     * @param y 圆心y
+     * @param radius 半径
+     * @param result 结果列表（追加，不清空）
+     * @return 找到的数量
+     */
+    public int queryRadius(float x, float y, float radius, List<Mesh> result) {
+        if (spatialIndex != null) {
+            return spatialIndex.queryRadius(x, y, radius, result);
+        }
+        int count = 0;
+        for (Mesh mesh : meshes) {
+            float dx = mesh.getWorldX() - x;
+            float dy = mesh.getWorldY() - y;
+            float r = radius + mesh.getWorldBoundingRadius();
+            if (dx * dx + dy * dy <= r * r) {
+                result.add(mesh);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 查找中心离给定点最近的网格
+     * @param x 点x
+     * @param y 点y
+     * @param maxDistance 最大距离
+     * @param exclude 排除的网格，可为null
+     * @return 最近的网格，没有时返回null
+     */
+    public Mesh nearest(float x, float y, float maxDistance, Mesh exclude) {
+        if (spatialIndex != null) {
+            return spatialIndex.nearest(x, y, maxDistance, exclude);
+        }
+        Mesh best = null;
+        float bestDistSq = maxDistance * maxDistance;
+        for (Mesh mesh : meshes) {
+            if (mesh == exclude) {
+                continue;
+            }
+            float dx = mesh.getWorldX() - x;
+            float dy = mesh.getWorldY() - y;
+            float distSq = dx * dx + dy * dy;
+            if (distSq <= bestDistSq) {
+                bestDistSq = distSq;
+                best = mesh;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 网格加入场景：注册变换监听并插入空间索引
+     * @param mesh 网格
+     */
+    private void track(Mesh mesh) {
+        mesh.setTransformListener(transformListener);
+        if (spatialIndex != null) {
+            spatialIndex.insert(mesh, mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldBoundingRadius());
+        }
+    }
+
+    /**
+     * 网格离开场景：注销变换监听并从空间索引移除
+     * @param mesh 网格
+     */
+    private void untrack(Mesh mesh) {
+        mesh.setTransformListener(null);
+        movedMeshes.remove(mesh);
+        if (spatialIndex != null) {
+            spatialIndex.remove(mesh);
+        }
+    }
+
+    /**
+     * 网格变换被修改：记录下来，等待批量更新
+     * @param mesh 网格
+     */
+    private void onTransformChanged(Mesh mesh) {
+        movedMeshes.add(mesh);
+    }
+
+    /**
+     * 批量更新本帧变换被修改过的网格（每帧渲染前调用一次）
+     * 按层级深度从根到叶依次重新计算模型矩阵，同一深度的网格互不依赖，
+     * 数量较多时分到多个核心并行计算；随后更新它们在空间索引中的位置
+     */
+    public void updateTransforms() {
+        if (movedMeshes.isEmpty()) {
+            return;
+        }
+
+        // 按深度计数排序
+        int count = movedMeshes.size();
+        if (transformQueue.length < count) {
+            transformQueue = new Mesh[Math.max(count, transformQueue.length * 2)];
+        }
+        int maxDepth = 0;
+        for (Mesh mesh : movedMeshes) {
+            maxDepth = Math.max(maxDepth, mesh.getDepth());
+        }
+        if (depthStart.length < maxDepth + 2) {
+            depthStart = new int[maxDepth + 2];
+        }
+        Arrays.fill(depthStart, 0, maxDepth + 2, 0);
+        for (Mesh mesh : movedMeshes) {
+            depthStart[mesh.getDepth() + 1]++;
+            // 不在场景中的脏祖先不会被排入队列，先在当前线程更新，避免并行时重复计算
+            for (Mesh parent = mesh.getParent(); parent != null && parent.isTransformDirty(); parent = parent.getParent()) {
+                if (!movedMeshes.contains(parent)) {
+                    parent.updateModelMatrix();
+                    break;
+                }
+            }
+        }
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            depthStart[depth + 1] += depthStart[depth];
+        }
+        for (Mesh mesh : movedMeshes) {
+            transformQueue[depthStart[mesh.getDepth()]++] = mesh;
+        }
+
+        // 逐层更新：depthStart[depth]现在是该层的结束位置
+        int from = 0;
+        for (int depth = 0; depth <= maxDepth; depth++) {
+            int to = depthStart[depth];
+            if (to - from >= PARALLEL_TRANSFORM_THRESHOLD) {
+                jobs().parallelFor(from, to, PARALLEL_TRANSFORM_THRESHOLD / 4, transformJob);
+            } else {
+                for (int i = from; i < to; i++) {
+                    transformQueue[i].updateModelMatrix();
+                }
+            }
+            from = to;
+        }
+
+        if (spatialIndex != null) {
+            for (int i = 0; i < count; i++) {
+                Mesh mesh = transformQueue[i];
+                spatialIndex.update(mesh, mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldBoundingRadius());
+            }
+        }
+        Arrays.fill(transformQueue, 0, count, null);
+        movedMeshes.clear();
+    }
+
+    /**
+     * 设置并行更新变换使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+
+    /**
+     * 添加场景监听器
+     * @param listener 监听器
+     */
+    public void addListener(SceneListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 移除场景监听器
+     * @param listener 监听器
+     */
+    public void removeListener(SceneListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 紧密网格数组：每个元素同时记录所属槽位，移除时用末尾元素填补并返回被移动元素的槽位
+     */
+    private static class MeshList extends AbstractList<Mesh> implements RandomAccess {
+        private Mesh[] items = new Mesh[64];
+        private int[] slots = new int[64];
+        private int size;
+
+        int push(Mesh mesh, int slot) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            items[size] = mesh;
+            slots[size] = slot;
+            return size++;
+        }
+
+        int removeAt(int index) {
+            int last = --size;
+            int moved = -1;
+            if (index != last) {
+                items[index] = items[last];
+                slots[index] = slots[last];
+                moved = slots[index];
+            }
+            items[last] = null;
+            return moved;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+        }
+
+        @Override
+        public Mesh get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.hmengine;
+
+import com.hmengine.geometry.Mesh;
+
+/**
+ * 场景监听器接口
+ */
+public interface SceneListener {
+    /**
+     * 网格被添加到场景
+     * @param mesh 网格
+     */
+    void onMeshAdded(Mesh mesh);
+
+    /**
+     * 网格被移出场景
+     * @param mesh 网格
+     */
+    void onMeshRemoved(Mesh mesh);
+}
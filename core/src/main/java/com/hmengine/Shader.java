@@ -1,11 +1,15 @@
 package com.hmengine;
 
+import org.joml.Matrix3x2f;
 import org.joml.Matrix4f;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL21.*;
 
 /**
  * 着色器类
@@ -16,6 +20,11 @@ public class Shader {
     private int viewMatrixLocation;
     private int modelMatrixLocation;
     private int colorLocation;
+    private int modelAffineLocation;
+    private int useAffineLocation;
+    private final float[] matrixArray = new float[16];
+    private final float[] affineArray = new float[6];
+    private final Map<String, Integer> uniformLocations = new HashMap<>();
 
     /**
      * 构造函数
@@ -89,6 +98,8 @@ public class Shader {
         viewMatrixLocation = glGetUniformLocation(shaderProgram, "viewMatrix");
         modelMatrixLocation = glGetUniformLocation(shaderProgram, "modelMatrix");
         colorLocation = glGetUniformLocation(shaderProgram, "color");
+        modelAffineLocation = glGetUniformLocation(shaderProgram, "modelAffine");
+        useAffineLocation = glGetUniformLocation(shaderProgram, "useAffine");
     }
 
     /**
@@ -130,7 +141,6 @@ public class Shader {
      * @param matrix 投影矩阵
      */
     public void setProjectionMatrix(Matrix4f matrix) {
-        float[] matrixArray = new float[16];
         matrix.get(matrixArray);
         glUniformMatrix4fv(projectionMatrixLocation, false, matrixArray);
     }
@@ -140,7 +150,6 @@ public class Shader {
      * @param matrix 视图矩阵
      */
     public void setViewMatrix(Matrix4f matrix) {
-        float[] matrixArray = new float[16];
         matrix.get(matrixArray);
         glUniformMatrix4fv(viewMatrixLocation, false, matrixArray);
     }
@@ -150,11 +159,35 @@ public class Shader {
      * @param matrix 模型矩阵
      */
     public void setModelMatrix(Matrix4f matrix) {
-        float[] matrixArray = new float[16];
         matrix.get(matrixArray);
         glUniformMatrix4fv(modelMatrixLocation, false, matrixArray);
     }
 
+    /**
+     * 设置二维仿射模型矩阵（mat3x2，6个float）
+     * @param matrix 仿射矩阵
+     */
+    public void setModelAffine(Matrix3x2f matrix) {
+        matrix.get(affineArray);
+        glUniformMatrix3x2fv(modelAffineLocation, false, affineArray);
+    }
+
+    /**
+     * 切换顶点着色器使用仿射矩阵还是4x4模型矩阵
+     * @param useAffine 是否使用仿射矩阵
+     */
+    public void setAffineMode(boolean useAffine) {
+        glUniform1i(useAffineLocation, useAffine ? 1 : 0);
+    }
+
+    /**
+     * 着色器是否支持二维仿射模型矩阵（声明了modelAffine和useAffine）
+     * @return 是否支持
+     */
+    public boolean supportsAffine() {
+        return modelAffineLocation != -1 && useAffineLocation != -1;
+    }
+
     /**
      * 设置颜色
      * @param r 红色
@@ -166,6 +199,29 @@ public class Shader {
         glUniform4f(colorLocation, r, g, b, a);
     }
 
+    /**
+     * 获取任意uniform变量位置（带缓存）
+     * @param name 变量名
+     * @return 变量位置，不存在时为-1
+     */
+    public int getUniformLocation(String name) {
+        Integer location = uniformLocations.get(name);
+        if (location == null) {
+            location = glGetUniformLocation(shaderProgram, name);
+            uniformLocations.put(name, location);
+        }
+        return location;
+    }
+
+    /**
+     * 设置整型uniform变量
+     * @param name 变量名
+     * @param value 值
+     */
+    public void setInt(String name, int value) {
+        glUniform1i(getUniformLocation(name), value);
+    }
+
     /**
      * 清理
      */
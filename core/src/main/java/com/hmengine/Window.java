@@ -5,6 +5,7 @@ import org.lwjgl.opengl.*;
 import org.lwjgl.system.*;
 
 import java.nio.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import static org.lwjgl.glfw.Callbacks.*;
 import static org.lwjgl.glfw.GLFW.*;
@@ -20,7 +21,15 @@ public class Window {
     private int height;
     private String title;
     private boolean resizable;
-    private boolean[] keyStates = new boolean[GLFW_KEY_LAST + 1];
+    // 按键状态（1为按下）：在窗口线程的回调中写入，流水线模式下由模拟线程读取
+    private final AtomicIntegerArray keyStates = new AtomicIntegerArray(GLFW_KEY_LAST + 1);
+    // 请求的OpenGL版本，0表示使用默认上下文
+    private int contextMajor = 0;
+    private int contextMinor = 0;
+    // 交换间隔：1为垂直同步，0为不等待
+    private int swapInterval = 1;
+    // 是否显示窗口，不显示时只用于创建离屏的OpenGL上下文
+    private boolean visible = true;
 
     /**
      * 构造函数
@@ -36,6 +45,24 @@ public class Window {
         this.resizable = resizable;
     }
 
+    /**
+     * 请求指定版本的OpenGL核心上下文（需在init之前调用）
+     * @param major 主版本号
+     * @param minor 次版本号
+     */
+    public void setContextVersion(int major, int minor) {
+        this.contextMajor = major;
+        this.contextMinor = minor;
+    }
+
+    /**
+     * 设置是否显示窗口（需在init之前调用），不显示的窗口可用于无界面的检查程序
+     * @param visible 是否显示
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
     /**
      * 初始化
      */
@@ -52,6 +79,12 @@ public class Window {
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
         glfwWindowHint(GLFW_RESIZABLE, resizable ? GLFW_TRUE : GLFW_FALSE);
+        if (contextMajor > 0) {
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, contextMajor);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, contextMinor);
+            glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+            glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
+        }
 
         // 创建窗口
         window = glfwCreateWindow(width, height, title, NULL, NULL);
@@ -67,8 +100,10 @@ public class Window {
 
         // 创建OpenGL上下文
         glfwMakeContextCurrent(window);
-        glfwSwapInterval(1);
-        glfwShowWindow(window);
+        glfwSwapInterval(swapInterval);
+        if (visible) {
+            glfwShowWindow(window);
+        }
 
         // 初始化OpenGL
         GL.createCapabilities();
@@ -86,9 +121,9 @@ public class Window {
             // 更新按键状态
             if (key >= 0 && key <= GLFW_KEY_LAST) {
                 if (action == GLFW_PRESS) {
-                    keyStates[key] = true;
+                    keyStates.set(key, 1);
                 } else if (action == GLFW_RELEASE) {
-                    keyStates[key] = false;
+                    keyStates.set(key, 0);
                 }
             }
         });
@@ -100,7 +135,7 @@ public class Window {
      * @return 是否被按下
      */
     public boolean isKeyPressed(int key) {
-        return key >= 0 && key <= GLFW_KEY_LAST && keyStates[key];
+        return key >= 0 && key <= GLFW_KEY_LAST && keyStates.get(key) != 0;
     }
 
     /**
@@ -131,10 +166,43 @@ public class Window {
      * 更新
      */
     public void update() {
+        swapBuffers();
+        pollEvents();
+    }
+
+    /**
+     * 交换前后缓冲区（垂直同步开启时会等待显示器刷新）
+     */
+    public void swapBuffers() {
         glfwSwapBuffers(window);
+    }
+
+    /**
+     * 处理窗口和输入事件
+     */
+    public void pollEvents() {
         glfwPollEvents();
     }
 
+    /**
+     * 设置交换间隔，窗口已创建时立即生效
+     * @param swapInterval 1为垂直同步，0为不等待
+     */
+    public void setSwapInterval(int swapInterval) {
+        this.swapInterval = swapInterval;
+        if (window != NULL) {
+            glfwSwapInterval(swapInterval);
+        }
+    }
+
+    /**
+     * 获取交换间隔
+     * @return 交换间隔
+     */
+    public int getSwapInterval() {
+        return swapInterval;
+    }
+
     /**
      * 清理
      */
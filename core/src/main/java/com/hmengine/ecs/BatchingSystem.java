@@ -0,0 +1,231 @@
+package com.hmengine.ecs;
+
+import com.hmengine.Shader;
+import com.hmengine.geometry.MeshData;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import com.hmengine.jobs.ScratchArena;
+import com.hmengine.render.DynamicBatcher;
+import com.hmengine.render.RenderStats;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 合批系统：按稠密顺序把可见精灵的顶点写入动态合批缓冲区
+ * 顶点数超过合批阈值的几何无法合批，会被跳过并计入getSkippedCount()。
+ * 可见精灵较多时，先按图元类型分组并用前缀和算出每个精灵在批次中的顶点偏移，
+ * 再由任务系统并行写入预留的区域；提交批次仍在调用线程上进行。
+ * 分组下标和前缀和借用调用线程的临时内存，与同一线程上其他每帧的临时数组共用，用完即归还。
+ */
+public class BatchingSystem {
+    private static final int PARALLEL_THRESHOLD = 8192;
+    private static final int PARALLEL_GRAIN = 1024;
+
+    // 每个几何ID能否合批，几何注册表或阈值变化时重新计算
+    private boolean[] batchable = new boolean[0];
+    private int batchableThreshold = -1;
+    private int skippedCount = 0;
+
+    private JobSystem jobSystem;
+
+    // 并行写入当前分段时使用的数据：同一图元类型的可见精灵下标和顶点前缀和（借自临时内存）
+    private int[] order;
+    private int[] offsets;
+    private TransformStore writeTransforms;
+    private SpriteStore writeSprites;
+    private GeometryRegistry writeGeometries;
+    private FloatBuffer writeBuffer;
+    private int writeBase;
+    private int writeStart;
+    private final RangeJob writeJob = this::writeRange;
+
+    /**
+     * 追加可见精灵（调用方负责begin/flush和绑定合批着色器）
+     * @param transforms 变换组件存储
+     * @param sprites 精灵组件存储
+     * @param culling 已完成剔除的剔除系统
+     * @param geometries 几何数据注册表
+     * @param batcher 动态合批器
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     * @return 追加的精灵数量
+     */
+    public int render(TransformStore transforms, SpriteStore sprites, CullingSystem culling, GeometryRegistry geometries,
+                      DynamicBatcher batcher, Shader shader, boolean showGridLines, RenderStats stats) {
+        refreshBatchable(geometries, batcher);
+        skippedCount = 0;
+        if (culling.getVisibleCount() >= PARALLEL_THRESHOLD) {
+            return renderParallel(transforms, sprites, culling, geometries, batcher, shader, showGridLines, stats);
+        }
+
+        float[] m00 = transforms.m00, m01 = transforms.m01, m10 = transforms.m10, m11 = transforms.m11;
+        float[] tx = transforms.tx, ty = transforms.ty;
+        float[] r = sprites.colorR, g = sprites.colorG, b = sprites.colorB, a = sprites.colorA;
+        int[] geometry = sprites.geometry;
+        int drawn = 0;
+        for (int i = culling.nextVisible(0); i >= 0; i = culling.nextVisible(i + 1)) {
+            int id = geometry[i];
+            if (!batchable[id]) {
+                skippedCount++;
+                continue;
+            }
+            batcher.addAffine(geometries.get(id), m00[i], m01[i], m10[i], m11[i], tx[i], ty[i],
+                    r[i], g[i], b[i], a[i], shader, showGridLines, stats);
+            drawn++;
+        }
+        return drawn;
+    }
+
+    /**
+     * 并行写入：每种图元类型按批次剩余容量分段，每段预留一次空间后分块并行写入
+     */
+    private int renderParallel(TransformStore transforms, SpriteStore sprites, CullingSystem culling,
+                               GeometryRegistry geometries, DynamicBatcher batcher, Shader shader,
+                               boolean showGridLines, RenderStats stats) {
+        int visible = culling.getVisibleCount();
+        JobSystem jobs = jobSystem != null ? jobSystem : JobSystem.getDefault();
+        ScratchArena scratch = jobs.scratch();
+        long mark = scratch.mark();
+        try {
+            order = scratch.ints(visible);
+            offsets = scratch.ints(visible + 1);
+            offsets[0] = 0;
+            writeTransforms = transforms;
+            writeSprites = sprites;
+            writeGeometries = geometries;
+            return writeParallel(culling, geometries, batcher, shader, showGridLines, stats, jobs, scratch);
+        } finally {
+            scratch.release(mark);
+            order = null;
+            offsets = null;
+            writeTransforms = null;
+            writeSprites = null;
+            writeGeometries = null;
+            writeBuffer = null;
+        }
+    }
+
+    /**
+     * 逐个图元类型分组、分段并行写入
+     * @return 追加的精灵数量
+     */
+    private int writeParallel(CullingSystem culling, GeometryRegistry geometries, DynamicBatcher batcher,
+                              Shader shader, boolean showGridLines, RenderStats stats, JobSystem jobs,
+                              ScratchArena scratch) {
+        int[] geometry = writeSprites.geometry;
+        int drawn = 0;
+        // 已处理过的图元类型
+        int handledTypes = 0;
+        int[] types = scratch.ints(4);
+        while (true) {
+            // 取出下一种尚未处理的图元类型的所有可见精灵
+            int type = -1;
+            int n = 0;
+            for (int i = culling.nextVisible(0); i >= 0; i = culling.nextVisible(i + 1)) {
+                int id = geometry[i];
+                if (!batchable[id]) {
+                    continue;
+                }
+                int primitive = geometries.get(id).getPrimitiveType();
+                if (type < 0) {
+                    if (contains(types, handledTypes, primitive)) {
+                        continue;
+                    }
+                    type = primitive;
+                }
+                if (primitive == type) {
+                    order[n] = i;
+                    offsets[n + 1] = offsets[n] + geometries.get(id).getVertexCount();
+                    n++;
+                }
+            }
+            if (type < 0) {
+                break;
+            }
+            if (handledTypes == types.length) {
+                types = Arrays.copyOf(types, handledTypes * 2);
+            }
+            types[handledTypes++] = type;
+
+            // 按批次剩余容量分段
+            int start = 0;
+            while (start < n) {
+                int capacity = batcher.remaining(type);
+                if (offsets[start + 1] - offsets[start] > capacity) {
+                    capacity = batcher.getMaxBatchVertices();
+                }
+                int end = start + 1;
+                while (end < n && offsets[end + 1] - offsets[start] <= capacity) {
+                    end++;
+                }
+                writeBase = batcher.reserve(type, offsets[end] - offsets[start], shader, showGridLines, stats);
+                writeBuffer = batcher.getBuffer(type);
+                writeStart = start;
+                jobs.parallelFor(start, end, PARALLEL_GRAIN, writeJob);
+                drawn += end - start;
+                start = end;
+            }
+        }
+
+        for (int i = culling.nextVisible(0); i >= 0; i = culling.nextVisible(i + 1)) {
+            if (!batchable[geometry[i]]) {
+                skippedCount++;
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * 写入当前分段中的一块精灵
+     */
+    private void writeRange(int from, int to, ScratchArena scratch) {
+        TransformStore t = writeTransforms;
+        SpriteStore s = writeSprites;
+        for (int k = from; k < to; k++) {
+            int i = order[k];
+            MeshData data = writeGeometries.get(s.geometry[i]);
+            int offset = writeBase + (offsets[k] - offsets[writeStart]) * DynamicBatcher.VERTEX_FLOATS;
+            DynamicBatcher.writeAffine(writeBuffer, offset, data, t.m00[i], t.m01[i], t.m10[i], t.m11[i], t.tx[i], t.ty[i],
+                    s.colorR[i], s.colorG[i], s.colorB[i], s.colorA[i]);
+        }
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 设置并行写入使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * 获取上次因无法合批而跳过的精灵数量
+     * @return 跳过数量
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    private void refreshBatchable(GeometryRegistry geometries, DynamicBatcher batcher) {
+        int count = geometries.size();
+        if (count == batchable.length && batchableThreshold == batcher.getVertexThreshold()) {
+            return;
+        }
+        batchable = Arrays.copyOf(batchable, count);
+        for (int i = 0; i < count; i++) {
+            MeshData data = geometries.get(i);
+            batchable[i] = batcher.accepts(data);
+        }
+        batchableThreshold = batcher.getVertexThreshold();
+    }
+}
@@ -0,0 +1,77 @@
+package com.hmengine.ecs;
+
+import com.hmengine.Camera;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.render.FrustumCuller;
+
+/**
+ * 剔除系统：按稠密顺序把精灵的包围球交给批量视锥体剔除器
+ * 要求两个存储的前count个实体已经对齐（见SparseSet.sortAs），这样同一下标即是同一实体，
+ * 候选序号也直接等于稠密下标。
+ */
+public class CullingSystem {
+    private final FrustumCuller culler = new FrustumCuller();
+    private int visibleCount = 0;
+
+    /**
+     * 剔除前count个对齐的实体
+     * @param transforms 变换组件存储
+     * @param sprites 精灵组件存储
+     * @param count 两个存储共有的实体数量
+     * @param geometries 几何数据注册表
+     * @param camera 摄像机
+     * @return 可见数量
+     */
+    public int cull(TransformStore transforms, SpriteStore sprites, int count, GeometryRegistry geometries, Camera camera) {
+        culler.clear();
+        float[] tx = transforms.tx, ty = transforms.ty, sx = transforms.scaleX, sy = transforms.scaleY;
+        int[] geometry = sprites.geometry;
+        for (int i = 0; i < count; i++) {
+            float scale = Math.max(Math.abs(sx[i]), Math.abs(sy[i]));
+            culler.add(tx[i], ty[i], 0.0f, geometries.getBoundingRadius(geometry[i]) * scale);
+        }
+        visibleCount = count > 0 ? culler.cull(camera) : 0;
+        return visibleCount;
+    }
+
+    /**
+     * 获取上次剔除后的可见数量
+     * @return 可见数量
+     */
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    /**
+     * 获取候选数量
+     * @return 候选数量
+     */
+    public int size() {
+        return culler.size();
+    }
+
+    /**
+     * 查找下一个可见的稠密下标
+     * @param from 起始下标
+     * @return 可见下标，没有时返回-1
+     */
+    public int nextVisible(int from) {
+        return culler.nextVisible(from);
+    }
+
+    /**
+     * 设置是否使用向量化剔除
+     * @param useVector 是否使用
+     */
+    public void setUseVector(boolean useVector) {
+        culler.setUseVector(useVector);
+    }
+
+    /**
+     * 设置并行剔除使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        culler.setJobSystem(jobSystem);
+    }
+}
@@ -0,0 +1,47 @@
+package com.hmengine.ecs;
+
+/**
+ * 实体句柄工具类
+ * 句柄是一个非负int：低22位为槽位索引，高9位为代数。槽位回收后代数加一，旧句柄随之失效。
+ */
+public final class Entity {
+    // 无效句柄
+    public static final int NULL = -1;
+
+    public static final int INDEX_BITS = 22;
+    public static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    public static final int GENERATION_MASK = (1 << 9) - 1;
+    // 最大实体数量
+    public static final int MAX_ENTITIES = 1 << INDEX_BITS;
+
+    private Entity() {
+    }
+
+    /**
+     * 由槽位索引和代数组合句柄
+     * @param index 槽位索引
+     * @param generation 代数
+     * @return 实体句柄
+     */
+    public static int make(int index, int generation) {
+        return ((generation & GENERATION_MASK) << INDEX_BITS) | (index & INDEX_MASK);
+    }
+
+    /**
+     * 获取句柄的槽位索引
+     * @param entity 实体句柄
+     * @return 槽位索引
+     */
+    public static int index(int entity) {
+        return entity & INDEX_MASK;
+    }
+
+    /**
+     * 获取句柄的代数
+     * @param entity 实体句柄
+     * @return 代数
+     */
+    public static int generation(int entity) {
+        return (entity >>> INDEX_BITS) & GENERATION_MASK;
+    }
+}
@@ -0,0 +1,105 @@
+package com.hmengine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * 实体注册表
+ * 分配和回收带代数的实体句柄。回收的槽位按先进先出重新使用，使同一槽位的代数增长尽量慢。
+ */
+public class EntityRegistry {
+    // 每个槽位当前的代数
+    private int[] generations = new int[1024];
+    private boolean[] alive = new boolean[1024];
+    private int slotCount = 0;
+    private int aliveCount = 0;
+
+    // 空闲槽位环形队列
+    private int[] freeSlots = new int[1024];
+    private int freeHead = 0;
+    private int freeCount = 0;
+
+    /**
+     * 创建实体
+     * @return 实体句柄
+     */
+    public int create() {
+        int index;
+        // 保留一定数量的空闲槽位再复用，避免同一槽位被频繁复用导致代数回绕
+        if (freeCount > 1024 || (freeCount > 0 && slotCount == Entity.MAX_ENTITIES)) {
+            index = freeSlots[freeHead];
+            freeHead = (freeHead + 1) % freeSlots.length;
+            freeCount--;
+        } else {
+            if (slotCount == Entity.MAX_ENTITIES) {
+                throw new IllegalStateException("实体数量超过上限: " + Entity.MAX_ENTITIES);
+            }
+            index = slotCount++;
+            if (index == generations.length) {
+                int capacity = Math.min(generations.length * 2, Entity.MAX_ENTITIES);
+                generations = Arrays.copyOf(generations, capacity);
+                alive = Arrays.copyOf(alive, capacity);
+            }
+        }
+        alive[index] = true;
+        aliveCount++;
+        return Entity.make(index, generations[index]);
+    }
+
+    /**
+     * 销毁实体，之后该句柄失效
+     * @param entity 实体句柄
+     * @return 实体是否存在
+     */
+    public boolean destroy(int entity) {
+        if (!isAlive(entity)) {
+            return false;
+        }
+        int index = Entity.index(entity);
+        alive[index] = false;
+        generations[index] = (generations[index] + 1) & Entity.GENERATION_MASK;
+        aliveCount--;
+        if (freeCount == freeSlots.length) {
+            int[] grown = new int[freeSlots.length * 2];
+            for (int i = 0; i < freeCount; i++) {
+                grown[i] = freeSlots[(freeHead + i) % freeSlots.length];
+            }
+            freeSlots = grown;
+            freeHead = 0;
+        }
+        freeSlots[(freeHead + freeCount) % freeSlots.length] = index;
+        freeCount++;
+        return true;
+    }
+
+    /**
+     * 判断实体句柄是否仍然有效
+     * @param entity 实体句柄
+     * @return 是否有效
+     */
+    public boolean isAlive(int entity) {
+        if (entity < 0) {
+            return false;
+        }
+        int index = Entity.index(entity);
+        return index < slotCount && alive[index] && generations[index] == Entity.generation(entity);
+    }
+
+    /**
+     * 获取存活的实体数量
+     * @return 实体数量
+     */
+    public int size() {
+        return aliveCount;
+    }
+
+    /**
+     * 销毁所有实体（代数保留，旧句柄仍然失效）
+     */
+    public void clear() {
+        for (int i = 0; i < slotCount; i++) {
+            if (alive[i]) {
+                destroy(Entity.make(i, generations[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.hmengine.ecs;
+
+import com.hmengine.Camera;
+import com.hmengine.Shader;
+import com.hmengine.geometry.MeshData;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.render.DynamicBatcher;
+import com.hmengine.render.RenderStats;
+
+/**
+ * 实体世界：与Scene并列的数据导向存储
+ * 实体只是一个整数句柄，变换和精灵数据保存在稀疏集合的稠密基本类型数组中，
+ * 变换、剔除和合批系统都按下标线性遍历，不经过逐对象的Mesh和JOML对象。
+ * 适合大量只需要二维变换和纯色的简单物体；需要三维旋转、层级或独立着色器的物体仍使用Scene。
+ */
+public class EntityWorld {
+    private final EntityRegistry registry = new EntityRegistry();
+    private final TransformStore transforms = new TransformStore();
+    private final SpriteStore sprites = new SpriteStore();
+    private final GeometryRegistry geometries = new GeometryRegistry();
+
+    private final TransformSystem transformSystem = new TransformSystem();
+    private final CullingSystem cullingSystem = new CullingSystem();
+    private final BatchingSystem batchingSystem = new BatchingSystem();
+
+    // 两个存储上次对齐时的版本号，任一变化都需要重新对齐
+    private int alignedTransformVersion = -1;
+    private int alignedSpriteVersion = -1;
+    private int alignedCount = 0;
+
+    /**
+     * 创建实体（不带任何组件）
+     * @return 实体句柄
+     */
+    public int create() {
+        return registry.create();
+    }
+
+    /**
+     * 创建带变换和精灵组件的实体
+     * @param data 几何数据
+     * @param x x坐标
+     * @param y y坐标
+     * @param angle 旋转角度（弧度）
+     * @param sx x缩放
+     * @param sy y缩放
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     * @return 实体句柄
+     */
+    public int createSprite(MeshData data, float x, float y, float angle, float sx, float sy,
+                            float r, float g, float b, float a) {
+        int entity = registry.create();
+        transforms.add(entity, x, y, angle, sx, sy);
+        sprites.add(entity, geometries.register(data), r, g, b, a);
+        return entity;
+    }
+
+    /**
+     * 销毁实体并移除其所有组件
+     * @param entity 实体句柄
+     * @return 实体是否存在
+     */
+    public boolean destroy(int entity) {
+        if (!registry.isAlive(entity)) {
+            return false;
+        }
+        transforms.remove(entity);
+        sprites.remove(entity);
+        return registry.destroy(entity);
+    }
+
+    /**
+     * 判断实体是否存在
+     * @param entity 实体句柄
+     * @return 是否存在
+     */
+    public boolean isAlive(int entity) {
+        return registry.isAlive(entity);
+    }
+
+    /**
+     * 更新所有脏的世界矩阵
+     */
+    public void update() {
+        transformSystem.update(transforms);
+    }
+
+    /**
+     * 剔除并把可见精灵追加到动态合批器（调用方负责begin/flush和绑定合批着色器）
+     * @param camera 摄像机
+     * @param batcher 动态合批器
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void render(Camera camera, DynamicBatcher batcher, Shader shader, boolean showGridLines, RenderStats stats) {
+        int count = align();
+        int visible = cullingSystem.cull(transforms, sprites, count, geometries, camera);
+        stats.addInstancesDrawn(visible);
+        stats.addInstancesCulled(count - visible);
+        batchingSystem.render(transforms, sprites, cullingSystem, geometries, batcher, shader, showGridLines, stats);
+    }
+
+    /**
+     * 让两个存储共有的实体排在前面且顺序一致，结构没有变化时不做任何事
+     * @return 两者共有的实体数量
+     */
+    private int align() {
+        if (transforms.getVersion() != alignedTransformVersion || sprites.getVersion() != alignedSpriteVersion) {
+            // 先把变换存储中带精灵的实体移到前面，再让精灵存储跟随这个顺序
+            transforms.sortAs(sprites);
+            alignedCount = sprites.sortAs(transforms);
+            alignedTransformVersion = transforms.getVersion();
+            alignedSpriteVersion = sprites.getVersion();
+        }
+        return alignedCount;
+    }
+
+    /**
+     * 销毁所有实体
+     */
+    public void clear() {
+        transforms.clear();
+        sprites.clear();
+        registry.clear();
+    }
+
+    /**
+     * 获取实体数量
+     * @return 实体数量
+     */
+    public int size() {
+        return registry.size();
+    }
+
+    /**
+     * 设置变换、剔除和合批系统共用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        transformSystem.setJobSystem(jobSystem);
+        cullingSystem.setJobSystem(jobSystem);
+        batchingSystem.setJobSystem(jobSystem);
+    }
+
+    public EntityRegistry getRegistry() { return registry; }
+    public TransformStore getTransforms() { return transforms; }
+    public SpriteStore getSprites() { return sprites; }
+    public GeometryRegistry getGeometries() { return geometries; }
+    public TransformSystem getTransformSystem() { return transformSystem; }
+    public CullingSystem getCullingSystem() { return cullingSystem; }
+    public BatchingSystem getBatchingSystem() { return batchingSystem; }
+}
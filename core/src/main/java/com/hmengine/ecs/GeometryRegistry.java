@@ -0,0 +1,67 @@
+package com.hmengine.ecs;
+
+import com.hmengine.geometry.MeshData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 几何数据注册表
+ * 为共享的MeshData分配连续的整数ID，组件中只保存ID，系统通过ID查表得到顶点和包围半径。
+ */
+public class GeometryRegistry {
+    private final List<MeshData> geometries = new ArrayList<>();
+    private final Map<MeshData, Integer> ids = new IdentityHashMap<>();
+    private float[] radii = new float[16];
+
+    /**
+     * 注册几何数据，重复注册返回相同的ID
+     * @param data 几何数据
+     * @return 几何ID
+     */
+    public int register(MeshData data) {
+        if (data == null) {
+            throw new IllegalArgumentException("几何数据不能为空");
+        }
+        Integer id = ids.get(data);
+        if (id != null) {
+            return id;
+        }
+        int next = geometries.size();
+        geometries.add(data);
+        ids.put(data, next);
+        if (next == radii.length) {
+            radii = Arrays.copyOf(radii, radii.length * 2);
+        }
+        radii[next] = data.getBoundingRadius();
+        return next;
+    }
+
+    /**
+     * 获取几何数据
+     * @param id 几何ID
+     * @return 几何数据
+     */
+    public MeshData get(int id) {
+        return geometries.get(id);
+    }
+
+    /**
+     * 获取几何数据的局部包围半径
+     * @param id 几何ID
+     * @return 包围半径
+     */
+    public float getBoundingRadius(int id) {
+        return radii[id];
+    }
+
+    /**
+     * 获取已注册的几何数量
+     * @return 几何数量
+     */
+    public int size() {
+        return geometries.size();
+    }
+}
@@ -0,0 +1,180 @@
+package com.hmengine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * 稀疏集合组件存储的基类
+ * 稀疏数组按实体槽位索引映射到稠密下标，组件数据由子类以并行的基本类型数组保存在稠密下标处，
+ * 系统按0到size()-1线性遍历。删除时把末尾元素换到空位，保持数据紧密。
+ */
+public abstract class SparseSet {
+    // 实体槽位索引 -> 稠密下标，不存在时为-1
+    private int[] sparse = new int[0];
+    // 稠密下标 -> 实体句柄
+    protected int[] dense = new int[0];
+    protected int size = 0;
+
+    // 结构变化（增删、重排）计数，供依赖稠密顺序的缓存判断是否失效
+    private int version = 0;
+
+    /**
+     * 判断实体是否拥有该组件
+     * @param entity 实体句柄
+     * @return 是否拥有
+     */
+    public boolean contains(int entity) {
+        return indexOf(entity) >= 0;
+    }
+
+    /**
+     * 获取实体组件的稠密下标
+     * @param entity 实体句柄
+     * @return 稠密下标，不存在时返回-1
+     */
+    public int indexOf(int entity) {
+        if (entity < 0) {
+            return -1;
+        }
+        int slot = Entity.index(entity);
+        if (slot >= sparse.length) {
+            return -1;
+        }
+        int index = sparse[slot];
+        return index >= 0 && dense[index] == entity ? index : -1;
+    }
+
+    /**
+     * 获取稠密下标处的实体
+     * @param index 稠密下标
+     * @return 实体句柄
+     */
+    public int entityAt(int index) {
+        return dense[index];
+    }
+
+    /**
+     * 获取组件数量
+     * @return 组件数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取结构版本号
+     * @return 版本号
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 为实体分配稠密下标，子类随后写入组件数据
+     * @param entity 实体句柄
+     * @return 稠密下标
+     */
+    protected int insert(int entity) {
+        if (entity < 0) {
+            throw new IllegalArgumentException("无效的实体句柄: " + entity);
+        }
+        if (contains(entity)) {
+            throw new IllegalArgumentException("实体已经拥有该组件: " + entity);
+        }
+        int slot = Entity.index(entity);
+        if (slot >= sparse.length) {
+            int old = sparse.length;
+            sparse = Arrays.copyOf(sparse, Math.max(slot + 1, old * 2));
+            Arrays.fill(sparse, old, sparse.length, -1);
+        }
+        if (size == dense.length) {
+            int capacity = Math.max(64, dense.length * 2);
+            dense = Arrays.copyOf(dense, capacity);
+            grow(capacity);
+        }
+        int index = size++;
+        dense[index] = entity;
+        sparse[slot] = index;
+        version++;
+        return index;
+    }
+
+    /**
+     * 移除实体的组件
+     * @param entity 实体句柄
+     * @return 实体是否拥有该组件
+     */
+    public boolean remove(int entity) {
+        int index = indexOf(entity);
+        if (index < 0) {
+            return false;
+        }
+        int last = size - 1;
+        if (index != last) {
+            swap(index, last);
+        }
+        sparse[Entity.index(entity)] = -1;
+        size--;
+        version++;
+        return true;
+    }
+
+    /**
+     * 移除所有组件
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            sparse[Entity.index(dense[i])] = -1;
+        }
+        size = 0;
+        version++;
+    }
+
+    /**
+     * 按另一个集合的稠密顺序重排：两者共有的实体排在前面且顺序一致，
+     * 之后同时遍历两个集合时可以用相同的下标访问，无需逐个查找
+     * @param other 参照集合
+     * @return 共有实体的数量
+     */
+    public int sortAs(SparseSet other) {
+        int position = 0;
+        for (int i = 0; i < other.size; i++) {
+            int index = indexOf(other.dense[i]);
+            if (index >= 0) {
+                if (index != position) {
+                    swap(index, position);
+                }
+                position++;
+            }
+        }
+        version++;
+        return position;
+    }
+
+    /**
+     * 交换两个稠密下标处的实体和组件数据
+     * @param i 下标
+     * @param j 下标
+     */
+    private void swap(int i, int j) {
+        int a = dense[i];
+        int b = dense[j];
+        dense[i] = b;
+        dense[j] = a;
+        sparse[Entity.index(a)] = j;
+        sparse[Entity.index(b)] = i;
+        swapData(i, j);
+    }
+
+    /**
+     * 扩容组件数据数组
+     * @param capacity 新容量
+     */
+    protected abstract void grow(int capacity);
+
+    /**
+     * 交换两个稠密下标处的组件数据
+     * @param i 下标
+     * @param j 下标
+     */
+    protected abstract void swapData(int i, int j);
+}
@@ -0,0 +1,92 @@
+package com.hmengine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * 精灵组件存储：几何ID和颜色
+ * 几何ID指向GeometryRegistry中注册的几何数据，颜色分量保存在独立的float数组中。
+ */
+public class SpriteStore extends SparseSet {
+    int[] geometry = new int[0];
+    float[] colorR = new float[0];
+    float[] colorG = new float[0];
+    float[] colorB = new float[0];
+    float[] colorA = new float[0];
+
+    /**
+     * 为实体添加精灵组件
+     * @param entity 实体句柄
+     * @param geometryId 几何ID
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     * @return 稠密下标
+     */
+    public int add(int entity, int geometryId, float r, float g, float b, float a) {
+        int index = insert(entity);
+        geometry[index] = geometryId;
+        colorR[index] = r;
+        colorG[index] = g;
+        colorB[index] = b;
+        colorA[index] = a;
+        return index;
+    }
+
+    /**
+     * 设置颜色
+     * @param entity 实体句柄
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     */
+    public void setColor(int entity, float r, float g, float b, float a) {
+        int index = indexOf(entity);
+        if (index < 0) {
+            throw new IllegalArgumentException("实体没有精灵组件: " + entity);
+        }
+        setColorAt(index, r, g, b, a);
+    }
+
+    /**
+     * 按稠密下标设置颜色，供批量修改的系统使用
+     * @param index 稠密下标
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     */
+    public void setColorAt(int index, float r, float g, float b, float a) {
+        colorR[index] = r;
+        colorG[index] = g;
+        colorB[index] = b;
+        colorA[index] = a;
+    }
+
+    public int getGeometry(int index) { return geometry[index]; }
+    public float getColorR(int index) { return colorR[index]; }
+    public float getColorG(int index) { return colorG[index]; }
+    public float getColorB(int index) { return colorB[index]; }
+    public float getColorA(int index) { return colorA[index]; }
+
+    @Override
+    protected void grow(int capacity) {
+        geometry = Arrays.copyOf(geometry, capacity);
+        colorR = Arrays.copyOf(colorR, capacity);
+        colorG = Arrays.copyOf(colorG, capacity);
+        colorB = Arrays.copyOf(colorB, capacity);
+        colorA = Arrays.copyOf(colorA, capacity);
+    }
+
+    @Override
+    protected void swapData(int i, int j) {
+        int g = geometry[i];
+        geometry[i] = geometry[j];
+        geometry[j] = g;
+        TransformStore.swap(colorR, i, j);
+        TransformStore.swap(colorG, i, j);
+        TransformStore.swap(colorB, i, j);
+        TransformStore.swap(colorA, i, j);
+    }
+}
@@ -0,0 +1,186 @@
+package com.hmengine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * 二维变换组件存储
+ * 位置、旋转、缩放和世界仿射矩阵分别保存在独立的float数组中，由TransformSystem线性更新。
+ * 世界仿射矩阵按列存储：(m00, m01) 为x轴，(m10, m11) 为y轴，(tx, ty) 为平移。
+ */
+public class TransformStore extends SparseSet {
+    float[] positionX = new float[0];
+    float[] positionY = new float[0];
+    float[] rotation = new float[0];
+    float[] scaleX = new float[0];
+    float[] scaleY = new float[0];
+
+    float[] m00 = new float[0];
+    float[] m01 = new float[0];
+    float[] m10 = new float[0];
+    float[] m11 = new float[0];
+    float[] tx = new float[0];
+    float[] ty = new float[0];
+
+    boolean[] dirty = new boolean[0];
+
+    /**
+     * 为实体添加变换组件
+     * @param entity 实体句柄
+     * @param x x坐标
+     * @param y y坐标
+     * @param angle 旋转角度（弧度）
+     * @param sx x缩放
+     * @param sy y缩放
+     * @return 稠密下标
+     */
+    public int add(int entity, float x, float y, float angle, float sx, float sy) {
+        int index = insert(entity);
+        positionX[index] = x;
+        positionY[index] = y;
+        rotation[index] = angle;
+        scaleX[index] = sx;
+        scaleY[index] = sy;
+        dirty[index] = true;
+        return index;
+    }
+
+    /**
+     * 设置位置
+     * @param entity 实体句柄
+     * @param x x坐标
+     * @param y y坐标
+     */
+    public void setPosition(int entity, float x, float y) {
+        int index = require(entity);
+        positionX[index] = x;
+        positionY[index] = y;
+        dirty[index] = true;
+    }
+
+    /**
+     * 设置旋转角度
+     * @param entity 实体句柄
+     * @param angle 旋转角度（弧度）
+     */
+    public void setRotation(int entity, float angle) {
+        int index = require(entity);
+        rotation[index] = angle;
+        dirty[index] = true;
+    }
+
+    /**
+     * 设置缩放
+     * @param entity 实体句柄
+     * @param sx x缩放
+     * @param sy y缩放
+     */
+    public void setScale(int entity, float sx, float sy) {
+        int index = require(entity);
+        scaleX[index] = sx;
+        scaleY[index] = sy;
+        dirty[index] = true;
+    }
+
+    /**
+     * 按稠密下标设置位置，供批量修改的系统使用
+     * @param index 稠密下标
+     * @param x x坐标
+     * @param y y坐标
+     */
+    public void setPositionAt(int index, float x, float y) {
+        positionX[index] = x;
+        positionY[index] = y;
+        dirty[index] = true;
+    }
+
+    /**
+     * 按稠密下标设置旋转角度
+     * @param index 稠密下标
+     * @param angle 旋转角度（弧度）
+     */
+    public void setRotationAt(int index, float angle) {
+        rotation[index] = angle;
+        dirty[index] = true;
+    }
+
+    public float getPositionX(int index) { return positionX[index]; }
+    public float getPositionY(int index) { return positionY[index]; }
+    public float getRotation(int index) { return rotation[index]; }
+    public float getScaleX(int index) { return scaleX[index]; }
+    public float getScaleY(int index) { return scaleY[index]; }
+
+    /**
+     * 获取世界平移x（需先运行TransformSystem）
+     * @param index 稠密下标
+     * @return 世界坐标x
+     */
+    public float getWorldX(int index) {
+        return tx[index];
+    }
+
+    /**
+     * 获取世界平移y（需先运行TransformSystem）
+     * @param index 稠密下标
+     * @return 世界坐标y
+     */
+    public float getWorldY(int index) {
+        return ty[index];
+    }
+
+    /**
+     * 判断稠密下标处的世界矩阵是否需要更新
+     * @param index 稠密下标
+     * @return 是否需要更新
+     */
+    public boolean isDirty(int index) {
+        return dirty[index];
+    }
+
+    private int require(int entity) {
+        int index = indexOf(entity);
+        if (index < 0) {
+            throw new IllegalArgumentException("实体没有变换组件: " + entity);
+        }
+        return index;
+    }
+
+    @Override
+    protected void grow(int capacity) {
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        scaleX = Arrays.copyOf(scaleX, capacity);
+        scaleY = Arrays.copyOf(scaleY, capacity);
+        m00 = Arrays.copyOf(m00, capacity);
+        m01 = Arrays.copyOf(m01, capacity);
+        m10 = Arrays.copyOf(m10, capacity);
+        m11 = Arrays.copyOf(m11, capacity);
+        tx = Arrays.copyOf(tx, capacity);
+        ty = Arrays.copyOf(ty, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+    }
+
+    @Override
+    protected void swapData(int i, int j) {
+        swap(positionX, i, j);
+        swap(positionY, i, j);
+        swap(rotation, i, j);
+        swap(scaleX, i, j);
+        swap(scaleY, i, j);
+        swap(m00, i, j);
+        swap(m01, i, j);
+        swap(m10, i, j);
+        swap(m11, i, j);
+        swap(tx, i, j);
+        swap(ty, i, j);
+        boolean d = dirty[i];
+        dirty[i] = dirty[j];
+        dirty[j] = d;
+    }
+
+    static void swap(float[] array, int i, int j) {
+        float t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+}
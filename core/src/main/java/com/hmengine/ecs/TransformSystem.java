@@ -0,0 +1,83 @@
+package com.hmengine.ecs;
+
+import com.hmengine.jobs.JobSystem;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 变换系统：把脏的局部变换线性地写入世界仿射矩阵
+ * 实体数量较多时由任务系统把稠密区间分块并行计算，各区间互不重叠。
+ */
+public class TransformSystem {
+    private static final int PARALLEL_THRESHOLD = 16384;
+
+    private JobSystem jobSystem;
+    private int lastUpdateCount = 0;
+
+    /**
+     * 更新所有脏的世界矩阵
+     * @param transforms 变换组件存储
+     */
+    public void update(TransformStore transforms) {
+        int size = transforms.size();
+        if (size >= PARALLEL_THRESHOLD) {
+            AtomicInteger updated = new AtomicInteger();
+            JobSystem jobs = jobSystem != null ? jobSystem : JobSystem.getDefault();
+            jobs.parallelFor(0, size, PARALLEL_THRESHOLD / 4,
+                    (from, to, scratch) -> updated.addAndGet(updateRange(transforms, from, to)));
+            lastUpdateCount = updated.get();
+        } else {
+            lastUpdateCount = updateRange(transforms, 0, size);
+        }
+    }
+
+    /**
+     * 设置并行更新使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * 获取上次更新的世界矩阵数量
+     * @return 更新数量
+     */
+    public int getLastUpdateCount() {
+        return lastUpdateCount;
+    }
+
+    /**
+     * 更新稠密区间内脏的世界矩阵
+     * @return 更新数量
+     */
+    private static int updateRange(TransformStore t, int from, int to) {
+        float[] px = t.positionX, py = t.positionY, rot = t.rotation, sx = t.scaleX, sy = t.scaleY;
+        float[] m00 = t.m00, m01 = t.m01, m10 = t.m10, m11 = t.m11, tx = t.tx, ty = t.ty;
+        boolean[] dirty = t.dirty;
+        int updated = 0;
+        for (int i = from; i < to; i++) {
+            if (!dirty[i]) {
+                continue;
+            }
+            float angle = rot[i];
+            if (angle == 0.0f) {
+                m00[i] = sx[i];
+                m01[i] = 0.0f;
+                m10[i] = 0.0f;
+                m11[i] = sy[i];
+            } else {
+                float cos = (float) Math.cos(angle);
+                float sin = (float) Math.sin(angle);
+                m00[i] = cos * sx[i];
+                m01[i] = sin * sx[i];
+                m10[i] = -sin * sy[i];
+                m11[i] = cos * sy[i];
+            }
+            tx[i] = px[i];
+            ty[i] = py[i];
+            dirty[i] = false;
+            updated++;
+        }
+        return updated;
+    }
+}
@@ -4,19 +4,64 @@ import static org.lwjgl.opengl.GL11.*;
 
 /**
  * 几何类
+ * 同一种形状的网格共享同一份MeshData（顶点数组），GPU缓冲区由各渲染器按MeshData缓存
  */
 public class Geometry {
+    private static final float HEXAGON_RADIUS = 0.5f;
+
+    private static final float[] TRIANGLE_VERTICES = {
+        -0.5f, -0.5f, 0.0f,  // 左下角顶点
+         0.5f, -0.5f, 0.0f,  // 右下角顶点
+         0.0f,  0.5f, 0.0f   // 顶部顶点
+    };
+
+    private static final float[] RECTANGLE_VERTICES = {
+        // 第一个三角形
+        -0.5f,  0.5f, 0.0f,  // 左上
+        -0.5f, -0.5f, 0.0f,  // 左下
+         0.5f, -0.5f, 0.0f,  // 右下
+        // 第二个三角形
+        -0.5f,  0.5f, 0.0f,  // 左上
+         0.5f, -0.5f, 0.0f,  // 右下
+         0.5f,  0.5f, 0.0f   // 右上
+    };
+
+    private static final float[] HEXAGON_VERTICES = createHexagonVertices(HEXAGON_RADIUS);
+
+    private static final MeshData TRIANGLE = new MeshData(TRIANGLE_VERTICES, GL_TRIANGLES);
+    private static final MeshData RECTANGLE = new MeshData(RECTANGLE_VERTICES, GL_TRIANGLES);
+    private static final MeshData HEXAGON = new MeshData(HEXAGON_VERTICES, GL_TRIANGLES);
+
+    /**
+     * 获取共享的三角形几何数据
+     * @return 三角形几何数据
+     */
+    public static MeshData getTriangleData() {
+        return TRIANGLE;
+    }
+
+    /**
+     * 获取共享的矩形几何数据
+     * @return 矩形几何数据
+     */
+    public static MeshData getRectangleData() {
+        return RECTANGLE;
+    }
+
+    /**
+     * 获取共享的六边形几何数据
+     * @return 六边形几何数据
+     */
+    public static MeshData getHexagonData() {
+        return HEXAGON;
+    }
+
     /**
      * 创建三角形网格
      * @return 三角形网格
      */
     public static Mesh createTriangle() {
-        float[] vertices = {
-            -0.5f, -0.5f, 0.0f,  // 左下角顶点
-             0.5f, -0.5f, 0.0f,  // 右下角顶点
-             0.0f,  0.5f, 0.0f   // 顶部顶点
-        };
-        return new Mesh(vertices, GL_TRIANGLES);
+        return new Mesh(TRIANGLE);
     }
 
     /**
@@ -24,17 +69,7 @@ public class Geometry {
      * @return 矩形网格
      */
     public static Mesh createRectangle() {
-        float[] vertices = {
-            // 第一个三角形
-            -0.5f,  0.5f, 0.0f,  // 左上
-            -0.5f, -0.5f, 0.0f,  // 左下
-             0.5f, -0.5f, 0.0f,  // 右下
-            // 第二个三角形
-            -0.5f,  0.5f, 0.0f,  // 左上
-             0.5f, -0.5f, 0.0f,  // 右下
-             0.5f,  0.5f, 0.0f   // 右上
-        };
-        return new Mesh(vertices, GL_TRIANGLES);
+        return new Mesh(RECTANGLE);
     }
 
     /**
@@ -42,7 +77,15 @@ public class Geometry {
      * @return 六边形网格
      */
     public static Mesh createHexagon() {
-        float radius = 0.5f;
+        return new Mesh(HEXAGON);
+    }
+
+    /**
+     * 生成六边形顶点
+     * @param radius 半径
+     * @return 顶点数组
+     */
+    private static float[] createHexagonVertices(float radius) {
         float[] vertices = {
             // 中心点
              0.0f,  0.0f, 0.0f,  // 中心
@@ -70,6 +113,6 @@ public class Geometry {
              0.0f,  radius, 0.0f,  // 上
              0.0f,  0.0f, 0.0f   // 中心
         };
-        return new Mesh(vertices, GL_TRIANGLES);
+        return vertices;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,37 +1,66 @@
 package com.hmengine.geometry;
 
+import org.joml.Matrix3x2f;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 网格类
+ * 轻量的网格实例，只保存变换和颜色，几何数据由共享的MeshData提供。
+ * 修改变换只标记为脏，模型矩阵（世界矩阵）在下次读取或场景的批量更新中重新计算；
+ * 设置父网格后，模型矩阵为父网格的模型矩阵乘以本地变换。
+ * 只绕z轴旋转、z坐标为0且z缩放为1的网格（及其父网格）走二维路径：
+ * 变换组合为3x2仿射矩阵（6个float），着色器可只上传仿射矩阵；
+ * 需要三维旋转时退回完整的4x4矩阵。
  */
 public class Mesh {
-    private float[] vertices;
-    private int vertexCount;
-    private int primitiveType;  // 图元类型，如GL_TRIANGLES, GL_LINES等
+    private final MeshData data;  // 共享的几何数据
     private Vector3f position;
     private Vector3f rotation;
     private Vector3f scale;
     private Matrix4f modelMatrix;
+    private Matrix3x2f affineMatrix;  // 二维仿射矩阵（仅affine为true时有效）
+    private boolean affine;
     private Vector4f color;  // 新增颜色属性
+    private TransformListener transformListener;  // 变换监听器（由场景设置）
+    private int sceneHandle = -1;  // 场景句柄（由场景设置），不在场景中时为-1
+    private int transformVersion;  // 变换版本，每次修改变换时递增
+    private boolean transformDirty;  // 模型矩阵是否需要重新计算
+
+    // 层级关系
+    private Mesh parent;
+    private List<Mesh> children;
+    private List<Mesh> childrenView;
+    private int depth;
 
     /**
-     * 构造网格
+     * 构造网格（创建独立的几何数据）
      * @param vertices 顶点数组
      * @param primitiveType 图元类型
      */
     public Mesh(float[] vertices, int primitiveType) {
-        this.vertices = vertices;
-        this.vertexCount = vertices.length / 3;  // 每个顶点3个分量
-        this.primitiveType = primitiveType;
+        this(new MeshData(vertices, primitiveType));
+    }
+
+    /**
+     * 构造共享几何数据的网格
+     * @param data 几何数据
+     */
+    public Mesh(MeshData data) {
+        this.data = data;
         this.position = new Vector3f(0.0f, 0.0f, 0.0f);
         this.rotation = new Vector3f(0.0f, 0.0f, 0.0f);
         this.scale = new Vector3f(1.0f, 1.0f, 1.0f);
         this.modelMatrix = new Matrix4f();
+        this.affineMatrix = new Matrix3x2f();
         this.color = new Vector4f(1.0f, 1.0f, 1.0f, 1.0f);  // 默认白色
-        updateModelMatrix();
+        this.children = new ArrayList<>();
+        this.childrenView = Collections.unmodifiableList(children);
+        this.transformDirty = true;
     }
 
     /**
@@ -42,7 +71,7 @@ public class Mesh {
      */
     public void setPosition(float x, float y, float z) {
         position.set(x, y, z);
-        updateModelMatrix();
+        markTransformDirty();
     }
 
     /**
@@ -53,7 +82,7 @@ public class Mesh {
      */
     public void setRotation(float x, float y, float z) {
         rotation.set(x, y, z);
-        updateModelMatrix();
+        markTransformDirty();
     }
 
     /**
@@ -64,17 +93,217 @@ public class Mesh {
      */
     public void setScale(float x, float y, float z) {
         scale.set(x, y, z);
-        updateModelMatrix();
+        markTransformDirty();
+    }
+
+    /**
+     * 同时设置XY位置和绕z轴的旋转（二维物理写回用）
+     * @param x x坐标
+     * @param y y坐标
+     * @param angle 绕z轴的旋转（弧度）
+     */
+    public void setTransform2D(float x, float y, float angle) {
+        position.x = x;
+        position.y = y;
+        rotation.z = angle;
+        markTransformDirty();
+    }
+
+    /**
+     * 设置父网格，之后本网格的变换相对于父网格
+     * @param parent 父网格，null表示取消父子关系
+     */
+    public void setParent(Mesh parent) {
+        if (parent == this.parent) {
+            return;
+        }
+        for (Mesh ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == this) {
+                throw new IllegalArgumentException("父子关系不能形成循环");
+            }
+        }
+        if (this.parent != null) {
+            this.parent.children.remove(this);
+        }
+        this.parent = parent;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+        updateDepth(parent != null ? parent.depth + 1 : 0);
+        markTransformDirty();
+    }
+
+    /**
+     * 获取父网格
+     * @return 父网格，没有时返回null
+     */
+    public Mesh getParent() {
+        return parent;
+    }
+
+    /**
+     * 获取子网格列表（只读）
+     * @return 子网格列表
+     */
+    public List<Mesh> getChildren() {
+        return childrenView;
     }
 
     /**
-     * 更新模型矩阵
+     * 获取层级深度（根网格为0）
+     * @return 深度
      */
-    private void updateModelMatrix() {
-        modelMatrix.identity()
-            .translate(position)
-            .rotateXYZ(rotation)
-            .scale(scale);
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 更新子树的层级深度
+     * @param depth 深度
+     */
+    private void updateDepth(int depth) {
+        this.depth = depth;
+        for (Mesh child : children) {
+            child.updateDepth(depth + 1);
+        }
+    }
+
+    /**
+     * 标记变换已修改：本网格和所有子孙网格的模型矩阵都需要重新计算
+     */
+    private void markTransformDirty() {
+        transformVersion++;
+        transformDirty = true;
+        for (Mesh child : children) {
+            child.markTransformDirty();
+        }
+        notifyTransformChanged();
+    }
+
+    /**
+     * 模型矩阵是否需要重新计算
+     * @return 是否需要重新计算
+     */
+    public boolean isTransformDirty() {
+        return transformDirty;
+    }
+
+    /**
+     * 若变换已修改则重新计算模型矩阵（父网格需已是最新，或在此递归更新）
+     */
+    public void updateModelMatrix() {
+        if (!transformDirty) {
+            return;
+        }
+        if (parent != null) {
+            parent.getModelMatrix();
+        }
+        affine = (parent == null || parent.affine)
+            && rotation.x == 0.0f && rotation.y == 0.0f && position.z == 0.0f && scale.z == 1.0f;
+        if (affine) {
+            // 二维路径：直接组合3x2仿射矩阵，没有旋转时省去三角函数
+            float m00 = scale.x;
+            float m01 = 0.0f;
+            float m10 = 0.0f;
+            float m11 = scale.y;
+            if (rotation.z != 0.0f) {
+                float cos = (float) Math.cos(rotation.z);
+                float sin = (float) Math.sin(rotation.z);
+                m00 = cos * scale.x;
+                m01 = sin * scale.x;
+                m10 = -sin * scale.y;
+                m11 = cos * scale.y;
+            }
+            affineMatrix.set(m00, m01, m10, m11, position.x, position.y);
+            if (parent != null) {
+                parent.affineMatrix.mul(affineMatrix, affineMatrix);
+            }
+            Matrix3x2f a = affineMatrix;
+            modelMatrix.set(
+                a.m00(), a.m01(), 0.0f, 0.0f,
+                a.m10(), a.m11(), 0.0f, 0.0f,
+                0.0f, 0.0f, 1.0f, 0.0f,
+                a.m20(), a.m21(), 0.0f, 1.0f);
+        } else {
+            modelMatrix.translation(position)
+                .rotateXYZ(rotation)
+                .scale(scale);
+            if (parent != null) {
+                parent.modelMatrix.mul(modelMatrix, modelMatrix);
+            }
+        }
+        transformDirty = false;
+    }
+
+    /**
+     * 是否可用二维仿射矩阵表示（只绕z轴旋转、z坐标为0、z缩放为1，父网格也满足）
+     * @return 是否为二维仿射变换
+     */
+    public boolean isAffine() {
+        if (transformDirty) {
+            updateModelMatrix();
+        }
+        return affine;
+    }
+
+    /**
+     * 获取二维仿射矩阵（仅isAffine()为true时有效）
+     * @return Matrix3x2f 仿射矩阵
+     */
+    public Matrix3x2f getAffineMatrix() {
+        if (transformDirty) {
+            updateModelMatrix();
+        }
+        return affineMatrix;
+    }
+
+    /**
+     * 获取变换版本，用于判断依赖变换的缓存（例如世界空间碰撞形状）是否过期
+     * @return 变换版本
+     */
+    public int getTransformVersion() {
+        return transformVersion;
+    }
+
+    /**
+     * 设置变换监听器（网格加入场景时由场景设置）
+     * @param transformListener 变换监听器，null表示不监听
+     */
+    public void setTransformListener(TransformListener transformListener) {
+        this.transformListener = transformListener;
+    }
+
+    /**
+     * 获取网格在场景中的句柄
+     * @return 场景句柄，不在场景中时为-1
+     */
+    public int getSceneHandle() {
+        return sceneHandle;
+    }
+
+    /**
+     * 设置场景句柄（网格加入或离开场景时由场景设置）
+     * @param sceneHandle 场景句柄，-1表示不在场景中
+     */
+    public void setSceneHandle(int sceneHandle) {
+        this.sceneHandle = sceneHandle;
+    }
+
+    /**
+     * 通知监听器变换已改变
+     */
+    private void notifyTransformChanged() {
+        if (transformListener != null) {
+            transformListener.onTransformChanged(this);
+        }
+    }
+
+    /**
+     * 获取共享的几何数据
+     * @return 几何数据
+     */
+    public MeshData getMeshData() {
+        return data;
     }
 
     /**
@@ -82,7 +311,7 @@ public class Mesh {
      * @return 顶点数组
      */
     public float[] getVertices() {
-        return vertices;
+        return data.getVertices();
     }
 
     /**
@@ -90,7 +319,7 @@ public class Mesh {
      * @return 顶点数
      */
     public int getVertexCount() {
-        return vertexCount;
+        return data.getVertexCount();
     }
 
     /**
@@ -98,7 +327,7 @@ public class Mesh {
      * @return 图元类型
      */
     public int getPrimitiveType() {
-        return primitiveType;
+        return data.getPrimitiveType();
     }
 
     /**
@@ -106,17 +335,61 @@ public class Mesh {
      * @return Matrix4f 模型矩阵
      */
     public Matrix4f getModelMatrix() {
+        if (transformDirty) {
+            updateModelMatrix();
+        }
         return modelMatrix;
     }
 
     /**
-     * 获取位置
+     * 获取世界坐标x（模型矩阵的平移分量）
+     * @return 世界坐标x
+     */
+    public float getWorldX() {
+        return getModelMatrix().m30();
+    }
+
+    /**
+     * 获取世界坐标y（模型矩阵的平移分量）
+     * @return 世界坐标y
+     */
+    public float getWorldY() {
+        return getModelMatrix().m31();
+    }
+
+    /**
+     * 获取世界坐标z（模型矩阵的平移分量）
+     * @return 世界坐标z
+     */
+    public float getWorldZ() {
+        return getModelMatrix().m32();
+    }
+
+    /**
+     * 获取位置（相对父网格，没有父网格时即世界坐标）
      * @return Vector3f 位置
      */
     public Vector3f getPosition() {
         return position;
     }
 
+    /**
+     * 获取世界坐标下的包围球半径（包围球中心即网格的世界坐标）
+     * 由几何数据的局部半径乘以模型矩阵的最大轴缩放得到，旋转不改变半径
+     * @return 包围球半径
+     */
+    public float getWorldBoundingRadius() {
+        if (parent == null) {
+            float maxScale = Math.max(Math.abs(scale.x), Math.max(Math.abs(scale.y), Math.abs(scale.z)));
+            return data.getBoundingRadius() * maxScale;
+        }
+        Matrix4f m = getModelMatrix();
+        float sx = m.m00() * m.m00() + m.m01() * m.m01() + m.m02() * m.m02();
+        float sy = m.m10() * m.m10() + m.m11() * m.m11() + m.m12() * m.m12();
+        float sz = m.m20() * m.m20() + m.m21() * m.m21() + m.m22() * m.m22();
+        return data.getBoundingRadius() * (float) Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+    }
+
     /**
      * 获取旋转
      * @return Vector3f 旋转
@@ -125,6 +398,14 @@ public class Mesh {
         return rotation;
     }
 
+    /**
+     * 获取缩放
+     * @return Vector3f 缩放
+     */
+    public Vector3f getScale() {
+        return scale;
+    }
+
     /**
      * 设置颜色
      * @param r 红色
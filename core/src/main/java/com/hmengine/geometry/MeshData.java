@@ -0,0 +1,92 @@
+package com.hmengine.geometry;
+
+/**
+ * 网格几何数据类
+ * 不可变的共享几何数据（顶点、图元类型和包围盒），多个网格实例可以共享同一份数据。
+ * GPU缓冲区由各渲染器的MeshBufferCache按几何数据管理
+ */
+public class MeshData {
+    private final float[] vertices;
+    private final int vertexCount;
+    private final int primitiveType;
+
+    // 局部坐标系下的包围盒
+    private final float minX, minY, minZ;
+    private final float maxX, maxY, maxZ;
+    // 以局部原点为中心的包围球半径
+    private final float boundingRadius;
+
+    /**
+     * 构造几何数据
+     * @param vertices 顶点数组（复制后保存）
+     * @param primitiveType 图元类型
+     */
+    public MeshData(float[] vertices, int primitiveType) {
+        this.vertices = vertices.clone();
+        this.vertexCount = vertices.length / 3;  // 每个顶点3个分量
+        this.primitiveType = primitiveType;
+
+        float x0 = Float.POSITIVE_INFINITY, y0 = Float.POSITIVE_INFINITY, z0 = Float.POSITIVE_INFINITY;
+        float x1 = Float.NEGATIVE_INFINITY, y1 = Float.NEGATIVE_INFINITY, z1 = Float.NEGATIVE_INFINITY;
+        float radiusSquared = 0.0f;
+        for (int i = 0; i + 2 < vertices.length; i += 3) {
+            float x = vertices[i], y = vertices[i + 1], z = vertices[i + 2];
+            x0 = Math.min(x0, x);
+            y0 = Math.min(y0, y);
+            z0 = Math.min(z0, z);
+            x1 = Math.max(x1, x);
+            y1 = Math.max(y1, y);
+            z1 = Math.max(z1, z);
+            radiusSquared = Math.max(radiusSquared, x * x + y * y + z * z);
+        }
+        if (vertexCount == 0) {
+            x0 = y0 = z0 = x1 = y1 = z1 = 0.0f;
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.minZ = z0;
+        this.maxX = x1;
+        this.maxY = y1;
+        this.maxZ = z1;
+        this.boundingRadius = (float) Math.sqrt(radiusSquared);
+    }
+
+    /**
+     * 获取顶点数组（共享数据，不要修改）
+     * @return 顶点数组
+     */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    /**
+     * 获取顶点数
+     * @return 顶点数
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * 获取图元类型
+     * @return 图元类型
+     */
+    public int getPrimitiveType() {
+        return primitiveType;
+    }
+
+    public float getMinX() { return minX; }
+    public float getMinY() { return minY; }
+    public float getMinZ() { return minZ; }
+    public float getMaxX() { return maxX; }
+    public float getMaxY() { return maxY; }
+    public float getMaxZ() { return maxZ; }
+
+    /**
+     * 获取以局部原点为中心的包围球半径
+     * @return 包围球半径
+     */
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+}
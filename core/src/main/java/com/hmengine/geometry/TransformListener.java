@@ -0,0 +1,12 @@
+package com.hmengine.geometry;
+
+/**
+ * 网格变换监听器接口
+ */
+public interface TransformListener {
+    /**
+     * 网格的位置、旋转或缩放发生变化
+     * @param mesh 网格
+     */
+    void onTransformChanged(Mesh mesh);
+}
@@ -0,0 +1,41 @@
+package com.hmengine.jobs;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 异步任务句柄，可作为其他任务的依赖
+ */
+public class JobHandle {
+    final CompletableFuture<Void> future;
+
+    JobHandle(CompletableFuture<Void> future) {
+        this.future = future;
+    }
+
+    /**
+     * 判断任务是否已完成
+     * @return 是否完成
+     */
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * 等待任务完成，任务抛出的异常在这里重新抛出
+     */
+    public void complete() {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
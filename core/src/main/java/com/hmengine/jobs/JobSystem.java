@@ -0,0 +1,285 @@
+package com.hmengine.jobs;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 任务系统
+ * 基于工作窃取的ForkJoin线程池：parallelFor把下标区间二分拆成任务，空闲线程从其他线程的队列尾部窃取，
+ * 负载不均时自动平衡。每个工作线程有自己的临时内存ScratchArena。
+ * 异步任务可以声明依赖，completeFrame作为每帧的屏障等待本帧提交的所有异步任务完成。
+ * 屏障之后各线程的临时内存只由所属线程自己归还：调用线程在completeFrame中归还，
+ * 工作线程在屏障后开始下一个任务之前（即停在两个任务之间时）归还，不会动到其他线程正在使用的数组。
+ */
+public class JobSystem {
+    private static JobSystem defaultSystem;
+
+    private final ForkJoinPool pool;
+    private final int workerCount;
+
+    // 非工作线程（例如主线程直接执行小区间时）的临时内存
+    private final ThreadLocal<ScratchArena> callerArena = ThreadLocal.withInitial(ScratchArena::new);
+
+    // 本帧提交的异步任务
+    private final List<JobHandle> frameJobs = new ArrayList<>();
+    // 工作线程读取帧号判断自己的临时内存是否需要归还
+    private volatile long frame = 0;
+
+    /**
+     * 构造函数
+     * @param workerCount 工作线程数
+     */
+    public JobSystem(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("工作线程数必须大于0: " + workerCount);
+        }
+        this.workerCount = workerCount;
+        this.pool = new ForkJoinPool(workerCount, Worker::new, null, false);
+    }
+
+    /**
+     * 获取默认任务系统（工作线程数等于处理器核心数），引擎各模块未单独设置时共用
+     * @return 默认任务系统
+     */
+    public static synchronized JobSystem getDefault() {
+        if (defaultSystem == null) {
+            defaultSystem = new JobSystem(Runtime.getRuntime().availableProcessors());
+        }
+        return defaultSystem;
+    }
+
+    /**
+     * 并行处理区间，返回时所有分块都已完成
+     * 分块大小取grain和“区间长度/(工作线程数×4)”中的较大者，区间不超过一块时直接在调用线程上执行
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @param grain 最小分块大小
+     * @param job 区间任务
+     */
+    public void parallelFor(int from, int to, int grain, RangeJob job) {
+        int count = to - from;
+        if (count <= 0) {
+            return;
+        }
+        int chunk = chunkSize(count, grain);
+        if (count <= chunk || workerCount == 1) {
+            runChunk(from, to, job);
+            return;
+        }
+        RangeTask task = new RangeTask(from, to, chunk, job);
+        if (isWorkerThread()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * 异步并行处理区间
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @param grain 最小分块大小
+     * @param job 区间任务
+     * @param dependencies 依赖的任务，全部完成后才开始
+     * @return 任务句柄
+     */
+    public JobHandle scheduleParallelFor(int from, int to, int grain, RangeJob job, JobHandle... dependencies) {
+        return schedule(() -> parallelFor(from, to, grain, job), dependencies);
+    }
+
+    /**
+     * 异步执行任务
+     * @param job 任务
+     * @param dependencies 依赖的任务，全部完成后才开始；任一依赖失败时本任务也以同样的异常失败
+     * @return 任务句柄
+     */
+    public JobHandle schedule(Runnable job, JobHandle... dependencies) {
+        Runnable task = () -> {
+            ScratchArena arena = enter();
+            try {
+                job.run();
+            } finally {
+                arena.depth--;
+            }
+        };
+        CompletableFuture<Void> future;
+        if (dependencies.length == 0) {
+            future = CompletableFuture.runAsync(task, pool);
+        } else {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                futures[i] = dependencies[i].future;
+            }
+            future = CompletableFuture.allOf(futures).thenRunAsync(task, pool);
+        }
+        JobHandle handle = new JobHandle(future);
+        synchronized (frameJobs) {
+            frameJobs.add(handle);
+        }
+        return handle;
+    }
+
+    /**
+     * 帧屏障：等待本帧提交的所有异步任务完成，归还调用线程的临时内存，
+     * 工作线程的临时内存在它们开始下一个任务之前归还（不能在任务内部调用）
+     */
+    public void completeFrame() {
+        ScratchArena own = callerArena.get();
+        if (isWorkerThread() || own.depth > 0) {
+            throw new IllegalStateException("不能在任务内部调用completeFrame");
+        }
+        while (true) {
+            List<JobHandle> pending;
+            synchronized (frameJobs) {
+                if (frameJobs.isEmpty()) {
+                    break;
+                }
+                pending = new ArrayList<>(frameJobs);
+                frameJobs.clear();
+            }
+            // 任务执行中可能继续提交任务，循环直到没有新任务
+            for (JobHandle handle : pending) {
+                handle.complete();
+            }
+        }
+        synchronized (frameJobs) {
+            frame++;
+        }
+        own.reset();
+        own.frame = frame;
+    }
+
+    /**
+     * 获取已完成的帧数
+     * @return 帧数
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * 获取工作线程数
+     * @return 工作线程数
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * 获取当前线程的临时内存
+     * 任务之外借出的数组应在用完后release到借出前的mark，最迟在下一次completeFrame时被归还
+     * @return 临时内存
+     */
+    public ScratchArena scratch() {
+        if (isWorkerThread()) {
+            return ((Worker) Thread.currentThread()).arena;
+        }
+        return callerArena.get();
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        pool.shutdown();
+        synchronized (JobSystem.class) {
+            if (defaultSystem == this) {
+                defaultSystem = null;
+            }
+        }
+    }
+
+    private int chunkSize(int count, int grain) {
+        int balanced = (count + workerCount * 4 - 1) / (workerCount * 4);
+        return Math.max(Math.max(grain, 1), balanced);
+    }
+
+    private void runChunk(int from, int to, RangeJob job) {
+        ScratchArena arena = enter();
+        long mark = arena.mark();
+        try {
+            job.execute(from, to, arena);
+        } finally {
+            arena.release(mark);
+            arena.depth--;
+        }
+    }
+
+    /**
+     * 当前线程开始执行一个任务，返回它的临时内存（结束时depth减一）
+     * 工作线程不在任何任务中时，若屏障之后还没有归还过临时内存，先归还上一帧遗留的数组
+     * @return 当前线程的临时内存
+     */
+    private ScratchArena enter() {
+        if (isWorkerThread()) {
+            ScratchArena arena = ((Worker) Thread.currentThread()).arena;
+            if (arena.depth++ == 0 && arena.frame != frame) {
+                arena.reset();
+                arena.frame = frame;
+            }
+            return arena;
+        }
+        ScratchArena arena = callerArena.get();
+        arena.depth++;
+        return arena;
+    }
+
+    /**
+     * 判断当前线程是否为本任务系统的工作线程
+     * @return 是否为工作线程
+     */
+    private boolean isWorkerThread() {
+        return Thread.currentThread() instanceof Worker worker && worker.owner == this;
+    }
+
+    /**
+     * 工作线程：持有自己的临时内存
+     */
+    private class Worker extends ForkJoinWorkerThread {
+        final JobSystem owner = JobSystem.this;
+        final ScratchArena arena = new ScratchArena();
+
+        Worker(ForkJoinPool pool) {
+            super(pool);
+            setDaemon(true);
+            setName("job-worker-" + getPoolIndex());
+        }
+
+    }
+
+    /**
+     * 区间二分任务，区间不超过分块大小时直接执行
+     */
+    private class RangeTask extends RecursiveAction {
+        // 任务只在本进程内调度，从不序列化
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final transient RangeJob job;
+
+        RangeTask(int from, int to, int chunk, RangeJob job) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.job = job;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                runChunk(from, to, job);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, mid, chunk, job), new RangeTask(mid, to, chunk, job));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.hmengine.jobs;
+
+/**
+ * 区间任务接口，由JobSystem.parallelFor分块调用
+ */
+public interface RangeJob {
+    /**
+     * 处理一个区间
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @param scratch 当前工作线程的临时内存，只在本次调用期间有效
+     */
+    void execute(int from, int to, ScratchArena scratch);
+}
@@ -0,0 +1,80 @@
+package com.hmengine.jobs;
+
+import java.util.Arrays;
+
+/**
+ * 工作线程的临时内存
+ * 按栈的方式借出可复用的基本类型数组：每次借出一个不同的数组，release回到mark时的位置后数组可以再次借出。
+ * 稳定运行后不再分配新数组。只能由所属线程使用。
+ */
+public class ScratchArena {
+    // 由JobSystem维护：所属线程正在执行的任务嵌套层数，以及上次归还全部数组时的帧号
+    int depth = 0;
+    long frame = 0;
+
+    private float[][] floatArrays = new float[8][];
+    private int[][] intArrays = new int[8][];
+    private int floatTop = 0;
+    private int intTop = 0;
+
+    /**
+     * 借出长度至少为length的float数组（内容未清零）
+     * @param length 最小长度
+     * @return 数组
+     */
+    public float[] floats(int length) {
+        if (floatTop == floatArrays.length) {
+            floatArrays = Arrays.copyOf(floatArrays, floatTop * 2);
+        }
+        float[] array = floatArrays[floatTop];
+        if (array == null || array.length < length) {
+            array = new float[Math.max(length, array == null ? 64 : array.length * 2)];
+            floatArrays[floatTop] = array;
+        }
+        floatTop++;
+        return array;
+    }
+
+    /**
+     * 借出长度至少为length的int数组（内容未清零）
+     * @param length 最小长度
+     * @return 数组
+     */
+    public int[] ints(int length) {
+        if (intTop == intArrays.length) {
+            intArrays = Arrays.copyOf(intArrays, intTop * 2);
+        }
+        int[] array = intArrays[intTop];
+        if (array == null || array.length < length) {
+            array = new int[Math.max(length, array == null ? 64 : array.length * 2)];
+            intArrays[intTop] = array;
+        }
+        intTop++;
+        return array;
+    }
+
+    /**
+     * 记录当前借出位置
+     * @return 位置标记
+     */
+    public long mark() {
+        return ((long) floatTop << 32) | intTop;
+    }
+
+    /**
+     * 归还mark之后借出的所有数组
+     * @param mark 位置标记
+     */
+    public void release(long mark) {
+        floatTop = (int) (mark >>> 32);
+        intTop = (int) mark;
+    }
+
+    /**
+     * 归还所有数组
+     */
+    public void reset() {
+        floatTop = 0;
+        intTop = 0;
+    }
+}
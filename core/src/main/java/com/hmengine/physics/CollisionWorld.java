@@ -0,0 +1,593 @@
+package com.hmengine.physics;
+
+import com.hmengine.geometry.Mesh;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import com.hmengine.jobs.ScratchArena;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 碰撞世界（宽检测阶段）
+ * 使用排序扫描（Sweep and Prune）找出包围盒重叠的碰撞体对：
+ * 每次更新沿方差较大的轴对碰撞体排序（利用帧间连贯性做插入排序），
+ * 然后在排好序的连续数组上扫描。碰撞层与掩码满足
+ * (layerA & maskB) != 0 且 (layerB & maskA) != 0 时才产生碰撞对。
+ */
+public class CollisionWorld {
+    /** 所有层 */
+    public static final int ALL_LAYERS = 0xFFFFFFFF;
+
+    // 碰撞体数量超过该值时才并行扫描
+    private static final int PARALLEL_THRESHOLD = 4096;
+    // 每个工作线程分配的扫描块数，用于平衡负载
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // 碰撞体数据（按编号索引）
+    private Mesh[] meshes = new Mesh[64];
+    private float[] radii = new float[64];
+    private float[] minX = new float[64];
+    private float[] minY = new float[64];
+    private float[] maxX = new float[64];
+    private float[] maxY = new float[64];
+    private int[] layers = new int[64];
+    private int[] masks = new int[64];
+    private boolean[] active = new boolean[64];
+    private int capacity;
+    private int count;
+
+    // 空闲编号；移除的编号在下次更新压缩排序数组后才可复用
+    private int[] freeIds = new int[64];
+    private int freeCount;
+    private int[] pendingFree = new int[64];
+    private int pendingFreeCount;
+
+    private final Map<Mesh, Integer> meshColliders = new IdentityHashMap<>();
+
+    // 按扫描轴排序的编号
+    private int[] order = new int[64];
+    private int orderCount;
+    private long[] sortKeys = new long[0];
+    private int axis;
+
+    // 排序后的连续数据，扫描时顺序访问
+    private float[] sortedMin0 = new float[0];
+    private float[] sortedMax0 = new float[0];
+    private float[] sortedMin1 = new float[0];
+    private float[] sortedMax1 = new float[0];
+    private int[] sortedLayers = new int[0];
+    private int[] sortedMasks = new int[0];
+    private int[] sortedIds = new int[0];
+
+    private final PairBuffer pairs = new PairBuffer(1024);
+
+    // 并行扫描：每块写入自己的缓冲区
+    private JobSystem jobSystem;
+    private PairBuffer[] chunkPairs = new PairBuffer[0];
+    private int chunkCount;
+    private final RangeJob sweepJob = this::sweepChunks;
+
+    /**
+     * 添加跟随网格的碰撞体，每次更新时从网格位置同步包围盒
+     * @param mesh 网格
+     * @param radius 碰撞半径，小于等于0时使用网格的世界包围半径
+     * @param layer 所在层（位掩码）
+     * @param mask 可碰撞的层（位掩码）
+     * @return 碰撞体编号
+     */
+    public int add(Mesh mesh, float radius, int layer, int mask) {
+        int id = allocate();
+        meshes[id] = mesh;
+        radii[id] = radius;
+        layers[id] = layer;
+        masks[id] = mask;
+        syncFromMesh(id);
+        meshColliders.put(mesh, id);
+        return id;
+    }
+
+    /**
+     * 添加固定包围盒的碰撞体
+     * @param minX 最小x
+     * @param minY 最小y
+     * @param maxX 最大x
+     * @param maxY 最大y
+     * @param layer 所在层（位掩码）
+     * @param mask 可碰撞的层（位掩码）
+     * @return 碰撞体编号
+     */
+    public int add(float minX, float minY, float maxX, float maxY, int layer, int mask) {
+        int id = allocate();
+        meshes[id] = null;
+        radii[id] = 0.0f;
+        layers[id] = layer;
+        masks[id] = mask;
+        setBounds(id, minX, minY, maxX, maxY);
+        return id;
+    }
+
+    /**
+     * 设置碰撞体包围盒（用于不跟随网格的碰撞体）
+     * @param id 碰撞体编号
+     * @param minX 最小x
+     * @param minY 最小y
+     * @param maxX 最大x
+     * @param maxY 最大y
+     */
+    public void setBounds(int id, float minX, float minY, float maxX, float maxY) {
+        checkActive(id);
+        this.minX[id] = minX;
+        this.minY[id] = minY;
+        this.maxX[id] = maxX;
+        this.maxY[id] = maxY;
+    }
+
+    /**
+     * 设置碰撞体的层和掩码
+     * @param id 碰撞体编号
+     * @param layer 所在层（位掩码）
+     * @param mask 可碰撞的层（位掩码）
+     */
+    public void setLayer(int id, int layer, int mask) {
+        checkActive(id);
+        layers[id] = layer;
+        masks[id] = mask;
+    }
+
+    /**
+     * 移除碰撞体
+     * @param id 碰撞体编号
+     */
+    public void remove(int id) {
+        checkActive(id);
+        active[id] = false;
+        if (meshes[id] != null) {
+            meshColliders.remove(meshes[id]);
+            meshes[id] = null;
+        }
+        if (pendingFreeCount == pendingFree.length) {
+            pendingFree = Arrays.copyOf(pendingFree, pendingFree.length * 2);
+        }
+        pendingFree[pendingFreeCount++] = id;
+        count--;
+    }
+
+    /**
+     * 清除所有碰撞体
+     */
+    public void clear() {
+        Arrays.fill(meshes, 0, capacity, null);
+        Arrays.fill(active, 0, capacity, false);
+        meshColliders.clear();
+        capacity = 0;
+        count = 0;
+        freeCount = 0;
+        pendingFreeCount = 0;
+        orderCount = 0;
+        pairs.clear();
+    }
+
+    /**
+     * 判断碰撞体是否存在
+     * @param id 碰撞体编号
+     * @return 是否存在
+     */
+    public boolean isActive(int id) {
+        return id >= 0 && id < capacity && active[id];
+    }
+
+    /**
+     * 查找网格对应的碰撞体
+     * @param mesh 网格
+     * @return 碰撞体编号，不存在时返回-1
+     */
+    public int find(Mesh mesh) {
+        Integer id = meshColliders.get(mesh);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 获取碰撞体跟随的网格
+     * @param id 碰撞体编号
+     * @return 网格，固定包围盒的碰撞体返回null
+     */
+    public Mesh getMesh(int id) {
+        return isActive(id) ? meshes[id] : null;
+    }
+
+    /**
+     * 获取碰撞半径（跟随网格的碰撞体）
+     * @param id 碰撞体编号
+     * @return 碰撞半径
+     */
+    public float getRadius(int id) {
+        checkActive(id);
+        float radius = radii[id];
+        return radius > 0.0f || meshes[id] == null ? radius : meshes[id].getWorldBoundingRadius();
+    }
+
+    /**
+     * 获取碰撞体所在层
+     * @param id 碰撞体编号
+     * @return 层
+     */
+    public int getLayer(int id) {
+        return layers[id];
+    }
+
+    /**
+     * 获取碰撞体掩码
+     * @param id 碰撞体编号
+     * @return 掩码
+     */
+    public int getMask(int id) {
+        return masks[id];
+    }
+
+    /**
+     * 获取包围盒最小x
+     * @param id 碰撞体编号
+     * @return 最小x
+     */
+    public float getMinX(int id) {
+        return minX[id];
+    }
+
+    /**
+     * 获取包围盒最小y
+     * @param id 碰撞体编号
+     * @return 最小y
+     */
+    public float getMinY(int id) {
+        return minY[id];
+    }
+
+    /**
+     * 获取包围盒最大x
+     * @param id 碰撞体编号
+     * @return 最大x
+     */
+    public float getMaxX(int id) {
+        return maxX[id];
+    }
+
+    /**
+     * 获取包围盒最大y
+     * @param id 碰撞体编号
+     * @return 最大y
+     */
+    public float getMaxY(int id) {
+        return maxY[id];
+    }
+
+    /**
+     * 获取碰撞体数量
+     * @return 数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 设置扫描使用的任务系统，碰撞体足够多且任务系统有多个工作线程时并行填充碰撞对
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * 更新包围盒并找出所有重叠的碰撞对
+     * 返回的缓冲区由碰撞世界持有，下次更新时被覆盖；对按扫描顺序排列，
+     * 单线程和多线程结果相同
+     * @return 碰撞对缓冲区
+     */
+    public PairBuffer update() {
+        syncAll();
+        compactOrder();
+        sortOrder();
+        buildSorted();
+
+        pairs.clear();
+        JobSystem jobs = jobs();
+        if (jobs.getWorkerCount() == 1 || orderCount < PARALLEL_THRESHOLD) {
+            sweep(0, orderCount, pairs);
+        } else {
+            sweepParallel(jobs, jobs.getWorkerCount() * CHUNKS_PER_THREAD);
+        }
+        return pairs;
+    }
+
+    /**
+     * 获取上次更新得到的碰撞对
+     * @return 碰撞对缓冲区
+     */
+    public PairBuffer getPairs() {
+        return pairs;
+    }
+
+    /**
+     * 遍历上次更新得到的碰撞对，跳过其后已被移除的碰撞体
+     * @param callback 回调
+     */
+    public void forEachPair(PairCallback callback) {
+        for (int i = 0; i < pairs.size(); i++) {
+            int first = pairs.getFirst(i);
+            int second = pairs.getSecond(i);
+            if (active[first] && active[second]) {
+                callback.onPair(first, second);
+            }
+        }
+    }
+
+    /**
+     * 分配碰撞体编号
+     * @return 编号
+     */
+    private int allocate() {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (capacity == meshes.length) {
+                grow(capacity * 2);
+            }
+            id = capacity++;
+        }
+        active[id] = true;
+        count++;
+        if (orderCount == order.length) {
+            order = Arrays.copyOf(order, order.length * 2);
+        }
+        order[orderCount++] = id;
+        return id;
+    }
+
+    /**
+     * 扩容碰撞体数组
+     * @param newCapacity 新容量
+     */
+    private void grow(int newCapacity) {
+        meshes = Arrays.copyOf(meshes, newCapacity);
+        radii = Arrays.copyOf(radii, newCapacity);
+        minX = Arrays.copyOf(minX, newCapacity);
+        minY = Arrays.copyOf(minY, newCapacity);
+        maxX = Arrays.copyOf(maxX, newCapacity);
+        maxY = Arrays.copyOf(maxY, newCapacity);
+        layers = Arrays.copyOf(layers, newCapacity);
+        masks = Arrays.copyOf(masks, newCapacity);
+        active = Arrays.copyOf(active, newCapacity);
+    }
+
+    /**
+     * 检查碰撞体是否存在
+     * @param id 碰撞体编号
+     */
+    private void checkActive(int id) {
+        if (!isActive(id)) {
+            throw new IllegalArgumentException("碰撞体不存在: " + id);
+        }
+    }
+
+    /**
+     * 从网格同步包围盒
+     * @param id 碰撞体编号
+     */
+    private void syncFromMesh(int id) {
+        Mesh mesh = meshes[id];
+        float radius = radii[id] > 0.0f ? radii[id] : mesh.getWorldBoundingRadius();
+        float x = mesh.getWorldX();
+        float y = mesh.getWorldY();
+        minX[id] = x - radius;
+        minY[id] = y - radius;
+        maxX[id] = x + radius;
+        maxY[id] = y + radius;
+    }
+
+    /**
+     * 同步所有跟随网格的碰撞体，并选择扫描轴
+     */
+    private void syncAll() {
+        double sumX = 0.0, sumY = 0.0, sumSqX = 0.0, sumSqY = 0.0;
+        for (int i = 0; i < orderCount; i++) {
+            int id = order[i];
+            if (!active[id]) {
+                continue;
+            }
+            if (meshes[id] != null) {
+                syncFromMesh(id);
+            }
+            double cx = (minX[id] + maxX[id]) * 0.5;
+            double cy = (minY[id] + maxY[id]) * 0.5;
+            sumX += cx;
+            sumY += cy;
+            sumSqX += cx * cx;
+            sumSqY += cy * cy;
+        }
+        if (count > 1) {
+            // 沿分布更分散的轴扫描可减少误报；加滞后避免来回切换
+            double varianceX = sumSqX - sumX * sumX / count;
+            double varianceY = sumSqY - sumY * sumY / count;
+            if (axis == 0 && varianceY > varianceX * 1.5) {
+                axis = 1;
+            } else if (axis == 1 && varianceX > varianceY * 1.5) {
+                axis = 0;
+            }
+        }
+    }
+
+    /**
+     * 从排序数组中去掉已移除的碰撞体，并释放其编号
+     */
+    private void compactOrder() {
+        if (pendingFreeCount == 0) {
+            return;
+        }
+        int write = 0;
+        for (int i = 0; i < orderCount; i++) {
+            int id = order[i];
+            if (active[id]) {
+                order[write++] = id;
+            }
+        }
+        orderCount = write;
+        if (freeCount + pendingFreeCount > freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(freeIds.length * 2, freeCount + pendingFreeCount));
+        }
+        System.arraycopy(pendingFree, 0, freeIds, freeCount, pendingFreeCount);
+        freeCount += pendingFreeCount;
+        pendingFreeCount = 0;
+    }
+
+    /**
+     * 按扫描轴的最小值排序：上一帧顺序基本有序时插入排序接近O(n)，
+     * 移动次数过多（例如刚切换扫描轴）时改用完整排序
+     */
+    private void sortOrder() {
+        float[] keys = axis == 0 ? minX : minY;
+        int limit = orderCount * 8 + 64;
+        int moves = 0;
+        for (int i = 1; i < orderCount; i++) {
+            int id = order[i];
+            float key = keys[id];
+            int j = i - 1;
+            while (j >= 0 && keys[order[j]] > key) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = id;
+            moves += i - 1 - j;
+            if (moves > limit) {
+                fullSort(keys);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 完整排序：把浮点键转为可比较的整数与编号拼成long后排序
+     * @param keys 排序键
+     */
+    private void fullSort(float[] keys) {
+        if (sortKeys.length < orderCount) {
+            sortKeys = new long[order.length];
+        }
+        for (int i = 0; i < orderCount; i++) {
+            int id = order[i];
+            int bits = Float.floatToRawIntBits(keys[id]);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            sortKeys[i] = ((long) bits << 32) | id;
+        }
+        Arrays.sort(sortKeys, 0, orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            order[i] = (int) sortKeys[i];
+        }
+    }
+
+    /**
+     * 按排序结果把扫描数据复制为连续数组
+     */
+    private void buildSorted() {
+        if (sortedIds.length < orderCount) {
+            int size = order.length;
+            sortedMin0 = new float[size];
+            sortedMax0 = new float[size];
+            sortedMin1 = new float[size];
+            sortedMax1 = new float[size];
+            sortedLayers = new int[size];
+            sortedMasks = new int[size];
+            sortedIds = new int[size];
+        }
+        float[] min0 = axis == 0 ? minX : minY;
+        float[] max0 = axis == 0 ? maxX : maxY;
+        float[] min1 = axis == 0 ? minY : minX;
+        float[] max1 = axis == 0 ? maxY : maxX;
+        for (int i = 0; i < orderCount; i++) {
+            int id = order[i];
+            sortedMin0[i] = min0[id];
+            sortedMax0[i] = max0[id];
+            sortedMin1[i] = min1[id];
+            sortedMax1[i] = max1[id];
+            sortedLayers[i] = layers[id];
+            sortedMasks[i] = masks[id];
+            sortedIds[i] = id;
+        }
+    }
+
+    /**
+     * 扫描排序数组中[from, to)范围内的碰撞体，与其后沿扫描轴重叠的碰撞体配对
+     * @param from 起始位置
+     * @param to 结束位置（不含）
+     * @param out 输出缓冲区
+     */
+    private void sweep(int from, int to, PairBuffer out) {
+        int n = orderCount;
+        float[] min0 = sortedMin0;
+        float[] min1 = sortedMin1;
+        float[] max1 = sortedMax1;
+        int[] layerArray = sortedLayers;
+        int[] maskArray = sortedMasks;
+        for (int i = from; i < to; i++) {
+            float end = sortedMax0[i];
+            float lo = min1[i];
+            float hi = max1[i];
+            int layer = layerArray[i];
+            int mask = maskArray[i];
+            int id = sortedIds[i];
+            for (int j = i + 1; j < n && min0[j] <= end; j++) {
+                if (min1[j] > hi || max1[j] < lo) {
+                    continue;
+                }
+                if ((layer & maskArray[j]) == 0 || (layerArray[j] & mask) == 0) {
+                    continue;
+                }
+                int other = sortedIds[j];
+                if (id < other) {
+                    out.add(id, other);
+                } else {
+                    out.add(other, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把排序数组分块并行扫描，每块写入自己的缓冲区后按块顺序合并
+     * @param jobs 任务系统
+     * @param chunks 块数
+     */
+    private void sweepParallel(JobSystem jobs, int chunks) {
+        if (chunkPairs.length < chunks) {
+            int old = chunkPairs.length;
+            chunkPairs = Arrays.copyOf(chunkPairs, chunks);
+            for (int i = old; i < chunks; i++) {
+                chunkPairs[i] = new PairBuffer();
+            }
+        }
+        chunkCount = chunks;
+        jobs.parallelFor(0, chunks, 1, sweepJob);
+        for (int i = 0; i < chunks; i++) {
+            pairs.addAll(chunkPairs[i]);
+        }
+    }
+
+    /**
+     * 扫描一段块
+     * @param fromChunk 起始块（包含）
+     * @param toChunk 结束块（不包含）
+     * @param scratch 临时内存（未使用）
+     */
+    private void sweepChunks(int fromChunk, int toChunk, ScratchArena scratch) {
+        for (int chunk = fromChunk; chunk < toChunk; chunk++) {
+            PairBuffer out = chunkPairs[chunk];
+            out.clear();
+            sweep((int) ((long) orderCount * chunk / chunkCount),
+                    (int) ((long) orderCount * (chunk + 1) / chunkCount), out);
+        }
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+}
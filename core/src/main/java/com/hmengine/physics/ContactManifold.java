@@ -0,0 +1,134 @@
+package com.hmengine.physics;
+
+/**
+ * 接触流形：两个碰撞体之间的碰撞法线与最多两个接触点
+ * 法线由第一个碰撞体指向第二个碰撞体，接触点位于第二个碰撞形状上（世界空间）
+ */
+public class ContactManifold {
+    /** 最大接触点数 */
+    public static final int MAX_POINTS = 2;
+
+    private int first;
+    private int second;
+    private float normalX;
+    private float normalY;
+    private final float[] pointX = new float[MAX_POINTS];
+    private final float[] pointY = new float[MAX_POINTS];
+    private final float[] depths = new float[MAX_POINTS];
+    private int pointCount;
+
+    /**
+     * 重置流形
+     * @param first 第一个碰撞体编号
+     * @param second 第二个碰撞体编号
+     */
+    void reset(int first, int second) {
+        this.first = first;
+        this.second = second;
+        this.normalX = 0.0f;
+        this.normalY = 0.0f;
+        this.pointCount = 0;
+    }
+
+    /**
+     * 设置碰撞法线
+     * @param x 法线x
+     * @param y 法线y
+     */
+    void setNormal(float x, float y) {
+        this.normalX = x;
+        this.normalY = y;
+    }
+
+    /**
+     * 添加接触点
+     * @param x 接触点x
+     * @param y 接触点y
+     * @param depth 穿透深度
+     */
+    void addPoint(float x, float y, float depth) {
+        pointX[pointCount] = x;
+        pointY[pointCount] = y;
+        depths[pointCount] = depth;
+        pointCount++;
+    }
+
+    /**
+     * 获取第一个碰撞体编号
+     * @return 碰撞体编号
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * 获取第二个碰撞体编号
+     * @return 碰撞体编号
+     */
+    public int getSecond() {
+        return second;
+    }
+
+    /**
+     * 获取碰撞法线x（由第一个指向第二个）
+     * @return 法线x
+     */
+    public float getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * 获取碰撞法线y（由第一个指向第二个）
+     * @return 法线y
+     */
+    public float getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * 获取接触点数
+     * @return 接触点数
+     */
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * 获取接触点x
+     * @param index 接触点索引
+     * @return x坐标
+     */
+    public float getPointX(int index) {
+        return pointX[index];
+    }
+
+    /**
+     * 获取接触点y
+     * @param index 接触点索引
+     * @return y坐标
+     */
+    public float getPointY(int index) {
+        return pointY[index];
+    }
+
+    /**
+     * 获取接触点穿透深度
+     * @param index 接触点索引
+     * @return 穿透深度
+     */
+    public float getDepth(int index) {
+        return depths[index];
+    }
+
+    /**
+     * 获取最大穿透深度
+     * @return 穿透深度
+     */
+    public float getMaxDepth() {
+        float max = 0.0f;
+        for (int i = 0; i < pointCount; i++) {
+            max = Math.max(max, depths[i]);
+        }
+        return max;
+    }
+}
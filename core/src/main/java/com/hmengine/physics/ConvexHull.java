@@ -0,0 +1,117 @@
+package com.hmengine.physics;
+
+import java.util.Arrays;
+
+/**
+ * 二维凸包（局部空间，逆时针顺序）
+ * 由网格顶点的XY坐标计算，每种几何数据只需计算一次
+ */
+public class ConvexHull {
+    private final float[] xs;
+    private final float[] ys;
+
+    /**
+     * 构造函数
+     * @param xs 顶点x坐标（逆时针）
+     * @param ys 顶点y坐标（逆时针）
+     */
+    private ConvexHull(float[] xs, float[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * 由顶点数组计算凸包（单调链算法）
+     * @param vertices 顶点数组（每个顶点3个float，忽略z）
+     * @return 凸包
+     */
+    public static ConvexHull fromVertices(float[] vertices) {
+        int n = vertices.length / 3;
+        if (n == 0) {
+            throw new IllegalArgumentException("顶点数组为空，无法计算凸包");
+        }
+
+        // 按(x, y)排序顶点索引
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> {
+            int c = Float.compare(vertices[a * 3], vertices[b * 3]);
+            return c != 0 ? c : Float.compare(vertices[a * 3 + 1], vertices[b * 3 + 1]);
+        });
+
+        float[] hx = new float[n * 2];
+        float[] hy = new float[n * 2];
+        int k = 0;
+        // 下链
+        for (int i = 0; i < n; i++) {
+            float x = vertices[sorted[i] * 3];
+            float y = vertices[sorted[i] * 3 + 1];
+            while (k >= 2 && cross(hx[k - 2], hy[k - 2], hx[k - 1], hy[k - 1], x, y) <= 0.0f) {
+                k--;
+            }
+            hx[k] = x;
+            hy[k] = y;
+            k++;
+        }
+        // 上链
+        for (int i = n - 2, lower = k + 1; i >= 0; i--) {
+            float x = vertices[sorted[i] * 3];
+            float y = vertices[sorted[i] * 3 + 1];
+            while (k >= lower && cross(hx[k - 2], hy[k - 2], hx[k - 1], hy[k - 1], x, y) <= 0.0f) {
+                k--;
+            }
+            hx[k] = x;
+            hy[k] = y;
+            k++;
+        }
+        // 最后一个点与第一个点重复；退化输入（所有点重合）时再去掉重复点
+        int count = Math.max(1, k - 1);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (hx[i] != hx[unique - 1] || hy[i] != hy[unique - 1]) {
+                hx[unique] = hx[i];
+                hy[unique] = hy[i];
+                unique++;
+            }
+        }
+        if (unique > 1 && hx[unique - 1] == hx[0] && hy[unique - 1] == hy[0]) {
+            unique--;
+        }
+        return new ConvexHull(Arrays.copyOf(hx, unique), Arrays.copyOf(hy, unique));
+    }
+
+    /**
+     * 计算(b - a)×(c - a)
+     */
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    /**
+     * 获取顶点数
+     * @return 顶点数
+     */
+    public int getVertexCount() {
+        return xs.length;
+    }
+
+    /**
+     * 获取顶点x坐标
+     * @param index 顶点索引
+     * @return x坐标
+     */
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * 获取顶点y坐标
+     * @param index 顶点索引
+     * @return y坐标
+     */
+    public float getY(int index) {
+        return ys[index];
+    }
+}
@@ -0,0 +1,62 @@
+package com.hmengine.physics;
+
+import java.util.Arrays;
+
+/**
+ * 接触流形缓冲区，流形对象在帧间复用，不产生分配
+ */
+public class ManifoldBuffer {
+    private ContactManifold[] manifolds = new ContactManifold[64];
+    private int size;
+
+    /**
+     * 取出下一个可写入的流形
+     * @return 流形
+     */
+    ContactManifold push() {
+        if (size == manifolds.length) {
+            manifolds = Arrays.copyOf(manifolds, manifolds.length * 2);
+        }
+        ContactManifold manifold = manifolds[size];
+        if (manifold == null) {
+            manifold = new ContactManifold();
+            manifolds[size] = manifold;
+        }
+        size++;
+        return manifold;
+    }
+
+    /**
+     * 撤销最后一次取出的流形
+     */
+    void pop() {
+        size--;
+    }
+
+    /**
+     * 获取流形
+     * @param index 索引
+     * @return 流形
+     */
+    public ContactManifold get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("流形索引越界: " + index);
+        }
+        return manifolds[index];
+    }
+
+    /**
+     * 获取流形数量
+     * @return 数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空缓冲区（保留流形对象）
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,402 @@
+package com.hmengine.physics;
+
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.joml.Matrix4f;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 窄检测阶段
+ * 用分离轴定理（SAT）检测两个凸多边形是否相交，并通过裁剪入射边生成接触流形。
+ * 每种几何数据的局部凸包只计算一次；世界空间凸包按碰撞体缓存，
+ * 只有网格的变换版本变化时才重新计算。非线程安全。
+ */
+public class Narrowphase {
+    // 选择参考面时的容差，避免两个轴分离量接近时来回切换
+    private static final float REFERENCE_TOLERANCE = 0.0005f;
+
+    private final Map<MeshData, ConvexHull> localHulls = new IdentityHashMap<>();
+    private WorldHull[] hulls = new WorldHull[64];
+    private int hullRebuilds;
+
+    // 接触余量：间距小于该值时也生成接触点（深度为负），使静止堆叠的接触点稳定
+    private float contactMargin;
+
+    // maxSeparation找到的边
+    private int bestEdge;
+
+    // 裁剪用的临时数据
+    private final float[] clipX = new float[2];
+    private final float[] clipY = new float[2];
+    private final float[] clipOutX = new float[2];
+    private final float[] clipOutY = new float[2];
+
+    /**
+     * 检测碰撞世界中的所有碰撞对
+     * @param world 碰撞世界
+     * @param pairs 宽检测得到的碰撞对
+     * @param out 输出的接触流形（先清空）
+     * @return 实际接触的碰撞对数量
+     */
+    public int collide(CollisionWorld world, PairBuffer pairs, ManifoldBuffer out) {
+        out.clear();
+        for (int i = 0; i < pairs.size(); i++) {
+            int first = pairs.getFirst(i);
+            int second = pairs.getSecond(i);
+            if (!world.isActive(first) || !world.isActive(second)) {
+                continue;
+            }
+            ContactManifold manifold = out.push();
+            if (!collide(world, first, second, manifold)) {
+                out.pop();
+            }
+        }
+        return out.size();
+    }
+
+    /**
+     * 检测两个碰撞体
+     * @param world 碰撞世界
+     * @param first 第一个碰撞体编号
+     * @param second 第二个碰撞体编号
+     * @param manifold 输出的接触流形
+     * @return 是否接触
+     */
+    public boolean collide(CollisionWorld world, int first, int second, ContactManifold manifold) {
+        manifold.reset(first, second);
+        WorldHull a = worldHull(world, first);
+        WorldHull b = worldHull(world, second);
+        if (a.count < 2 && b.count < 2) {
+            return false;
+        }
+
+        float separationA = Float.NEGATIVE_INFINITY;
+        int edgeA = -1;
+        if (a.count >= 2) {
+            separationA = maxSeparation(a, b);
+            edgeA = bestEdge;
+            if (separationA > contactMargin) {
+                return false;
+            }
+        }
+        float separationB = Float.NEGATIVE_INFINITY;
+        int edgeB = -1;
+        if (b.count >= 2) {
+            separationB = maxSeparation(b, a);
+            edgeB = bestEdge;
+            if (separationB > contactMargin) {
+                return false;
+            }
+        }
+
+        if (edgeA < 0 && edgeB < 0) {
+            return false;
+        }
+
+        // 分离量最大（穿透最浅）的面作为参考面
+        WorldHull reference;
+        WorldHull incident;
+        int edge;
+        boolean flip;
+        if (edgeB >= 0 && (edgeA < 0 || separationB > separationA + REFERENCE_TOLERANCE)) {
+            reference = b;
+            incident = a;
+            edge = edgeB;
+            flip = true;
+        } else {
+            reference = a;
+            incident = b;
+            edge = edgeA;
+            flip = false;
+        }
+        return clip(reference, incident, edge, flip, manifold);
+    }
+
+    /**
+     * 设置接触余量，间距小于余量的形状也视为接触（穿透深度为负）
+     * @param contactMargin 接触余量，默认为0
+     */
+    public void setContactMargin(float contactMargin) {
+        this.contactMargin = contactMargin;
+    }
+
+    /**
+     * 获取接触余量
+     * @return 接触余量
+     */
+    public float getContactMargin() {
+        return contactMargin;
+    }
+
+    /**
+     * 获取世界空间凸包重新计算的累计次数
+     * @return 次数
+     */
+    public int getHullRebuildCount() {
+        return hullRebuilds;
+    }
+
+    /**
+     * 清除缓存的凸包
+     */
+    public void clear() {
+        localHulls.clear();
+        Arrays.fill(hulls, null);
+    }
+
+    /**
+     * 在多边形a的边法线中找分离量最大的轴
+     * @param a 提供法线的多边形
+     * @param b 另一个多边形
+     * @return 最大分离量（正数表示分离）
+     */
+    private float maxSeparation(WorldHull a, WorldHull b) {
+        float best = Float.NEGATIVE_INFINITY;
+        bestEdge = -1;
+        for (int i = 0; i < a.count; i++) {
+            float nx = a.nx[i];
+            float ny = a.ny[i];
+            if (nx == 0.0f && ny == 0.0f) {
+                continue;
+            }
+            float vx = a.xs[i];
+            float vy = a.ys[i];
+            float min = Float.POSITIVE_INFINITY;
+            for (int j = 0; j < b.count; j++) {
+                float d = nx * (b.xs[j] - vx) + ny * (b.ys[j] - vy);
+                if (d < min) {
+                    min = d;
+                }
+            }
+            if (min > best) {
+                best = min;
+                bestEdge = i;
+                if (best > contactMargin) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 用参考面的两侧裁剪入射边，保留位于参考面以下的点作为接触点
+     * @param reference 参考多边形
+     * @param incident 入射多边形
+     * @param edge 参考边
+     * @param flip 参考多边形是否为第二个碰撞体
+     * @param manifold 输出的接触流形
+     * @return 是否有接触点
+     */
+    private boolean clip(WorldHull reference, WorldHull incident, int edge, boolean flip, ContactManifold manifold) {
+        float nx = reference.nx[edge];
+        float ny = reference.ny[edge];
+
+        // 入射边：法线与参考法线最反向的边
+        int incidentEdge = 0;
+        if (incident.count >= 2) {
+            float minDot = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < incident.count; i++) {
+                float dot = nx * incident.nx[i] + ny * incident.ny[i];
+                if (dot < minDot) {
+                    minDot = dot;
+                    incidentEdge = i;
+                }
+            }
+        }
+        int next = incident.count >= 2 ? (incidentEdge + 1) % incident.count : incidentEdge;
+        clipX[0] = incident.xs[incidentEdge];
+        clipY[0] = incident.ys[incidentEdge];
+        clipX[1] = incident.xs[next];
+        clipY[1] = incident.ys[next];
+
+        // 参考边的两个端点和切线
+        int referenceNext = (edge + 1) % reference.count;
+        float v1x = reference.xs[edge];
+        float v1y = reference.ys[edge];
+        float v2x = reference.xs[referenceNext];
+        float v2y = reference.ys[referenceNext];
+        float tx = v2x - v1x;
+        float ty = v2y - v1y;
+        float length = (float) Math.sqrt(tx * tx + ty * ty);
+        tx /= length;
+        ty /= length;
+
+        if (!clipSegment(-tx, -ty, -(tx * v1x + ty * v1y))) {
+            return false;
+        }
+        if (!clipSegment(tx, ty, tx * v2x + ty * v2y)) {
+            return false;
+        }
+
+        float faceOffset = nx * v1x + ny * v1y;
+        manifold.setNormal(flip ? -nx : nx, flip ? -ny : ny);
+        int points = incident.count >= 2 ? 2 : 1;
+        for (int i = 0; i < points; i++) {
+            float separation = nx * clipX[i] + ny * clipY[i] - faceOffset;
+            if (separation <= contactMargin) {
+                manifold.addPoint(clipX[i], clipY[i], -separation);
+            }
+        }
+        return manifold.getPointCount() > 0;
+    }
+
+    /**
+     * 用直线 n·p = offset 裁剪线段clipX/clipY，保留 n·p <= offset 的部分
+     * @param nx 直线法线x
+     * @param ny 直线法线y
+     * @param offset 直线偏移
+     * @return 裁剪后是否仍有两个点
+     */
+    private boolean clipSegment(float nx, float ny, float offset) {
+        float d0 = nx * clipX[0] + ny * clipY[0] - offset;
+        float d1 = nx * clipX[1] + ny * clipY[1] - offset;
+        int count = 0;
+        if (d0 <= 0.0f) {
+            clipOutX[count] = clipX[0];
+            clipOutY[count] = clipY[0];
+            count++;
+        }
+        if (d1 <= 0.0f) {
+            clipOutX[count] = clipX[1];
+            clipOutY[count] = clipY[1];
+            count++;
+        }
+        if (d0 * d1 < 0.0f) {
+            float t = d0 / (d0 - d1);
+            clipOutX[count] = clipX[0] + t * (clipX[1] - clipX[0]);
+            clipOutY[count] = clipY[0] + t * (clipY[1] - clipY[0]);
+            count++;
+        }
+        if (count < 2) {
+            return false;
+        }
+        clipX[0] = clipOutX[0];
+        clipY[0] = clipOutY[0];
+        clipX[1] = clipOutX[1];
+        clipY[1] = clipOutY[1];
+        return true;
+    }
+
+    /**
+     * 获取碰撞体的世界空间凸包，变换未变化时直接返回缓存
+     * @param world 碰撞世界
+     * @param id 碰撞体编号
+     * @return 世界空间凸包
+     */
+    private WorldHull worldHull(CollisionWorld world, int id) {
+        if (id >= hulls.length) {
+            hulls = Arrays.copyOf(hulls, Math.max(hulls.length * 2, id + 1));
+        }
+        WorldHull hull = hulls[id];
+        if (hull == null) {
+            hull = new WorldHull();
+            hulls[id] = hull;
+        }
+
+        Mesh mesh = world.getMesh(id);
+        if (mesh == null) {
+            // 固定包围盒的碰撞体直接使用包围盒
+            hull.mesh = null;
+            hull.setBox(world.getMinX(id), world.getMinY(id), world.getMaxX(id), world.getMaxY(id));
+            return hull;
+        }
+        if (hull.mesh != mesh || hull.version != mesh.getTransformVersion()) {
+            ConvexHull local = localHulls.get(mesh.getMeshData());
+            if (local == null) {
+                local = ConvexHull.fromVertices(mesh.getMeshData().getVertices());
+                localHulls.put(mesh.getMeshData(), local);
+            }
+            hull.mesh = mesh;
+            hull.version = mesh.getTransformVersion();
+            hull.transform(local, mesh.getModelMatrix());
+            hullRebuilds++;
+        }
+        return hull;
+    }
+
+    /**
+     * 世界空间凸包（逆时针），边i从顶点i指向顶点i+1，法线朝外
+     */
+    private static class WorldHull {
+        private Mesh mesh;
+        private int version;
+        private float[] xs = new float[8];
+        private float[] ys = new float[8];
+        private float[] nx = new float[8];
+        private float[] ny = new float[8];
+        private int count;
+
+        /**
+         * 用模型矩阵变换局部凸包
+         * @param local 局部凸包
+         * @param m 模型矩阵
+         */
+        private void transform(ConvexHull local, Matrix4f m) {
+            int n = local.getVertexCount();
+            ensureCapacity(n);
+            // 镜像缩放会反转顶点顺序，需要倒序保持逆时针
+            boolean mirrored = m.m00() * m.m11() - m.m10() * m.m01() < 0.0f;
+            for (int i = 0; i < n; i++) {
+                int source = mirrored ? n - 1 - i : i;
+                float x = local.getX(source);
+                float y = local.getY(source);
+                xs[i] = m.m00() * x + m.m10() * y + m.m30();
+                ys[i] = m.m01() * x + m.m11() * y + m.m31();
+            }
+            count = n;
+            computeNormals();
+        }
+
+        /**
+         * 设置为轴对齐矩形
+         */
+        private void setBox(float minX, float minY, float maxX, float maxY) {
+            ensureCapacity(4);
+            xs[0] = minX;
+            ys[0] = minY;
+            xs[1] = maxX;
+            ys[1] = minY;
+            xs[2] = maxX;
+            ys[2] = maxY;
+            xs[3] = minX;
+            ys[3] = maxY;
+            count = 4;
+            computeNormals();
+        }
+
+        /**
+         * 计算各边的单位外法线，退化边的法线为零
+         */
+        private void computeNormals() {
+            for (int i = 0; i < count; i++) {
+                int next = i + 1 == count ? 0 : i + 1;
+                float ex = xs[next] - xs[i];
+                float ey = ys[next] - ys[i];
+                float length = (float) Math.sqrt(ex * ex + ey * ey);
+                if (length > 0.0f) {
+                    nx[i] = ey / length;
+                    ny[i] = -ex / length;
+                } else {
+                    nx[i] = 0.0f;
+                    ny[i] = 0.0f;
+                }
+            }
+        }
+
+        /**
+         * 确保数组容量
+         * @param n 顶点数
+         */
+        private void ensureCapacity(int n) {
+            if (xs.length < n) {
+                xs = new float[n];
+                ys = new float[n];
+                nx = new float[n];
+                ny = new float[n];
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.hmengine.physics;
+
+import java.util.Arrays;
+
+/**
+ * 碰撞对缓冲区，按交错的int数组保存碰撞体编号对，重复使用不产生分配
+ */
+public class PairBuffer {
+    private int[] pairs;
+    private int size;
+
+    /**
+     * 构造函数
+     */
+    public PairBuffer() {
+        this(256);
+    }
+
+    /**
+     * 构造函数
+     * @param initialCapacity 初始容量（对数）
+     */
+    public PairBuffer(int initialCapacity) {
+        this.pairs = new int[Math.max(1, initialCapacity) * 2];
+    }
+
+    /**
+     * 添加碰撞对
+     * @param first 第一个碰撞体编号
+     * @param second 第二个碰撞体编号
+     */
+    public void add(int first, int second) {
+        int index = size * 2;
+        if (index == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[index] = first;
+        pairs[index + 1] = second;
+        size++;
+    }
+
+    /**
+     * 追加另一个缓冲区的全部碰撞对
+     * @param other 另一个缓冲区
+     */
+    public void addAll(PairBuffer other) {
+        int required = (size + other.size) * 2;
+        if (required > pairs.length) {
+            pairs = Arrays.copyOf(pairs, Math.max(required, pairs.length * 2));
+        }
+        System.arraycopy(other.pairs, 0, pairs, size * 2, other.size * 2);
+        size += other.size;
+    }
+
+    /**
+     * 获取碰撞对中的第一个碰撞体编号
+     * @param index 碰撞对索引
+     * @return 碰撞体编号
+     */
+    public int getFirst(int index) {
+        return pairs[index * 2];
+    }
+
+    /**
+     * 获取碰撞对中的第二个碰撞体编号
+     * @param index 碰撞对索引
+     * @return 碰撞体编号
+     */
+    public int getSecond(int index) {
+        return pairs[index * 2 + 1];
+    }
+
+    /**
+     * 获取碰撞对数量
+     * @return 数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空缓冲区（保留容量）
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hmengine.physics;
+
+/**
+ * 碰撞对回调接口
+ */
+public interface PairCallback {
+    /**
+     * 两个碰撞体的包围盒重叠
+     * @param first 第一个碰撞体编号（较小）
+     * @param second 第二个碰撞体编号（较大）
+     */
+    void onPair(int first, int second);
+}
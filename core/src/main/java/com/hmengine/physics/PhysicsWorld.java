@@ -0,0 +1,1108 @@
+package com.hmengine.physics;
+
+import com.hmengine.geometry.Mesh;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import com.hmengine.jobs.ScratchArena;
+import java.util.Arrays;
+
+/**
+ * 二维刚体物理世界
+ * 刚体数据按结构数组（SoA）保存。每步依次执行：宽检测和窄检测生成接触，
+ * 按接触把动态刚体划分为岛，休眠的岛直接跳过；清醒的岛各自做半隐式欧拉积分和
+ * 顺序冲量迭代求解，岛之间互不共享动态刚体，可以通过任务系统并行求解，
+ * 结果与单线程相同；最后把位置和旋转批量写回网格。
+ */
+public class PhysicsWorld {
+    // 允许的穿透量，超过部分由位置修正消除
+    private static final float LINEAR_SLOP = 0.005f;
+    // 接触余量：即将接触的点提前生成约束（推测接触）
+    private static final float CONTACT_MARGIN = 2.0f * LINEAR_SLOP;
+    // 位置修正系数（Baumgarte）
+    private static final float BAUMGARTE = 0.2f;
+    // 法向相对速度超过该值时才产生反弹
+    private static final float RESTITUTION_THRESHOLD = 1.0f;
+    // 休眠判定的速度阈值和持续时间
+    private static final float SLEEP_LINEAR_TOLERANCE = 0.01f;
+    private static final float SLEEP_ANGULAR_TOLERANCE = 0.035f;
+    private static final float TIME_TO_SLEEP = 0.5f;
+    // 并行求解时每块的最小工作量（刚体数 + 接触点数）
+    private static final int PARALLEL_GRAIN = 256;
+
+    // 刚体数据（按编号索引）
+    private Mesh[] meshes = new Mesh[64];
+    private float[] posX = new float[64];
+    private float[] posY = new float[64];
+    private float[] angles = new float[64];
+    private float[] velX = new float[64];
+    private float[] velY = new float[64];
+    private float[] angularVel = new float[64];
+    private float[] forceX = new float[64];
+    private float[] forceY = new float[64];
+    private float[] torques = new float[64];
+    private float[] invMass = new float[64];
+    private float[] invInertia = new float[64];
+    private float[] frictions = new float[64];
+    private float[] restitutions = new float[64];
+    private float[] sleepTime = new float[64];
+    private boolean[] awake = new boolean[64];
+    private boolean[] active = new boolean[64];
+    private int[] colliders = new int[64];
+    private int capacity;
+    private int bodyCount;
+    private int[] freeIds = new int[64];
+    private int freeCount;
+
+    // 碰撞体编号到刚体编号的映射
+    private int[] colliderBody = new int[64];
+
+    private final CollisionWorld collisionWorld = new CollisionWorld();
+    private final Narrowphase narrowphase = new Narrowphase();
+    private final ManifoldBuffer manifolds = new ManifoldBuffer();
+
+    // 接触点约束（每个流形点一个）
+    private int contactCount;
+    private int[] contactA = new int[256];
+    private int[] contactB = new int[256];
+    private float[] contactNx = new float[256];
+    private float[] contactNy = new float[256];
+    private float[] contactPx = new float[256];
+    private float[] contactPy = new float[256];
+    private float[] contactDepth = new float[256];
+    private float[] contactFriction = new float[256];
+    private float[] contactRestitution = new float[256];
+    private float[] contactRAx = new float[256];
+    private float[] contactRAy = new float[256];
+    private float[] contactRBx = new float[256];
+    private float[] contactRBy = new float[256];
+    private float[] contactNormalMass = new float[256];
+    private float[] contactTangentMass = new float[256];
+    private float[] contactBias = new float[256];
+    private float[] contactImpulseN = new float[256];
+    private float[] contactImpulseT = new float[256];
+    private long[] contactKey = new long[256];
+
+    // 上一步接触点的累计冲量（开放寻址散列表），用于热启动
+    private long[] cacheKeys = new long[512];
+    private float[] cacheImpulseN = new float[512];
+    private float[] cacheImpulseT = new float[512];
+    private boolean[] cacheUsed = new boolean[512];
+
+    // 岛
+    private int[] parent = new int[64];
+    private int[] islandOfRoot = new int[64];
+    private int[] bodyIsland = new int[64];
+    private int[] contactIsland = new int[256];
+    private int islandCount;
+    private boolean[] islandAwake = new boolean[64];
+    private int[] islandBodyStart = new int[65];
+    private int[] islandBodies = new int[64];
+    private int[] islandContactStart = new int[65];
+    private int[] islandContacts = new int[256];
+    private int[] solveIslands = new int[64];
+    private long[] solveWork = new long[65];
+    private int solveCount;
+
+    // 参数
+    private float gravityX = 0.0f;
+    private float gravityY = -9.8f;
+    private int velocityIterations = 8;
+    private boolean sleepingEnabled = true;
+    private boolean deterministic = false;
+    private JobSystem jobSystem;
+    private final RangeJob solveJob = this::solveRange;
+    private float stepDt;
+
+    /**
+     * 构造函数
+     */
+    public PhysicsWorld() {
+        Arrays.fill(colliderBody, -1);
+        narrowphase.setContactMargin(CONTACT_MARGIN);
+    }
+
+    /**
+     * 添加刚体
+     * @param mesh 网格（初始位置和绕z轴的旋转取自网格）
+     * @param mass 质量，小于等于0表示静态刚体
+     * @return 刚体编号
+     */
+    public int addBody(Mesh mesh, float mass) {
+        return addBody(mesh, mass, CollisionWorld.ALL_LAYERS, CollisionWorld.ALL_LAYERS);
+    }
+
+    /**
+     * 添加刚体
+     * @param mesh 网格（初始位置和绕z轴的旋转取自网格）
+     * @param mass 质量，小于等于0表示静态刚体
+     * @param layer 碰撞层（位掩码）
+     * @param mask 可碰撞的层（位掩码）
+     * @return 刚体编号
+     */
+    public int addBody(Mesh mesh, float mass, int layer, int mask) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (capacity == meshes.length) {
+                growBodies(capacity * 2);
+            }
+            id = capacity++;
+        }
+        meshes[id] = mesh;
+        posX[id] = mesh.getPosition().x;
+        posY[id] = mesh.getPosition().y;
+        angles[id] = mesh.getRotation().z;
+        velX[id] = 0.0f;
+        velY[id] = 0.0f;
+        angularVel[id] = 0.0f;
+        forceX[id] = 0.0f;
+        forceY[id] = 0.0f;
+        torques[id] = 0.0f;
+        frictions[id] = 0.4f;
+        restitutions[id] = 0.0f;
+        sleepTime[id] = 0.0f;
+        awake[id] = true;
+        active[id] = true;
+        if (mass > 0.0f) {
+            invMass[id] = 1.0f / mass;
+            float inertia = polygonInertia(mesh, mass);
+            invInertia[id] = inertia > 0.0f ? 1.0f / inertia : 0.0f;
+        } else {
+            invMass[id] = 0.0f;
+            invInertia[id] = 0.0f;
+        }
+
+        int collider = collisionWorld.add(mesh, 0.0f, layer, mask);
+        colliders[id] = collider;
+        if (collider >= colliderBody.length) {
+            int oldLength = colliderBody.length;
+            colliderBody = Arrays.copyOf(colliderBody, Math.max(oldLength * 2, collider + 1));
+            Arrays.fill(colliderBody, oldLength, colliderBody.length, -1);
+        }
+        colliderBody[collider] = id;
+        bodyCount++;
+        return id;
+    }
+
+    /**
+     * 移除刚体
+     * @param id 刚体编号
+     */
+    public void removeBody(int id) {
+        checkActive(id);
+        collisionWorld.remove(colliders[id]);
+        colliderBody[colliders[id]] = -1;
+        active[id] = false;
+        awake[id] = false;
+        meshes[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+        bodyCount--;
+    }
+
+    /**
+     * 清除所有刚体
+     */
+    public void clear() {
+        collisionWorld.clear();
+        narrowphase.clear();
+        manifolds.clear();
+        Arrays.fill(meshes, 0, capacity, null);
+        Arrays.fill(active, 0, capacity, false);
+        Arrays.fill(colliderBody, -1);
+        capacity = 0;
+        bodyCount = 0;
+        freeCount = 0;
+        contactCount = 0;
+        islandCount = 0;
+        solveCount = 0;
+        Arrays.fill(cacheUsed, false);
+    }
+
+    /**
+     * 推进一个时间步
+     * @param dt 时间步长（秒）
+     */
+    public void step(float dt) {
+        if (dt <= 0.0f) {
+            return;
+        }
+        stepDt = dt;
+        collide();
+        buildIslands();
+        solve();
+        writeBack();
+    }
+
+    /**
+     * 宽检测和窄检测：跳过静态与静态、休眠与休眠之间的碰撞对
+     */
+    private void collide() {
+        PairBuffer pairs = collisionWorld.update();
+        manifolds.clear();
+        for (int i = 0; i < pairs.size(); i++) {
+            int first = pairs.getFirst(i);
+            int second = pairs.getSecond(i);
+            int a = colliderBody[first];
+            int b = colliderBody[second];
+            if (a < 0 || b < 0) {
+                continue;
+            }
+            boolean awakeA = invMass[a] > 0.0f && awake[a];
+            boolean awakeB = invMass[b] > 0.0f && awake[b];
+            if (!awakeA && !awakeB) {
+                continue;
+            }
+            ContactManifold manifold = manifolds.push();
+            if (!narrowphase.collide(collisionWorld, first, second, manifold)) {
+                manifolds.pop();
+            }
+        }
+
+        // 展开为接触点约束，累计冲量从上一步相同的接触点继承
+        cachePreviousImpulses();
+        contactCount = 0;
+        for (int i = 0; i < manifolds.size(); i++) {
+            ContactManifold manifold = manifolds.get(i);
+            int a = colliderBody[manifold.getFirst()];
+            int b = colliderBody[manifold.getSecond()];
+            float friction = (float) Math.sqrt(frictions[a] * frictions[b]);
+            float restitution = Math.max(restitutions[a], restitutions[b]);
+            for (int p = 0; p < manifold.getPointCount(); p++) {
+                if (contactCount == contactA.length) {
+                    growContacts(contactCount * 2);
+                }
+                int c = contactCount++;
+                contactA[c] = a;
+                contactB[c] = b;
+                contactNx[c] = manifold.getNormalX();
+                contactNy[c] = manifold.getNormalY();
+                contactPx[c] = manifold.getPointX(p);
+                contactPy[c] = manifold.getPointY(p);
+                contactDepth[c] = manifold.getDepth(p);
+                contactFriction[c] = friction;
+                contactRestitution[c] = restitution;
+                long key = ((long) manifold.getFirst() << 33) | ((long) manifold.getSecond() << 1) | p;
+                contactKey[c] = key;
+                lookupImpulses(c, key);
+            }
+        }
+    }
+
+    /**
+     * 用并查集按接触把动态刚体划分为岛；含有清醒刚体的岛整体唤醒
+     */
+    private void buildIslands() {
+        if (parent.length < capacity) {
+            parent = new int[meshes.length];
+            islandOfRoot = new int[meshes.length];
+            bodyIsland = new int[meshes.length];
+        }
+        for (int i = 0; i < capacity; i++) {
+            parent[i] = i;
+        }
+        for (int c = 0; c < contactCount; c++) {
+            int a = contactA[c];
+            int b = contactB[c];
+            if (invMass[a] > 0.0f && invMass[b] > 0.0f) {
+                union(a, b);
+            }
+        }
+
+        // 按刚体编号顺序分配岛编号，保证结果确定
+        Arrays.fill(islandOfRoot, 0, capacity, -1);
+        islandCount = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (!active[i] || invMass[i] == 0.0f) {
+                bodyIsland[i] = -1;
+                continue;
+            }
+            int root = find(i);
+            int island = islandOfRoot[root];
+            if (island < 0) {
+                island = islandCount++;
+                islandOfRoot[root] = island;
+                if (islandCount >= islandAwake.length) {
+                    growIslands(islandAwake.length * 2);
+                }
+                islandAwake[island] = false;
+                islandBodyStart[island + 1] = 0;
+                islandContactStart[island + 1] = 0;
+            }
+            bodyIsland[i] = island;
+            islandAwake[island] |= awake[i];
+            islandBodyStart[island + 1]++;
+        }
+
+        // 计数排序：刚体按岛连续排列
+        islandBodyStart[0] = 0;
+        for (int i = 0; i < islandCount; i++) {
+            islandBodyStart[i + 1] += islandBodyStart[i];
+        }
+        if (islandBodies.length < capacity) {
+            islandBodies = new int[meshes.length];
+        }
+        for (int i = 0; i < capacity; i++) {
+            int island = bodyIsland[i];
+            if (island >= 0) {
+                islandBodies[islandBodyStart[island]++] = i;
+            }
+        }
+        for (int i = islandCount; i > 0; i--) {
+            islandBodyStart[i] = islandBodyStart[i - 1];
+        }
+        islandBodyStart[0] = 0;
+
+        // 接触点按岛连续排列（岛由接触中的动态刚体决定）
+        for (int c = 0; c < contactCount; c++) {
+            int a = contactA[c];
+            int island = bodyIsland[invMass[a] > 0.0f ? a : contactB[c]];
+            contactIsland[c] = island;
+            islandContactStart[island + 1]++;
+        }
+        islandContactStart[0] = 0;
+        for (int i = 0; i < islandCount; i++) {
+            islandContactStart[i + 1] += islandContactStart[i];
+        }
+        for (int c = 0; c < contactCount; c++) {
+            islandContacts[islandContactStart[contactIsland[c]]++] = c;
+        }
+        for (int i = islandCount; i > 0; i--) {
+            islandContactStart[i] = islandContactStart[i - 1];
+        }
+        islandContactStart[0] = 0;
+
+        // 需要求解的清醒岛，以及用于并行拆分的工作量前缀和
+        solveCount = 0;
+        solveWork[0] = 0;
+        for (int island = 0; island < islandCount; island++) {
+            if (!islandAwake[island]) {
+                continue;
+            }
+            for (int i = islandBodyStart[island]; i < islandBodyStart[island + 1]; i++) {
+                int body = islandBodies[i];
+                if (!awake[body]) {
+                    awake[body] = true;
+                    sleepTime[body] = 0.0f;
+                }
+            }
+            int work = islandBodyStart[island + 1] - islandBodyStart[island]
+                    + islandContactStart[island + 1] - islandContactStart[island];
+            solveIslands[solveCount] = island;
+            solveWork[solveCount + 1] = solveWork[solveCount] + work;
+            solveCount++;
+        }
+    }
+
+    /**
+     * 求解所有清醒的岛
+     */
+    private void solve() {
+        if (solveCount == 0) {
+            return;
+        }
+        JobSystem jobs = jobs();
+        if (deterministic || jobs.getWorkerCount() == 1 || solveWork[solveCount] < PARALLEL_GRAIN) {
+            for (int i = 0; i < solveCount; i++) {
+                solveIsland(solveIslands[i]);
+            }
+            return;
+        }
+        // 按工作量而不是岛的个数分块，大岛和小岛混在一起时负载也能均衡
+        jobs.parallelFor(0, (int) solveWork[solveCount], PARALLEL_GRAIN, solveJob);
+    }
+
+    /**
+     * 求解起始工作量落在区间内的岛，每个岛恰好属于一个区间
+     * @param from 起始工作量（包含）
+     * @param to 结束工作量（不包含）
+     * @param scratch 临时内存（未使用）
+     */
+    private void solveRange(int from, int to, ScratchArena scratch) {
+        // 每个岛至少有一个刚体，前缀和严格递增，找到的就是第一个起点不小于from的岛
+        int i = Arrays.binarySearch(solveWork, 0, solveCount, from);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        for (; i < solveCount && solveWork[i] < to; i++) {
+            solveIsland(solveIslands[i]);
+        }
+    }
+
+    /**
+     * 求解一个岛：积分速度、迭代求解接触、积分位置、判断休眠
+     * @param island 岛编号
+     */
+    private void solveIsland(int island) {
+        float dt = stepDt;
+        int bodyStart = islandBodyStart[island];
+        int bodyEnd = islandBodyStart[island + 1];
+        int contactStart = islandContactStart[island];
+        int contactEnd = islandContactStart[island + 1];
+
+        // 半隐式欧拉：先积分速度
+        for (int i = bodyStart; i < bodyEnd; i++) {
+            int body = islandBodies[i];
+            float im = invMass[body];
+            velX[body] += dt * (gravityX + forceX[body] * im);
+            velY[body] += dt * (gravityY + forceY[body] * im);
+            angularVel[body] += dt * torques[body] * invInertia[body];
+            forceX[body] = 0.0f;
+            forceY[body] = 0.0f;
+            torques[body] = 0.0f;
+        }
+
+        for (int i = contactStart; i < contactEnd; i++) {
+            prepareContact(islandContacts[i], dt);
+        }
+        for (int i = contactStart; i < contactEnd; i++) {
+            warmStart(islandContacts[i]);
+        }
+        for (int iteration = 0; iteration < velocityIterations; iteration++) {
+            for (int i = contactStart; i < contactEnd; i++) {
+                solveContact(islandContacts[i]);
+            }
+        }
+
+        // 积分位置并累计静止时间
+        float minSleepTime = Float.MAX_VALUE;
+        float linearTolerance = SLEEP_LINEAR_TOLERANCE * SLEEP_LINEAR_TOLERANCE;
+        float angularTolerance = SLEEP_ANGULAR_TOLERANCE * SLEEP_ANGULAR_TOLERANCE;
+        for (int i = bodyStart; i < bodyEnd; i++) {
+            int body = islandBodies[i];
+            posX[body] += dt * velX[body];
+            posY[body] += dt * velY[body];
+            angles[body] += dt * angularVel[body];
+            float speedSquared = velX[body] * velX[body] + velY[body] * velY[body];
+            float angularSquared = angularVel[body] * angularVel[body];
+            if (speedSquared > linearTolerance || angularSquared > angularTolerance) {
+                sleepTime[body] = 0.0f;
+            } else {
+                sleepTime[body] += dt;
+            }
+            minSleepTime = Math.min(minSleepTime, sleepTime[body]);
+        }
+
+        // 整个岛静止足够久后一起休眠
+        if (sleepingEnabled && minSleepTime >= TIME_TO_SLEEP) {
+            for (int i = bodyStart; i < bodyEnd; i++) {
+                int body = islandBodies[i];
+                awake[body] = false;
+                velX[body] = 0.0f;
+                velY[body] = 0.0f;
+                angularVel[body] = 0.0f;
+            }
+        }
+    }
+
+    /**
+     * 计算接触点的有效质量和速度偏置
+     * @param c 接触点
+     * @param dt 时间步长
+     */
+    private void prepareContact(int c, float dt) {
+        int a = contactA[c];
+        int b = contactB[c];
+        float nx = contactNx[c];
+        float ny = contactNy[c];
+        float rax = contactPx[c] - posX[a];
+        float ray = contactPy[c] - posY[a];
+        float rbx = contactPx[c] - posX[b];
+        float rby = contactPy[c] - posY[b];
+        contactRAx[c] = rax;
+        contactRAy[c] = ray;
+        contactRBx[c] = rbx;
+        contactRBy[c] = rby;
+
+        float imA = invMass[a];
+        float imB = invMass[b];
+        float iiA = invInertia[a];
+        float iiB = invInertia[b];
+        float rnA = rax * ny - ray * nx;
+        float rnB = rbx * ny - rby * nx;
+        float normalMass = imA + imB + iiA * rnA * rnA + iiB * rnB * rnB;
+        contactNormalMass[c] = normalMass > 0.0f ? 1.0f / normalMass : 0.0f;
+        // 切线 t = (ny, -nx)
+        float rtA = rax * -nx - ray * ny;
+        float rtB = rbx * -nx - rby * ny;
+        float tangentMass = imA + imB + iiA * rtA * rtA + iiB * rtB * rtB;
+        contactTangentMass[c] = tangentMass > 0.0f ? 1.0f / tangentMass : 0.0f;
+
+        // 速度偏置：取位置修正和反弹中较大者
+        float dvx = velX[b] - angularVel[b] * rby - velX[a] + angularVel[a] * ray;
+        float dvy = velY[b] + angularVel[b] * rbx - velY[a] - angularVel[a] * rax;
+        float vn = dvx * nx + dvy * ny;
+        float depth = contactDepth[c];
+        float bias;
+        if (depth < 0.0f) {
+            // 推测接触：只阻止本步内会闭合间隙的接近速度
+            bias = depth / dt;
+        } else {
+            bias = BAUMGARTE / dt * Math.max(depth - LINEAR_SLOP, 0.0f);
+        }
+        if (vn < -RESTITUTION_THRESHOLD) {
+            bias = Math.max(bias, -contactRestitution[c] * vn);
+        }
+        contactBias[c] = bias;
+    }
+
+    /**
+     * 热启动：先施加上一步的累计冲量，使堆叠更快收敛
+     * @param c 接触点
+     */
+    private void warmStart(int c) {
+        float impulseN = contactImpulseN[c];
+        float impulseT = contactImpulseT[c];
+        if (impulseN == 0.0f && impulseT == 0.0f) {
+            return;
+        }
+        int a = contactA[c];
+        int b = contactB[c];
+        float nx = contactNx[c];
+        float ny = contactNy[c];
+        float px = impulseN * nx + impulseT * ny;
+        float py = impulseN * ny - impulseT * nx;
+        applyImpulse(a, b, px, py, contactRAx[c], contactRAy[c], contactRBx[c], contactRBy[c],
+                invMass[a], invMass[b], invInertia[a], invInertia[b]);
+    }
+
+    /**
+     * 把上一步接触点的累计冲量放入散列表
+     */
+    private void cachePreviousImpulses() {
+        int required = Integer.highestOneBit(Math.max(contactCount, 1) * 2) * 2;
+        if (cacheKeys.length < required) {
+            cacheKeys = new long[required];
+            cacheImpulseN = new float[required];
+            cacheImpulseT = new float[required];
+            cacheUsed = new boolean[required];
+        } else {
+            Arrays.fill(cacheUsed, false);
+        }
+        int mask = cacheKeys.length - 1;
+        for (int c = 0; c < contactCount; c++) {
+            long key = contactKey[c];
+            int slot = hash(key) & mask;
+            while (cacheUsed[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            cacheUsed[slot] = true;
+            cacheKeys[slot] = key;
+            cacheImpulseN[slot] = contactImpulseN[c];
+            cacheImpulseT[slot] = contactImpulseT[c];
+        }
+    }
+
+    /**
+     * 查找接触点上一步的累计冲量，没有时为0
+     * @param c 接触点
+     * @param key 接触点键（碰撞体对和点序号）
+     */
+    private void lookupImpulses(int c, long key) {
+        int mask = cacheKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (cacheUsed[slot]) {
+            if (cacheKeys[slot] == key) {
+                contactImpulseN[c] = cacheImpulseN[slot];
+                contactImpulseT[c] = cacheImpulseT[slot];
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        contactImpulseN[c] = 0.0f;
+        contactImpulseT[c] = 0.0f;
+    }
+
+    /**
+     * 散列函数
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * 顺序冲量求解一个接触点（法向和摩擦）
+     * @param c 接触点
+     */
+    private void solveContact(int c) {
+        int a = contactA[c];
+        int b = contactB[c];
+        float nx = contactNx[c];
+        float ny = contactNy[c];
+        float rax = contactRAx[c];
+        float ray = contactRAy[c];
+        float rbx = contactRBx[c];
+        float rby = contactRBy[c];
+        float imA = invMass[a];
+        float imB = invMass[b];
+        float iiA = invInertia[a];
+        float iiB = invInertia[b];
+
+        // 摩擦
+        float tx = ny;
+        float ty = -nx;
+        float dvx = velX[b] - angularVel[b] * rby - velX[a] + angularVel[a] * ray;
+        float dvy = velY[b] + angularVel[b] * rbx - velY[a] - angularVel[a] * rax;
+        float lambda = -contactTangentMass[c] * (dvx * tx + dvy * ty);
+        float maxFriction = contactFriction[c] * contactImpulseN[c];
+        float oldImpulse = contactImpulseT[c];
+        float newImpulse = Math.max(-maxFriction, Math.min(oldImpulse + lambda, maxFriction));
+        lambda = newImpulse - oldImpulse;
+        contactImpulseT[c] = newImpulse;
+        applyImpulse(a, b, lambda * tx, lambda * ty, rax, ray, rbx, rby, imA, imB, iiA, iiB);
+
+        // 法向
+        dvx = velX[b] - angularVel[b] * rby - velX[a] + angularVel[a] * ray;
+        dvy = velY[b] + angularVel[b] * rbx - velY[a] - angularVel[a] * rax;
+        float vn = dvx * nx + dvy * ny;
+        lambda = contactNormalMass[c] * (contactBias[c] - vn);
+        oldImpulse = contactImpulseN[c];
+        newImpulse = Math.max(oldImpulse + lambda, 0.0f);
+        lambda = newImpulse - oldImpulse;
+        contactImpulseN[c] = newImpulse;
+        applyImpulse(a, b, lambda * nx, lambda * ny, rax, ray, rbx, rby, imA, imB, iiA, iiB);
+    }
+
+    /**
+     * 对两个刚体施加一对相反的冲量；静态刚体不写入，避免并行岛之间写共享数据
+     */
+    private void applyImpulse(int a, int b, float px, float py, float rax, float ray, float rbx, float rby,
+                              float imA, float imB, float iiA, float iiB) {
+        if (imA > 0.0f) {
+            velX[a] -= imA * px;
+            velY[a] -= imA * py;
+            angularVel[a] -= iiA * (rax * py - ray * px);
+        }
+        if (imB > 0.0f) {
+            velX[b] += imB * px;
+            velY[b] += imB * py;
+            angularVel[b] += iiB * (rbx * py - rby * px);
+        }
+    }
+
+    /**
+     * 把清醒刚体的位置和旋转批量写回网格
+     */
+    private void writeBack() {
+        for (int i = 0; i < solveCount; i++) {
+            int island = solveIslands[i];
+            for (int j = islandBodyStart[island]; j < islandBodyStart[island + 1]; j++) {
+                int body = islandBodies[j];
+                meshes[body].setTransform2D(posX[body], posY[body], angles[body]);
+            }
+        }
+    }
+
+    /**
+     * 并查集合并
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            // 较小的编号作为根，保证结果与处理顺序无关
+            if (rootA < rootB) {
+                parent[rootB] = rootA;
+            } else {
+                parent[rootA] = rootB;
+            }
+        }
+    }
+
+    /**
+     * 并查集查找（路径减半）
+     */
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * 由网格的凸包计算绕网格原点的转动惯量
+     * @param mesh 网格
+     * @param mass 质量
+     * @return 转动惯量
+     */
+    private static float polygonInertia(Mesh mesh, float mass) {
+        ConvexHull hull = ConvexHull.fromVertices(mesh.getVertices());
+        float sx = mesh.getScale().x;
+        float sy = mesh.getScale().y;
+        int n = hull.getVertexCount();
+        float area = 0.0f;
+        float inertia = 0.0f;
+        for (int i = 0; i < n; i++) {
+            int j = i + 1 == n ? 0 : i + 1;
+            float x1 = hull.getX(i) * sx;
+            float y1 = hull.getY(i) * sy;
+            float x2 = hull.getX(j) * sx;
+            float y2 = hull.getY(j) * sy;
+            float cross = x1 * y2 - x2 * y1;
+            area += cross * 0.5f;
+            inertia += cross * (x1 * x1 + x1 * x2 + x2 * x2 + y1 * y1 + y1 * y2 + y2 * y2) / 12.0f;
+        }
+        if (Math.abs(area) < 1e-12f) {
+            // 退化形状按圆盘近似
+            float radius = mesh.getWorldBoundingRadius();
+            return 0.5f * mass * radius * radius;
+        }
+        return Math.abs(inertia * mass / area);
+    }
+
+    /**
+     * 设置重力
+     * @param x 重力x
+     * @param y 重力y
+     */
+    public void setGravity(float x, float y) {
+        this.gravityX = x;
+        this.gravityY = y;
+    }
+
+    /**
+     * 设置速度迭代次数
+     * @param velocityIterations 迭代次数
+     */
+    public void setVelocityIterations(int velocityIterations) {
+        this.velocityIterations = velocityIterations;
+    }
+
+    /**
+     * 设置是否允许休眠
+     * @param sleepingEnabled 是否允许休眠
+     */
+    public void setSleepingEnabled(boolean sleepingEnabled) {
+        this.sleepingEnabled = sleepingEnabled;
+        if (!sleepingEnabled) {
+            for (int i = 0; i < capacity; i++) {
+                if (active[i]) {
+                    wake(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置求解和宽检测使用的任务系统（有多个工作线程时清醒的岛并行求解）
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+        collisionWorld.setJobSystem(jobSystem);
+    }
+
+    /**
+     * 设置确定性模式：岛在调用线程上按顺序求解（用于测试和回放），
+     * 宽检测得到的碰撞对顺序本身与线程数无关
+     * @param deterministic 是否为确定性模式
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * 是否为确定性模式
+     * @return 是否为确定性模式
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * 设置线速度（会唤醒刚体）
+     * @param id 刚体编号
+     * @param vx 速度x
+     * @param vy 速度y
+     */
+    public void setVelocity(int id, float vx, float vy) {
+        checkActive(id);
+        velX[id] = vx;
+        velY[id] = vy;
+        wake(id);
+    }
+
+    /**
+     * 设置角速度（会唤醒刚体）
+     * @param id 刚体编号
+     * @param angularVelocity 角速度（弧度/秒）
+     */
+    public void setAngularVelocity(int id, float angularVelocity) {
+        checkActive(id);
+        angularVel[id] = angularVelocity;
+        wake(id);
+    }
+
+    /**
+     * 设置位置和旋转（会唤醒刚体并立即写回网格）
+     * @param id 刚体编号
+     * @param x x坐标
+     * @param y y坐标
+     * @param angle 旋转（弧度）
+     */
+    public void setTransform(int id, float x, float y, float angle) {
+        checkActive(id);
+        posX[id] = x;
+        posY[id] = y;
+        angles[id] = angle;
+        meshes[id].setTransform2D(x, y, angle);
+        wake(id);
+    }
+
+    /**
+     * 施加作用于质心的力，下一步生效（会唤醒刚体）
+     * @param id 刚体编号
+     * @param fx 力x
+     * @param fy 力y
+     */
+    public void applyForce(int id, float fx, float fy) {
+        checkActive(id);
+        forceX[id] += fx;
+        forceY[id] += fy;
+        wake(id);
+    }
+
+    /**
+     * 施加力矩，下一步生效（会唤醒刚体）
+     * @param id 刚体编号
+     * @param torque 力矩
+     */
+    public void applyTorque(int id, float torque) {
+        checkActive(id);
+        torques[id] += torque;
+        wake(id);
+    }
+
+    /**
+     * 设置摩擦系数
+     * @param id 刚体编号
+     * @param friction 摩擦系数
+     */
+    public void setFriction(int id, float friction) {
+        checkActive(id);
+        frictions[id] = friction;
+    }
+
+    /**
+     * 设置恢复系数
+     * @param id 刚体编号
+     * @param restitution 恢复系数
+     */
+    public void setRestitution(int id, float restitution) {
+        checkActive(id);
+        restitutions[id] = restitution;
+    }
+
+    /**
+     * 唤醒刚体
+     * @param id 刚体编号
+     */
+    public void wake(int id) {
+        checkActive(id);
+        awake[id] = true;
+        sleepTime[id] = 0.0f;
+    }
+
+    /**
+     * 刚体是否清醒
+     * @param id 刚体编号
+     * @return 是否清醒
+     */
+    public boolean isAwake(int id) {
+        return active[id] && awake[id];
+    }
+
+    /**
+     * 获取位置x
+     * @param id 刚体编号
+     * @return 位置x
+     */
+    public float getPositionX(int id) {
+        return posX[id];
+    }
+
+    /**
+     * 获取位置y
+     * @param id 刚体编号
+     * @return 位置y
+     */
+    public float getPositionY(int id) {
+        return posY[id];
+    }
+
+    /**
+     * 获取旋转
+     * @param id 刚体编号
+     * @return 旋转（弧度）
+     */
+    public float getAngle(int id) {
+        return angles[id];
+    }
+
+    /**
+     * 获取速度x
+     * @param id 刚体编号
+     * @return 速度x
+     */
+    public float getVelocityX(int id) {
+        return velX[id];
+    }
+
+    /**
+     * 获取速度y
+     * @param id 刚体编号
+     * @return 速度y
+     */
+    public float getVelocityY(int id) {
+        return velY[id];
+    }
+
+    /**
+     * 获取角速度
+     * @param id 刚体编号
+     * @return 角速度
+     */
+    public float getAngularVelocity(int id) {
+        return angularVel[id];
+    }
+
+    /**
+     * 获取刚体对应的碰撞体编号
+     * @param id 刚体编号
+     * @return 碰撞体编号
+     */
+    public int getCollider(int id) {
+        checkActive(id);
+        return colliders[id];
+    }
+
+    /**
+     * 获取刚体数量
+     * @return 数量
+     */
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /**
+     * 获取上一步求解的清醒岛数量
+     * @return 岛数量
+     */
+    public int getAwakeIslandCount() {
+        return solveCount;
+    }
+
+    /**
+     * 获取上一步的接触点数量
+     * @return 接触点数量
+     */
+    public int getContactCount() {
+        return contactCount;
+    }
+
+    /**
+     * 获取当前清醒的动态刚体数量
+     * @return 数量
+     */
+    public int getAwakeBodyCount() {
+        int count = 0;
+        for (int i = 0; i < capacity; i++) {
+            if (active[i] && awake[i] && invMass[i] > 0.0f) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取碰撞世界（可加入不属于刚体的碰撞体用于查询）
+     * @return 碰撞世界
+     */
+    public CollisionWorld getCollisionWorld() {
+        return collisionWorld;
+    }
+
+    /**
+     * 检查刚体是否存在
+     * @param id 刚体编号
+     */
+    private void checkActive(int id) {
+        if (id < 0 || id >= capacity || !active[id]) {
+            throw new IllegalArgumentException("刚体不存在: " + id);
+        }
+    }
+
+    /**
+     * 扩容刚体数组
+     * @param size 新容量
+     */
+    private void growBodies(int size) {
+        meshes = Arrays.copyOf(meshes, size);
+        posX = Arrays.copyOf(posX, size);
+        posY = Arrays.copyOf(posY, size);
+        angles = Arrays.copyOf(angles, size);
+        velX = Arrays.copyOf(velX, size);
+        velY = Arrays.copyOf(velY, size);
+        angularVel = Arrays.copyOf(angularVel, size);
+        forceX = Arrays.copyOf(forceX, size);
+        forceY = Arrays.copyOf(forceY, size);
+        torques = Arrays.copyOf(torques, size);
+        invMass = Arrays.copyOf(invMass, size);
+        invInertia = Arrays.copyOf(invInertia, size);
+        frictions = Arrays.copyOf(frictions, size);
+        restitutions = Arrays.copyOf(restitutions, size);
+        sleepTime = Arrays.copyOf(sleepTime, size);
+        awake = Arrays.copyOf(awake, size);
+        active = Arrays.copyOf(active, size);
+        colliders = Arrays.copyOf(colliders, size);
+    }
+
+    /**
+     * 扩容接触点数组
+     * @param size 新容量
+     */
+    private void growContacts(int size) {
+        contactA = Arrays.copyOf(contactA, size);
+        contactB = Arrays.copyOf(contactB, size);
+        contactNx = Arrays.copyOf(contactNx, size);
+        contactNy = Arrays.copyOf(contactNy, size);
+        contactPx = Arrays.copyOf(contactPx, size);
+        contactPy = Arrays.copyOf(contactPy, size);
+        contactDepth = Arrays.copyOf(contactDepth, size);
+        contactFriction = Arrays.copyOf(contactFriction, size);
+        contactRestitution = Arrays.copyOf(contactRestitution, size);
+        contactRAx = Arrays.copyOf(contactRAx, size);
+        contactRAy = Arrays.copyOf(contactRAy, size);
+        contactRBx = Arrays.copyOf(contactRBx, size);
+        contactRBy = Arrays.copyOf(contactRBy, size);
+        contactNormalMass = Arrays.copyOf(contactNormalMass, size);
+        contactTangentMass = Arrays.copyOf(contactTangentMass, size);
+        contactBias = Arrays.copyOf(contactBias, size);
+        contactImpulseN = Arrays.copyOf(contactImpulseN, size);
+        contactImpulseT = Arrays.copyOf(contactImpulseT, size);
+        contactKey = Arrays.copyOf(contactKey, size);
+        contactIsland = Arrays.copyOf(contactIsland, size);
+        islandContacts = Arrays.copyOf(islandContacts, size);
+    }
+
+    /**
+     * 扩容岛数组
+     * @param size 新容量
+     */
+    private void growIslands(int size) {
+        islandAwake = Arrays.copyOf(islandAwake, size);
+        islandBodyStart = Arrays.copyOf(islandBodyStart, size + 1);
+        islandContactStart = Arrays.copyOf(islandContactStart, size + 1);
+        solveIslands = Arrays.copyOf(solveIslands, size);
+        solveWork = Arrays.copyOf(solveWork, size + 1);
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+}
@@ -0,0 +1,225 @@
+package com.hmengine.pipeline;
+
+import com.hmengine.Camera;
+import com.hmengine.Scene;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 渲染快照
+ * 模拟线程在一次更新结束后把场景中每个网格的世界矩阵、颜色和包围半径，以及摄像机和文本复制到这里，
+ * 发布后渲染线程直接按这些数组剔除和绘制，不再访问模拟线程的网格对象，也不需要重建父子关系。
+ * 数组在多次捕获之间复用。
+ */
+public class RenderSnapshot {
+    // 每个网格的世界矩阵占16个float（按列存储）
+    static final int MATRIX_FLOATS = 16;
+
+    // 网格条目
+    int meshCount;
+    int[] handles = new int[256];
+    MeshData[] data = new MeshData[256];
+    // 世界矩阵只有二维仿射分量时可以交给动态合批
+    boolean[] affine = new boolean[256];
+    float[] matrices = new float[256 * MATRIX_FLOATS];
+    // 世界坐标下的包围球半径（球心为矩阵的平移分量）
+    float[] radii = new float[256];
+    // 每个网格4个float：RGBA
+    float[] colors = new float[256 * 4];
+
+    // 摄像机：位置、旋转、缩放
+    boolean hasCamera;
+    final float[] camera = new float[7];
+
+    // 文本条目：每条6个float（x、y、缩放、RGB）
+    int textCount;
+    String[] texts = new String[16];
+    float[] textParams = new float[16 * 6];
+
+    private long sequence;
+    private double simulationTime;
+    private long captureTime;
+
+    /**
+     * 清空快照内容
+     */
+    public void clear() {
+        Arrays.fill(data, 0, meshCount, null);
+        Arrays.fill(texts, 0, textCount, null);
+        meshCount = 0;
+        textCount = 0;
+        hasCamera = false;
+    }
+
+    /**
+     * 捕获场景中所有网格的世界变换（先批量更新场景中修改过的变换）
+     * @param scene 场景
+     */
+    public void captureScene(Scene scene) {
+        scene.updateTransforms();
+        List<Mesh> meshes = scene.getMeshes();
+        int count = meshes.size();
+        ensureMeshCapacity(meshCount + count);
+        for (int i = 0; i < count; i++) {
+            Mesh mesh = meshes.get(i);
+            int index = meshCount++;
+            handles[index] = mesh.getSceneHandle();
+            data[index] = mesh.getMeshData();
+            affine[index] = mesh.isAffine();
+            mesh.getModelMatrix().get(matrices, index * MATRIX_FLOATS);
+            radii[index] = mesh.getWorldBoundingRadius();
+
+            Vector4f color = mesh.getColor();
+            int c = index * 4;
+            colors[c] = color.x;
+            colors[c + 1] = color.y;
+            colors[c + 2] = color.z;
+            colors[c + 3] = color.w;
+        }
+    }
+
+    /**
+     * 捕获摄像机状态
+     * @param source 摄像机
+     */
+    public void captureCamera(Camera source) {
+        Vector3f position = source.getPosition();
+        Vector3f rotation = source.getRotation();
+        camera[0] = position.x;
+        camera[1] = position.y;
+        camera[2] = position.z;
+        camera[3] = rotation.x;
+        camera[4] = rotation.y;
+        camera[5] = rotation.z;
+        camera[6] = source.getZoom();
+        hasCamera = true;
+    }
+
+    /**
+     * 添加一条文本
+     * @param text 文本
+     * @param x x坐标
+     * @param y y坐标
+     * @param scale 缩放
+     * @param color RGB颜色
+     */
+    public void addText(String text, float x, float y, float scale, float[] color) {
+        if (textCount == texts.length) {
+            texts = Arrays.copyOf(texts, textCount * 2);
+            textParams = Arrays.copyOf(textParams, textCount * 2 * 6);
+        }
+        int p = textCount * 6;
+        texts[textCount] = text;
+        textParams[p] = x;
+        textParams[p + 1] = y;
+        textParams[p + 2] = scale;
+        textParams[p + 3] = color[0];
+        textParams[p + 4] = color[1];
+        textParams[p + 5] = color[2];
+        textCount++;
+    }
+
+    private void ensureMeshCapacity(int capacity) {
+        if (capacity <= handles.length) {
+            return;
+        }
+        int size = Math.max(capacity, handles.length * 2);
+        handles = Arrays.copyOf(handles, size);
+        data = Arrays.copyOf(data, size);
+        affine = Arrays.copyOf(affine, size);
+        matrices = Arrays.copyOf(matrices, size * MATRIX_FLOATS);
+        radii = Arrays.copyOf(radii, size);
+        colors = Arrays.copyOf(colors, size * 4);
+    }
+
+    /**
+     * 获取网格条目数量
+     * @return 网格数量
+     */
+    public int getMeshCount() {
+        return meshCount;
+    }
+
+    /**
+     * 获取网格条目的场景句柄
+     * @param index 条目下标
+     * @return 场景句柄
+     */
+    public int getHandle(int index) {
+        return handles[index];
+    }
+
+    /**
+     * 获取网格条目的几何数据
+     * @param index 条目下标
+     * @return 几何数据
+     */
+    public MeshData getMeshData(int index) {
+        return data[index];
+    }
+
+    /**
+     * 获取文本条目数量
+     * @return 文本数量
+     */
+    public int getTextCount() {
+        return textCount;
+    }
+
+    /**
+     * 获取文本条目
+     * @param index 条目下标
+     * @return 文本
+     */
+    public String getText(int index) {
+        return texts[index];
+    }
+
+    /**
+     * 获取快照序号（由交换器在发布时设置）
+     * @return 序号
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * 获取捕获时的模拟时间
+     * @return 秒
+     */
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    /**
+     * 设置捕获时的模拟时间
+     * @param simulationTime 秒
+     */
+    public void setSimulationTime(double simulationTime) {
+        this.simulationTime = simulationTime;
+    }
+
+    /**
+     * 获取捕获完成的真实时刻
+     * @return System.nanoTime
+     */
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    /**
+     * 设置捕获完成的真实时刻
+     * @param captureTime System.nanoTime
+     */
+    public void setCaptureTime(long captureTime) {
+        this.captureTime = captureTime;
+    }
+}
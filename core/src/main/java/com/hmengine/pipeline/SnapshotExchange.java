@@ -0,0 +1,70 @@
+package com.hmengine.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 快照交换器（单生产者、单消费者，无锁）
+ * 生产者独占后缓冲区写入，发布时与中间缓冲区原子交换；消费者取数据时若中间缓冲区有新内容，
+ * 就取走它作为前缓冲区，原来的前缓冲区保留为上一个快照，更早的快照交还给中间缓冲区。
+ * 双方都不会等待对方，消费者总是拿到最新发布的快照以及它之前取到的那一个，用于在两者之间插值。
+ */
+public class SnapshotExchange {
+    // 中间缓冲区状态：低2位为下标，FRESH位表示自消费者上次取走后有新发布
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final RenderSnapshot[] buffers = {
+            new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()
+    };
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // 只由生产者访问
+    private int back = 0;
+    private long published = 0;
+
+    // 只由消费者访问
+    private int front = 2;
+    private int previous = 3;
+    private boolean hasFront = false;
+    private boolean hasPrevious = false;
+
+    /**
+     * 获取供生产者写入的快照（写入前应先clear）
+     * @return 后缓冲区快照
+     */
+    public RenderSnapshot getBack() {
+        return buffers[back];
+    }
+
+    /**
+     * 发布后缓冲区快照，之后getBack返回另一个缓冲区
+     */
+    public void publish() {
+        buffers[back].setSequence(++published);
+        // getAndSet保证快照内容的写入对随后取到它的消费者可见
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * 获取最新发布的快照；没有新发布时返回上次取得的快照
+     * @return 快照，从未发布过时返回null
+     */
+    public RenderSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            int latest = middle.getAndSet(previous) & INDEX_MASK;
+            previous = front;
+            hasPrevious = hasFront;
+            front = latest;
+            hasFront = true;
+        }
+        return hasFront ? buffers[front] : null;
+    }
+
+    /**
+     * 获取acquire返回的快照之前取到的快照（只由消费者调用）
+     * @return 上一个快照，只取到过一个快照时返回null
+     */
+    public RenderSnapshot getPrevious() {
+        return hasPrevious ? buffers[previous] : null;
+    }
+}
@@ -0,0 +1,375 @@
+package com.hmengine.pipeline;
+
+import com.hmengine.Camera;
+import com.hmengine.Shader;
+import com.hmengine.ecs.Entity;
+import com.hmengine.geometry.MeshData;
+import com.hmengine.render.DynamicBatcher;
+import com.hmengine.render.FrustumCuller;
+import com.hmengine.render.MeshBufferCache;
+import com.hmengine.render.RenderStats;
+import com.hmengine.text.TextRenderer;
+import org.joml.Matrix4f;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 快照渲染器（只在渲染线程使用）
+ * 直接按快照中的数组绘制：包围球交给批量视锥体剔除，可见的二维网格按世界矩阵写入动态合批，
+ * 其余网格用主着色器逐个绘制。渲染线程不创建网格或场景对象，每帧的工作只有插值、剔除和提交。
+ * 插值时按场景句柄找到上一个快照中的同一网格，对世界矩阵和颜色逐分量线性插值；
+ * 一个步长内的旋转很小，逐分量插值引起的缩放误差可以忽略。新出现的网格直接使用最新状态。
+ */
+public class SnapshotRenderer {
+    // 单独绘制的几何数据连续这么多帧未使用时释放GPU缓冲区
+    private static final int EVICT_AFTER_FRAMES = 60;
+
+    private final Shader shader;
+    private final Shader batchShader;
+    private final Camera camera;
+    private TextRenderer textRenderer;
+    private boolean showGridLines = false;
+
+    private final FrustumCuller culler = new FrustumCuller();
+    private final DynamicBatcher batcher = new DynamicBatcher(65536);
+    private final MeshBufferCache bufferCache = new MeshBufferCache();
+    private final RenderStats stats = new RenderStats();
+
+    // 单独绘制的几何数据 -> 最近一次使用的帧
+    private final Map<MeshData, Usage> usages = new IdentityHashMap<>();
+    private long frame = 0;
+
+    // 上一个快照中各句柄槽位对应的条目下标，slotSequence等于上一个快照的序号时有效
+    private int[] slotIndex = new int[256];
+    private long[] slotSequence = new long[256];
+    private long indexedSequence = -1;
+
+    // 插值结果，alpha为1或没有上一个快照时直接使用最新快照的数组
+    private float[] blendedMatrices = new float[256 * RenderSnapshot.MATRIX_FLOATS];
+    private float[] blendedColors = new float[256 * 4];
+    private float[] blendedRadii = new float[256];
+    private float[] matrices;
+    private float[] colors;
+    private float[] radii;
+
+    // 每帧复用的临时对象
+    private final Matrix4f model = new Matrix4f();
+    private final float[] textColor = new float[3];
+
+    /**
+     * 构造函数
+     * @param shader 单独绘制网格使用的着色器
+     * @param batchShader 合批着色器，为null时所有网格都单独绘制
+     * @param camera 摄像机，快照中带有摄像机状态时每帧覆盖
+     */
+    public SnapshotRenderer(Shader shader, Shader batchShader, Camera camera) {
+        if (shader == null || camera == null) {
+            throw new IllegalArgumentException("着色器和摄像机不能为空");
+        }
+        this.shader = shader;
+        this.batchShader = batchShader;
+        this.camera = camera;
+    }
+
+    /**
+     * 设置文本渲染器，设置后快照中的文本会随场景一起绘制
+     * @param textRenderer 文本渲染器
+     */
+    public void setTextRenderer(TextRenderer textRenderer) {
+        this.textRenderer = textRenderer;
+    }
+
+    /**
+     * 在两个快照之间插值，绘制场景和最新快照中的文本
+     * @param previous 上一个快照（可以与snapshot相同）
+     * @param snapshot 最新的快照
+     * @param alpha 插值系数，0为上一个快照，1为最新的快照
+     */
+    public void render(RenderSnapshot previous, RenderSnapshot snapshot, float alpha) {
+        frame++;
+        stats.reset();
+        boolean blend = previous != null && previous != snapshot && alpha < 1.0f;
+        if (snapshot.hasCamera) {
+            float[] c = snapshot.camera;
+            if (blend && previous.hasCamera) {
+                float[] p = previous.camera;
+                camera.setPosition(lerp(p[0], c[0], alpha), lerp(p[1], c[1], alpha), lerp(p[2], c[2], alpha));
+                camera.setRotation(lerp(p[3], c[3], alpha), lerp(p[4], c[4], alpha), lerp(p[5], c[5], alpha));
+                float zoom = lerp(p[6], c[6], alpha);
+                if (camera.getZoom() != zoom) {
+                    camera.setZoom(zoom);
+                }
+            } else {
+                camera.setPosition(c[0], c[1], c[2]);
+                camera.setRotation(c[3], c[4], c[5]);
+                if (camera.getZoom() != c[6]) {
+                    camera.setZoom(c[6]);
+                }
+            }
+        }
+        if (blend) {
+            blend(previous, snapshot, alpha);
+        } else {
+            matrices = snapshot.matrices;
+            colors = snapshot.colors;
+            radii = snapshot.radii;
+        }
+
+        int count = snapshot.meshCount;
+        culler.clear();
+        for (int i = 0, m = 0; i < count; i++, m += RenderSnapshot.MATRIX_FLOATS) {
+            culler.add(matrices[m + 12], matrices[m + 13], matrices[m + 14], radii[i]);
+        }
+        if (count > 0) {
+            int visible = culler.cull(camera);
+            stats.addInstancesDrawn(visible);
+            stats.addInstancesCulled(count - visible);
+            if (visible > 0) {
+                boolean batched = batchShader != null;
+                if (batched) {
+                    renderBatched(snapshot);
+                }
+                renderSingles(snapshot, batched);
+            }
+        }
+        evictUnused();
+
+        if (textRenderer != null) {
+            // 快照中的所有文本合成一次绘制
+            textRenderer.begin();
+            for (int i = 0; i < snapshot.textCount; i++) {
+                int p = i * 6;
+                textColor[0] = snapshot.textParams[p + 3];
+                textColor[1] = snapshot.textParams[p + 4];
+                textColor[2] = snapshot.textParams[p + 5];
+                textRenderer.addText(snapshot.texts[i], snapshot.textParams[p], snapshot.textParams[p + 1],
+                        snapshot.textParams[p + 2], textColor);
+            }
+            textRenderer.flush();
+        }
+    }
+
+    /**
+     * 把最新快照中的每个条目与上一个快照中同一句柄、同一几何数据的条目插值，写入blended数组
+     */
+    private void blend(RenderSnapshot previous, RenderSnapshot snapshot, float alpha) {
+        indexPrevious(previous);
+        int count = snapshot.meshCount;
+        if (blendedRadii.length < count) {
+            int size = Math.max(count, blendedRadii.length * 2);
+            blendedMatrices = new float[size * RenderSnapshot.MATRIX_FLOATS];
+            blendedColors = new float[size * 4];
+            blendedRadii = new float[size];
+        }
+        float[] current = snapshot.matrices, last = previous.matrices;
+        float[] currentColors = snapshot.colors, lastColors = previous.colors;
+        long sequence = previous.getSequence();
+        for (int i = 0; i < count; i++) {
+            int handle = snapshot.handles[i];
+            int slot = Entity.index(handle);
+            int j = slot < slotIndex.length && slotSequence[slot] == sequence ? slotIndex[slot] : -1;
+            int m = i * RenderSnapshot.MATRIX_FLOATS;
+            int c = i * 4;
+            if (j < 0 || previous.handles[j] != handle || previous.data[j] != snapshot.data[i]) {
+                System.arraycopy(current, m, blendedMatrices, m, RenderSnapshot.MATRIX_FLOATS);
+                System.arraycopy(currentColors, c, blendedColors, c, 4);
+                blendedRadii[i] = snapshot.radii[i];
+                continue;
+            }
+            int pm = j * RenderSnapshot.MATRIX_FLOATS;
+            for (int k = 0; k < RenderSnapshot.MATRIX_FLOATS; k++) {
+                blendedMatrices[m + k] = lerp(last[pm + k], current[m + k], alpha);
+            }
+            int pc = j * 4;
+            for (int k = 0; k < 4; k++) {
+                blendedColors[c + k] = lerp(lastColors[pc + k], currentColors[c + k], alpha);
+            }
+            // 取两者中较大的半径，插值后的包围球总能包住网格
+            blendedRadii[i] = Math.max(previous.radii[j], snapshot.radii[i]);
+        }
+        matrices = blendedMatrices;
+        colors = blendedColors;
+        radii = blendedRadii;
+    }
+
+    /**
+     * 按句柄槽位索引上一个快照的条目，同一个快照只索引一次
+     * @param previous 上一个快照
+     */
+    private void indexPrevious(RenderSnapshot previous) {
+        long sequence = previous.getSequence();
+        if (sequence == indexedSequence) {
+            return;
+        }
+        indexedSequence = sequence;
+        for (int j = 0; j < previous.meshCount; j++) {
+            int slot = Entity.index(previous.handles[j]);
+            if (slot >= slotIndex.length) {
+                int size = Math.max(slot + 1, slotIndex.length * 2);
+                slotIndex = Arrays.copyOf(slotIndex, size);
+                slotSequence = Arrays.copyOf(slotSequence, size);
+            }
+            slotIndex[slot] = j;
+            slotSequence[slot] = sequence;
+        }
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    /**
+     * 判断快照条目能否合批：世界矩阵是二维仿射变换且几何数据满足合批器的条件
+     */
+    private boolean batchable(RenderSnapshot snapshot, int index) {
+        return snapshot.affine[index] && batcher.accepts(snapshot.data[index]);
+    }
+
+    /**
+     * 把可见的二维小网格按世界矩阵写入动态合批并提交
+     * @param snapshot 快照
+     */
+    private void renderBatched(RenderSnapshot snapshot) {
+        batcher.begin();
+        batchShader.use();
+        batchShader.setProjectionMatrix(camera.getProjectionMatrix());
+        batchShader.setViewMatrix(camera.getViewMatrix());
+        stats.addStateChange();
+        for (int i = culler.nextVisible(0); i >= 0; i = culler.nextVisible(i + 1)) {
+            if (!batchable(snapshot, i)) {
+                continue;
+            }
+            int m = i * RenderSnapshot.MATRIX_FLOATS;
+            int c = i * 4;
+            batcher.addAffine(snapshot.data[i], matrices[m], matrices[m + 1], matrices[m + 4], matrices[m + 5],
+                    matrices[m + 12], matrices[m + 13], colors[c], colors[c + 1], colors[c + 2], colors[c + 3],
+                    batchShader, showGridLines, stats);
+        }
+        batcher.flush(batchShader, showGridLines, stats);
+    }
+
+    /**
+     * 用主着色器逐个绘制没有合批的可见网格，需要网格线时再绘制一遍线框
+     * @param snapshot 快照
+     * @param batched 二维小网格是否已经合批绘制
+     */
+    private void renderSingles(RenderSnapshot snapshot, boolean batched) {
+        boolean started = false;
+        int passes = showGridLines ? 2 : 1;
+        for (int pass = 0; pass < passes; pass++) {
+            boolean passStarted = false;
+            MeshData bound = null;
+            for (int i = culler.nextVisible(0); i >= 0; i = culler.nextVisible(i + 1)) {
+                if (batched && batchable(snapshot, i)) {
+                    continue;
+                }
+                if (!started) {
+                    started = true;
+                    shader.use();
+                    shader.setProjectionMatrix(camera.getProjectionMatrix());
+                    shader.setViewMatrix(camera.getViewMatrix());
+                    if (shader.supportsAffine()) {
+                        shader.setAffineMode(false);
+                    }
+                    stats.addStateChange();
+                }
+                if (!passStarted) {
+                    passStarted = true;
+                    if (pass == 1) {
+                        shader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+                        glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+                    } else {
+                        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+                    }
+                    stats.addStateChange();
+                }
+                MeshData data = snapshot.data[i];
+                if (data != bound) {
+                    bound = data;
+                    markUsed(data);
+                    bufferCache.bind(data);
+                    stats.addStateChange();
+                }
+                shader.setModelMatrix(model.set(matrices, i * RenderSnapshot.MATRIX_FLOATS));
+                if (pass == 0) {
+                    int c = i * 4;
+                    shader.setColor(colors[c], colors[c + 1], colors[c + 2], colors[c + 3]);
+                }
+                glDrawArrays(data.getPrimitiveType(), 0, data.getVertexCount());
+                stats.addDrawCall();
+            }
+        }
+        if (started) {
+            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+            glBindVertexArray(0);
+        }
+    }
+
+    /**
+     * 记录几何数据在本帧被单独绘制，第一次使用时登记到缓冲区缓存
+     * @param data 几何数据
+     */
+    private void markUsed(MeshData data) {
+        Usage usage = usages.get(data);
+        if (usage == null) {
+            usage = new Usage();
+            usages.put(data, usage);
+            bufferCache.retain(data);
+        }
+        usage.frame = frame;
+    }
+
+    /**
+     * 释放连续EVICT_AFTER_FRAMES帧没有单独绘制过的几何数据的GPU缓冲区
+     */
+    private void evictUnused() {
+        if (frame % EVICT_AFTER_FRAMES != 0) {
+            return;
+        }
+        Iterator<Map.Entry<MeshData, Usage>> it = usages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<MeshData, Usage> entry = it.next();
+            if (frame - entry.getValue().frame >= EVICT_AFTER_FRAMES) {
+                bufferCache.release(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 设置是否绘制网格线
+     * @param showGridLines 是否绘制网格线
+     */
+    public void setShowGridLines(boolean showGridLines) {
+        this.showGridLines = showGridLines;
+    }
+
+    /**
+     * 获取上一帧的渲染统计
+     * @return 渲染统计
+     */
+    public RenderStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 释放合批和单独绘制使用的GPU缓冲区（着色器由调用方释放）
+     */
+    public void cleanup() {
+        batcher.cleanup();
+        bufferCache.clear();
+        usages.clear();
+    }
+
+    /**
+     * 几何数据最近一次单独绘制的帧
+     */
+    private static class Usage {
+        long frame;
+    }
+}
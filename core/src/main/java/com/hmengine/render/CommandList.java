@@ -0,0 +1,165 @@
+package com.hmengine.render;
+
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.lwjgl.system.MemoryUtil;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 渲染命令列表
+ * 录制时由一个工作线程独占，记录一段剔除候选中可见网格的绘制命令，不调用任何OpenGL函数：
+ * 可合批的网格按图元类型记下网格和顶点数，随后把世界空间顶点写入映射缓冲区中分配给本列表的区域；
+ * 实例化网格的实例数据写入本列表自己的缓冲区；其余网格只记下网格，由GL线程生成排序键加入渲染队列。
+ */
+public class CommandList {
+    private static final int BATCH_TYPES = DynamicBatcher.BATCHABLE_PRIMITIVES.length;
+
+    // 可合批网格：按批次索引分组
+    private final Mesh[][] batched = new Mesh[BATCH_TYPES][16];
+    private final int[] batchedCounts = new int[BATCH_TYPES];
+    private final int[] vertexCounts = new int[BATCH_TYPES];
+    // 本列表在映射缓冲区中的起始float偏移，由录制器在写入顶点前分配
+    private final int[] vertexOffsets = new int[BATCH_TYPES];
+
+    // 实例化网格
+    private MeshData[] instanceMeshes = new MeshData[16];
+    private FloatBuffer instanceData = MemoryUtil.memAllocFloat(16 * InstancedRenderer.INSTANCE_FLOATS);
+    private int instanceCount;
+
+    // 走渲染队列的网格
+    private Mesh[] queued = new Mesh[16];
+    private int queuedCount;
+
+    /**
+     * 清空列表
+     */
+    public void clear() {
+        for (int t = 0; t < BATCH_TYPES; t++) {
+            Arrays.fill(batched[t], 0, batchedCounts[t], null);
+            batchedCounts[t] = 0;
+            vertexCounts[t] = 0;
+        }
+        Arrays.fill(instanceMeshes, 0, instanceCount, null);
+        instanceCount = 0;
+        Arrays.fill(queued, 0, queuedCount, null);
+        queuedCount = 0;
+    }
+
+    /**
+     * 记录一个可合批网格
+     * @param mesh 网格（需先通过DynamicBatcher.accepts检查）
+     */
+    public void addBatched(Mesh mesh) {
+        int t = DynamicBatcher.batchIndex(mesh.getPrimitiveType());
+        if (batchedCounts[t] == batched[t].length) {
+            batched[t] = Arrays.copyOf(batched[t], batched[t].length * 2);
+        }
+        batched[t][batchedCounts[t]++] = mesh;
+        vertexCounts[t] += mesh.getVertexCount();
+    }
+
+    /**
+     * 记录一个实例并写入实例数据
+     * @param mesh 网格（必须是二维仿射变换）
+     */
+    public void addInstance(Mesh mesh) {
+        if (instanceCount == instanceMeshes.length) {
+            instanceMeshes = Arrays.copyOf(instanceMeshes, instanceCount * 2);
+            instanceData = MemoryUtil.memRealloc(instanceData, instanceMeshes.length * InstancedRenderer.INSTANCE_FLOATS);
+        }
+        InstancedRenderer.writeInstance(instanceData, instanceCount * InstancedRenderer.INSTANCE_FLOATS, mesh);
+        instanceMeshes[instanceCount++] = mesh.getMeshData();
+    }
+
+    /**
+     * 记录一个走渲染队列的网格
+     * @param mesh 网格
+     */
+    public void addQueued(Mesh mesh) {
+        if (queuedCount == queued.length) {
+            queued = Arrays.copyOf(queued, queuedCount * 2);
+        }
+        queued[queuedCount++] = mesh;
+    }
+
+    /**
+     * 把记录的可合批网格变换到世界坐标，写入映射缓冲区中分配给本列表的区域
+     * @param out 映射的顶点缓冲区
+     */
+    public void writeVertices(FloatBuffer out) {
+        for (int t = 0; t < BATCH_TYPES; t++) {
+            Mesh[] meshes = batched[t];
+            int offset = vertexOffsets[t];
+            for (int i = 0; i < batchedCounts[t]; i++) {
+                DynamicBatcher.writeTransformed(out, offset, meshes[i]);
+                offset += meshes[i].getVertexCount() * DynamicBatcher.VERTEX_FLOATS;
+            }
+        }
+    }
+
+    /**
+     * 把实例数据按几何数据连续相同的段批量交给实例化渲染器
+     * @param instancedRenderer 实例化渲染器
+     */
+    public void submitInstances(InstancedRenderer instancedRenderer) {
+        int start = 0;
+        for (int i = 1; i <= instanceCount; i++) {
+            if (i == instanceCount || instanceMeshes[i] != instanceMeshes[start]) {
+                instancedRenderer.addInstances(instanceMeshes[start], instanceData,
+                        start * InstancedRenderer.INSTANCE_FLOATS, i - start);
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * 获取某种批次的顶点数
+     * @param batchIndex 批次索引
+     * @return 顶点数
+     */
+    public int getVertexCount(int batchIndex) {
+        return vertexCounts[batchIndex];
+    }
+
+    /**
+     * 设置某种批次在映射缓冲区中的起始float偏移
+     * @param batchIndex 批次索引
+     * @param offset 起始float偏移
+     */
+    public void setVertexOffset(int batchIndex, int offset) {
+        vertexOffsets[batchIndex] = offset;
+    }
+
+    /**
+     * 获取实例数
+     * @return 实例数
+     */
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * 获取走渲染队列的网格数
+     * @return 网格数
+     */
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * 获取走渲染队列的网格
+     * @param index 序号
+     * @return 网格
+     */
+    public Mesh getQueued(int index) {
+        return queued[index];
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        MemoryUtil.memFree(instanceData);
+    }
+}
@@ -0,0 +1,246 @@
+package com.hmengine.render;
+
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import com.hmengine.jobs.ScratchArena;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 并行命令录制器
+ * 把剔除候选按下标分成若干段，每段对应一个CommandList，由任务系统的工作线程并行录制；
+ * 可合批网格的世界空间顶点由工作线程直接写入映射的流式顶点缓冲区中按前缀和分配的区域。
+ * 所有OpenGL调用（映射、解除映射和绘制）都在调用线程上进行，合并时按段的顺序处理，
+ * 因此结果与逐个分发完全相同，与线程数无关。
+ */
+public class CommandRecorder {
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int MIN_CHUNK = 1024;
+    private static final int BATCH_TYPES = DynamicBatcher.BATCHABLE_PRIMITIVES.length;
+    private static final int VERTEX_STRIDE = DynamicBatcher.VERTEX_FLOATS * Float.BYTES;
+
+    private JobSystem jobSystem;
+    private CommandList[] lists = new CommandList[0];
+    private int listCount = 0;
+
+    // 流式顶点缓冲区
+    private int vao;
+    private int vbo;
+    private long capacity = 0;
+    private final int[] typeFirst = new int[BATCH_TYPES];
+    private final int[] typeCounts = new int[BATCH_TYPES];
+
+    // 录制时使用的数据
+    private FrustumCuller culler;
+    private Mesh[] candidates;
+    private int candidateCount;
+    private int chunk;
+    private DynamicBatcher batcher;
+    private boolean batched;
+    private boolean instanced;
+    private FloatBuffer mapped;
+    private final RangeJob recordJob = this::recordLists;
+    private final RangeJob writeJob = this::writeLists;
+
+    /**
+     * 并行录制可见候选的绘制命令（剔除必须已经完成）
+     * @param culler 已完成剔除的视锥体剔除器
+     * @param candidates 候选网格，下标与剔除器的候选序号一致
+     * @param batcher 动态合批器，用于判断网格能否合批
+     * @param batched 是否启用动态合批
+     * @param instanced 是否启用实例化渲染
+     */
+    public void record(FrustumCuller culler, Mesh[] candidates, DynamicBatcher batcher, boolean batched, boolean instanced) {
+        JobSystem jobs = jobs();
+        this.culler = culler;
+        this.candidates = candidates;
+        this.candidateCount = culler.size();
+        this.batcher = batcher;
+        this.batched = batched;
+        this.instanced = instanced;
+
+        int balanced = (candidateCount + jobs.getWorkerCount() * CHUNKS_PER_WORKER - 1)
+                / (jobs.getWorkerCount() * CHUNKS_PER_WORKER);
+        chunk = Math.max(MIN_CHUNK, balanced);
+        listCount = (candidateCount + chunk - 1) / chunk;
+        if (listCount > lists.length) {
+            int old = lists.length;
+            lists = Arrays.copyOf(lists, listCount);
+            for (int i = old; i < listCount; i++) {
+                lists[i] = new CommandList();
+            }
+        }
+        jobs.parallelFor(0, listCount, 1, recordJob);
+
+        this.culler = null;
+        this.candidates = null;
+        this.batcher = null;
+    }
+
+    /**
+     * 录制若干个命令列表（工作线程）
+     */
+    private void recordLists(int from, int to, ScratchArena scratch) {
+        for (int l = from; l < to; l++) {
+            CommandList list = lists[l];
+            list.clear();
+            int end = Math.min(candidateCount, (l + 1) * chunk);
+            for (int i = culler.nextVisible(l * chunk); i >= 0 && i < end; i = culler.nextVisible(i + 1)) {
+                Mesh mesh = candidates[i];
+                if (batched && batcher.accepts(mesh)) {
+                    list.addBatched(mesh);
+                } else if (instanced && mesh.isAffine()) {
+                    list.addInstance(mesh);
+                } else {
+                    list.addQueued(mesh);
+                }
+            }
+        }
+    }
+
+    /**
+     * 合并并提交合批顶点：按前缀和给每个列表分配区域，映射顶点缓冲区后由工作线程并行写入，
+     * 解除映射后每种图元类型只绘制一次（调用方已绑定合批着色器并设置矩阵）
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void submitBatches(Shader shader, boolean showGridLines, RenderStats stats) {
+        int total = 0;
+        for (int t = 0; t < BATCH_TYPES; t++) {
+            typeFirst[t] = total;
+            for (int l = 0; l < listCount; l++) {
+                lists[l].setVertexOffset(t, total * DynamicBatcher.VERTEX_FLOATS);
+                total += lists[l].getVertexCount(t);
+            }
+            typeCounts[t] = total - typeFirst[t];
+        }
+        if (total == 0) {
+            return;
+        }
+
+        if (vao == 0) {
+            init();
+        }
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        long bytes = (long) total * VERTEX_STRIDE;
+        if (bytes > capacity) {
+            capacity = Math.max(bytes, capacity * 2);
+            glBufferData(GL_ARRAY_BUFFER, capacity, GL_STREAM_DRAW);
+        }
+        // 使旧内容失效，驱动可以分配新存储而不必等待GPU读完上一帧的数据
+        ByteBuffer buffer = glMapBufferRange(GL_ARRAY_BUFFER, 0, bytes, GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_BUFFER_BIT);
+        if (buffer == null) {
+            throw new RuntimeException("无法映射命令录制的顶点缓冲区");
+        }
+        mapped = buffer.asFloatBuffer();
+        try {
+            jobs().parallelFor(0, listCount, 1, writeJob);
+        } finally {
+            mapped = null;
+        }
+        // 解除映射失败时缓冲区内容未定义（例如显示模式切换），丢弃本帧的合批绘制
+        boolean valid = glUnmapBuffer(GL_ARRAY_BUFFER);
+        stats.addStateChange();
+
+        if (valid) {
+            for (int t = 0; t < BATCH_TYPES; t++) {
+                if (typeCounts[t] > 0) {
+                    DynamicBatcher.draw(DynamicBatcher.BATCHABLE_PRIMITIVES[t], typeFirst[t], typeCounts[t],
+                            shader, showGridLines, stats);
+                }
+            }
+        }
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 写入若干个命令列表的顶点（工作线程）
+     */
+    private void writeLists(int from, int to, ScratchArena scratch) {
+        for (int l = from; l < to; l++) {
+            lists[l].writeVertices(mapped);
+        }
+    }
+
+    /**
+     * 按列表顺序把实例数据交给实例化渲染器
+     * @param instancedRenderer 实例化渲染器
+     */
+    public void submitInstances(InstancedRenderer instancedRenderer) {
+        for (int l = 0; l < listCount; l++) {
+            lists[l].submitInstances(instancedRenderer);
+        }
+    }
+
+    /**
+     * 获取本帧录制的命令列表数
+     * @return 列表数
+     */
+    public int getListCount() {
+        return listCount;
+    }
+
+    /**
+     * 获取命令列表
+     * @param index 序号
+     * @return 命令列表
+     */
+    public CommandList getList(int index) {
+        return lists[index];
+    }
+
+    /**
+     * 设置录制使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+
+    /**
+     * 初始化GPU资源
+     */
+    private void init() {
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_STRIDE, 0L);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, VERTEX_STRIDE, 3L * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        if (vao != 0) {
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(vbo);
+            vao = 0;
+            capacity = 0;
+        }
+        for (CommandList list : lists) {
+            list.cleanup();
+        }
+        lists = new CommandList[0];
+        listCount = 0;
+    }
+}
@@ -0,0 +1,374 @@
+package com.hmengine.render;
+
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 动态合批器
+ * 在CPU上把兼容的小网格变换到世界坐标，连同逐顶点颜色写入一个流式顶点缓冲区，
+ * 每个批次只需一次绘制调用
+ */
+public class DynamicBatcher {
+    // 每个顶点：位置3个float + 颜色4个float
+    public static final int VERTEX_FLOATS = 7;
+    private static final int VERTEX_STRIDE = VERTEX_FLOATS * Float.BYTES;
+
+    // 可以直接拼接的图元类型（带状和扇形图元无法合并）
+    static final int[] BATCHABLE_PRIMITIVES = { GL_POINTS, GL_LINES, GL_TRIANGLES };
+
+    private final int maxBatchVertices;
+    private int vertexThreshold = 64;
+
+    private final Batch[] batches = new Batch[BATCHABLE_PRIMITIVES.length];
+    private int vao;
+    private int vbo;
+
+    /**
+     * 构造函数
+     * @param maxBatchVertices 单个批次的最大顶点数（流式缓冲区大小）
+     */
+    public DynamicBatcher(int maxBatchVertices) {
+        this.maxBatchVertices = maxBatchVertices;
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = new Batch(BATCHABLE_PRIMITIVES[i], maxBatchVertices);
+        }
+    }
+
+    /**
+     * 初始化GPU资源
+     */
+    private void init() {
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, (long) maxBatchVertices * VERTEX_STRIDE, GL_STREAM_DRAW);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_STRIDE, 0L);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, 4, GL_FLOAT, false, VERTEX_STRIDE, 3L * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 获取单独绘制的顶点数阈值
+     * @return 顶点数阈值
+     */
+    public int getVertexThreshold() {
+        return vertexThreshold;
+    }
+
+    /**
+     * 设置顶点数阈值，顶点数超过阈值的网格单独绘制
+     * @param vertexThreshold 顶点数阈值
+     */
+    public void setVertexThreshold(int vertexThreshold) {
+        this.vertexThreshold = Math.min(vertexThreshold, maxBatchVertices);
+    }
+
+    /**
+     * 判断网格能否合批
+     * @param mesh 网格
+     * @return 是否可以合批
+     */
+    public boolean accepts(Mesh mesh) {
+        return mesh.getVertexCount() <= vertexThreshold && batchIndex(mesh.getPrimitiveType()) >= 0;
+    }
+
+    /**
+     * 判断几何数据能否合批
+     * @param data 几何数据
+     * @return 是否可以合批
+     */
+    public boolean accepts(MeshData data) {
+        return data.getVertexCount() <= vertexThreshold && batchIndex(data.getPrimitiveType()) >= 0;
+    }
+
+    /**
+     * 开始新的一帧
+     */
+    public void begin() {
+        for (Batch batch : batches) {
+            batch.data.clear();
+            batch.vertexCount = 0;
+        }
+    }
+
+    /**
+     * 添加网格到对应的批次，批次写满时立即提交
+     * @param mesh 网格（需先通过accepts检查）
+     * @param shader 合批着色器（已设置投影和视图矩阵）
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void add(Mesh mesh, Shader shader, boolean showGridLines, RenderStats stats) {
+        Batch batch = batches[batchIndex(mesh.getPrimitiveType())];
+        if (batch.vertexCount + mesh.getVertexCount() > maxBatchVertices) {
+            flush(batch, shader, showGridLines, stats);
+        }
+        appendTransformed(batch, mesh);
+    }
+
+    /**
+     * 按二维仿射变换添加几何数据到对应的批次（供不使用Mesh对象的实体存储调用），批次写满时立即提交
+     * @param data 几何数据（需先通过accepts检查）
+     * @param m00 仿射矩阵第一列x
+     * @param m01 仿射矩阵第一列y
+     * @param m10 仿射矩阵第二列x
+     * @param m11 仿射矩阵第二列y
+     * @param tx 平移x
+     * @param ty 平移y
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     * @param shader 合批着色器（已设置投影和视图矩阵）
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void addAffine(MeshData data, float m00, float m01, float m10, float m11, float tx, float ty,
+                          float r, float g, float b, float a, Shader shader, boolean showGridLines, RenderStats stats) {
+        int primitiveType = data.getPrimitiveType();
+        int offset = reserve(primitiveType, data.getVertexCount(), shader, showGridLines, stats);
+        writeAffine(getBuffer(primitiveType), offset, data, m00, m01, m10, m11, tx, ty, r, g, b, a);
+    }
+
+    /**
+     * 在对应批次中预留顶点空间，放不下时先提交该批次。
+     * 预留的区域由调用方用绝对位置写入（例如writeAffine），不同线程可以同时写入互不重叠的区域，
+     * 但必须在下一次reserve、add或flush之前写完
+     * @param primitiveType 图元类型（必须可合批）
+     * @param vertexCount 顶点数（不超过单个批次的最大顶点数）
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     * @return 预留区域在批次缓冲区中的起始float偏移
+     */
+    public int reserve(int primitiveType, int vertexCount, Shader shader, boolean showGridLines, RenderStats stats) {
+        if (vertexCount > maxBatchVertices) {
+            throw new IllegalArgumentException("顶点数超过单个批次的上限: " + vertexCount);
+        }
+        Batch batch = batches[batchIndex(primitiveType)];
+        if (batch.vertexCount + vertexCount > maxBatchVertices) {
+            flush(batch, shader, showGridLines, stats);
+        }
+        int offset = batch.data.position();
+        batch.data.position(offset + vertexCount * VERTEX_FLOATS);
+        batch.vertexCount += vertexCount;
+        return offset;
+    }
+
+    /**
+     * 获取对应批次当前还能容纳的顶点数
+     * @param primitiveType 图元类型（必须可合批）
+     * @return 顶点数
+     */
+    public int remaining(int primitiveType) {
+        return maxBatchVertices - batches[batchIndex(primitiveType)].vertexCount;
+    }
+
+    /**
+     * 获取单个批次的最大顶点数
+     * @return 顶点数
+     */
+    public int getMaxBatchVertices() {
+        return maxBatchVertices;
+    }
+
+    /**
+     * 获取对应批次的顶点缓冲区（配合reserve使用）
+     * @param primitiveType 图元类型（必须可合批）
+     * @return 顶点缓冲区
+     */
+    public FloatBuffer getBuffer(int primitiveType) {
+        return batches[batchIndex(primitiveType)].data;
+    }
+
+    /**
+     * 把按二维仿射变换后的顶点用绝对位置写入缓冲区（不改变缓冲区的position，可在多个线程中调用）
+     * @param out 顶点缓冲区
+     * @param offset 起始float偏移
+     * @param data 几何数据
+     * @param m00 仿射矩阵第一列x
+     * @param m01 仿射矩阵第一列y
+     * @param m10 仿射矩阵第二列x
+     * @param m11 仿射矩阵第二列y
+     * @param tx 平移x
+     * @param ty 平移y
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     * @param a 透明度
+     */
+    public static void writeAffine(FloatBuffer out, int offset, MeshData data, float m00, float m01, float m10, float m11,
+                                   float tx, float ty, float r, float g, float b, float a) {
+        float[] vertices = data.getVertices();
+        int o = offset;
+        for (int i = 0; i + 2 < vertices.length; i += 3) {
+            float x = vertices[i], y = vertices[i + 1];
+            out.put(o, m00 * x + m10 * y + tx);
+            out.put(o + 1, m01 * x + m11 * y + ty);
+            out.put(o + 2, vertices[i + 2]);
+            out.put(o + 3, r);
+            out.put(o + 4, g);
+            out.put(o + 5, b);
+            out.put(o + 6, a);
+            o += VERTEX_FLOATS;
+        }
+    }
+
+    /**
+     * 提交所有未满的批次
+     * @param shader 合批着色器（已设置投影和视图矩阵）
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void flush(Shader shader, boolean showGridLines, RenderStats stats) {
+        for (Batch batch : batches) {
+            flush(batch, shader, showGridLines, stats);
+        }
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 把网格顶点变换到世界坐标并写入批次
+     * @param batch 批次
+     * @param mesh 网格
+     */
+    private void appendTransformed(Batch batch, Mesh mesh) {
+        int offset = batch.data.position();
+        writeTransformed(batch.data, offset, mesh);
+        batch.data.position(offset + mesh.getVertexCount() * VERTEX_FLOATS);
+        batch.vertexCount += mesh.getVertexCount();
+    }
+
+    /**
+     * 把网格顶点变换到世界坐标后用绝对位置写入缓冲区（不改变缓冲区的position，可在多个线程中调用）
+     * @param out 顶点缓冲区
+     * @param offset 起始float偏移
+     * @param mesh 网格（模型矩阵必须已经更新）
+     */
+    public static void writeTransformed(FloatBuffer out, int offset, Mesh mesh) {
+        Matrix4f m = mesh.getModelMatrix();
+        Vector4f color = mesh.getColor();
+        float[] vertices = mesh.getVertices();
+        int o = offset;
+        for (int i = 0; i + 2 < vertices.length; i += 3) {
+            float x = vertices[i], y = vertices[i + 1], z = vertices[i + 2];
+            out.put(o, m.m00() * x + m.m10() * y + m.m20() * z + m.m30());
+            out.put(o + 1, m.m01() * x + m.m11() * y + m.m21() * z + m.m31());
+            out.put(o + 2, m.m02() * x + m.m12() * y + m.m22() * z + m.m32());
+            out.put(o + 3, color.x);
+            out.put(o + 4, color.y);
+            out.put(o + 5, color.z);
+            out.put(o + 6, color.w);
+            o += VERTEX_FLOATS;
+        }
+    }
+
+    /**
+     * 上传并绘制一个批次
+     * @param batch 批次
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    private void flush(Batch batch, Shader shader, boolean showGridLines, RenderStats stats) {
+        if (batch.vertexCount == 0) {
+            return;
+        }
+        if (vao == 0) {
+            init();
+        }
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        // 重新分配存储，避免等待GPU使用完上一批数据
+        glBufferData(GL_ARRAY_BUFFER, (long) maxBatchVertices * VERTEX_STRIDE, GL_STREAM_DRAW);
+        batch.data.flip();
+        glBufferSubData(GL_ARRAY_BUFFER, 0, batch.data);
+        stats.addStateChange();
+
+        draw(batch.primitiveType, 0, batch.vertexCount, shader, showGridLines, stats);
+
+        batch.data.clear();
+        batch.vertexCount = 0;
+    }
+
+    /**
+     * 绘制已上传到当前VAO中的世界空间顶点（顶点颜色填充，需要时再叠加网格线）
+     * @param primitiveType 图元类型
+     * @param first 起始顶点
+     * @param vertexCount 顶点数
+     * @param shader 合批着色器
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    static void draw(int primitiveType, int first, int vertexCount, Shader shader, boolean showGridLines, RenderStats stats) {
+        shader.setInt("useUniformColor", 0);
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glDrawArrays(primitiveType, first, vertexCount);
+        stats.addDrawCall();
+
+        if (showGridLines) {
+            shader.setInt("useUniformColor", 1);
+            shader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+            glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+            glDrawArrays(primitiveType, first, vertexCount);
+            stats.addStateChange();
+            stats.addDrawCall();
+        }
+    }
+
+    /**
+     * 获取图元类型对应的批次索引
+     * @param primitiveType 图元类型
+     * @return 批次索引，不可合批时为-1
+     */
+    static int batchIndex(int primitiveType) {
+        for (int i = 0; i < BATCHABLE_PRIMITIVES.length; i++) {
+            if (BATCHABLE_PRIMITIVES[i] == primitiveType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        if (vao != 0) {
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(vbo);
+            vao = 0;
+        }
+        for (Batch batch : batches) {
+            MemoryUtil.memFree(batch.data);
+        }
+    }
+
+    /**
+     * 同一图元类型的批次
+     */
+    private static class Batch {
+        private final int primitiveType;
+        private final FloatBuffer data;
+        private int vertexCount;
+
+        Batch(int primitiveType, int maxVertices) {
+            this.primitiveType = primitiveType;
+            this.data = MemoryUtil.memAllocFloat(maxVertices * VERTEX_FLOATS);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.hmengine.render;
+
+import com.hmengine.Camera;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.jobs.RangeJob;
+import org.joml.Vector4f;
+import java.util.Arrays;
+
+/**
+ * 批量视锥体剔除
+ * 包围球以结构数组（SoA）形式保存，一次性对六个平面进行测试，结果写入可见性位集。
+ * 用vector profile编译且运行时加载了jdk.incubator.vector模块时使用SIMD实现，否则使用标量实现。
+ * 包围球数量较多时按64的倍数分块交给任务系统并行剔除，各块写入位集中不同的字
+ */
+public class FrustumCuller {
+    private static final FrustumKernel VECTOR_KERNEL = loadVectorKernel();
+    private static final boolean VECTOR_AVAILABLE = VECTOR_KERNEL != null;
+    // 超过该数量时并行剔除，每块至少包含PARALLEL_GRAIN_WORDS个位集字
+    private static final int PARALLEL_THRESHOLD = 32768;
+    private static final int PARALLEL_GRAIN_WORDS = 128;
+
+    private float[] centerX = new float[256];
+    private float[] centerY = new float[256];
+    private float[] centerZ = new float[256];
+    private float[] radius = new float[256];
+    private long[] visibility = new long[4];
+    private int count;
+
+    private final float[] planes = new float[24];
+    private boolean useVector = VECTOR_AVAILABLE;
+    private JobSystem jobSystem;
+    private final RangeJob cullJob = (fromWord, toWord, scratch) ->
+            cullRange(fromWord << 6, Math.min(toWord << 6, count));
+
+    /**
+     * 加载SIMD剔除内核
+     * 内核类没有编译进来或者运行时没有加载Vector API模块时返回null
+     * @return SIMD内核，不可用时为null
+     */
+    private static FrustumKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            FrustumKernel kernel = (FrustumKernel) Class.forName("com.hmengine.render.VectorFrustumKernel")
+                    .getDeclaredConstructor().newInstance();
+            return kernel.laneCount() > 1 ? kernel : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 判断是否可以使用SIMD实现
+     * @return 是否可用
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_AVAILABLE;
+    }
+
+    /**
+     * 设置是否使用SIMD实现（不可用时忽略）
+     * @param useVector 是否使用SIMD实现
+     */
+    public void setUseVector(boolean useVector) {
+        this.useVector = useVector && VECTOR_AVAILABLE;
+    }
+
+    /**
+     * 清空包围球（每帧开始时调用）
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * 添加包围球
+     * @param x 中心x坐标
+     * @param y 中心y坐标
+     * @param z 中心z坐标
+     * @param r 半径
+     * @return 包围球索引
+     */
+    public int add(float x, float y, float z, float r) {
+        if (count == centerX.length) {
+            int newCapacity = count * 2;
+            centerX = Arrays.copyOf(centerX, newCapacity);
+            centerY = Arrays.copyOf(centerY, newCapacity);
+            centerZ = Arrays.copyOf(centerZ, newCapacity);
+            radius = Arrays.copyOf(radius, newCapacity);
+        }
+        centerX[count] = x;
+        centerY[count] = y;
+        centerZ[count] = z;
+        radius[count] = r;
+        return count++;
+    }
+
+    /**
+     * 对所有包围球进行剔除
+     * @param camera 摄像机
+     * @return 可见的包围球数
+     */
+    public int cull(Camera camera) {
+        Vector4f[] frustumPlanes = camera.getFrustumPlanes();
+        for (int p = 0; p < 6; p++) {
+            planes[p * 4] = frustumPlanes[p].x;
+            planes[p * 4 + 1] = frustumPlanes[p].y;
+            planes[p * 4 + 2] = frustumPlanes[p].z;
+            planes[p * 4 + 3] = frustumPlanes[p].w;
+        }
+
+        int words = (count + 63) >>> 6;
+        if (visibility.length < words) {
+            visibility = new long[Math.max(words, visibility.length * 2)];
+        }
+        Arrays.fill(visibility, 0, words, 0L);
+
+        if (count >= PARALLEL_THRESHOLD) {
+            JobSystem jobs = jobSystem != null ? jobSystem : JobSystem.getDefault();
+            jobs.parallelFor(0, words, PARALLEL_GRAIN_WORDS, cullJob);
+        } else {
+            cullRange(0, count);
+        }
+
+        int visible = 0;
+        for (int w = 0; w < words; w++) {
+            visible += Long.bitCount(visibility[w]);
+        }
+        return visible;
+    }
+
+    /**
+     * 剔除一个区间
+     * @param from 起始索引（包含，必须是64的倍数）
+     * @param to 结束索引（不包含）
+     */
+    private void cullRange(int from, int to) {
+        if (useVector) {
+            VECTOR_KERNEL.cull(centerX, centerY, centerZ, radius, from, to, planes, visibility);
+        } else {
+            cullScalar(centerX, centerY, centerZ, radius, from, to, planes, visibility);
+        }
+    }
+
+    /**
+     * 设置并行剔除使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * 标量剔除实现，结果按位或入位集
+     * @param cx 中心x坐标数组
+     * @param cy 中心y坐标数组
+     * @param cz 中心z坐标数组
+     * @param r 半径数组
+     * @param from 起始索引（包含）
+     * @param to 结束索引（不包含）
+     * @param planes 六个平面，每个平面4个float
+     * @param bits 可见性位集
+     */
+    static void cullScalar(float[] cx, float[] cy, float[] cz, float[] r, int from, int to, float[] planes, long[] bits) {
+        for (int i = from; i < to; i++) {
+            boolean inside = true;
+            for (int p = 0; p < 24 && inside; p += 4) {
+                inside = planes[p] * cx[i] + planes[p + 1] * cy[i] + planes[p + 2] * cz[i] + planes[p + 3] + r[i] >= 0;
+            }
+            if (inside) {
+                bits[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+    }
+
+    /**
+     * 获取包围球数
+     * @return 包围球数
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 判断包围球是否可见
+     * @param index 包围球索引
+     * @return 是否可见
+     */
+    public boolean isVisible(int index) {
+        return (visibility[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * 查找下一个可见的包围球
+     * @param from 起始索引（包含）
+     * @return 可见包围球索引，没有时为-1
+     */
+    public int nextVisible(int from) {
+        if (from >= count) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = visibility[word] & (-1L << (from & 63));
+        while (true) {
+            if (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return index < count ? index : -1;
+            }
+            if (++word >= (count + 63) >>> 6) {
+                return -1;
+            }
+            bits = visibility[word];
+        }
+    }
+
+    /**
+     * 获取可见性位集（第i位表示第i个包围球是否可见）
+     * @return 可见性位集
+     */
+    public long[] getVisibility() {
+        return visibility;
+    }
+}
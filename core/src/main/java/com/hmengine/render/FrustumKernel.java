@@ -0,0 +1,26 @@
+package com.hmengine.render;
+
+/**
+ * 可替换的批量剔除内核
+ * SIMD实现依赖孵化模块，只在用vector profile编译时存在，由FrustumCuller按类名加载
+ */
+interface FrustumKernel {
+    /**
+     * 获取每个向量的通道数
+     * @return 通道数
+     */
+    int laneCount();
+
+    /**
+     * 对SoA包围球进行剔除，结果按位或入位集
+     * @param cx 中心x坐标数组
+     * @param cy 中心y坐标数组
+     * @param cz 中心z坐标数组
+     * @param r 半径数组
+     * @param from 起始索引（包含，必须是64的倍数）
+     * @param to 结束索引（不包含）
+     * @param planes 六个平面，每个平面4个float
+     * @param bits 可见性位集（已清零）
+     */
+    void cull(float[] cx, float[] cy, float[] cz, float[] r, int from, int to, float[] planes, long[] bits);
+}
@@ -0,0 +1,387 @@
+package com.hmengine.render;
+
+import com.hmengine.Camera;
+import com.hmengine.ComputeShader;
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.joml.Vector4f;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.MemoryUtil;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.opengl.GL40.*;
+import static org.lwjgl.opengl.GL42.*;
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * GPU驱动的视锥体剔除（需要OpenGL 4.3）
+ * 所有实例的变换、颜色和包围球半径保存在SSBO中，计算着色器对摄像机平面进行剔除，
+ * 把可见实例压缩写入各几何体的DrawArraysIndirectCommand，最后用glMultiDrawArraysIndirect一次提交
+ */
+public class GpuCuller {
+    // 每个实例：模型矩阵16个float + 颜色4个float + 参数4个float（局部包围球半径、几何体索引）
+    private static final int INSTANCE_FLOATS = 24;
+    // DrawArraysIndirectCommand：count, instanceCount, first, baseInstance
+    private static final int COMMAND_INTS = 4;
+    private static final int WORK_GROUP_SIZE = 64;
+    // 几何体连续这么多帧没有实例时从共享VBO中移除
+    private static final int EVICT_AFTER_FRAMES = 60;
+
+    // 已登记的几何体，所有几何体的顶点存放在同一个VBO中
+    private final Map<MeshData, Integer> geometryIndices = new IdentityHashMap<>();
+    private final List<MeshData> geometries = new ArrayList<>();
+    private int[] firstVertices = new int[16];
+    // 每个几何体连续没有实例的帧数
+    private int[] idleFrames = new int[16];
+    private boolean geometryDirty;
+
+    private FloatBuffer instanceData = MemoryUtil.memAllocFloat(INSTANCE_FLOATS * 1024);
+    private IntBuffer commandData = MemoryUtil.memAllocInt(COMMAND_INTS * 16);
+    private int[] instanceCounts = new int[16];
+    private int instanceCount;
+
+    private int vao;
+    private int geometryVbo;
+    private int instanceSsbo;
+    private int commandBuffer;
+    private int visibleBuffer;
+    private long instanceCapacity;
+    private long commandCapacity;
+    private long visibleCapacity;
+
+    private final float[] planeData = new float[24];
+    private boolean statsReadback = true;
+
+    /**
+     * 判断当前OpenGL上下文是否支持GPU剔除
+     * @return 是否支持
+     */
+    public static boolean isSupported() {
+        return GL.getCapabilities().OpenGL43;
+    }
+
+    /**
+     * 设置是否每帧回读可见实例数（会等待GPU完成剔除）
+     * @param statsReadback 是否回读
+     */
+    public void setStatsReadback(boolean statsReadback) {
+        this.statsReadback = statsReadback;
+    }
+
+    /**
+     * 开始新的一帧
+     */
+    public void begin() {
+        evictIdleGeometries();
+        instanceData.clear();
+        Arrays.fill(instanceCounts, 0);
+        instanceCount = 0;
+    }
+
+    /**
+     * 移除长时间没有实例的几何体（已不在场景中），压缩几何体索引并在下次绘制时重建共享VBO。
+     * 在清空上一帧的实例计数之前调用
+     */
+    private void evictIdleGeometries() {
+        int count = geometries.size();
+        boolean evict = false;
+        for (int g = 0; g < count; g++) {
+            if (instanceCounts[g] > 0) {
+                idleFrames[g] = 0;
+            } else if (++idleFrames[g] > EVICT_AFTER_FRAMES) {
+                evict = true;
+            }
+        }
+        if (!evict) {
+            return;
+        }
+
+        int kept = 0;
+        for (int g = 0; g < count; g++) {
+            MeshData data = geometries.get(g);
+            if (idleFrames[g] > EVICT_AFTER_FRAMES) {
+                geometryIndices.remove(data);
+                continue;
+            }
+            geometries.set(kept, data);
+            geometryIndices.put(data, kept);
+            idleFrames[kept] = idleFrames[g];
+            kept++;
+        }
+        geometries.subList(kept, count).clear();
+        Arrays.fill(idleFrames, kept, count, 0);
+        geometryDirty = true;
+    }
+
+    /**
+     * 添加一个待剔除的实例
+     * @param mesh 网格
+     */
+    public void add(Mesh mesh) {
+        int geometry = geometryIndex(mesh.getMeshData());
+        if (instanceData.remaining() < INSTANCE_FLOATS) {
+            instanceData = MemoryUtil.memRealloc(instanceData, instanceData.capacity() * 2);
+        }
+        mesh.getModelMatrix().get(instanceData.position(), instanceData);
+        instanceData.position(instanceData.position() + 16);
+        Vector4f color = mesh.getColor();
+        instanceData.put(color.x).put(color.y).put(color.z).put(color.w);
+        instanceData.put(mesh.getMeshData().getBoundingRadius()).put(geometry).put(0.0f).put(0.0f);
+        instanceCounts[geometry]++;
+        instanceCount++;
+    }
+
+    /**
+     * 获取几何体索引，首次出现时登记
+     * @param data 几何数据
+     * @return 几何体索引
+     */
+    private int geometryIndex(MeshData data) {
+        Integer index = geometryIndices.get(data);
+        if (index == null) {
+            index = geometries.size();
+            geometries.add(data);
+            geometryIndices.put(data, index);
+            if (index >= instanceCounts.length) {
+                instanceCounts = Arrays.copyOf(instanceCounts, instanceCounts.length * 2);
+                firstVertices = Arrays.copyOf(firstVertices, firstVertices.length * 2);
+                idleFrames = Arrays.copyOf(idleFrames, idleFrames.length * 2);
+            }
+            geometryDirty = true;
+        }
+        return index;
+    }
+
+    /**
+     * 在GPU上剔除并绘制本帧所有实例
+     * @param cullShader 剔除计算着色器（cull.comp）
+     * @param drawShader 间接绘制着色器（indirect.vert/indirect.frag）
+     * @param camera 摄像机
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void render(ComputeShader cullShader, Shader drawShader, Camera camera, boolean showGridLines, RenderStats stats) {
+        if (instanceCount == 0) {
+            return;
+        }
+        if (vao == 0) {
+            init();
+        }
+        if (geometryDirty) {
+            uploadGeometry();
+        }
+        int geometryCount = geometries.size();
+        uploadFrameData(geometryCount);
+
+        // 剔除：每个线程处理一个实例，可见实例写入所属几何体的绘制命令
+        cullShader.use();
+        Vector4f[] planes = camera.getFrustumPlanes();
+        for (int i = 0; i < 6; i++) {
+            planeData[i * 4] = planes[i].x;
+            planeData[i * 4 + 1] = planes[i].y;
+            planeData[i * 4 + 2] = planes[i].z;
+            planeData[i * 4 + 3] = planes[i].w;
+        }
+        glUniform4fv(cullShader.getUniformLocation("frustumPlanes"), planeData);
+        glUniform1ui(cullShader.getUniformLocation("instanceCount"), instanceCount);
+        glBindBufferBase(GL_SHADER_STORAGE_BUFFER, 0, instanceSsbo);
+        glBindBufferBase(GL_SHADER_STORAGE_BUFFER, 1, commandBuffer);
+        glBindBufferBase(GL_SHADER_STORAGE_BUFFER, 2, visibleBuffer);
+        cullShader.dispatch((instanceCount + WORK_GROUP_SIZE - 1) / WORK_GROUP_SIZE);
+        glMemoryBarrier(GL_COMMAND_BARRIER_BIT | GL_VERTEX_ATTRIB_ARRAY_BARRIER_BIT | GL_BUFFER_UPDATE_BARRIER_BIT);
+        stats.addStateChange();
+
+        // 绘制：相同图元类型的连续几何体合并为一次glMultiDrawArraysIndirect
+        drawShader.use();
+        drawShader.setProjectionMatrix(camera.getProjectionMatrix());
+        drawShader.setViewMatrix(camera.getViewMatrix());
+        glBindVertexArray(vao);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+        stats.addStateChange();
+
+        drawShader.setInt("useUniformColor", 0);
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        multiDraw(geometryCount, stats);
+        if (showGridLines) {
+            drawShader.setInt("useUniformColor", 1);
+            drawShader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+            glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+            multiDraw(geometryCount, stats);
+            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+            stats.addStateChange();
+        }
+
+        if (statsReadback) {
+            commandData.clear().limit(geometryCount * COMMAND_INTS);
+            glGetBufferSubData(GL_DRAW_INDIRECT_BUFFER, 0, commandData);
+            int drawn = 0;
+            for (int g = 0; g < geometryCount; g++) {
+                drawn += commandData.get(g * COMMAND_INTS + 1);
+            }
+            stats.addInstancesDrawn(drawn);
+            stats.addInstancesCulled(instanceCount - drawn);
+        }
+
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 按图元类型分段提交间接绘制命令
+     * @param geometryCount 几何体数
+     * @param stats 渲染统计
+     */
+    private void multiDraw(int geometryCount, RenderStats stats) {
+        int start = 0;
+        while (start < geometryCount) {
+            int primitiveType = geometries.get(start).getPrimitiveType();
+            int end = start + 1;
+            while (end < geometryCount && geometries.get(end).getPrimitiveType() == primitiveType) {
+                end++;
+            }
+            glMultiDrawArraysIndirect(primitiveType, (long) start * COMMAND_INTS * Integer.BYTES, end - start, 0);
+            stats.addDrawCall();
+            start = end;
+        }
+    }
+
+    /**
+     * 创建GPU资源
+     */
+    private void init() {
+        vao = glGenVertexArrays();
+        geometryVbo = glGenBuffers();
+        instanceSsbo = glGenBuffers();
+        commandBuffer = glGenBuffers();
+        visibleBuffer = glGenBuffers();
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, geometryVbo);
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0L);
+        glEnableVertexAttribArray(0);
+        // 可见实例索引作为实例属性，baseInstance决定每条绘制命令读取的起始位置
+        glBindBuffer(GL_ARRAY_BUFFER, visibleBuffer);
+        glVertexAttribIPointer(1, 1, GL_UNSIGNED_INT, 0, 0L);
+        glEnableVertexAttribArray(1);
+        glVertexAttribDivisor(1, 1);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 把所有已登记几何体的顶点上传到同一个VBO
+     */
+    private void uploadGeometry() {
+        int totalFloats = 0;
+        for (MeshData data : geometries) {
+            totalFloats += data.getVertices().length;
+        }
+        FloatBuffer vertices = MemoryUtil.memAllocFloat(totalFloats);
+        try {
+            for (int g = 0; g < geometries.size(); g++) {
+                firstVertices[g] = vertices.position() / 3;
+                vertices.put(geometries.get(g).getVertices());
+            }
+            vertices.flip();
+            glBindBuffer(GL_ARRAY_BUFFER, geometryVbo);
+            glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        } finally {
+            MemoryUtil.memFree(vertices);
+        }
+        geometryDirty = false;
+    }
+
+    /**
+     * 上传本帧的实例数据和清零后的绘制命令
+     * @param geometryCount 几何体数
+     */
+    private void uploadFrameData(int geometryCount) {
+        if (commandData.capacity() < geometryCount * COMMAND_INTS) {
+            commandData = MemoryUtil.memRealloc(commandData, geometryCount * COMMAND_INTS * 2);
+        }
+        commandData.clear();
+        int baseInstance = 0;
+        for (int g = 0; g < geometryCount; g++) {
+            commandData.put(geometries.get(g).getVertexCount());
+            commandData.put(0); // instanceCount由计算着色器累加
+            commandData.put(firstVertices[g]);
+            commandData.put(baseInstance);
+            baseInstance += instanceCounts[g];
+        }
+        commandData.flip();
+
+        instanceData.flip();
+        instanceCapacity = upload(GL_SHADER_STORAGE_BUFFER, instanceSsbo, instanceCapacity, (long) instanceData.remaining() * Float.BYTES);
+        glBufferSubData(GL_SHADER_STORAGE_BUFFER, 0, instanceData);
+
+        commandCapacity = upload(GL_DRAW_INDIRECT_BUFFER, commandBuffer, commandCapacity, (long) commandData.remaining() * Integer.BYTES);
+        glBufferSubData(GL_DRAW_INDIRECT_BUFFER, 0, commandData);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+
+        long visibleBytes = (long) instanceCount * Integer.BYTES;
+        if (visibleBytes > visibleCapacity) {
+            visibleCapacity = Math.max(visibleBytes, visibleCapacity * 2);
+            glBindBuffer(GL_ARRAY_BUFFER, visibleBuffer);
+            glBufferData(GL_ARRAY_BUFFER, visibleCapacity, GL_DYNAMIC_COPY);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+    }
+
+    /**
+     * 绑定缓冲区并重新分配存储（容量不足时扩容）
+     * @param target 缓冲区目标
+     * @param buffer 缓冲区句柄
+     * @param capacity 当前容量（字节）
+     * @param bytes 需要的字节数
+     * @return 新容量
+     */
+    private static long upload(int target, int buffer, long capacity, long bytes) {
+        glBindBuffer(target, buffer);
+        long newCapacity = bytes > capacity ? Math.max(bytes, capacity * 2) : capacity;
+        glBufferData(target, newCapacity, GL_STREAM_DRAW);
+        return newCapacity;
+    }
+
+    /**
+     * 获取共享VBO中登记的几何体数
+     * @return 几何体数
+     */
+    public int getGeometryCount() {
+        return geometries.size();
+    }
+
+    /**
+     * 获取本帧提交剔除的实例数
+     * @return 实例数
+     */
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        if (vao != 0) {
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(geometryVbo);
+            glDeleteBuffers(instanceSsbo);
+            glDeleteBuffers(commandBuffer);
+            glDeleteBuffers(visibleBuffer);
+            vao = 0;
+        }
+        MemoryUtil.memFree(instanceData);
+        MemoryUtil.memFree(commandData);
+    }
+}
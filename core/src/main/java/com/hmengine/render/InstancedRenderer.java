@@ -0,0 +1,261 @@
+package com.hmengine.render;
+
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.lwjgl.system.MemoryUtil;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * 实例化渲染器
+ * 共享同一MeshData的网格合并为一次glDrawArraysInstanced调用，
+ * 几何数据使用MeshBufferCache中的共享VBO，
+ * 每个实例的二维仿射矩阵和颜色通过实例属性缓冲区传入（只接受isAffine()的网格）
+ */
+public class InstancedRenderer {
+    // 每个实例的数据：仿射矩阵6个float + 颜色4个float
+    static final int INSTANCE_FLOATS = 10;
+    private static final int INSTANCE_STRIDE = INSTANCE_FLOATS * Float.BYTES;
+
+    // 实例属性位置：1-3为仿射矩阵的三列，5为颜色
+    private static final int AFFINE_LOCATION = 1;
+    private static final int COLOR_LOCATION = 5;
+
+    private final MeshBufferCache bufferCache;
+    private final Map<MeshData, Group> groups = new IdentityHashMap<>();
+    private final List<Group> activeGroups = new ArrayList<>();
+
+    /**
+     * 构造函数
+     * @param bufferCache 几何数据缓冲区缓存
+     */
+    public InstancedRenderer(MeshBufferCache bufferCache) {
+        this.bufferCache = bufferCache;
+    }
+
+    /**
+     * 释放几何数据对应的实例组（几何数据的GPU缓冲区被释放时调用）
+     * @param data 几何数据
+     */
+    public void release(MeshData data) {
+        Group group = groups.remove(data);
+        if (group != null) {
+            activeGroups.remove(group);
+            group.cleanup();
+        }
+    }
+
+    /**
+     * 开始新的一帧
+     */
+    public void begin() {
+        for (Group group : activeGroups) {
+            group.instanceCount = 0;
+            group.instanceData.clear();
+        }
+        activeGroups.clear();
+    }
+
+    /**
+     * 添加一个实例
+     * @param mesh 网格（必须是二维仿射变换）
+     */
+    public void add(Mesh mesh) {
+        MeshData data = mesh.getMeshData();
+        Group group = groups.get(data);
+        if (group == null) {
+            group = new Group(data);
+            groups.put(data, group);
+        }
+        if (group.instanceCount == 0) {
+            activeGroups.add(group);
+        }
+        group.ensureCapacity(group.instanceCount + 1);
+        FloatBuffer buffer = group.instanceData;
+        writeInstance(buffer, buffer.position(), mesh);
+        buffer.position(buffer.position() + INSTANCE_FLOATS);
+        group.instanceCount++;
+    }
+
+    /**
+     * 批量添加同一几何数据的实例（数据由writeInstance预先写好）
+     * @param data 几何数据
+     * @param src 实例数据
+     * @param offset 起始float偏移
+     * @param count 实例数
+     */
+    public void addInstances(MeshData data, FloatBuffer src, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        Group group = groups.get(data);
+        if (group == null) {
+            group = new Group(data);
+            groups.put(data, group);
+        }
+        if (group.instanceCount == 0) {
+            activeGroups.add(group);
+        }
+        group.ensureCapacity(group.instanceCount + count);
+        group.instanceData.put(src.slice(offset, count * INSTANCE_FLOATS));
+        group.instanceCount += count;
+    }
+
+    /**
+     * 用绝对位置写入一个实例的数据（不改变缓冲区的position，可在多个线程中调用）
+     * @param out 实例数据缓冲区
+     * @param offset 起始float偏移
+     * @param mesh 网格（必须是二维仿射变换）
+     */
+    static void writeInstance(FloatBuffer out, int offset, Mesh mesh) {
+        mesh.getAffineMatrix().get(offset, out);
+        out.put(offset + 6, mesh.getColor().x);
+        out.put(offset + 7, mesh.getColor().y);
+        out.put(offset + 8, mesh.getColor().z);
+        out.put(offset + 9, mesh.getColor().w);
+    }
+
+    /**
+     * 提交本帧所有实例
+     * @param shader 实例化着色器（已设置投影和视图矩阵）
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void flush(Shader shader, boolean showGridLines, RenderStats stats) {
+        for (Group group : activeGroups) {
+            group.upload(bufferCache);
+            glBindVertexArray(group.vao);
+            stats.addStateChange();
+
+            shader.setInt("useUniformColor", 0);
+            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+            glDrawArraysInstanced(group.primitiveType, 0, group.vertexCount, group.instanceCount);
+            stats.addDrawCall();
+
+            if (showGridLines) {
+                shader.setInt("useUniformColor", 1);
+                shader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+                glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+                glDrawArraysInstanced(group.primitiveType, 0, group.vertexCount, group.instanceCount);
+                stats.addStateChange();
+                stats.addDrawCall();
+            }
+        }
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 释放所有GPU资源
+     */
+    public void cleanup() {
+        for (Group group : groups.values()) {
+            group.cleanup();
+        }
+        groups.clear();
+        activeGroups.clear();
+    }
+
+    /**
+     * 共享同一几何数据的实例组
+     */
+    private static class Group {
+        private final MeshData data;
+        private final int primitiveType;
+        private final int vertexCount;
+
+        private int vao;
+        private int instanceVbo;
+        private int instanceBufferCapacity;
+
+        private FloatBuffer instanceData;
+        private int instanceCount;
+
+        Group(MeshData data) {
+            this.data = data;
+            this.primitiveType = data.getPrimitiveType();
+            this.vertexCount = data.getVertexCount();
+            this.instanceData = MemoryUtil.memAllocFloat(INSTANCE_FLOATS * 16);
+        }
+
+        /**
+         * 确保实例数据缓冲区足够大
+         * @param instances 实例数
+         */
+        void ensureCapacity(int instances) {
+            int required = instances * INSTANCE_FLOATS;
+            if (required > instanceData.capacity()) {
+                int newCapacity = Math.max(required, instanceData.capacity() * 2);
+                instanceData = MemoryUtil.memRealloc(instanceData, newCapacity);
+            }
+        }
+
+        /**
+         * 上传实例数据（每帧），首次使用时创建VAO
+         * @param bufferCache 几何数据缓冲区缓存
+         */
+        void upload(MeshBufferCache bufferCache) {
+            if (vao == 0) {
+                createBuffers(bufferCache.getVertexBuffer(data));
+            }
+            instanceData.flip();
+            glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+            long bytes = (long) instanceData.remaining() * Float.BYTES;
+            if (bytes > instanceBufferCapacity) {
+                instanceBufferCapacity = (int) Math.max(bytes, instanceBufferCapacity * 2L);
+            }
+            // 每帧重新分配存储，避免等待GPU使用完上一帧的实例数据
+            glBufferData(GL_ARRAY_BUFFER, instanceBufferCapacity, GL_STREAM_DRAW);
+            glBufferSubData(GL_ARRAY_BUFFER, 0, instanceData);
+        }
+
+        /**
+         * 创建VAO和实例缓冲区，几何属性指向共享VBO
+         * @param vbo 共享的几何数据VBO
+         */
+        private void createBuffers(int vbo) {
+            vao = glGenVertexArrays();
+            glBindVertexArray(vao);
+
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0L);
+            glEnableVertexAttribArray(0);
+
+            instanceVbo = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+            for (int i = 0; i < 3; i++) {
+                glVertexAttribPointer(AFFINE_LOCATION + i, 2, GL_FLOAT, false, INSTANCE_STRIDE, (long) i * 2 * Float.BYTES);
+                glEnableVertexAttribArray(AFFINE_LOCATION + i);
+                glVertexAttribDivisor(AFFINE_LOCATION + i, 1);
+            }
+            glVertexAttribPointer(COLOR_LOCATION, 4, GL_FLOAT, false, INSTANCE_STRIDE, 6L * Float.BYTES);
+            glEnableVertexAttribArray(COLOR_LOCATION);
+            glVertexAttribDivisor(COLOR_LOCATION, 1);
+
+            glBindVertexArray(0);
+        }
+
+        /**
+         * 释放资源
+         */
+        void cleanup() {
+            if (vao != 0) {
+                glDeleteVertexArrays(vao);
+                glDeleteBuffers(instanceVbo);
+                vao = 0;
+            }
+            MemoryUtil.memFree(instanceData);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.hmengine.render;
+
+import com.hmengine.geometry.MeshData;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 网格GPU缓冲区缓存
+ * 每份共享几何数据在每个缓存（即每个渲染器/GL上下文）中只上传一次，所有引用它的网格共用同一个VAO/VBO，
+ * 场景中不再有网格引用时释放。GPU句柄只保存在缓存中，共享的MeshData本身不持有任何GL对象，
+ * 因此多个渲染器或清理后重新创建的上下文不会用到失效的缓冲区名
+ */
+public class MeshBufferCache {
+    // 几何数据 -> 引用数和GPU缓冲区
+    private final Map<MeshData, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * 增加几何数据的引用（网格加入场景时调用）
+     * @param data 几何数据
+     */
+    public void retain(MeshData data) {
+        Entry entry = entries.get(data);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(data, entry);
+        }
+        entry.refCount++;
+    }
+
+    /**
+     * 减少几何数据的引用（网格移出场景时调用），没有引用时释放GPU缓冲区
+     * @param data 几何数据
+     * @return 是否释放了GPU缓冲区
+     */
+    public boolean release(MeshData data) {
+        Entry entry = entries.get(data);
+        if (entry == null || --entry.refCount > 0) {
+            return false;
+        }
+        entries.remove(data);
+        delete(entry);
+        return true;
+    }
+
+    /**
+     * 绑定几何数据对应的VAO，首次使用时上传顶点数据
+     * @param data 几何数据
+     * @return VAO句柄
+     */
+    public int bind(MeshData data) {
+        int vao = getVertexArray(data);
+        glBindVertexArray(vao);
+        return vao;
+    }
+
+    /**
+     * 获取几何数据对应的VAO（不绑定），首次使用时上传顶点数据
+     * @param data 几何数据
+     * @return VAO句柄
+     */
+    public int getVertexArray(MeshData data) {
+        return uploaded(data).vao;
+    }
+
+    /**
+     * 获取几何数据对应的VBO，首次使用时上传顶点数据
+     * @param data 几何数据
+     * @return VBO句柄
+     */
+    public int getVertexBuffer(MeshData data) {
+        return uploaded(data).vbo;
+    }
+
+    /**
+     * 获取已上传的缓存项，未上传时上传顶点数据
+     * @param data 几何数据
+     * @return 缓存项
+     */
+    private Entry uploaded(MeshData data) {
+        Entry entry = entries.get(data);
+        if (entry == null) {
+            // 未经场景登记直接绘制的几何数据，同样由缓存负责释放
+            entry = new Entry();
+            entries.put(data, entry);
+        }
+        if (entry.vao == 0) {
+            entry.vao = glGenVertexArrays();
+            entry.vbo = glGenBuffers();
+            glBindVertexArray(entry.vao);
+            glBindBuffer(GL_ARRAY_BUFFER, entry.vbo);
+            glBufferData(GL_ARRAY_BUFFER, data.getVertices(), GL_STATIC_DRAW);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0L);
+            glEnableVertexAttribArray(0);
+            glBindVertexArray(0);
+        }
+        return entry;
+    }
+
+    /**
+     * 删除缓存项的GPU缓冲区
+     * @param entry 缓存项
+     */
+    private void delete(Entry entry) {
+        if (entry.vao != 0) {
+            glDeleteVertexArrays(entry.vao);
+            glDeleteBuffers(entry.vbo);
+            entry.vao = 0;
+            entry.vbo = 0;
+        }
+    }
+
+    /**
+     * 释放所有GPU缓冲区
+     */
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            delete(entry);
+        }
+        entries.clear();
+    }
+
+    /**
+     * 获取缓存的几何数据数
+     * @return 缓存的几何数据数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 缓存项：引用数和GPU缓冲区句柄（未上传时为0）
+     */
+    private static class Entry {
+        int refCount;
+        int vao;
+        int vbo;
+    }
+}
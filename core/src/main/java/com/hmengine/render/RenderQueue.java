@@ -0,0 +1,227 @@
+package com.hmengine.render;
+
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 渲染命令队列
+ * 每个绘制命令带一个64位排序键，每帧基数排序一次，
+ * 执行时只在键的对应字段变化时切换GL状态
+ *
+ * 排序键布局（从高位到低位）：
+ * 着色器 12位 | 图元类型 4位 | 缓冲区 20位 | 深度 24位 | 渲染通道 4位
+ * 渲染通道在最低位，同一网格的网格线紧跟在它的填充之后绘制，与逐个网格绘制时的叠放顺序相同
+ */
+public class RenderQueue {
+    public static final int PASS_FILL = 0;
+    public static final int PASS_LINES = 1;
+
+    private static final int SHADER_SHIFT = 52;
+    private static final int PRIMITIVE_SHIFT = 48;
+    private static final int BUFFER_SHIFT = 28;
+    private static final int DEPTH_SHIFT = 4;
+    private static final int PASS_SHIFT = 0;
+
+    private static final long PASS_MASK = 0xFL;
+    private static final long SHADER_MASK = 0xFFFL;
+    private static final long PRIMITIVE_MASK = 0xFL;
+    private static final long BUFFER_MASK = 0xFFFFFL;
+    private static final long DEPTH_MASK = 0xFFFFFFL;
+
+    private long[] keys = new long[256];
+    private Mesh[] meshes = new Mesh[256];
+    private long[] scratchKeys = new long[256];
+    private Mesh[] scratchMeshes = new Mesh[256];
+    private final int[] histogram = new int[8 * 256];
+    private int count;
+
+    // 着色器槽位表，排序键中只保存槽位
+    private final List<Shader> shaderSlots = new ArrayList<>();
+
+    /**
+     * 生成排序键
+     * @param pass 渲染通道
+     * @param shader 着色器槽位（0-4095）
+     * @param primitiveType 图元类型（GL_POINTS至GL_TRIANGLE_FAN）
+     * @param buffer 缓冲区（VAO）句柄
+     * @param depth 归一化视图深度（见Camera.getViewDepth），范围[0, 1]，较近的先绘制
+     * @return 排序键
+     */
+    public static long makeKey(int pass, int shader, int primitiveType, int buffer, float depth) {
+        float clamped = Math.max(0.0f, Math.min(1.0f, depth));
+        long depthBits = (long) (clamped * DEPTH_MASK) & DEPTH_MASK;
+        return ((shader & SHADER_MASK) << SHADER_SHIFT)
+            | ((primitiveType & PRIMITIVE_MASK) << PRIMITIVE_SHIFT)
+            | ((buffer & BUFFER_MASK) << BUFFER_SHIFT)
+            | (depthBits << DEPTH_SHIFT)
+            | ((pass & PASS_MASK) << PASS_SHIFT);
+    }
+
+    /**
+     * 从排序键中取出渲染通道
+     * @param key 排序键
+     * @return 渲染通道
+     */
+    public static int getPass(long key) {
+        return (int) ((key >>> PASS_SHIFT) & PASS_MASK);
+    }
+
+    /**
+     * 从排序键中取出着色器槽位
+     * @param key 排序键
+     * @return 着色器槽位
+     */
+    public static int getShader(long key) {
+        return (int) ((key >>> SHADER_SHIFT) & SHADER_MASK);
+    }
+
+    /**
+     * 从排序键中取出图元类型
+     * @param key 排序键
+     * @return 图元类型
+     */
+    public static int getPrimitiveType(long key) {
+        return (int) ((key >>> PRIMITIVE_SHIFT) & PRIMITIVE_MASK);
+    }
+
+    /**
+     * 从排序键中取出缓冲区句柄
+     * @param key 排序键
+     * @return 缓冲区句柄
+     */
+    public static int getBuffer(long key) {
+        return (int) ((key >>> BUFFER_SHIFT) & BUFFER_MASK);
+    }
+
+    /**
+     * 获取着色器的槽位，首次使用时分配
+     * @param shader 着色器
+     * @return 槽位
+     */
+    public int shaderSlot(Shader shader) {
+        int slot = shaderSlots.indexOf(shader);
+        if (slot < 0) {
+            if (shaderSlots.size() > SHADER_MASK) {
+                throw new IllegalStateException("着色器槽位已用完");
+            }
+            shaderSlots.add(shader);
+            slot = shaderSlots.size() - 1;
+        }
+        return slot;
+    }
+
+    /**
+     * 获取槽位对应的着色器
+     * @param slot 槽位
+     * @return 着色器
+     */
+    public Shader shaderAt(int slot) {
+        return shaderSlots.get(slot);
+    }
+
+    /**
+     * 清空队列（每帧开始时调用）
+     */
+    public void clear() {
+        Arrays.fill(meshes, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * 提交一个绘制命令
+     * @param key 排序键
+     * @param mesh 网格
+     */
+    public void submit(long key, Mesh mesh) {
+        if (count == keys.length) {
+            int newCapacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, newCapacity);
+            meshes = Arrays.copyOf(meshes, newCapacity);
+            scratchKeys = new long[newCapacity];
+            scratchMeshes = new Mesh[newCapacity];
+        }
+        keys[count] = key;
+        meshes[count] = mesh;
+        count++;
+    }
+
+    /**
+     * 按排序键进行LSD基数排序（稳定，每次处理8位），
+     * 所有命令在某个字节上相同时跳过该趟
+     */
+    public void sort() {
+        if (count < 2) {
+            return;
+        }
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            for (int b = 0; b < 8; b++) {
+                histogram[(b << 8) + (int) ((key >>> (b << 3)) & 0xFF)]++;
+            }
+        }
+
+        long[] srcKeys = keys, dstKeys = scratchKeys;
+        Mesh[] srcMeshes = meshes, dstMeshes = scratchMeshes;
+        for (int b = 0; b < 8; b++) {
+            int base = b << 8;
+            int shift = b << 3;
+            int firstKeyByte = (int) ((srcKeys[0] >>> shift) & 0xFF);
+            if (histogram[base + firstKeyByte] == count) {
+                continue; // 该字节全部相同，无需排序
+            }
+
+            // 计算前缀和作为每个桶的起始位置
+            int sum = 0;
+            for (int i = 0; i < 256; i++) {
+                int c = histogram[base + i];
+                histogram[base + i] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < count; i++) {
+                long key = srcKeys[i];
+                int dst = histogram[base + (int) ((key >>> shift) & 0xFF)]++;
+                dstKeys[dst] = key;
+                dstMeshes[dst] = srcMeshes[i];
+            }
+
+            long[] tk = srcKeys; srcKeys = dstKeys; dstKeys = tk;
+            Mesh[] tm = srcMeshes; srcMeshes = dstMeshes; dstMeshes = tm;
+        }
+
+        keys = srcKeys;
+        meshes = srcMeshes;
+        scratchKeys = dstKeys;
+        scratchMeshes = dstMeshes;
+        Arrays.fill(scratchMeshes, 0, count, null);
+    }
+
+    /**
+     * 获取命令数
+     * @return 命令数
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 获取排序键
+     * @param index 索引
+     * @return 排序键
+     */
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * 获取网格
+     * @param index 索引
+     * @return 网格
+     */
+    public Mesh getMesh(int index) {
+        return meshes[index];
+    }
+}
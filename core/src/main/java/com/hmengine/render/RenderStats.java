@@ -0,0 +1,108 @@
+package com.hmengine.render;
+
+/**
+ * 渲染统计类
+ * 记录每帧的绘制调用次数和GL状态切换次数
+ */
+public class RenderStats {
+    private int drawCalls;
+    private int stateChanges;
+    private int submittedCommands;
+    private int instancesDrawn;
+    private int instancesCulled;
+
+    /**
+     * 重置计数器（每帧开始时调用）
+     */
+    public void reset() {
+        drawCalls = 0;
+        stateChanges = 0;
+        submittedCommands = 0;
+        instancesDrawn = 0;
+        instancesCulled = 0;
+    }
+
+    /**
+     * 记录一次绘制调用
+     */
+    public void addDrawCall() {
+        drawCalls++;
+    }
+
+    /**
+     * 记录一次状态切换（着色器、缓冲区、多边形模式等）
+     */
+    public void addStateChange() {
+        stateChanges++;
+    }
+
+    /**
+     * 记录提交到渲染队列的命令数
+     * @param count 命令数
+     */
+    public void addSubmittedCommands(int count) {
+        submittedCommands += count;
+    }
+
+    /**
+     * 记录通过视锥体剔除的实例数
+     * @param count 实例数
+     */
+    public void addInstancesDrawn(int count) {
+        instancesDrawn += count;
+    }
+
+    /**
+     * 记录被视锥体剔除的实例数
+     * @param count 实例数
+     */
+    public void addInstancesCulled(int count) {
+        instancesCulled += count;
+    }
+
+    /**
+     * 获取通过视锥体剔除的实例数
+     * @return 实例数
+     */
+    public int getInstancesDrawn() {
+        return instancesDrawn;
+    }
+
+    /**
+     * 获取被视锥体剔除的实例数
+     * @return 实例数
+     */
+    public int getInstancesCulled() {
+        return instancesCulled;
+    }
+
+    /**
+     * 获取绘制调用次数
+     * @return 绘制调用次数
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * 获取状态切换次数
+     * @return 状态切换次数
+     */
+    public int getStateChanges() {
+        return stateChanges;
+    }
+
+    /**
+     * 获取提交的渲染命令数
+     * @return 渲染命令数
+     */
+    public int getSubmittedCommands() {
+        return submittedCommands;
+    }
+
+    @Override
+    public String toString() {
+        return "draws=" + drawCalls + " stateChanges=" + stateChanges + " commands=" + submittedCommands
+            + " drawn=" + instancesDrawn + " culled=" + instancesCulled;
+    }
+}
@@ -0,0 +1,440 @@
+package com.hmengine.render;
+
+import com.hmengine.Camera;
+import com.hmengine.Shader;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+import org.lwjgl.system.MemoryUtil;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * 静态合批器
+ * 场景加载时把静态网格预先变换到世界坐标，按空间区域合并为带索引的大缓冲区，每个可见区域只需一次绘制调用。
+ * 静态网格集合变化时只重新烘焙成员、变换或颜色发生变化的区域，其余区域的缓冲区保持不变
+ */
+public class StaticBatcher {
+    // 顶点格式与动态合批相同：位置3个float + 颜色4个float
+    private static final int VERTEX_FLOATS = DynamicBatcher.VERTEX_FLOATS;
+    private static final int VERTEX_STRIDE = VERTEX_FLOATS * Float.BYTES;
+
+    // 每个区域记录一个网格的模型矩阵和颜色，用于判断区域是否需要重新烘焙
+    private static final int SNAPSHOT_FLOATS = 16 + 4;
+
+    private float regionSize = 1.0f;
+    // 区域键（网格坐标和图元类型）-> 区域
+    private final Map<Long, Region> regions = new HashMap<>();
+    private final Map<MeshData, IndexedGeometry> indexedCache = new IdentityHashMap<>();
+    private final Set<Mesh> baked = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 上次重新烘焙的区域数
+    private int rebakedRegionCount = 0;
+
+    // 烘焙时对应的场景版本
+    private Object builtFor;
+    private int builtVersion = -1;
+
+    /**
+     * 设置区域大小（世界单位），修改后下次检查时重新烘焙
+     * @param regionSize 区域大小
+     */
+    public void setRegionSize(float regionSize) {
+        this.regionSize = regionSize;
+        // 区域划分改变，所有区域都要重新烘焙
+        deleteRegions();
+        this.builtVersion = -1;
+    }
+
+    /**
+     * 判断是否需要重新烘焙
+     * @param owner 静态网格所属的场景
+     * @param version 静态网格集合版本
+     * @return 是否需要重新烘焙
+     */
+    public boolean isStale(Object owner, int version) {
+        return owner != builtFor || version != builtVersion;
+    }
+
+    /**
+     * 重新烘焙静态网格：按区域分组后，只重新烘焙成员、变换或颜色有变化的区域，删除不再有网格的区域
+     * @param owner 静态网格所属的场景
+     * @param version 静态网格集合版本
+     * @param meshes 静态网格
+     * @return 无法合并、需要单独绘制的网格
+     */
+    public List<Mesh> rebuild(Object owner, int version, List<Mesh> meshes) {
+        if (owner != builtFor) {
+            deleteRegions();
+        }
+        builtFor = owner;
+        builtVersion = version;
+
+        List<Mesh> rejected = new ArrayList<>();
+        Map<Long, List<Mesh>> cells = new HashMap<>();
+        Set<MeshData> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        baked.clear();
+        for (Mesh mesh : meshes) {
+            int primitive = mesh.getPrimitiveType();
+            if (primitive != GL_TRIANGLES && primitive != GL_LINES && primitive != GL_POINTS) {
+                rejected.add(mesh);
+                continue;
+            }
+            Matrix4f m = mesh.getModelMatrix();
+            int cellX = (int) Math.floor(m.m30() / regionSize);
+            int cellY = (int) Math.floor(m.m31() / regionSize);
+            long key = ((long) cellX << 36) ^ ((long) (cellY & 0xFFFFFFF) << 4) ^ primitive;
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(mesh);
+            used.add(mesh.getMeshData());
+            baked.add(mesh);
+        }
+
+        // 删除成员有变化或已经没有网格的区域
+        Iterator<Region> it = regions.values().iterator();
+        while (it.hasNext()) {
+            Region region = it.next();
+            List<Mesh> members = cells.get(region.key);
+            if (members == null || !region.matches(members)) {
+                region.delete();
+                it.remove();
+            }
+        }
+
+        // 烘焙新增和变化的区域
+        rebakedRegionCount = 0;
+        for (Map.Entry<Long, List<Mesh>> cell : cells.entrySet()) {
+            if (regions.containsKey(cell.getKey())) {
+                continue;
+            }
+            List<Mesh> members = cell.getValue();
+            RegionBuilder builder = new RegionBuilder(members.get(0).getPrimitiveType());
+            for (Mesh mesh : members) {
+                builder.append(mesh, indexed(mesh.getMeshData()));
+            }
+            Region region = builder.upload();
+            region.key = cell.getKey();
+            region.capture(members);
+            regions.put(region.key, region);
+            rebakedRegionCount++;
+        }
+
+        // 不再被静态网格使用的几何数据不再保留索引形式
+        indexedCache.keySet().retainAll(used);
+        return rejected;
+    }
+
+    /**
+     * 获取几何数据的去重索引形式（按顶点位置去重）
+     * @param data 几何数据
+     * @return 索引几何
+     */
+    private IndexedGeometry indexed(MeshData data) {
+        IndexedGeometry geometry = indexedCache.get(data);
+        if (geometry == null) {
+            geometry = new IndexedGeometry(data.getVertices());
+            indexedCache.put(data, geometry);
+        }
+        return geometry;
+    }
+
+    /**
+     * 绘制所有可见区域
+     * @param shader 合批着色器（已设置投影和视图矩阵）
+     * @param camera 摄像机
+     * @param showGridLines 是否绘制网格线
+     * @param stats 渲染统计
+     */
+    public void render(Shader shader, Camera camera, boolean showGridLines, RenderStats stats) {
+        for (Region region : regions.values()) {
+            if (!camera.isInFrustum(region.centerX, region.centerY, region.centerZ, region.radius)) {
+                continue;
+            }
+            glBindVertexArray(region.vao);
+            stats.addStateChange();
+
+            shader.setInt("useUniformColor", 0);
+            glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+            glDrawElements(region.primitiveType, region.indexCount, GL_UNSIGNED_INT, 0L);
+            stats.addDrawCall();
+
+            if (showGridLines) {
+                shader.setInt("useUniformColor", 1);
+                shader.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色网格线
+                glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
+                glDrawElements(region.primitiveType, region.indexCount, GL_UNSIGNED_INT, 0L);
+                stats.addStateChange();
+                stats.addDrawCall();
+            }
+        }
+        glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * 判断网格是否已烘焙进区域缓冲区
+     * @param mesh 网格
+     * @return 是否已烘焙
+     */
+    public boolean isBaked(Mesh mesh) {
+        return baked.contains(mesh);
+    }
+
+    /**
+     * 获取区域数
+     * @return 区域数
+     */
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    /**
+     * 获取上次rebuild重新烘焙的区域数
+     * @return 区域数
+     */
+    public int getRebakedRegionCount() {
+        return rebakedRegionCount;
+    }
+
+    /**
+     * 删除所有区域的GPU缓冲区
+     */
+    private void deleteRegions() {
+        for (Region region : regions.values()) {
+            region.delete();
+        }
+        regions.clear();
+        baked.clear();
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        deleteRegions();
+        indexedCache.clear();
+        builtFor = null;
+        builtVersion = -1;
+    }
+
+    /**
+     * 去重后的索引几何
+     */
+    private static class IndexedGeometry {
+        private final float[] positions;
+        private final int[] indices;
+
+        IndexedGeometry(float[] vertices) {
+            int vertexCount = vertices.length / 3;
+            float[] unique = new float[vertices.length];
+            int[] index = new int[vertexCount];
+            int uniqueCount = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                int found = -1;
+                for (int j = 0; j < uniqueCount && found < 0; j++) {
+                    if (unique[j * 3] == vertices[i * 3]
+                            && unique[j * 3 + 1] == vertices[i * 3 + 1]
+                            && unique[j * 3 + 2] == vertices[i * 3 + 2]) {
+                        found = j;
+                    }
+                }
+                if (found < 0) {
+                    System.arraycopy(vertices, i * 3, unique, uniqueCount * 3, 3);
+                    found = uniqueCount++;
+                }
+                index[i] = found;
+            }
+            this.positions = Arrays.copyOf(unique, uniqueCount * 3);
+            this.indices = index;
+        }
+    }
+
+    /**
+     * 烘焙中的区域
+     */
+    private static class RegionBuilder {
+        private final int primitiveType;
+        private float[] vertices = new float[256 * VERTEX_FLOATS];
+        private int[] indices = new int[256];
+        private int vertexCount;
+        private int indexCount;
+        private float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        private float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+
+        RegionBuilder(int primitiveType) {
+            this.primitiveType = primitiveType;
+        }
+
+        /**
+         * 追加一个预先变换的网格
+         * @param mesh 网格
+         * @param geometry 网格的索引几何
+         */
+        void append(Mesh mesh, IndexedGeometry geometry) {
+            Matrix4f m = mesh.getModelMatrix();
+            Vector4f color = mesh.getColor();
+            int base = vertexCount;
+            int added = geometry.positions.length / 3;
+            if ((vertexCount + added) * VERTEX_FLOATS > vertices.length) {
+                vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, (vertexCount + added) * VERTEX_FLOATS));
+            }
+            if (indexCount + geometry.indices.length > indices.length) {
+                indices = Arrays.copyOf(indices, Math.max(indices.length * 2, indexCount + geometry.indices.length));
+            }
+
+            float[] p = geometry.positions;
+            for (int i = 0; i < added; i++) {
+                float x = p[i * 3], y = p[i * 3 + 1], z = p[i * 3 + 2];
+                float wx = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+                float wy = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+                float wz = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+                int o = (vertexCount + i) * VERTEX_FLOATS;
+                vertices[o] = wx;
+                vertices[o + 1] = wy;
+                vertices[o + 2] = wz;
+                vertices[o + 3] = color.x;
+                vertices[o + 4] = color.y;
+                vertices[o + 5] = color.z;
+                vertices[o + 6] = color.w;
+                minX = Math.min(minX, wx);
+                minY = Math.min(minY, wy);
+                minZ = Math.min(minZ, wz);
+                maxX = Math.max(maxX, wx);
+                maxY = Math.max(maxY, wy);
+                maxZ = Math.max(maxZ, wz);
+            }
+            vertexCount += added;
+            for (int index : geometry.indices) {
+                indices[indexCount++] = base + index;
+            }
+        }
+
+        /**
+         * 上传为GPU区域
+         * @return 区域
+         */
+        Region upload() {
+            Region region = new Region();
+            region.primitiveType = primitiveType;
+            region.indexCount = indexCount;
+            region.centerX = (minX + maxX) * 0.5f;
+            region.centerY = (minY + maxY) * 0.5f;
+            region.centerZ = (minZ + maxZ) * 0.5f;
+            float hx = (maxX - minX) * 0.5f, hy = (maxY - minY) * 0.5f, hz = (maxZ - minZ) * 0.5f;
+            region.radius = (float) Math.sqrt(hx * hx + hy * hy + hz * hz);
+
+            region.vao = glGenVertexArrays();
+            region.vbo = glGenBuffers();
+            region.ebo = glGenBuffers();
+            glBindVertexArray(region.vao);
+
+            FloatBuffer vertexData = MemoryUtil.memAllocFloat(vertexCount * VERTEX_FLOATS);
+            IntBuffer indexData = MemoryUtil.memAllocInt(indexCount);
+            try {
+                vertexData.put(vertices, 0, vertexCount * VERTEX_FLOATS).flip();
+                indexData.put(indices, 0, indexCount).flip();
+                glBindBuffer(GL_ARRAY_BUFFER, region.vbo);
+                glBufferData(GL_ARRAY_BUFFER, vertexData, GL_STATIC_DRAW);
+                glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, region.ebo);
+                glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_STATIC_DRAW);
+            } finally {
+                MemoryUtil.memFree(vertexData);
+                MemoryUtil.memFree(indexData);
+            }
+
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_STRIDE, 0L);
+            glEnableVertexAttribArray(0);
+            glVertexAttribPointer(1, 4, GL_FLOAT, false, VERTEX_STRIDE, 3L * Float.BYTES);
+            glEnableVertexAttribArray(1);
+            glBindVertexArray(0);
+            return region;
+        }
+    }
+
+    /**
+     * 烘焙后的区域
+     */
+    private static class Region {
+        private long key;
+        private int vao;
+        private int vbo;
+        private int ebo;
+        private int indexCount;
+        private int primitiveType;
+        private float centerX, centerY, centerZ, radius;
+        // 烘焙时的成员 -> 在snapshot中的偏移，以及成员的模型矩阵和颜色
+        private final Map<Mesh, Integer> members = new IdentityHashMap<>();
+        private float[] snapshot;
+
+        /**
+         * 记录烘焙时的成员和它们的模型矩阵、颜色
+         * @param meshes 成员
+         */
+        void capture(List<Mesh> meshes) {
+            snapshot = new float[meshes.size() * SNAPSHOT_FLOATS];
+            for (int i = 0; i < meshes.size(); i++) {
+                Mesh mesh = meshes.get(i);
+                int o = i * SNAPSHOT_FLOATS;
+                members.put(mesh, o);
+                mesh.getModelMatrix().get(snapshot, o);
+                Vector4f color = mesh.getColor();
+                snapshot[o + 16] = color.x;
+                snapshot[o + 17] = color.y;
+                snapshot[o + 18] = color.z;
+                snapshot[o + 19] = color.w;
+            }
+        }
+
+        /**
+         * 判断当前成员与烘焙时是否完全一致（与顺序无关）
+         * @param meshes 当前落在该区域的网格
+         * @return 是否一致
+         */
+        boolean matches(List<Mesh> meshes) {
+            if (meshes.size() != members.size()) {
+                return false;
+            }
+            for (Mesh mesh : meshes) {
+                Integer offset = members.get(mesh);
+                if (offset == null) {
+                    return false;
+                }
+                int o = offset;
+                Matrix4f m = mesh.getModelMatrix();
+                Vector4f color = mesh.getColor();
+                if (m.m00() != snapshot[o] || m.m01() != snapshot[o + 1] || m.m02() != snapshot[o + 2]
+                        || m.m03() != snapshot[o + 3] || m.m10() != snapshot[o + 4] || m.m11() != snapshot[o + 5]
+                        || m.m12() != snapshot[o + 6] || m.m13() != snapshot[o + 7] || m.m20() != snapshot[o + 8]
+                        || m.m21() != snapshot[o + 9] || m.m22() != snapshot[o + 10] || m.m23() != snapshot[o + 11]
+                        || m.m30() != snapshot[o + 12] || m.m31() != snapshot[o + 13] || m.m32() != snapshot[o + 14]
+                        || m.m33() != snapshot[o + 15] || color.x != snapshot[o + 16] || color.y != snapshot[o + 17]
+                        || color.z != snapshot[o + 18] || color.w != snapshot[o + 19]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 删除GPU缓冲区
+         */
+        void delete() {
+            glDeleteVertexArrays(vao);
+            glDeleteBuffers(vbo);
+            glDeleteBuffers(ebo);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.hmengine.render;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于jdk.incubator.vector的SIMD剔除内核
+ * 只在用vector profile编译且运行时加载了模块时由FrustumCuller按类名加载
+ */
+final class VectorFrustumKernel implements FrustumKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    VectorFrustumKernel() {
+    }
+
+    @Override
+    public int laneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void cull(float[] cx, float[] cy, float[] cz, float[] r, int from, int to, float[] planes, long[] bits) {
+        int lanes = SPECIES.length();
+        // 通道数不超过64且为2的幂，每个向量的结果不会跨越位集中的字
+        int upper = lanes <= 64 ? from + SPECIES.loopBound(to - from) : from;
+
+        // 平面系数广播到局部变量，循环中不再读数组，向量对象可以被编译器标量替换，不产生分配
+        FloatVector p0a = FloatVector.broadcast(SPECIES, planes[0]), p0b = FloatVector.broadcast(SPECIES, planes[1]);
+        FloatVector p0c = FloatVector.broadcast(SPECIES, planes[2]), p0d = FloatVector.broadcast(SPECIES, planes[3]);
+        FloatVector p1a = FloatVector.broadcast(SPECIES, planes[4]), p1b = FloatVector.broadcast(SPECIES, planes[5]);
+        FloatVector p1c = FloatVector.broadcast(SPECIES, planes[6]), p1d = FloatVector.broadcast(SPECIES, planes[7]);
+        FloatVector p2a = FloatVector.broadcast(SPECIES, planes[8]), p2b = FloatVector.broadcast(SPECIES, planes[9]);
+        FloatVector p2c = FloatVector.broadcast(SPECIES, planes[10]), p2d = FloatVector.broadcast(SPECIES, planes[11]);
+        FloatVector p3a = FloatVector.broadcast(SPECIES, planes[12]), p3b = FloatVector.broadcast(SPECIES, planes[13]);
+        FloatVector p3c = FloatVector.broadcast(SPECIES, planes[14]), p3d = FloatVector.broadcast(SPECIES, planes[15]);
+        FloatVector p4a = FloatVector.broadcast(SPECIES, planes[16]), p4b = FloatVector.broadcast(SPECIES, planes[17]);
+        FloatVector p4c = FloatVector.broadcast(SPECIES, planes[18]), p4d = FloatVector.broadcast(SPECIES, planes[19]);
+        FloatVector p5a = FloatVector.broadcast(SPECIES, planes[20]), p5b = FloatVector.broadcast(SPECIES, planes[21]);
+        FloatVector p5c = FloatVector.broadcast(SPECIES, planes[22]), p5d = FloatVector.broadcast(SPECIES, planes[23]);
+
+        int i = from;
+        for (; i < upper; i += lanes) {
+            FloatVector x = FloatVector.fromArray(SPECIES, cx, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, cy, i);
+            FloatVector z = FloatVector.fromArray(SPECIES, cz, i);
+            FloatVector radius = FloatVector.fromArray(SPECIES, r, i);
+
+            VectorMask<Float> inside = inside(x, y, z, radius, p0a, p0b, p0c, p0d)
+                    .and(inside(x, y, z, radius, p1a, p1b, p1c, p1d))
+                    .and(inside(x, y, z, radius, p2a, p2b, p2c, p2d))
+                    .and(inside(x, y, z, radius, p3a, p3b, p3c, p3d))
+                    .and(inside(x, y, z, radius, p4a, p4b, p4c, p4d))
+                    .and(inside(x, y, z, radius, p5a, p5b, p5c, p5d));
+            bits[i >>> 6] |= inside.toLong() << (i & 63);
+        }
+
+        FrustumCuller.cullScalar(cx, cy, cz, r, i, to, planes, bits);
+    }
+
+    /**
+     * 判断包围球是否在平面的正侧（或与平面相交）
+     * @return 每个通道是否在正侧
+     */
+    private static VectorMask<Float> inside(FloatVector x, FloatVector y, FloatVector z, FloatVector radius,
+            FloatVector a, FloatVector b, FloatVector c, FloatVector d) {
+        FloatVector distance = x.fma(a, y.fma(b, z.fma(c, radius.add(d))));
+        return distance.compare(VectorOperators.GE, 0.0f);
+    }
+}
@@ -0,0 +1,329 @@
+package com.hmengine.spatial;
+
+import com.hmengine.geometry.Mesh;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 空间索引基类
+ * 条目以结构数组保存，每个条目挂在一个桶的双向链表上；
+ * 子类负责把条目映射到桶，以及收集与查询范围可能相交的候选条目
+ */
+abstract class AbstractSpatialIndex implements SpatialIndex {
+    protected Mesh[] meshes = new Mesh[256];
+    protected float[] entryX = new float[256];
+    protected float[] entryY = new float[256];
+    protected float[] entryRadius = new float[256];
+    protected int[] entryBucket = new int[256];
+    protected int[] next = new int[256];
+    protected int[] prev = new int[256];
+    protected int[] heads;
+
+    private final Map<Mesh, Integer> ids = new IdentityHashMap<>();
+    private int freeHead = -1;
+    private int highWater;
+    private int size;
+
+    // 所有条目中心的范围（只增不减，用于限制最近邻搜索）
+    protected float extentMinX = Float.POSITIVE_INFINITY, extentMinY = Float.POSITIVE_INFINITY;
+    protected float extentMaxX = Float.NEGATIVE_INFINITY, extentMaxY = Float.NEGATIVE_INFINITY;
+
+    // 查询时的候选条目缓冲区
+    protected int[] candidates = new int[256];
+    protected int candidateCount;
+
+    /**
+     * 构造函数
+     * @param bucketCount 桶数
+     */
+    protected AbstractSpatialIndex(int bucketCount) {
+        heads = new int[bucketCount];
+        Arrays.fill(heads, -1);
+    }
+
+    /**
+     * 计算条目所属的桶
+     * @param x 中心x坐标
+     * @param y 中心y坐标
+     * @param radius 半径
+     * @return 桶索引
+     */
+    protected abstract int bucketOf(float x, float y, float radius);
+
+    /**
+     * 收集包围圆可能与矩形相交的候选条目（不能重复），写入candidates
+     * @param minX 最小x坐标
+     * @param minY 最小y坐标
+     * @param maxX 最大x坐标
+     * @param maxY 最大y坐标
+     */
+    protected abstract void gatherCandidates(float minX, float minY, float maxX, float maxY);
+
+    /**
+     * 条目插入或更新位置后调用（在链接到桶之前）
+     * @param id 条目
+     */
+    protected void onPlaced(int id) {
+    }
+
+    /**
+     * 条目被链接到桶后调用
+     * @param id 条目
+     * @param bucket 桶
+     */
+    protected void onLinked(int id, int bucket) {
+    }
+
+    /**
+     * 条目从桶中断开后调用
+     * @param id 条目
+     * @param bucket 桶
+     */
+    protected void onUnlinked(int id, int bucket) {
+    }
+
+    /**
+     * 最近邻搜索的初始半径
+     * @return 初始半径
+     */
+    protected abstract float initialSearchRadius();
+
+    @Override
+    public void insert(Mesh mesh, float x, float y, float radius) {
+        if (ids.containsKey(mesh)) {
+            update(mesh, x, y, radius);
+            return;
+        }
+        int id;
+        if (freeHead >= 0) {
+            id = freeHead;
+            freeHead = next[id];
+        } else {
+            if (highWater == meshes.length) {
+                grow();
+            }
+            id = highWater++;
+        }
+        ids.put(mesh, id);
+        meshes[id] = mesh;
+        set(id, x, y, radius);
+        onPlaced(id);
+        link(id, bucketOf(x, y, radius));
+        size++;
+    }
+
+    @Override
+    public void update(Mesh mesh, float x, float y, float radius) {
+        Integer id = ids.get(mesh);
+        if (id == null) {
+            insert(mesh, x, y, radius);
+            return;
+        }
+        set(id, x, y, radius);
+        onPlaced(id);
+        int bucket = bucketOf(x, y, radius);
+        if (bucket != entryBucket[id]) {
+            unlink(id);
+            link(id, bucket);
+        }
+    }
+
+    @Override
+    public void remove(Mesh mesh) {
+        Integer id = ids.remove(mesh);
+        if (id == null) {
+            return;
+        }
+        unlink(id);
+        meshes[id] = null;
+        next[id] = freeHead;
+        freeHead = id;
+        size--;
+    }
+
+    @Override
+    public boolean contains(Mesh mesh) {
+        return ids.containsKey(mesh);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heads, -1);
+        Arrays.fill(meshes, 0, highWater, null);
+        ids.clear();
+        freeHead = -1;
+        highWater = 0;
+        size = 0;
+        extentMinX = extentMinY = Float.POSITIVE_INFINITY;
+        extentMaxX = extentMaxY = Float.NEGATIVE_INFINITY;
+        onCleared();
+    }
+
+    /**
+     * 索引被清空后调用
+     */
+    protected void onCleared() {
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int queryRect(float minX, float minY, float maxX, float maxY, List<Mesh> result) {
+        gatherCandidates(minX, minY, maxX, maxY);
+        int found = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int id = candidates[i];
+            float x = entryX[id], y = entryY[id], r = entryRadius[id];
+            float dx = Math.max(Math.max(minX - x, 0.0f), x - maxX);
+            float dy = Math.max(Math.max(minY - y, 0.0f), y - maxY);
+            if (dx * dx + dy * dy <= r * r) {
+                result.add(meshes[id]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int queryRadius(float x, float y, float radius, List<Mesh> result) {
+        gatherCandidates(x - radius, y - radius, x + radius, y + radius);
+        int found = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int id = candidates[i];
+            float dx = entryX[id] - x, dy = entryY[id] - y;
+            float reach = radius + entryRadius[id];
+            if (dx * dx + dy * dy <= reach * reach) {
+                result.add(meshes[id]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Mesh nearest(float x, float y, float maxDistance, Mesh exclude) {
+        if (size == 0) {
+            return null;
+        }
+        // 覆盖所有条目所需的最大搜索半径
+        float coverAll = Math.max(Math.max(x - extentMinX, extentMaxX - x), Math.max(y - extentMinY, extentMaxY - y));
+        float limit = Math.min(maxDistance, coverAll * 1.4143f);
+        float searchRadius = Math.min(initialSearchRadius(), limit);
+        while (true) {
+            gatherCandidates(x - searchRadius, y - searchRadius, x + searchRadius, y + searchRadius);
+            int best = -1;
+            float bestDistanceSquared = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < candidateCount; i++) {
+                int id = candidates[i];
+                if (meshes[id] == exclude) {
+                    continue;
+                }
+                float dx = entryX[id] - x, dy = entryY[id] - y;
+                float distanceSquared = dx * dx + dy * dy;
+                if (distanceSquared < bestDistanceSquared) {
+                    bestDistanceSquared = distanceSquared;
+                    best = id;
+                }
+            }
+            // 搜索矩形包含了所有中心距离不超过搜索半径的条目
+            if (best >= 0 && bestDistanceSquared <= searchRadius * searchRadius) {
+                return bestDistanceSquared <= maxDistance * maxDistance ? meshes[best] : null;
+            }
+            if (searchRadius >= limit) {
+                return null;
+            }
+            searchRadius = Math.min(searchRadius * 2.0f, limit);
+        }
+    }
+
+    /**
+     * 添加候选条目
+     * @param id 条目
+     */
+    protected void addCandidate(int id) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidates.length * 2);
+        }
+        candidates[candidateCount++] = id;
+    }
+
+    /**
+     * 收集所有条目作为候选（查询范围过大时使用）
+     */
+    protected void gatherAll() {
+        for (int id = 0; id < highWater; id++) {
+            if (meshes[id] != null) {
+                addCandidate(id);
+            }
+        }
+    }
+
+    /**
+     * 设置条目的位置和半径
+     * @param id 条目
+     * @param x 中心x坐标
+     * @param y 中心y坐标
+     * @param radius 半径
+     */
+    private void set(int id, float x, float y, float radius) {
+        entryX[id] = x;
+        entryY[id] = y;
+        entryRadius[id] = radius;
+        extentMinX = Math.min(extentMinX, x);
+        extentMinY = Math.min(extentMinY, y);
+        extentMaxX = Math.max(extentMaxX, x);
+        extentMaxY = Math.max(extentMaxY, y);
+    }
+
+    /**
+     * 把条目链接到桶的链表头
+     * @param id 条目
+     * @param bucket 桶
+     */
+    private void link(int id, int bucket) {
+        entryBucket[id] = bucket;
+        prev[id] = -1;
+        next[id] = heads[bucket];
+        if (heads[bucket] >= 0) {
+            prev[heads[bucket]] = id;
+        }
+        heads[bucket] = id;
+        onLinked(id, bucket);
+    }
+
+    /**
+     * 把条目从所在桶的链表中断开
+     * @param id 条目
+     */
+    private void unlink(int id) {
+        int bucket = entryBucket[id];
+        if (prev[id] >= 0) {
+            next[prev[id]] = next[id];
+        } else {
+            heads[bucket] = next[id];
+        }
+        if (next[id] >= 0) {
+            prev[next[id]] = prev[id];
+        }
+        onUnlinked(id, bucket);
+    }
+
+    /**
+     * 扩容条目数组
+     */
+    private void grow() {
+        int capacity = meshes.length * 2;
+        meshes = Arrays.copyOf(meshes, capacity);
+        entryX = Arrays.copyOf(entryX, capacity);
+        entryY = Arrays.copyOf(entryY, capacity);
+        entryRadius = Arrays.copyOf(entryRadius, capacity);
+        entryBucket = Arrays.copyOf(entryBucket, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,171 @@
+package com.hmengine.spatial;
+
+import java.util.Arrays;
+
+/**
+ * 松散四叉树空间索引
+ * 以隐式的层级网格实现：第d层每边2^d个节点，条目放在半径不超过节点边长一半的最深层，
+ * 节点的松散边界为节点向四周各扩展半个边长，因此条目的插入和移动都是O(1)。
+ * 超出世界范围或过大的条目放在单独的溢出桶中，每次查询都会检查
+ */
+public class LooseQuadtree extends AbstractSpatialIndex {
+    private final float originX;
+    private final float originY;
+    private final float worldSize;
+    private final int maxDepth;
+    private final int[] levelOffsets;
+    private final int[] levelCounts;
+    private final int overflowBucket;
+
+    /**
+     * 构造函数
+     * @param minX 世界范围最小x坐标
+     * @param minY 世界范围最小y坐标
+     * @param worldSize 世界范围边长
+     * @param maxDepth 最大深度（0-10）
+     */
+    public LooseQuadtree(float minX, float minY, float worldSize, int maxDepth) {
+        super(totalNodes(maxDepth) + 1);
+        if (maxDepth < 0 || maxDepth > 10) {
+            throw new IllegalArgumentException("最大深度必须在0到10之间: " + maxDepth);
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.worldSize = worldSize;
+        this.maxDepth = maxDepth;
+        this.levelOffsets = new int[maxDepth + 2];
+        for (int d = 0; d <= maxDepth; d++) {
+            levelOffsets[d + 1] = levelOffsets[d] + (1 << d) * (1 << d);
+        }
+        this.levelCounts = new int[maxDepth + 2];
+        this.overflowBucket = levelOffsets[maxDepth + 1];
+    }
+
+    /**
+     * 计算所有层的节点总数
+     * @param maxDepth 最大深度
+     * @return 节点总数
+     */
+    private static int totalNodes(int maxDepth) {
+        int total = 0;
+        for (int d = 0; d <= maxDepth; d++) {
+            total += (1 << d) * (1 << d);
+        }
+        return total;
+    }
+
+    @Override
+    protected int bucketOf(float x, float y, float radius) {
+        float localX = x - originX;
+        float localY = y - originY;
+        if (localX < 0 || localY < 0 || localX >= worldSize || localY >= worldSize || radius > worldSize * 0.5f) {
+            return overflowBucket;
+        }
+        int depth = maxDepth;
+        if (radius > 0) {
+            // 满足 radius <= worldSize / 2^(d+1) 的最大深度
+            int fit = (int) Math.floor(Math.log(worldSize / (2.0f * radius)) / Math.log(2.0));
+            depth = Math.max(0, Math.min(maxDepth, fit));
+        }
+        int side = 1 << depth;
+        float nodeSize = worldSize / side;
+        int cellX = Math.min(side - 1, (int) (localX / nodeSize));
+        int cellY = Math.min(side - 1, (int) (localY / nodeSize));
+        return levelOffsets[depth] + cellY * side + cellX;
+    }
+
+    /**
+     * 获取桶所在的层（溢出桶为maxDepth + 1）
+     * @param bucket 桶
+     * @return 层
+     */
+    private int levelOf(int bucket) {
+        int depth = 0;
+        while (depth <= maxDepth && bucket >= levelOffsets[depth + 1]) {
+            depth++;
+        }
+        return depth;
+    }
+
+    @Override
+    protected void onLinked(int id, int bucket) {
+        levelCounts[levelOf(bucket)]++;
+    }
+
+    @Override
+    protected void onUnlinked(int id, int bucket) {
+        levelCounts[levelOf(bucket)]--;
+    }
+
+    @Override
+    protected void onCleared() {
+        Arrays.fill(levelCounts, 0);
+    }
+
+    @Override
+    protected float initialSearchRadius() {
+        return worldSize / (1 << maxDepth);
+    }
+
+    @Override
+    protected void gatherCandidates(float minX, float minY, float maxX, float maxY) {
+        candidateCount = 0;
+
+        // 先估算需要访问的节点数，比条目数还多时直接遍历全部条目
+        long nodesToVisit = 0;
+        for (int d = 0; d <= maxDepth; d++) {
+            if (levelCounts[d] > 0) {
+                int side = 1 << d;
+                float nodeSize = worldSize / side;
+                float margin = nodeSize * 0.5f;
+                int x0 = clamp((int) Math.floor((minX - margin - originX) / nodeSize), side);
+                int x1 = clamp((int) Math.floor((maxX + margin - originX) / nodeSize), side);
+                int y0 = clamp((int) Math.floor((minY - margin - originY) / nodeSize), side);
+                int y1 = clamp((int) Math.floor((maxY + margin - originY) / nodeSize), side);
+                nodesToVisit += (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+            }
+        }
+        if (nodesToVisit > size()) {
+            gatherAll();
+            return;
+        }
+
+        for (int d = 0; d <= maxDepth; d++) {
+            if (levelCounts[d] == 0) {
+                continue;
+            }
+            int side = 1 << d;
+            float nodeSize = worldSize / side;
+            float margin = nodeSize * 0.5f; // 松散边界
+            float x0f = (minX - margin - originX) / nodeSize, x1f = (maxX + margin - originX) / nodeSize;
+            float y0f = (minY - margin - originY) / nodeSize, y1f = (maxY + margin - originY) / nodeSize;
+            if (x1f < 0 || y1f < 0 || x0f >= side || y0f >= side) {
+                continue;
+            }
+            int x0 = clamp((int) Math.floor(x0f), side), x1 = clamp((int) Math.floor(x1f), side);
+            int y0 = clamp((int) Math.floor(y0f), side), y1 = clamp((int) Math.floor(y1f), side);
+            int offset = levelOffsets[d];
+            for (int cy = y0; cy <= y1; cy++) {
+                for (int cx = x0; cx <= x1; cx++) {
+                    for (int id = heads[offset + cy * side + cx]; id >= 0; id = next[id]) {
+                        addCandidate(id);
+                    }
+                }
+            }
+        }
+
+        for (int id = heads[overflowBucket]; id >= 0; id = next[id]) {
+            addCandidate(id);
+        }
+    }
+
+    /**
+     * 把节点坐标限制在[0, side - 1]
+     * @param value 节点坐标
+     * @param side 每边节点数
+     * @return 限制后的节点坐标
+     */
+    private static int clamp(int value, int side) {
+        return Math.max(0, Math.min(side - 1, value));
+    }
+}
@@ -0,0 +1,84 @@
+package com.hmengine.spatial;
+
+import com.hmengine.geometry.Mesh;
+import java.util.List;
+
+/**
+ * 空间索引接口
+ * 以XY平面上的包围圆管理网格，支持增量更新、范围查询和最近邻查询。
+ * 查询结果追加到调用者提供的列表中，不产生额外的对象分配
+ */
+public interface SpatialIndex {
+    /**
+     * 插入网格
+     * @param mesh 网格
+     * @param x 包围圆中心x坐标
+     * @param y 包围圆中心y坐标
+     * @param radius 包围圆半径
+     */
+    void insert(Mesh mesh, float x, float y, float radius);
+
+    /**
+     * 更新网格的位置和半径
+     * @param mesh 已插入的网格
+     * @param x 包围圆中心x坐标
+     * @param y 包围圆中心y坐标
+     * @param radius 包围圆半径
+     */
+    void update(Mesh mesh, float x, float y, float radius);
+
+    /**
+     * 移除网格
+     * @param mesh 网格
+     */
+    void remove(Mesh mesh);
+
+    /**
+     * 查询与矩形相交的网格
+     * @param minX 最小x坐标
+     * @param minY 最小y坐标
+     * @param maxX 最大x坐标
+     * @param maxY 最大y坐标
+     * @param result 结果列表（追加）
+     * @return 找到的网格数
+     */
+    int queryRect(float minX, float minY, float maxX, float maxY, List<Mesh> result);
+
+    /**
+     * 查询与圆相交的网格
+     * @param x 圆心x坐标
+     * @param y 圆心y坐标
+     * @param radius 半径
+     * @param result 结果列表（追加）
+     * @return 找到的网格数
+     */
+    int queryRadius(float x, float y, float radius, List<Mesh> result);
+
+    /**
+     * 查询中心距离最近的网格
+     * @param x x坐标
+     * @param y y坐标
+     * @param maxDistance 最大距离
+     * @param exclude 排除的网格（可为null）
+     * @return 最近的网格，范围内没有时为null
+     */
+    Mesh nearest(float x, float y, float maxDistance, Mesh exclude);
+
+    /**
+     * 判断网格是否在索引中
+     * @param mesh 网格
+     * @return 是否在索引中
+     */
+    boolean contains(Mesh mesh);
+
+    /**
+     * 清空索引
+     */
+    void clear();
+
+    /**
+     * 获取网格数
+     * @return 网格数
+     */
+    int size();
+}
@@ -0,0 +1,114 @@
+package com.hmengine.spatial;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格空间索引
+ * 按包围圆中心所在的网格单元分桶，单元坐标经哈希映射到固定大小的桶表，
+ * 因此世界范围不受限制；查询范围按当前最大半径扩展
+ */
+public class UniformGrid extends AbstractSpatialIndex {
+    private final float cellSize;
+    private final float inverseCellSize;
+    private final int mask;
+
+    private int[] entryCellX = new int[256];
+    private int[] entryCellY = new int[256];
+    private float maxRadius;
+
+    /**
+     * 构造函数（4096个桶）
+     * @param cellSize 单元大小（世界单位）
+     */
+    public UniformGrid(float cellSize) {
+        this(cellSize, 4096);
+    }
+
+    /**
+     * 构造函数
+     * @param cellSize 单元大小（世界单位）
+     * @param bucketCount 桶数（向上取整为2的幂）
+     */
+    public UniformGrid(float cellSize, int bucketCount) {
+        super(Integer.highestOneBit(Math.max(bucketCount - 1, 1)) << 1);
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0f / cellSize;
+        this.mask = heads.length - 1;
+    }
+
+    /**
+     * 计算单元坐标
+     * @param value 世界坐标
+     * @return 单元坐标
+     */
+    private int cell(float value) {
+        return (int) Math.floor(value * inverseCellSize);
+    }
+
+    /**
+     * 单元坐标的哈希
+     * @param cellX 单元x坐标
+     * @param cellY 单元y坐标
+     * @return 桶索引
+     */
+    private int hash(int cellX, int cellY) {
+        return ((cellX * 0x8DA6B343) ^ (cellY * 0xD8163841)) & mask;
+    }
+
+    @Override
+    protected int bucketOf(float x, float y, float radius) {
+        maxRadius = Math.max(maxRadius, radius);
+        return hash(cell(x), cell(y));
+    }
+
+    @Override
+    protected void onPlaced(int id) {
+        if (id >= entryCellX.length) {
+            entryCellX = Arrays.copyOf(entryCellX, meshes.length);
+            entryCellY = Arrays.copyOf(entryCellY, meshes.length);
+        }
+        entryCellX[id] = cell(entryX[id]);
+        entryCellY[id] = cell(entryY[id]);
+    }
+
+    @Override
+    protected void onCleared() {
+        maxRadius = 0.0f;
+    }
+
+    @Override
+    protected float initialSearchRadius() {
+        return cellSize;
+    }
+
+    @Override
+    protected void gatherCandidates(float minX, float minY, float maxX, float maxY) {
+        candidateCount = 0;
+        int x0 = cell(minX - maxRadius), y0 = cell(minY - maxRadius);
+        int x1 = cell(maxX + maxRadius), y1 = cell(maxY + maxRadius);
+        long cellCount = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+        if (cellCount > heads.length || cellCount > size()) {
+            // 查询范围覆盖的单元比条目还多时，直接遍历全部条目
+            gatherAll();
+            return;
+        }
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int id = heads[hash(cx, cy)]; id >= 0; id = next[id]) {
+                    // 过滤哈希到同一个桶的其他单元
+                    if (entryCellX[id] == cx && entryCellY[id] == cy) {
+                        addCandidate(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取单元大小
+     * @return 单元大小
+     */
+    public float getCellSize() {
+        return cellSize;
+    }
+}
@@ -1,69 +1,112 @@
 package com.hmengine.text;
 
+import com.hmengine.jobs.JobSystem;
 import org.lwjgl.system.MemoryUtil;
-import org.lwjgl.stb.STBTTBakedChar;
-import org.lwjgl.stb.STBTTBakedChar.Buffer;
+import org.lwjgl.stb.STBTTFontinfo;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.stb.STBTruetype.*;
 
+/**
+ * 字体
+ * 启动时只解析字体文件，字形在第一次使用时才用stb_truetype逐个光栅化并放入动态图集，
+ * 因此启动开销和内存都只与实际用到的字形有关，任意Unicode码点（包括CJK）都可以显示。
+ * 已光栅化的字形和图集可以用FontCache保存到磁盘，下次启动时直接映射文件恢复。
+ * SDF模式下字形以固定的小字号生成有符号距离场，配合text_sdf.frag在任意缩放下都保持清晰，
+ * 不同字号和缩放共用一个图集。一次排版中新出现的字形较多时在任务系统上并行光栅化。
+ */
 public class Font {
-    private final int textureId;
-    private final Map<Character, CharInfo> charMap;
-    private final int textureWidth;
-    private final int textureHeight;
-    private final FloatBuffer vertexBuffer;
+    // 光栅化模式：普通位图、有符号距离场
+    public static final int MODE_BITMAP = 0;
+    public static final int MODE_SDF = 1;
+    // SDF字形的光栅化字号，以及距离场在轮廓外扩展的像素数
+    public static final int SDF_RASTER_SIZE = 32;
+    private static final int SDF_PADDING = 4;
+    // 轮廓处的距离值，离开轮廓一个像素变化ONEDGE / PADDING
+    private static final int SDF_ON_EDGE = 128;
+    // 一次排版中待光栅化的字形数至少为此值时并行光栅化
+    private static final int PARALLEL_RASTERIZE_THRESHOLD = 8;
+
+    // 码点按256个一组分块存储，只为用到的块分配数组
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private final ByteBuffer ttfBuffer;
+    private final STBTTFontinfo fontInfo;
+    private final int fontSize;
+    private final int mode;
+    private final long fontHash;
+    // 光栅化使用的stb缩放，以及排版坐标与光栅像素之比
+    private final float scale;
+    private final float layoutScale;
+    private final GlyphAtlas atlas;
+    private JobSystem jobSystem;
+
+    private final Glyph[][] blocks = new Glyph[(Character.MAX_CODE_POINT + 1) >> BLOCK_BITS][];
+    // 字体中没有的码点
+    private final Map<Integer, Boolean> missing = new HashMap<>();
+    private int glyphCount = 0;
+    private int rasterizedCount = 0;
+    // 上次与磁盘缓存同步时的光栅化次数
+    private int cachedRasterizedCount = 0;
+
+    // stb查询结果的临时数组
+    private final int[] ix0 = new int[1], iy0 = new int[1], ix1 = new int[1], iy1 = new int[1];
+    // 本次排版中已分配图集区域、等待光栅化的字形
+    private Glyph[] pending = new Glyph[16];
+    private int pendingCount = 0;
 
     public Font(String fontFile, int fontSize) {
-        this.charMap = new HashMap<>();
-        this.vertexBuffer = MemoryUtil.memAllocFloat(6 * 4); // 6个顶点，每个顶点4个float（位置和纹理坐标）
-        
-        // 加载字体文件
-        ByteBuffer ttfBuffer = loadFontFile(fontFile);
-        
-        // 创建纹理
-        textureWidth = 2048;  // 增加纹理大小
-        textureHeight = 2048;
-        ByteBuffer bitmap = MemoryUtil.memAlloc(textureWidth * textureHeight);
-        
-        // 创建STBTTBakedChar缓冲区
-        Buffer cdata = STBTTBakedChar.malloc(0x9FFF); // 扩展Unicode范围
-        
-        // 烘焙字体
-        stbtt_BakeFontBitmap(ttfBuffer, fontSize, bitmap, textureWidth, textureHeight, 0, cdata);
-        
-        // 创建OpenGL纹理
-        textureId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, textureId);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RED, textureWidth, textureHeight, 0, GL_RED, GL_UNSIGNED_BYTE, bitmap);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-        
-        // 释放资源
-        MemoryUtil.memFree(bitmap);
-        MemoryUtil.memFree(ttfBuffer);
-        
-        // 初始化字符信息
-        initCharInfo(cdata);
-        
-        // 释放cdata
-        cdata.free();
-    }
-    
+        this(fontFile, fontSize, new GlyphAtlas(GlyphAtlas.DEFAULT_PAGE_SIZE, GlyphAtlas.DEFAULT_MAX_PAGES));
+    }
+
+    public Font(String fontFile, int fontSize, GlyphAtlas atlas) {
+        this(fontFile, fontSize, atlas, MODE_BITMAP);
+    }
+
+    /**
+     * 构造函数
+     * @param fontFile 字体文件（类路径资源）
+     * @param fontSize 字号（像素高度），排版时scale为1对应的大小
+     * @param atlas 字形图集
+     * @param mode 光栅化模式，MODE_BITMAP或MODE_SDF（需要使用SDF片段着色器）
+     */
+    public Font(String fontFile, int fontSize, GlyphAtlas atlas, int mode) {
+        if (mode != MODE_BITMAP && mode != MODE_SDF) {
+            throw new IllegalArgumentException("未知的光栅化模式: " + mode);
+        }
+        this.atlas = atlas;
+        this.mode = mode;
+        // 字体数据在字体的整个生命周期内都被stb引用
+        this.ttfBuffer = loadFontFile(fontFile);
+        this.fontSize = fontSize;
+        this.fontHash = hash(ttfBuffer);
+        this.fontInfo = STBTTFontinfo.malloc();
+        if (!stbtt_InitFont(fontInfo, ttfBuffer)) {
+            fontInfo.free();
+            MemoryUtil.memFree(ttfBuffer);
+            throw new RuntimeException("无法解析字体文件: " + fontFile);
+        }
+        int rasterSize = mode == MODE_SDF ? SDF_RASTER_SIZE : fontSize;
+        this.scale = stbtt_ScaleForPixelHeight(fontInfo, rasterSize);
+        this.layoutScale = fontSize / (float) rasterSize;
+    }
+
     private ByteBuffer loadFontFile(String fontFile) {
         try (InputStream is = getClass().getClassLoader().getResourceAsStream(fontFile)) {
             if (is == null) {
                 throw new RuntimeException("无法加载字体文件: " + fontFile);
             }
-            
+
             byte[] bytes = is.readAllBytes();
             ByteBuffer buffer = MemoryUtil.memAlloc(bytes.length);
             buffer.put(bytes);
@@ -73,109 +116,324 @@ public class Font {
             throw new RuntimeException("加载字体文件时发生错误", e);
         }
     }
-    
-    private void initCharInfo(Buffer cdata) {
-        // 初始化ASCII字符
-        for (int i = 0; i < 96; i++) {
-            STBTTBakedChar charData = cdata.get(i);
-            charMap.put((char)(i + 32), new CharInfo(
-                charData.x0() / (float)textureWidth,
-                charData.y0() / (float)textureHeight,
-                charData.x1() / (float)textureWidth,
-                charData.y1() / (float)textureHeight,
-                charData.xoff(),
-                charData.yoff(),
-                charData.xadvance()
-            ));
-        }
-        
-        // 初始化常用汉字
-        for (int i = 0; i < 0x4E00; i++) {
-            STBTTBakedChar charData = cdata.get(i);
-            if (charData.x0() != 0 || charData.y0() != 0) {  // 只添加实际存在的字符
-                charMap.put((char)(i), new CharInfo(
-                    charData.x0() / (float)textureWidth,
-                    charData.y0() / (float)textureHeight,
-                    charData.x1() / (float)textureWidth,
-                    charData.y1() / (float)textureHeight,
-                    charData.xoff(),
-                    charData.yoff(),
-                    charData.xadvance()
-                ));
+
+    /**
+     * 字体数据的散列：CRC32和长度，用作磁盘缓存的键
+     */
+    private static long hash(ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        return crc.getValue() << 32 | (data.remaining() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 排版文本，把每个字形的四边形按图集页追加到批次中（不调用OpenGL，新字形的像素在upload时上传）
+     * @param batch 字形批次
+     * @param text 文本
+     * @param x 基线起点x
+     * @param y 基线起点y
+     * @param scale 缩放
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     */
+    public void appendText(TextBatch batch, String text, float x, float y, float scale, float r, float g, float b) {
+        prepare(text);
+        scale *= layoutScale;
+        for (int i = 0; i < text.length(); ) {
+            int codepoint = text.codePointAt(i);
+            i += Character.charCount(codepoint);
+            Glyph glyph = glyph(codepoint);
+            if (glyph == null) continue;
+
+            if (glyph.page >= 0) {
+                // 计算顶点坐标
+                float x0 = x + glyph.xoff * scale;
+                float y0 = y + glyph.yoff * scale;
+                float x1 = x0 + glyph.width * scale;
+                float y1 = y0 + glyph.height * scale;
+
+                batch.addGlyph(glyph.page, x0, y0, x1, y1, glyph.u0, glyph.v0, glyph.u1, glyph.v1, r, g, b);
+            }
+
+            x += glyph.xadvance * scale;
+        }
+    }
+
+    /**
+     * 为文本中尚未驻留的字形分配图集区域并光栅化，字形较多时在任务系统上并行；已驻留的字形记为本帧使用
+     * @param text 文本
+     * @return 是否所有字形都已驻留（图集中除本帧用过的货架外没有空间时为false）
+     */
+    boolean prepare(String text) {
+        boolean complete = true;
+        for (int i = 0; i < text.length(); ) {
+            int codepoint = text.codePointAt(i);
+            i += Character.charCount(codepoint);
+            Glyph[] block = blocks[codepoint >> BLOCK_BITS];
+            Glyph glyph = block != null ? block[codepoint & (BLOCK_SIZE - 1)] : null;
+            if (glyph == null) {
+                glyph = load(codepoint);
+            }
+            if (glyph == null || !glyph.hasBitmap()) {
+                continue;
+            }
+            // 同一字形第二次出现时已经分配过区域
+            if (glyph.page >= 0) {
+                atlas.touch(glyph);
+                continue;
+            }
+            if (!atlas.allocate(glyph)) {
+                complete = false;
+                continue;
+            }
+            // 像素副本在这里（单线程）分配，光栅化任务只写各自的区域
+            atlas.pixels(glyph);
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = glyph;
+        }
+        if (pendingCount == 0) {
+            return complete;
+        }
+
+        // 本帧分配过的货架不会被淘汰，后分配的字形不会让先分配的字形失效
+        if (pendingCount >= PARALLEL_RASTERIZE_THRESHOLD) {
+            jobs().parallelFor(0, pendingCount, 1, (from, to, scratch) -> {
+                for (int i = from; i < to; i++) {
+                    render(pending[i]);
+                }
+            });
+        } else {
+            for (int i = 0; i < pendingCount; i++) {
+                render(pending[i]);
+            }
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            atlas.markDirty(pending[i]);
+            rasterizedCount++;
+            pending[i] = null;
+        }
+        pendingCount = 0;
+        return complete;
+    }
+
+    private JobSystem jobs() {
+        return jobSystem != null ? jobSystem : JobSystem.getDefault();
+    }
+
+    /**
+     * 获取字形，第一次使用时读取度量并光栅化，被图集淘汰的字形重新光栅化
+     * @param codepoint 码点
+     * @return 字形，字体中没有该码点时为null；图集放不下时page为-1，只能用于步进
+     */
+    private Glyph glyph(int codepoint) {
+        Glyph[] block = blocks[codepoint >> BLOCK_BITS];
+        Glyph glyph = block != null ? block[codepoint & (BLOCK_SIZE - 1)] : null;
+        if (glyph == null) {
+            glyph = load(codepoint);
+            if (glyph == null) {
+                return null;
+            }
+        }
+        if (glyph.hasBitmap()) {
+            if (glyph.page < 0) {
+                rasterize(glyph);
+            } else {
+                atlas.touch(glyph);
+            }
+        }
+        return glyph;
+    }
+
+    /**
+     * 读取字形度量
+     * @param codepoint 码点
+     * @return 字形，字体中没有该码点时为null
+     */
+    private Glyph load(int codepoint) {
+        if (missing.containsKey(codepoint)) {
+            return null;
+        }
+        int glyphIndex = stbtt_FindGlyphIndex(fontInfo, codepoint);
+        if (glyphIndex == 0) {
+            missing.put(codepoint, Boolean.TRUE);
+            return null;
+        }
+        Glyph glyph = new Glyph(codepoint, glyphIndex);
+        stbtt_GetGlyphHMetrics(fontInfo, glyphIndex, ix0, iy0);
+        glyph.xadvance = ix0[0] * scale;
+        stbtt_GetGlyphBitmapBox(fontInfo, glyphIndex, scale, scale, ix0, iy0, ix1, iy1);
+        glyph.xoff = ix0[0];
+        glyph.yoff = iy0[0];
+        glyph.width = ix1[0] - ix0[0];
+        glyph.height = iy1[0] - iy0[0];
+        if (mode == MODE_SDF && glyph.hasBitmap()) {
+            // 距离场比轮廓的包围盒向四周扩展SDF_PADDING像素，与stbtt_GetGlyphSDF一致
+            glyph.xoff -= SDF_PADDING;
+            glyph.yoff -= SDF_PADDING;
+            glyph.width += 2 * SDF_PADDING;
+            glyph.height += 2 * SDF_PADDING;
+        }
+
+        int b = codepoint >> BLOCK_BITS;
+        if (blocks[b] == null) {
+            blocks[b] = new Glyph[BLOCK_SIZE];
+        }
+        blocks[b][codepoint & (BLOCK_SIZE - 1)] = glyph;
+        glyphCount++;
+        return glyph;
+    }
+
+    /**
+     * 放入从缓存恢复的字形
+     * @param glyph 字形（度量必须已设置）
+     */
+    void restore(Glyph glyph) {
+        int b = glyph.codepoint >> BLOCK_BITS;
+        if (blocks[b] == null) {
+            blocks[b] = new Glyph[BLOCK_SIZE];
+        }
+        if (blocks[b][glyph.codepoint & (BLOCK_SIZE - 1)] == null) {
+            glyphCount++;
+        }
+        blocks[b][glyph.codepoint & (BLOCK_SIZE - 1)] = glyph;
+    }
+
+    /**
+     * 获取所有已读取度量的字形
+     * @return 按码点排序的字形列表
+     */
+    List<Glyph> glyphs() {
+        List<Glyph> result = new ArrayList<>(glyphCount);
+        for (Glyph[] block : blocks) {
+            if (block == null) continue;
+            for (Glyph glyph : block) {
+                if (glyph != null) {
+                    result.add(glyph);
+                }
             }
         }
+        return result;
+    }
+
+    /**
+     * 自上次加载或保存缓存以来是否光栅化过新的字形
+     * @return 是否需要重新保存缓存
+     */
+    boolean isCacheStale() {
+        return rasterizedCount != cachedRasterizedCount;
+    }
+
+    /**
+     * 记录当前状态已与磁盘缓存一致
+     */
+    void markCached() {
+        cachedRasterizedCount = rasterizedCount;
     }
-    
-    public void renderText(String text, float x, float y, float scale) {
-        glBindTexture(GL_TEXTURE_2D, textureId);
-        
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            CharInfo charInfo = charMap.get(c);
-            if (charInfo == null) continue;
-            
-            // 计算顶点坐标
-            float x0 = x + charInfo.xoff() * scale;
-            float y0 = y + charInfo.yoff() * scale;
-            float x1 = x0 + (charInfo.x1() - charInfo.x0()) * textureWidth * scale;
-            float y1 = y0 + (charInfo.y1() - charInfo.y0()) * textureHeight * scale;
-            
-            // 更新顶点缓冲区
-            vertexBuffer.clear();
-            
-            // 第一个三角形
-            // 左下
-            vertexBuffer.put(x0).put(y1).put(charInfo.x0()).put(charInfo.y1());
-            // 右下
-            vertexBuffer.put(x1).put(y1).put(charInfo.x1()).put(charInfo.y1());
-            // 右上
-            vertexBuffer.put(x1).put(y0).put(charInfo.x1()).put(charInfo.y0());
-            
-            // 第二个三角形
-            // 左下
-            vertexBuffer.put(x0).put(y1).put(charInfo.x0()).put(charInfo.y1());
-            // 右上
-            vertexBuffer.put(x1).put(y0).put(charInfo.x1()).put(charInfo.y0());
-            // 左上
-            vertexBuffer.put(x0).put(y0).put(charInfo.x0()).put(charInfo.y0());
-            
-            vertexBuffer.flip();
-            
-            // 更新VBO数据
-            glBufferSubData(GL_ARRAY_BUFFER, 0, vertexBuffer);
-            
-            // 绘制
-            glDrawArrays(GL_TRIANGLES, 0, 6);
-            
-            x += charInfo.xadvance() * scale;
-        }
-    }
-    
+
+    /**
+     * 在图集中分配区域并光栅化字形
+     * @param glyph 字形
+     */
+    private void rasterize(Glyph glyph) {
+        if (!atlas.allocate(glyph)) {
+            return;
+        }
+        render(glyph);
+        atlas.markDirty(glyph);
+        rasterizedCount++;
+    }
+
+    /**
+     * 把字形光栅化到它在图集页像素副本中的区域（只读字体数据、只写自己的区域，可以在多个线程上同时调用）
+     * @param glyph 已分配区域、像素副本已存在的字形
+     */
+    private void render(Glyph glyph) {
+        ByteBuffer pixels = atlas.pixels(glyph);
+        int pageSize = atlas.getPageSize();
+        int offset = atlas.offset(glyph);
+        if (mode == MODE_BITMAP) {
+            ByteBuffer target = pixels.slice(offset, glyph.height * pageSize);
+            stbtt_MakeGlyphBitmap(fontInfo, target, glyph.width, glyph.height, pageSize, scale, scale,
+                    glyph.glyphIndex);
+            return;
+        }
+
+        int[] w = new int[1], h = new int[1], xoff = new int[1], yoff = new int[1];
+        ByteBuffer sdf = stbtt_GetGlyphSDF(fontInfo, scale, glyph.glyphIndex, SDF_PADDING, (byte) SDF_ON_EDGE,
+                SDF_ON_EDGE / (float) SDF_PADDING, w, h, xoff, yoff);
+        if (sdf == null) {
+            return;
+        }
+        int width = Math.min(w[0], glyph.width);
+        int height = Math.min(h[0], glyph.height);
+        for (int row = 0; row < height; row++) {
+            pixels.put(offset + row * pageSize, sdf, row * w[0], width);
+        }
+        stbtt_FreeSDF(sdf);
+    }
+
+    /**
+     * 获取字形图集
+     * @return 图集
+     */
+    public GlyphAtlas getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * 设置并行光栅化使用的任务系统
+     * @param jobSystem 任务系统，null表示使用默认任务系统
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * 获取光栅化模式
+     * @return MODE_BITMAP或MODE_SDF
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * 获取字号
+     * @return 像素高度
+     */
+    public int getFontSize() {
+        return fontSize;
+    }
+
+    /**
+     * 获取字体数据的散列
+     * @return 散列值
+     */
+    public long getFontHash() {
+        return fontHash;
+    }
+
+    /**
+     * 获取已读取度量的字形数
+     * @return 字形数
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    /**
+     * 获取累计光栅化次数（包括被淘汰后重新光栅化）
+     * @return 次数
+     */
+    public int getRasterizedCount() {
+        return rasterizedCount;
+    }
+
     public void cleanup() {
-        glDeleteTextures(textureId);
-        MemoryUtil.memFree(vertexBuffer);
-    }
-    
-    private static class CharInfo {
-        private final float x0, y0, x1, y1;
-        private final float xoff, yoff, xadvance;
-        
-        public CharInfo(float x0, float y0, float x1, float y1, float xoff, float yoff, float xadvance) {
-            this.x0 = x0;
-            this.y0 = y0;
-            this.x1 = x1;
-            this.y1 = y1;
-            this.xoff = xoff;
-            this.yoff = yoff;
-            this.xadvance = xadvance;
-        }
-        
-        public float x0() { return x0; }
-        public float y0() { return y0; }
-        public float x1() { return x1; }
-        public float y1() { return y1; }
-        public float xoff() { return xoff; }
-        public float yoff() { return yoff; }
-        public float xadvance() { return xadvance; }
-    }
-} 
\ No newline at end of file
+        atlas.cleanup();
+        fontInfo.free();
+        MemoryUtil.memFree(ttfBuffer);
+    }
+}
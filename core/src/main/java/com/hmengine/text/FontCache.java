@@ -0,0 +1,312 @@
+package com.hmengine.text;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字体磁盘缓存
+ * 把字形度量、图集货架布局和各页像素写入一个二进制文件，文件名由字体数据散列、字号、图集页边长、光栅化模式和代数组成。
+ * 加载时用FileChannel.map映射代数最高的文件，页像素不复制，第一次上传纹理时直接从映射读取，
+ * 因此启动时不需要光栅化已缓存的字形。
+ * 映射在缓冲区被回收前一直有效，期间Windows不允许替换或删除该文件，所以保存时总是写入代数加一的新文件，
+ * 旧代数的文件能删除时才删除，删除失败的留到之后的保存中再删。
+ *
+ * 文件格式（小端）：
+ * 头部（40字节）：魔数、格式版本、字体散列、字号、页边长、页数、货架数、字形数、光栅化模式；
+ * 货架表（每项16字节）：页、y、高度、已占用宽度；
+ * 字形表（每项36字节）：码点、字形索引、xoff、yoff、宽、高、xadvance、货架序号（未驻留为-1）、x；
+ * 像素区（从4096对齐处开始）：每页pageSize * pageSize字节。
+ */
+public final class FontCache {
+    private static final int MAGIC = 0x43464D48; // "HMFC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int SHELF_BYTES = 16;
+    private static final int GLYPH_BYTES = 36;
+    private static final int PIXEL_ALIGNMENT = 4096;
+    private static final String EXTENSION = ".fontcache";
+
+    private FontCache() {
+    }
+
+    /**
+     * 获取字体对应的最新缓存文件
+     * @param font 字体
+     * @param directory 缓存目录
+     * @return 代数最高的缓存文件路径，没有缓存时返回null
+     */
+    public static Path file(Font font, Path directory) {
+        long latest = latestGeneration(font, directory);
+        return latest < 0 ? null : file(font, directory, latest);
+    }
+
+    private static Path file(Font font, Path directory, long generation) {
+        return directory.resolve(prefix(font) + generation + EXTENSION);
+    }
+
+    /**
+     * 文件名中代数之前的部分：字体数据散列、字号、图集页边长和光栅化模式
+     */
+    private static String prefix(Font font) {
+        return String.format("%016x_%d_%d%s.", font.getFontHash(), font.getFontSize(),
+                font.getAtlas().getPageSize(), font.getMode() == Font.MODE_SDF ? "_sdf" : "");
+    }
+
+    /**
+     * 最新的缓存文件代数，没有缓存时为-1
+     */
+    private static long latestGeneration(Font font, Path directory) {
+        long latest = -1;
+        for (long generation : generations(font, directory)) {
+            latest = Math.max(latest, generation);
+        }
+        return latest;
+    }
+
+    /**
+     * 列出目录中字体的所有缓存文件代数（目录不存在或无法读取时为空）
+     */
+    private static List<Long> generations(Font font, Path directory) {
+        List<Long> generations = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return generations;
+        }
+        String prefix = prefix(font);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long generation = Long.parseLong(name.substring(prefix.length(), name.length() - EXTENSION.length()));
+                    if (generation >= 0 && Files.isRegularFile(file)) {
+                        generations.add(generation);
+                    }
+                } catch (NumberFormatException e) {
+                    // 不是本类写入的文件
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("读取字体缓存目录失败: " + directory + " (" + e.getMessage() + ")");
+        }
+        return generations;
+    }
+
+    /**
+     * 从缓存目录恢复字体的字形和图集，必须在字体第一次排版之前调用
+     * @param font 字体
+     * @param directory 缓存目录
+     * @return 是否找到并恢复了有效的缓存（文件不存在、版本或参数不匹配、内容损坏时返回false，字体保持不变）
+     */
+    public static boolean load(Font font, Path directory) {
+        GlyphAtlas atlas = font.getAtlas();
+        if (font.getGlyphCount() != 0 || atlas.getPageCount() != 0) {
+            throw new IllegalStateException("字体已经使用过，无法再加载缓存");
+        }
+        Path file = file(font, directory);
+        if (file == null) {
+            return false;
+        }
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 关闭通道后映射仍然有效，直到缓冲区被回收
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            System.err.println("读取字体缓存失败: " + file + " (" + e.getMessage() + ")");
+            return false;
+        }
+        if (!validate(font, data)) {
+            System.err.println("字体缓存无效，将重新光栅化: " + file);
+            return false;
+        }
+
+        int pageSize = atlas.getPageSize();
+        int pageCount = data.getInt(24);
+        int shelfCount = data.getInt(28);
+        int glyphCount = data.getInt(32);
+        int pixelOffset = pixelOffset(shelfCount, glyphCount);
+        for (int page = 0; page < pageCount; page++) {
+            atlas.restorePage(data.slice(pixelOffset + page * pageSize * pageSize, pageSize * pageSize));
+        }
+        GlyphAtlas.Shelf[] shelves = new GlyphAtlas.Shelf[shelfCount];
+        for (int i = 0, p = HEADER_BYTES; i < shelfCount; i++, p += SHELF_BYTES) {
+            shelves[i] = atlas.restoreShelf(data.getInt(p), data.getInt(p + 4), data.getInt(p + 8),
+                    data.getInt(p + 12));
+        }
+        for (int i = 0, p = HEADER_BYTES + shelfCount * SHELF_BYTES; i < glyphCount; i++, p += GLYPH_BYTES) {
+            Glyph glyph = new Glyph(data.getInt(p), data.getInt(p + 4));
+            glyph.xoff = data.getFloat(p + 8);
+            glyph.yoff = data.getFloat(p + 12);
+            glyph.width = data.getInt(p + 16);
+            glyph.height = data.getInt(p + 20);
+            glyph.xadvance = data.getFloat(p + 24);
+            int shelf = data.getInt(p + 28);
+            if (shelf >= 0) {
+                atlas.restoreGlyph(glyph, shelves[shelf], data.getInt(p + 32));
+            }
+            font.restore(glyph);
+        }
+        font.markCached();
+        return true;
+    }
+
+    /**
+     * 检查头部和各表项，保证恢复时不会越界
+     */
+    private static boolean validate(Font font, ByteBuffer data) {
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != FORMAT_VERSION
+                || data.getLong(8) != font.getFontHash() || data.getInt(16) != font.getFontSize()
+                || data.getInt(36) != font.getMode()) {
+            return false;
+        }
+        GlyphAtlas atlas = font.getAtlas();
+        int pageSize = atlas.getPageSize();
+        int pageCount = data.getInt(24);
+        int shelfCount = data.getInt(28);
+        int glyphCount = data.getInt(32);
+        if (data.getInt(20) != pageSize || pageCount < 0 || pageCount > atlas.getMaxPages()
+                || shelfCount < 0 || glyphCount < 0
+                || (long) shelfCount * SHELF_BYTES + (long) glyphCount * GLYPH_BYTES > Integer.MAX_VALUE / 2) {
+            return false;
+        }
+        long expected = pixelOffset(shelfCount, glyphCount) + (long) pageCount * pageSize * pageSize;
+        if (data.capacity() != expected) {
+            return false;
+        }
+        int[] nextY = new int[pageCount];
+        for (int i = 0, p = HEADER_BYTES; i < shelfCount; i++, p += SHELF_BYTES) {
+            int page = data.getInt(p);
+            int y = data.getInt(p + 4);
+            int height = data.getInt(p + 8);
+            int x = data.getInt(p + 12);
+            if (page < 0 || page >= pageCount || y < nextY[page] || height <= 0 || y + height > pageSize
+                    || x < 0 || x > pageSize) {
+                return false;
+            }
+            nextY[page] = y + height;
+        }
+        for (int i = 0, p = HEADER_BYTES + shelfCount * SHELF_BYTES; i < glyphCount; i++, p += GLYPH_BYTES) {
+            int codepoint = data.getInt(p);
+            int width = data.getInt(p + 16);
+            int height = data.getInt(p + 20);
+            int shelf = data.getInt(p + 28);
+            int x = data.getInt(p + 32);
+            if (codepoint < 0 || codepoint > Character.MAX_CODE_POINT || width < 0 || height < 0
+                    || shelf < -1 || shelf >= shelfCount) {
+                return false;
+            }
+            if (shelf >= 0) {
+                int s = HEADER_BYTES + shelf * SHELF_BYTES;
+                if (height > data.getInt(s + 8) || x < 0 || x + width > data.getInt(s + 12)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把字体当前的字形和图集写入缓存目录
+     * 先写临时文件再改名为下一代的缓存文件，不替换当前可能仍被映射的文件，写入失败不影响旧缓存
+     * @param font 字体
+     * @param directory 缓存目录，不存在时创建
+     * @return 是否写入了文件（自上次加载或保存后没有新字形时不写）
+     */
+    public static boolean save(Font font, Path directory) {
+        if (!font.isCacheStale()) {
+            return false;
+        }
+        GlyphAtlas atlas = font.getAtlas();
+        int pageSize = atlas.getPageSize();
+        int pageCount = atlas.getPageCount();
+
+        List<GlyphAtlas.Shelf> shelves = new ArrayList<>();
+        Map<GlyphAtlas.Shelf, Integer> shelfIndex = new HashMap<>();
+        for (int page = 0; page < pageCount; page++) {
+            for (GlyphAtlas.Shelf shelf : atlas.shelves(page)) {
+                shelfIndex.put(shelf, shelves.size());
+                shelves.add(shelf);
+            }
+        }
+        List<Glyph> glyphs = font.glyphs();
+
+        ByteBuffer tables = ByteBuffer.allocate(pixelOffset(shelves.size(), glyphs.size()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        tables.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(font.getFontHash()).putInt(font.getFontSize())
+                .putInt(pageSize).putInt(pageCount).putInt(shelves.size()).putInt(glyphs.size()).putInt(font.getMode());
+        for (GlyphAtlas.Shelf shelf : shelves) {
+            tables.putInt(shelf.page.index).putInt(shelf.y).putInt(shelf.height).putInt(shelf.x);
+        }
+        for (Glyph glyph : glyphs) {
+            boolean resident = glyph.page >= 0;
+            tables.putInt(glyph.codepoint).putInt(glyph.glyphIndex).putFloat(glyph.xoff).putFloat(glyph.yoff)
+                    .putInt(glyph.width).putInt(glyph.height).putFloat(glyph.xadvance)
+                    .putInt(resident ? shelfIndex.get(glyph.shelf) : -1).putInt(resident ? glyph.x : 0);
+        }
+        tables.clear();
+
+        long generation = latestGeneration(font, directory) + 1;
+        Path file = file(font, directory, generation);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, tables);
+                for (int page = 0; page < pageCount; page++) {
+                    writeFully(channel, atlas.pagePixels(page).slice(0, pageSize * pageSize));
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("写入字体缓存失败: " + file + " (" + e.getMessage() + ")");
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件下次保存时会被覆盖
+            }
+            return false;
+        }
+        deleteOlder(font, directory, generation);
+        font.markCached();
+        return true;
+    }
+
+    /**
+     * 删除比给定代数旧的缓存文件，仍被映射而无法删除的文件（Windows）留到之后的保存中再删
+     */
+    private static void deleteOlder(Font font, Path directory, long generation) {
+        for (long older : generations(font, directory)) {
+            if (older < generation) {
+                try {
+                    Files.deleteIfExists(file(font, directory, older));
+                } catch (IOException ignored) {
+                    // 文件仍被映射
+                }
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 像素区的起始偏移，按4096字节对齐以便按页映射
+     */
+    private static int pixelOffset(int shelfCount, int glyphCount) {
+        int tablesEnd = HEADER_BYTES + shelfCount * SHELF_BYTES + glyphCount * GLYPH_BYTES;
+        return (tablesEnd + PIXEL_ALIGNMENT - 1) / PIXEL_ALIGNMENT * PIXEL_ALIGNMENT;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hmengine.text;
+
+/**
+ * 字形
+ * 度量信息在第一次使用时从字体读取并一直保留；位图只在驻留于图集时占用空间，
+ * 被图集淘汰后page为-1，下次使用时重新光栅化。
+ */
+class Glyph {
+    final int codepoint;
+    final int glyphIndex;
+
+    // 以基线为原点的位图偏移、位图尺寸和水平步进（像素）
+    float xoff;
+    float yoff;
+    int width;
+    int height;
+    float xadvance;
+
+    // 在图集中的位置，未驻留时page为-1
+    int page = -1;
+    int x;
+    int y;
+    float u0;
+    float v0;
+    float u1;
+    float v1;
+    GlyphAtlas.Shelf shelf;
+
+    Glyph(int codepoint, int glyphIndex) {
+        this.codepoint = codepoint;
+        this.glyphIndex = glyphIndex;
+    }
+
+    /**
+     * 是否有可见的位图（空格等字形只有步进）
+     * @return 是否有位图
+     */
+    boolean hasBitmap() {
+        return width > 0 && height > 0;
+    }
+}
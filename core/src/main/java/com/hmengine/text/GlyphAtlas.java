@@ -0,0 +1,454 @@
+package com.hmengine.text;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+
+/**
+ * 动态字形图集
+ * 由若干单通道纹理页组成，页在需要时才创建。每页用货架（shelf）方式装箱：同一行货架上的字形高度相近，
+ * 从左向右排列。每页在内存中保留一份像素副本，光栅化只写副本并记录脏矩形，
+ * upload()在GL线程上每页至多调用一次glTexSubImage2D。
+ * 所有页都放不下时淘汰最久未使用、本帧没有用过的货架，被淘汰的字形在下次使用时重新光栅化；
+ * 每次淘汰都会增加版本号，缓存了纹理坐标的常驻文本据此重新排版。
+ * 从磁盘缓存恢复的页直接引用映射的文件内容，第一次写入时才复制出像素副本。
+ */
+public class GlyphAtlas {
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+    public static final int DEFAULT_MAX_PAGES = 4;
+    // 字形之间留出的空白，避免线性过滤采样到相邻字形
+    private static final int PADDING = 1;
+
+    private final int pageSize;
+    private final int maxPages;
+    private final List<Page> pages = new ArrayList<>();
+
+    private long frame = 0;
+    private int version = 0;
+    private int evictionCount = 0;
+
+    /**
+     * 构造函数
+     * @param pageSize 纹理页边长（像素）
+     * @param maxPages 最大页数
+     */
+    public GlyphAtlas(int pageSize, int maxPages) {
+        if (pageSize < 64) {
+            throw new IllegalArgumentException("图集页边长至少为64: " + pageSize);
+        }
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("图集页数必须大于0: " + maxPages);
+        }
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * 开始新的一帧：之后使用的字形记为本帧使用，淘汰时尽量避开
+     */
+    public void nextFrame() {
+        frame++;
+    }
+
+    /**
+     * 为字形分配图集区域（字形的width和height必须已设置），成功后字形的page、x、y和纹理坐标有效
+     * @param glyph 字形
+     * @return 是否分配成功（字形比页还大，或者页数已达上限且除本帧用过的货架外没有放得下的货架时失败，
+     *         此时调用方应先绘制本帧已收集的字形，开始新的一帧后重试）
+     */
+    boolean allocate(Glyph glyph) {
+        int w = glyph.width + PADDING;
+        int h = glyph.height + PADDING;
+        if (w > pageSize || h > pageSize) {
+            return false;
+        }
+        Shelf shelf = findShelf(w, h);
+        if (shelf == null) {
+            shelf = openShelf(h);
+        }
+        if (shelf == null) {
+            shelf = evictShelf(h);
+        }
+        if (shelf == null) {
+            return false;
+        }
+
+        place(glyph, shelf, shelf.x);
+        shelf.x += w;
+        touch(glyph);
+        return true;
+    }
+
+    /**
+     * 把字形放到货架上的指定位置并计算纹理坐标
+     */
+    private void place(Glyph glyph, Shelf shelf, int x) {
+        glyph.page = shelf.page.index;
+        glyph.x = x;
+        glyph.y = shelf.y;
+        glyph.shelf = shelf;
+        glyph.u0 = glyph.x / (float) pageSize;
+        glyph.v0 = glyph.y / (float) pageSize;
+        glyph.u1 = (glyph.x + glyph.width) / (float) pageSize;
+        glyph.v1 = (glyph.y + glyph.height) / (float) pageSize;
+        shelf.glyphs.add(glyph);
+    }
+
+    /**
+     * 从缓存恢复一页，像素在第一次写入前直接引用给定的缓冲区（用于磁盘缓存）
+     * @param pixels 页的像素（pageSize * pageSize字节，在图集释放前必须保持有效）
+     */
+    void restorePage(ByteBuffer pixels) {
+        if (pages.size() >= maxPages) {
+            throw new IllegalStateException("图集页数已达上限: " + maxPages);
+        }
+        Page page = new Page(pages.size());
+        page.mapped = pixels;
+        pages.add(page);
+    }
+
+    /**
+     * 从缓存恢复一行货架（同一页的货架必须按y递增恢复）
+     * @param page 页序号
+     * @param y 货架顶部
+     * @param height 货架高度
+     * @param x 已占用的宽度
+     * @return 货架
+     */
+    Shelf restoreShelf(int page, int y, int height, int x) {
+        Page owner = pages.get(page);
+        Shelf shelf = new Shelf(owner, y, height);
+        shelf.x = x;
+        owner.shelves.add(shelf);
+        owner.nextShelfY = Math.max(owner.nextShelfY, y + height);
+        return shelf;
+    }
+
+    /**
+     * 把从缓存恢复的字形放回货架
+     * @param glyph 字形（width和height必须已设置）
+     * @param shelf 货架
+     * @param x 字形在货架上的x坐标
+     */
+    void restoreGlyph(Glyph glyph, Shelf shelf, int x) {
+        place(glyph, shelf, x);
+    }
+
+    /**
+     * 获取页的货架
+     * @param page 页序号
+     * @return 货架列表（按y递增）
+     */
+    List<Shelf> shelves(int page) {
+        return pages.get(page).shelves;
+    }
+
+    /**
+     * 获取页的当前像素（像素副本，或尚未写入过的缓存映射），前pageSize * pageSize字节有效
+     * @param page 页序号
+     * @return 像素
+     */
+    ByteBuffer pagePixels(int page) {
+        Page p = pages.get(page);
+        return p.pixels != null ? p.pixels : p.mapped;
+    }
+
+    /**
+     * 获取字形所在页的像素副本，写入位置见offset(glyph)，写完后调用markDirty
+     * @param glyph 已分配的字形
+     * @return 像素副本
+     */
+    ByteBuffer pixels(Glyph glyph) {
+        return pages.get(glyph.page).shadow();
+    }
+
+    /**
+     * 获取字形左上角在像素副本中的偏移
+     * @param glyph 已分配的字形
+     * @return 字节偏移
+     */
+    int offset(Glyph glyph) {
+        return glyph.y * pageSize + glyph.x;
+    }
+
+    /**
+     * 标记字形区域需要上传
+     * @param glyph 已写入像素的字形
+     */
+    void markDirty(Glyph glyph) {
+        pages.get(glyph.page).markDirty(glyph.x, glyph.y, glyph.width, glyph.height);
+    }
+
+    /**
+     * 记录字形在本帧被使用
+     * @param glyph 驻留的字形
+     */
+    void touch(Glyph glyph) {
+        glyph.shelf.lastUsed = frame;
+    }
+
+    /**
+     * 上传所有页的脏区域（GL线程），尚未创建纹理的页先创建纹理
+     */
+    public void upload() {
+        for (Page page : pages) {
+            page.upload();
+        }
+    }
+
+    /**
+     * 获取页的纹理
+     * @param page 页序号
+     * @return 纹理ID
+     */
+    public int getTexture(int page) {
+        return pages.get(page).texture;
+    }
+
+    /**
+     * 获取已创建的页数
+     * @return 页数
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * 获取最大页数
+     * @return 页数
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * 获取页边长
+     * @return 边长（像素）
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 获取版本号，每次淘汰字形都会增加
+     * @return 版本号
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 获取累计淘汰的货架数
+     * @return 淘汰数
+     */
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 在已有货架中找高度合适且剩余宽度足够的一个（高度最接近的优先，避免矮字形占用高货架）
+     */
+    private Shelf findShelf(int w, int h) {
+        Shelf best = null;
+        for (Page page : pages) {
+            for (Shelf shelf : page.shelves) {
+                if (shelf.height >= h && shelf.height <= h + h / 2 + 2 && shelf.x + w <= pageSize
+                        && (best == null || shelf.height < best.height)) {
+                    best = shelf;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 在某页剩余的空间中开一行新货架，所有页都满时创建新页
+     */
+    private Shelf openShelf(int h) {
+        for (Page page : pages) {
+            if (page.nextShelfY + h <= pageSize) {
+                return page.addShelf(h);
+            }
+        }
+        if (pages.size() < maxPages) {
+            Page page = new Page(pages.size());
+            pages.add(page);
+            return page.addShelf(h);
+        }
+        return null;
+    }
+
+    /**
+     * 淘汰最久未使用且放得下的货架并清空它。本帧用过的货架不淘汰：已加入批次、尚未绘制的字形还在引用它们的像素
+     * @return 货架，除本帧用过的货架外没有放得下的货架时为null
+     */
+    private Shelf evictShelf(int h) {
+        Shelf oldest = null;
+        for (Page page : pages) {
+            for (Shelf shelf : page.shelves) {
+                if (shelf.height >= h && shelf.lastUsed != frame
+                        && (oldest == null || shelf.lastUsed < oldest.lastUsed)) {
+                    oldest = shelf;
+                }
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        for (Glyph glyph : oldest.glyphs) {
+            glyph.page = -1;
+            glyph.shelf = null;
+        }
+        oldest.glyphs.clear();
+        oldest.x = 0;
+        oldest.page.clear(oldest.y, oldest.height);
+        version++;
+        evictionCount++;
+        return oldest;
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        for (Page page : pages) {
+            page.cleanup();
+        }
+        pages.clear();
+    }
+
+    /**
+     * 货架：页中的一行，字形从左向右排列
+     */
+    static class Shelf {
+        final Page page;
+        final int y;
+        final int height;
+        int x = 0;
+        long lastUsed;
+        final List<Glyph> glyphs = new ArrayList<>();
+
+        Shelf(Page page, int y, int height) {
+            this.page = page;
+            this.y = y;
+            this.height = height;
+        }
+    }
+
+    /**
+     * 图集页：一张纹理和它的像素副本
+     */
+    class Page {
+        final int index;
+        // 像素副本，第一次写入时分配。末尾多留一行，stb按行距写位图时最后一行不会越界
+        ByteBuffer pixels;
+        // 从缓存恢复的像素，分配副本后不再引用
+        ByteBuffer mapped;
+        final List<Shelf> shelves = new ArrayList<>();
+        int nextShelfY = 0;
+        int texture = 0;
+
+        // 脏矩形，dirtyX0 > dirtyX1表示没有需要上传的区域
+        int dirtyX0 = Integer.MAX_VALUE;
+        int dirtyY0 = Integer.MAX_VALUE;
+        int dirtyX1 = -1;
+        int dirtyY1 = -1;
+
+        Page(int index) {
+            this.index = index;
+        }
+
+        Shelf addShelf(int height) {
+            Shelf shelf = new Shelf(this, nextShelfY, height);
+            nextShelfY += height;
+            shelves.add(shelf);
+            return shelf;
+        }
+
+        /**
+         * 获取像素副本，没有时分配并复制缓存的像素
+         */
+        ByteBuffer shadow() {
+            if (pixels == null) {
+                pixels = MemoryUtil.memCalloc(pageSize * (pageSize + 1));
+                if (mapped != null) {
+                    MemoryUtil.memCopy(mapped.slice(0, pageSize * pageSize), pixels);
+                    mapped = null;
+                }
+            }
+            return pixels;
+        }
+
+        void markDirty(int x, int y, int w, int h) {
+            dirtyX0 = Math.min(dirtyX0, x);
+            dirtyY0 = Math.min(dirtyY0, y);
+            dirtyX1 = Math.max(dirtyX1, x + w);
+            dirtyY1 = Math.max(dirtyY1, y + h);
+        }
+
+        /**
+         * 清空若干行像素
+         */
+        void clear(int y, int height) {
+            int end = Math.min(pageSize, y + height);
+            ByteBuffer pixels = shadow();
+            for (int i = y * pageSize; i < end * pageSize; i++) {
+                pixels.put(i, (byte) 0);
+            }
+            markDirty(0, y, pageSize, end - y);
+        }
+
+        void upload() {
+            if (texture == 0) {
+                // 恢复后没有改动过的页直接从映射的缓存上传
+                ByteBuffer source = pixels != null ? pixels : mapped != null ? mapped : shadow();
+                texture = glGenTextures();
+                glBindTexture(GL_TEXTURE_2D, texture);
+                glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+                glTexImage2D(GL_TEXTURE_2D, 0, GL_RED, pageSize, pageSize, 0, GL_RED, GL_UNSIGNED_BYTE, source);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+                glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+                glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+                resetDirty();
+            }
+            if (dirtyX0 >= dirtyX1) {
+                return;
+            }
+            // 只上传脏矩形：按副本的行宽跳过矩形外的像素
+            glBindTexture(GL_TEXTURE_2D, texture);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, pageSize);
+            glTexSubImage2D(GL_TEXTURE_2D, 0, dirtyX0, dirtyY0, dirtyX1 - dirtyX0, dirtyY1 - dirtyY0,
+                    GL_RED, GL_UNSIGNED_BYTE, MemoryUtil.memAddress(pixels) + (long) dirtyY0 * pageSize + dirtyX0);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+            resetDirty();
+        }
+
+        void resetDirty() {
+            dirtyX0 = Integer.MAX_VALUE;
+            dirtyY0 = Integer.MAX_VALUE;
+            dirtyX1 = -1;
+            dirtyY1 = -1;
+        }
+
+        void cleanup() {
+            if (texture != 0) {
+                glDeleteTextures(texture);
+                texture = 0;
+            }
+            if (pixels != null) {
+                MemoryUtil.memFree(pixels);
+                pixels = null;
+            }
+            mapped = null;
+        }
+    }
+}
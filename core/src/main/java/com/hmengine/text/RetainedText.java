@@ -0,0 +1,59 @@
+package com.hmengine.text;
+
+/**
+ * 常驻文本
+ * 保存一段文本的参数和排版后的字形顶点所在的GPU缓冲区。参数不变时每帧只需绑定VAO绘制，
+ * 参数变化或被LRU淘汰后标记为脏，下次绘制前重新排版上传。
+ */
+class RetainedText {
+    String text;
+    float x;
+    float y;
+    float scale;
+    float r;
+    float g;
+    float b;
+
+    // GPU资源，未驻留时为0
+    int vao;
+    int vbo;
+    // 顶点缓冲区能容纳的字形数
+    int capacity;
+    int glyphCount;
+    // 每个图集页的字形数，字形在顶点缓冲区中按页序连续存放
+    int[] pageGlyphs = new int[0];
+    // 排版时的图集版本
+    int atlasVersion;
+
+    boolean dirty = true;
+    // 最近一次绘制的序号，用于LRU淘汰
+    long lastUsed;
+
+    /**
+     * 更新参数
+     * @return 参数是否发生变化
+     */
+    boolean set(String text, float x, float y, float scale, float r, float g, float b) {
+        if (text.equals(this.text) && x == this.x && y == this.y && scale == this.scale
+                && r == this.r && g == this.g && b == this.b) {
+            return false;
+        }
+        this.text = text;
+        this.x = x;
+        this.y = y;
+        this.scale = scale;
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * 是否持有GPU缓冲区
+     * @return 是否驻留
+     */
+    boolean isResident() {
+        return vao != 0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.hmengine.text;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 字形批次
+ * 收集一个字符串或一整帧文本的字形四边形，按字形所在的图集页分组，每页一次索引绘制。
+ * 每个字形4个顶点（左上、右上、右下、左下），每个顶点7个float：位置、纹理坐标和颜色。
+ */
+public class TextBatch {
+    public static final int VERTEX_FLOATS = 7;
+    public static final int GLYPH_FLOATS = 4 * VERTEX_FLOATS;
+
+    private FloatBuffer[] pages = new FloatBuffer[0];
+    private int[] pageGlyphs = new int[0];
+    private int glyphCount = 0;
+
+    /**
+     * 清空批次
+     */
+    public void clear() {
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null) {
+                pages[i].clear();
+            }
+            pageGlyphs[i] = 0;
+        }
+        glyphCount = 0;
+    }
+
+    /**
+     * 添加一个字形四边形
+     * @param page 图集页
+     * @param x0 左边界
+     * @param y0 上边界
+     * @param x1 右边界
+     * @param y1 下边界
+     * @param u0 左纹理坐标
+     * @param v0 上纹理坐标
+     * @param u1 右纹理坐标
+     * @param v1 下纹理坐标
+     * @param r 红色
+     * @param g 绿色
+     * @param b 蓝色
+     */
+    public void addGlyph(int page, float x0, float y0, float x1, float y1, float u0, float v0, float u1, float v1,
+                         float r, float g, float b) {
+        if (page >= pages.length) {
+            pages = Arrays.copyOf(pages, page + 1);
+            pageGlyphs = Arrays.copyOf(pageGlyphs, page + 1);
+        }
+        FloatBuffer vertices = pages[page];
+        if (vertices == null) {
+            vertices = MemoryUtil.memAllocFloat(64 * GLYPH_FLOATS);
+            pages[page] = vertices;
+        } else if (vertices.remaining() < GLYPH_FLOATS) {
+            vertices = MemoryUtil.memRealloc(vertices, vertices.capacity() * 2);
+            pages[page] = vertices;
+        }
+        vertices.put(x0).put(y0).put(u0).put(v0).put(r).put(g).put(b);
+        vertices.put(x1).put(y0).put(u1).put(v0).put(r).put(g).put(b);
+        vertices.put(x1).put(y1).put(u1).put(v1).put(r).put(g).put(b);
+        vertices.put(x0).put(y1).put(u0).put(v1).put(r).put(g).put(b);
+        pageGlyphs[page]++;
+        glyphCount++;
+    }
+
+    /**
+     * 获取字形总数
+     * @return 字形数量
+     */
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    /**
+     * 获取可能含有字形的页数（页序号小于该值）
+     * @return 页数
+     */
+    public int getPageCount() {
+        return pages.length;
+    }
+
+    /**
+     * 获取某页的字形数
+     * @param page 图集页
+     * @return 字形数量
+     */
+    public int getGlyphCount(int page) {
+        return page < pageGlyphs.length ? pageGlyphs[page] : 0;
+    }
+
+    /**
+     * 获取某页已写入的顶点数据（不改变批次本身的position）
+     * @param page 图集页（必须含有字形）
+     * @return 顶点数据
+     */
+    public FloatBuffer getVertices(int page) {
+        return pages[page].slice(0, pageGlyphs[page] * GLYPH_FLOATS);
+    }
+
+    /**
+     * 释放资源
+     */
+    public void cleanup() {
+        for (FloatBuffer vertices : pages) {
+            if (vertices != null) {
+                MemoryUtil.memFree(vertices);
+            }
+        }
+        pages = new FloatBuffer[0];
+        pageGlyphs = new int[0];
+    }
+}
@@ -1,29 +1,94 @@
 package com.hmengine.text;
 
+import com.hmengine.ecs.Entity;
+import com.hmengine.ecs.EntityRegistry;
 import org.joml.Matrix4f;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
 
+import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
 public class TextRenderer {
     private Font font;
+    // 字体磁盘缓存目录，为null时不使用缓存
+    private final Path cacheDirectory;
     private int shaderProgram;
     private Matrix4f projectionMatrix;
     private int projectionMatrixLocation;
     private int vao;
     private int vbo;
+    private int ebo;
+
+    // 顶点缓冲区和索引缓冲区当前能容纳的字形数，不够时按两倍增长
+    private int vertexCapacity = 0;
+    private int indexCapacity = 0;
+
+    // 字形批次：begin和flush之间的所有文本一次上传、一次绘制
+    private final TextBatch batch = new TextBatch();
+    private boolean batching = false;
+
+    // 常驻文本：句柄由注册表分配，字形顶点保存在各自的GPU缓冲区中
+    private final EntityRegistry textHandles = new EntityRegistry();
+    private RetainedText[] retained = new RetainedText[16];
+    // 常驻文本的字形总数上限，超过时淘汰最久未绘制的文本
+    private int retainedGlyphLimit = 16384;
+    private int retainedGlyphs = 0;
+    private long useCounter = 0;
+    private int rebuildCount = 0;
+    // begin和flush之间绘制的常驻文本，在flush时与批次一起绘制
+    private int[] pendingTexts = new int[16];
+    private int pendingCount = 0;
+    // 每页字形数的临时数组
+    private int[] pageCounts = new int[1];
 
     public TextRenderer(String fontFile, int fontSize, int width, int height, String vertexShaderPath,
             String fragmentShaderPath) {
-        this.font = new Font(fontFile, fontSize);
+        this(fontFile, fontSize, width, height, vertexShaderPath, fragmentShaderPath, null);
+    }
+
+    /**
+     * 构造函数
+     * @param fontFile 字体文件（类路径资源）
+     * @param fontSize 字号（像素高度）
+     * @param width 视口宽度
+     * @param height 视口高度
+     * @param vertexShaderPath 顶点着色器路径
+     * @param fragmentShaderPath 片段着色器路径
+     * @param cacheDirectory 字体缓存目录：创建时从中恢复已光栅化的字形，cleanup时写回新增的字形；为null时不使用缓存
+     */
+    public TextRenderer(String fontFile, int fontSize, int width, int height, String vertexShaderPath,
+            String fragmentShaderPath, Path cacheDirectory) {
+        this(new Font(fontFile, fontSize), width, height, vertexShaderPath, fragmentShaderPath, cacheDirectory);
+    }
+
+    /**
+     * 构造函数
+     * @param font 字体，SDF模式的字体需要配合SDF片段着色器（text_sdf.frag）使用
+     * @param width 视口宽度
+     * @param height 视口高度
+     * @param vertexShaderPath 顶点着色器路径
+     * @param fragmentShaderPath 片段着色器路径
+     * @param cacheDirectory 字体缓存目录：创建时从中恢复已光栅化的字形，cleanup时写回新增的字形；为null时不使用缓存
+     */
+    public TextRenderer(Font font, int width, int height, String vertexShaderPath, String fragmentShaderPath,
+            Path cacheDirectory) {
+        this.font = font;
+        this.cacheDirectory = cacheDirectory;
+        if (cacheDirectory != null) {
+            FontCache.load(font, cacheDirectory);
+        }
         initShaders(vertexShaderPath, fragmentShaderPath);
         initProjectionMatrix(width, height);
         initBuffers();
@@ -71,6 +136,8 @@ public class TextRenderer {
         // 删除着色器
         glDeleteShader(vertexShader);
         glDeleteShader(fragmentShader);
+
+        projectionMatrixLocation = glGetUniformLocation(shaderProgram, "projection");
     }
 
     private void initBuffers() {
@@ -78,32 +145,164 @@ public class TextRenderer {
         vao = glGenVertexArrays();
         glBindVertexArray(vao);
 
-        // 创建VBO
+        // 创建VBO，存储在第一次绘制时按字形数量分配
         vbo = glGenBuffers();
         glBindBuffer(GL_ARRAY_BUFFER, vbo);
 
-        // 分配6个顶点（2个三角形）的空间
-        glBufferData(GL_ARRAY_BUFFER, 6 * 4 * Float.BYTES, GL_DYNAMIC_DRAW);
+        setupAttributes();
 
-        // 设置顶点属性
-        // 位置属性
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 4 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
-
-        // 纹理坐标属性
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 4 * Float.BYTES, 2 * Float.BYTES);
-        glEnableVertexAttribArray(1);
+        // 索引缓冲区绑定在VAO上，所有字形共用同一组四边形索引
+        ebo = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
 
         // 解绑
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * 设置字形顶点属性（VAO和VBO必须已绑定）：位置、纹理坐标和颜色
+     */
+    private void setupAttributes() {
+        int stride = TextBatch.VERTEX_FLOATS * Float.BYTES;
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, stride, 0);
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 2 * Float.BYTES);
+        glEnableVertexAttribArray(1);
+        glVertexAttribPointer(2, 3, GL_FLOAT, false, stride, 4 * Float.BYTES);
+        glEnableVertexAttribArray(2);
+    }
+
+    /**
+     * 确保索引缓冲区至少能绘制glyphs个字形（VAO必须已绑定）
+     * @param glyphs 字形数
+     */
+    private void ensureIndexCapacity(int glyphs) {
+        if (glyphs <= indexCapacity) {
+            return;
+        }
+        indexCapacity = Math.max(glyphs, Math.max(64, indexCapacity * 2));
+        IntBuffer indices = MemoryUtil.memAllocInt(indexCapacity * 6);
+        for (int i = 0; i < indexCapacity; i++) {
+            int v = i * 4;
+            indices.put(v).put(v + 1).put(v + 2).put(v).put(v + 2).put(v + 3);
+        }
+        indices.flip();
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        MemoryUtil.memFree(indices);
     }
 
     private void initProjectionMatrix(int width, int height) {
         projectionMatrix = new Matrix4f().ortho(0.0f, width, height, 0.0f, -1.0f, 1.0f);
     }
 
-    public void renderText(String text, float x, float y, float scale, float[] color) {
+    /**
+     * 开始收集文本，之后的renderText和addText都写入同一个批次，直到flush时一次绘制
+     */
+    public void begin() {
+        font.getAtlas().nextFrame();
+        batch.clear();
+        batching = true;
+    }
+
+    /**
+     * 把文本加入当前批次，图集放不下新字形时先绘制批次中已有的字形再继续
+     * @param text 文本
+     * @param x 基线起点x
+     * @param y 基线起点y
+     * @param scale 缩放
+     * @param color 颜色（RGB）
+     */
+    public void addText(String text, float x, float y, float scale, float[] color) {
+        if (!font.prepare(text) && batching && batch.getGlyphCount() > 0) {
+            // 图集中只剩本帧用过的货架：先绘制已收集的字形，新的一帧里这些货架可以被淘汰
+            flush();
+            begin();
+            font.prepare(text);
+        }
+        font.appendText(batch, text, x, y, scale, color[0], color[1], color[2]);
+    }
+
+    /**
+     * 上传并绘制当前批次中的所有字形（一次缓冲区分配，每个图集页一次索引绘制），再绘制批次期间请求的常驻文本
+     */
+    public void flush() {
+        batching = false;
+        int glyphs = batch.getGlyphCount();
+        if (glyphs == 0 && pendingCount == 0) {
+            return;
+        }
+        beginDraw();
+        if (glyphs > 0) {
+            glBindVertexArray(vao);
+            ensureIndexCapacity(glyphs);
+
+            // 上传本批次的顶点，容量不够时按两倍增长，每次都重新分配存储以免等待GPU读完上一批
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            if (glyphs > vertexCapacity) {
+                vertexCapacity = Math.max(glyphs, Math.max(64, vertexCapacity * 2));
+            }
+            glBufferData(GL_ARRAY_BUFFER, (long) vertexCapacity * TextBatch.GLYPH_FLOATS * Float.BYTES, GL_STREAM_DRAW);
+            drawRanges(uploadPages(batch));
+            batch.clear();
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            // 期间可能已被释放
+            if (textHandles.isAlive(pendingTexts[i])) {
+                drawRetained(retained[Entity.index(pendingTexts[i])]);
+            }
+        }
+        pendingCount = 0;
+        endDraw();
+    }
+
+    /**
+     * 把批次的顶点按页序依次写入当前绑定的顶点缓冲区
+     * @param source 字形批次
+     * @return 每页的字形数（复用的数组，长度可能大于页数，多出的部分为0）
+     */
+    private int[] uploadPages(TextBatch source) {
+        if (pageCounts.length < source.getPageCount()) {
+            pageCounts = new int[source.getPageCount()];
+        }
+        Arrays.fill(pageCounts, 0);
+        int first = 0;
+        for (int page = 0; page < source.getPageCount(); page++) {
+            int count = source.getGlyphCount(page);
+            pageCounts[page] = count;
+            if (count > 0) {
+                glBufferSubData(GL_ARRAY_BUFFER, (long) first * TextBatch.GLYPH_FLOATS * Float.BYTES,
+                        source.getVertices(page));
+                first += count;
+            }
+        }
+        return pageCounts;
+    }
+
+    /**
+     * 按页绑定图集纹理并绘制连续存放的字形（VAO必须已绑定）。
+     * 索引缓冲区中的索引是绝对的，从第k个字形开始绘制只需偏移索引数据，不需要基准顶点
+     * @param pageGlyphs 每页的字形数，字形按页序连续存放
+     */
+    private void drawRanges(int[] pageGlyphs) {
+        GlyphAtlas atlas = font.getAtlas();
+        int first = 0;
+        for (int page = 0; page < pageGlyphs.length; page++) {
+            int count = pageGlyphs[page];
+            if (count == 0) {
+                continue;
+            }
+            glBindTexture(GL_TEXTURE_2D, atlas.getTexture(page));
+            glDrawElements(GL_TRIANGLES, count * 6, GL_UNSIGNED_INT, (long) first * 6 * Integer.BYTES);
+            first += count;
+        }
+    }
+
+    /**
+     * 设置着色器、投影矩阵和混合，并上传图集中新光栅化的字形
+     */
+    private void beginDraw() {
+        font.getAtlas().upload();
         GL20.glUseProgram(shaderProgram);
 
         // 设置投影矩阵
@@ -113,21 +312,15 @@ public class TextRenderer {
             GL20.glUniformMatrix4fv(projectionMatrixLocation, false, matrixBuffer);
         }
 
-        // 设置文本颜色
-        int textColorLocation = GL20.glGetUniformLocation(shaderProgram, "textColor");
-        GL20.glUniform3f(textColorLocation, color[0], color[1], color[2]);
-
         // 启用混合
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+    }
 
-        // 绑定VAO和VBO
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-
-        // 渲染文本
-        font.renderText(text, x, y, scale);
-
+    /**
+     * 恢复绘制前的状态
+     */
+    private void endDraw() {
         // 解绑
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         glBindVertexArray(0);
@@ -138,13 +331,271 @@ public class TextRenderer {
         GL20.glUseProgram(0);
     }
 
+    /**
+     * 创建常驻文本，排版结果保存在GPU缓冲区中，参数不变时重复绘制不再排版和上传
+     * @param text 文本
+     * @param x 基线起点x
+     * @param y 基线起点y
+     * @param scale 缩放
+     * @param color 颜色（RGB）
+     * @return 文本句柄
+     */
+    public int createText(String text, float x, float y, float scale, float[] color) {
+        int handle = textHandles.create();
+        int slot = Entity.index(handle);
+        if (slot >= retained.length) {
+            retained = Arrays.copyOf(retained, Math.max(slot + 1, retained.length * 2));
+        }
+        RetainedText entry = new RetainedText();
+        entry.set(text, x, y, scale, color[0], color[1], color[2]);
+        retained[slot] = entry;
+        return handle;
+    }
+
+    /**
+     * 更新常驻文本，只有文本、位置、缩放或颜色确实变化时才会在下次绘制前重新排版
+     * @param handle 文本句柄
+     * @param text 文本
+     * @param x 基线起点x
+     * @param y 基线起点y
+     * @param scale 缩放
+     * @param color 颜色（RGB）
+     * @return 参数是否发生变化
+     */
+    public boolean updateText(int handle, String text, float x, float y, float scale, float[] color) {
+        return retained(handle).set(text, x, y, scale, color[0], color[1], color[2]);
+    }
+
+    /**
+     * 绘制常驻文本：在begin和flush之间调用时随批次在flush时绘制，否则立即绘制
+     * @param handle 文本句柄
+     */
+    public void drawText(int handle) {
+        RetainedText entry = retained(handle);
+        if (batching) {
+            if (pendingCount == pendingTexts.length) {
+                pendingTexts = Arrays.copyOf(pendingTexts, pendingCount * 2);
+            }
+            pendingTexts[pendingCount++] = handle;
+            return;
+        }
+        beginDraw();
+        drawRetained(entry);
+        endDraw();
+    }
+
+    /**
+     * 释放常驻文本
+     * @param handle 文本句柄
+     * @return 句柄是否有效
+     */
+    public boolean releaseText(int handle) {
+        if (!textHandles.isAlive(handle)) {
+            return false;
+        }
+        int slot = Entity.index(handle);
+        evict(retained[slot]);
+        retained[slot] = null;
+        textHandles.destroy(handle);
+        return true;
+    }
+
+    /**
+     * 判断常驻文本句柄是否有效
+     * @param handle 文本句柄
+     * @return 是否有效
+     */
+    public boolean isText(int handle) {
+        return textHandles.isAlive(handle);
+    }
+
+    private RetainedText retained(int handle) {
+        if (!textHandles.isAlive(handle)) {
+            throw new IllegalArgumentException("无效的文本句柄: " + handle);
+        }
+        return retained[Entity.index(handle)];
+    }
+
+    /**
+     * 绘制一个常驻文本，需要时先重新排版上传（着色器和纹理已设置）
+     * @param entry 常驻文本
+     */
+    private void drawRetained(RetainedText entry) {
+        entry.lastUsed = ++useCounter;
+        GlyphAtlas atlas = font.getAtlas();
+        // 图集淘汰过字形时，缓存的纹理坐标可能已经失效
+        if (entry.dirty || !entry.isResident() || entry.atlasVersion != atlas.getVersion()) {
+            rebuild(entry);
+            atlas.upload();
+        }
+        if (entry.glyphCount == 0) {
+            return;
+        }
+        glBindVertexArray(entry.vao);
+        drawRanges(entry.pageGlyphs);
+    }
+
+    /**
+     * 重新排版常驻文本并上传到它的顶点缓冲区，字形总数超过上限时先淘汰最久未绘制的文本
+     * @param entry 常驻文本
+     */
+    private void rebuild(RetainedText entry) {
+        batch.clear();
+        int version = font.getAtlas().getVersion();
+        font.appendText(batch, entry.text, entry.x, entry.y, entry.scale, entry.r, entry.g, entry.b);
+        int glyphs = batch.getGlyphCount();
+        retainedGlyphs -= entry.glyphCount;
+        entry.glyphCount = 0;
+        while (retainedGlyphs + glyphs > retainedGlyphLimit && evictLeastRecent(entry)) {
+            // 继续淘汰直到放得下，或者只剩当前文本
+        }
+
+        if (!entry.isResident()) {
+            entry.vao = glGenVertexArrays();
+            entry.vbo = glGenBuffers();
+            glBindVertexArray(entry.vao);
+            glBindBuffer(GL_ARRAY_BUFFER, entry.vbo);
+            setupAttributes();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+            entry.capacity = 0;
+        } else {
+            glBindVertexArray(entry.vao);
+            glBindBuffer(GL_ARRAY_BUFFER, entry.vbo);
+        }
+        ensureIndexCapacity(glyphs);
+        if (glyphs > entry.capacity) {
+            entry.capacity = glyphs;
+            glBufferData(GL_ARRAY_BUFFER, (long) glyphs * TextBatch.GLYPH_FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+        }
+        entry.pageGlyphs = Arrays.copyOf(uploadPages(batch), batch.getPageCount());
+        batch.clear();
+
+        entry.glyphCount = glyphs;
+        // 排版过程中自己触发的淘汰可能让本文本先排的字形失效，此时下次绘制再排一次
+        entry.dirty = version != font.getAtlas().getVersion();
+        entry.atlasVersion = font.getAtlas().getVersion();
+        retainedGlyphs += glyphs;
+        rebuildCount++;
+    }
+
+    /**
+     * 淘汰最久未绘制的驻留文本（不包括keep）
+     * @param keep 不能淘汰的文本
+     * @return 是否淘汰了文本
+     */
+    private boolean evictLeastRecent(RetainedText keep) {
+        RetainedText oldest = null;
+        for (RetainedText entry : retained) {
+            if (entry != null && entry != keep && entry.isResident()
+                    && (oldest == null || entry.lastUsed < oldest.lastUsed)) {
+                oldest = entry;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        evict(oldest);
+        return true;
+    }
+
+    /**
+     * 释放文本的GPU缓冲区，文本保持有效，下次绘制时重新排版
+     * @param entry 常驻文本
+     */
+    private void evict(RetainedText entry) {
+        if (!entry.isResident()) {
+            return;
+        }
+        glDeleteVertexArrays(entry.vao);
+        glDeleteBuffers(entry.vbo);
+        entry.vao = 0;
+        entry.vbo = 0;
+        entry.capacity = 0;
+        retainedGlyphs -= entry.glyphCount;
+        entry.glyphCount = 0;
+        entry.dirty = true;
+    }
+
+    /**
+     * 设置常驻文本的字形总数上限
+     * @param retainedGlyphLimit 字形数
+     */
+    public void setRetainedGlyphLimit(int retainedGlyphLimit) {
+        if (retainedGlyphLimit < 1) {
+            throw new IllegalArgumentException("字形上限必须大于0: " + retainedGlyphLimit);
+        }
+        this.retainedGlyphLimit = retainedGlyphLimit;
+    }
+
+    /**
+     * 获取常驻文本的字形总数上限
+     * @return 字形数
+     */
+    public int getRetainedGlyphLimit() {
+        return retainedGlyphLimit;
+    }
+
+    /**
+     * 获取当前驻留在GPU缓冲区中的字形总数
+     * @return 字形数
+     */
+    public int getRetainedGlyphCount() {
+        return retainedGlyphs;
+    }
+
+    /**
+     * 获取常驻文本累计重新排版的次数，文本不变时不会增长
+     * @return 次数
+     */
+    public int getRebuildCount() {
+        return rebuildCount;
+    }
+
+    /**
+     * 渲染文本：在begin和flush之间调用时加入批次，否则整段文本立即以一次绘制完成
+     * @param text 文本
+     * @param x 基线起点x
+     * @param y 基线起点y
+     * @param scale 缩放
+     * @param color 颜色（RGB）
+     */
+    public void renderText(String text, float x, float y, float scale, float[] color) {
+        if (batching) {
+            addText(text, x, y, scale, color);
+            return;
+        }
+        begin();
+        addText(text, x, y, scale, color);
+        flush();
+    }
+
     public void cleanup() {
+        for (int i = 0; i < retained.length; i++) {
+            if (retained[i] != null) {
+                evict(retained[i]);
+                retained[i] = null;
+            }
+        }
+        textHandles.clear();
+        if (cacheDirectory != null) {
+            FontCache.save(font, cacheDirectory);
+        }
         font.cleanup();
         glDeleteVertexArrays(vao);
         glDeleteBuffers(vbo);
+        glDeleteBuffers(ebo);
+        batch.cleanup();
         GL20.glDeleteProgram(shaderProgram);
     }
 
+    /**
+     * 获取字体
+     * @return 字体
+     */
+    public Font getFont() {
+        return font;
+    }
+
     public int getShaderProgram() {
         return shaderProgram;
     }
@@ -0,0 +1,95 @@
+import com.hmengine.Camera;
+import com.hmengine.ecs.EntityWorld;
+import com.hmengine.ecs.TransformStore;
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.geometry.MeshData;
+import com.hmengine.render.FrustumCuller;
+
+/**
+ * 实体存储基准测试
+ * 同样数量的物体每帧修改变换、更新世界矩阵并做视锥体剔除，分别用Mesh对象和EntityWorld的SoA存储实现，
+ * 输出平移和旋转两种负载下的每帧耗时。不需要OpenGL上下文，可直接运行：java EcsBenchmark [物体数量] [帧数]
+ */
+public class EcsBenchmark {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        Camera camera = new Camera(16.0f / 9.0f);
+        camera.setZoom(0.05f);
+        int side = (int) Math.ceil(Math.sqrt(count));
+        MeshData hexagon = Geometry.createHexagon().getMeshData();
+
+        // 对象方式：每个物体一个Mesh
+        Mesh[] meshes = new Mesh[count];
+        for (int i = 0; i < count; i++) {
+            Mesh mesh = new Mesh(hexagon);
+            mesh.setPosition((i % side) - side / 2.0f, (i / side) - side / 2.0f, 0.0f);
+            mesh.setScale(0.4f, 0.4f, 1.0f);
+            meshes[i] = mesh;
+        }
+        FrustumCuller culler = new FrustumCuller();
+        int[] meshVisible = new int[2];
+        for (int rotate = 0; rotate < 2; rotate++) {
+            for (int pass = 0; pass < 2; pass++) {
+                long start = System.nanoTime();
+                for (int f = 0; f < frames; f++) {
+                    culler.clear();
+                    for (int i = 0; i < count; i++) {
+                        Mesh mesh = meshes[i];
+                        if (rotate == 1) {
+                            mesh.setRotation(0.0f, 0.0f, f * 0.01f + i * 1e-5f);
+                        } else {
+                            mesh.setPosition((i % side) - side / 2.0f + (f & 1) * 0.01f, (i / side) - side / 2.0f, 0.0f);
+                        }
+                        mesh.updateModelMatrix();
+                        culler.add(mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldZ(), mesh.getWorldBoundingRadius());
+                    }
+                    meshVisible[rotate] = culler.cull(camera);
+                }
+                report(pass, rotate, "Mesh对象", count, frames, System.nanoTime() - start, meshVisible[rotate]);
+            }
+        }
+        meshes = null;
+
+        // SoA方式：EntityWorld
+        EntityWorld world = new EntityWorld();
+        for (int i = 0; i < count; i++) {
+            world.createSprite(hexagon, (i % side) - side / 2.0f, (i / side) - side / 2.0f, 0.0f, 0.4f, 0.4f,
+                    1.0f, 1.0f, 1.0f, 1.0f);
+        }
+        TransformStore transforms = world.getTransforms();
+        boolean same = true;
+        for (int rotate = 0; rotate < 2; rotate++) {
+            int visible = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                long start = System.nanoTime();
+                for (int f = 0; f < frames; f++) {
+                    for (int i = 0; i < count; i++) {
+                        if (rotate == 1) {
+                            transforms.setRotationAt(i, f * 0.01f + i * 1e-5f);
+                        } else {
+                            transforms.setPositionAt(i, (i % side) - side / 2.0f + (f & 1) * 0.01f, (i / side) - side / 2.0f);
+                        }
+                    }
+                    world.update();
+                    visible = world.getCullingSystem().cull(transforms, world.getSprites(), count,
+                            world.getGeometries(), camera);
+                }
+                report(pass, rotate, "EntityWorld", count, frames, System.nanoTime() - start, visible);
+            }
+            same &= visible == meshVisible[rotate];
+        }
+        System.out.println("可见数量一致: " + same);
+    }
+
+    private static void report(int pass, int rotate, String name, int count, int frames, long nanos, int visible) {
+        // 第一轮用于预热JIT，只输出第二轮
+        if (pass == 0) {
+            return;
+        }
+        System.out.printf("%s（%s）: %d 个物体, 每帧 %.2f ms, 可见 %d%n",
+                name, rotate == 1 ? "旋转" : "平移", count, nanos / 1e6 / frames, visible);
+    }
+}
@@ -1,19 +1,27 @@
 import com.hmengine.Camera;
+import com.hmengine.GameLoop;
+import com.hmengine.PipelinedListener;
 import com.hmengine.Renderer;
 import com.hmengine.Scene;
 import com.hmengine.Shader;
 import com.hmengine.Window;
 import com.hmengine.geometry.Geometry;
 import com.hmengine.geometry.Mesh;
+import com.hmengine.physics.CollisionWorld;
+import com.hmengine.physics.ContactManifold;
+import com.hmengine.physics.Narrowphase;
+import com.hmengine.physics.PairBuffer;
+import com.hmengine.pipeline.RenderSnapshot;
+import com.hmengine.pipeline.SnapshotRenderer;
+import com.hmengine.text.Font;
+import com.hmengine.text.GlyphAtlas;
 import com.hmengine.text.TextRenderer;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.glfw.GLFW.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Iterator;
+import java.nio.file.Path;
 import java.util.Random;
 
-public class Game {
+public class Game implements PipelinedListener {
     private final int WIDTH = 800;
     private final int HEIGHT = 600;
 
@@ -24,27 +32,59 @@ public class Game {
     private Camera camera;
     private TextRenderer textRenderer;
 
+    // HUD文本：数值不变时不重新拼接字符串，串行模式下用常驻文本句柄直接重绘
+    private static final int HUD_LINES = 4;
+    private static final String[] HUD_LABELS = { "Score: ", "High Score: ", "Level: ", "Time: " };
+    private static final String GAME_OVER_TEXT = "Game Over! Press R to restart";
+    private static final float[] WHITE = { 1.0f, 1.0f, 1.0f };
+    private static final float[] RED = { 1.0f, 0.0f, 0.0f };
+    // 字体缓存目录，第二次启动起直接映射已光栅化的字形
+    private static final Path FONT_CACHE_DIR = Path.of("cache", "fonts");
+    private final String[] hudTexts = new String[HUD_LINES];
+    private final int[] hudValues = new int[HUD_LINES];
+    private final int[] hudHandles = new int[HUD_LINES];
+    private int gameOverHandle;
+
     private int score = 0;
     private int highScore = 0;
     private Mesh player;
-    private float playerSpeed = 0.01f;
+    private float playerSpeed = 0.6f; // 每秒移动距离
+    private float turnSpeed = 3.0f; // 每秒旋转弧度
+    private GameLoop gameLoop;
+
+    // 流水线模式：模拟在独立线程上运行，渲染线程只绘制快照
+    private boolean pipelined = false;
+    private SnapshotRenderer snapshotRenderer;
+
+    // 玩家的模拟状态，渲染时在上一步和当前步之间插值
+    private float playerX, playerY, playerAngle;
+    private float previousX, previousY, previousAngle;
     private boolean gameOver = false;
     private float gameTime = 0f;
     private int level = 1;
     private Random random;
 
     // 游戏状态
-    private static final float COLLISION_DISTANCE = 0.1f;
     private static final int INITIAL_TARGET_COUNT = 5;
     private static final float TARGET_SPAWN_RADIUS = 0.7f; // 目标生成范围
     private static final float LEVEL_TIME = 10f; // 每关时间（秒）
 
-    // 目标列表
-    private List<Mesh> targets;
+    // 碰撞层
+    private static final int LAYER_PLAYER = 1;
+    private static final int LAYER_TARGET = 1 << 1;
+
+    // 碰撞检测：玩家只与目标层配对
+    private CollisionWorld collisions;
+    private final Narrowphase narrowphase = new Narrowphase();
+    private final ContactManifold contact = new ContactManifold();
+    private int playerCollider;
+    private int remainingTargets;
 
     public void run() {
         init();
-        loop();
+        gameLoop = new GameLoop(window, this);
+        gameLoop.setPipelined(pipelined);
+        gameLoop.run();
         cleanup();
     }
 
@@ -60,8 +100,10 @@ public class Game {
         shader = new Shader("resources/shaders/basic.vert", "resources/shaders/basic.frag");
 
         // 初始化文本渲染器
-        textRenderer = new TextRenderer("resources/fonts/simhei.ttf", 48, WIDTH, HEIGHT,
-                "resources/shaders/text.vert", "resources/shaders/text.frag");
+        // SDF字体：一个小图集在HUD和放大的Game Over文本上都保持清晰
+        Font font = new Font("resources/fonts/simhei.ttf", 48, new GlyphAtlas(512, 2), Font.MODE_SDF);
+        textRenderer = new TextRenderer(font, WIDTH, HEIGHT, "resources/shaders/text.vert",
+                "resources/shaders/text_sdf.frag", FONT_CACHE_DIR);
 
         // 初始化相机
         float aspectRatio = (float) WIDTH / (float) HEIGHT;
@@ -72,10 +114,24 @@ public class Game {
         // 初始化渲染器
         renderer = new Renderer(shader, camera);
         renderer.setShowGridLines(false);
+        // 玩家和目标都是小网格，合并为一次绘制
+        Shader batchShader = new Shader("resources/shaders/batch.vert", "resources/shaders/batch.frag");
+        renderer.setBatchShader(batchShader);
+        renderer.setBatchingEnabled(true);
 
-        // 初始化场景
+        // 初始化场景：流水线模式下渲染线程直接绘制快照，模拟线程的场景不接触OpenGL
         scene = new Scene();
-        targets = new ArrayList<>();
+        collisions = new CollisionWorld();
+        if (pipelined) {
+            snapshotRenderer = new SnapshotRenderer(shader, batchShader, camera);
+            snapshotRenderer.setTextRenderer(textRenderer);
+        } else {
+            renderer.setScene(scene);
+            for (int i = 0; i < HUD_LINES; i++) {
+                hudHandles[i] = textRenderer.createText("", 10, 40 + 30 * i, 0.7f, WHITE);
+            }
+            gameOverHandle = textRenderer.createText(GAME_OVER_TEXT, WIDTH / 2 - 350, HEIGHT / 2, 1f, RED);
+        }
 
         // 创建游戏对象
         createGameObjects();
@@ -83,15 +139,17 @@ public class Game {
 
     private void createGameObjects() {
         // 清除现有对象
-        scene.getMeshes().clear();
-        targets.clear();
+        scene.clear();
+        collisions.clear();
+        narrowphase.clear();
 
         // 创建玩家（一个六边形）
         player = Geometry.createTriangle();
-        player.setPosition(0f, 0f, 0f);
+        resetPlayer();
         player.setScale(0.1f, 0.1f, 1.0f);
         player.setColor(0.0f, 1.0f, 1.0f, 1.0f); // 青色
         scene.addMesh(player);
+        playerCollider = collisions.add(player, 0f, LAYER_PLAYER, LAYER_TARGET);
 
         // 创建目标（小六边形）
         int targetCount = INITIAL_TARGET_COUNT + (level - 1) * 2; // 每关增加2个目标
@@ -106,48 +164,99 @@ public class Game {
             target.setPosition(x, y, 0.0f);
             target.setScale(0.05f, 0.05f, 1.0f);
             target.setColor(0.0f, 1.0f, 0.0f, 1.0f); // 绿色
-            scene.addMesh(target);
-            targets.add(target);
+            scene.addStaticMesh(target); // 目标放置后不再移动，作为静态网格烘焙
+            collisions.add(target, 0f, LAYER_TARGET, LAYER_PLAYER);
         }
+        remainingTargets = targetCount;
+    }
 
-        renderer.setScene(scene);
+    @Override
+    public void update(float dt) {
+        // 模拟期间的增删只记录为命令，在步末一次性应用
+        scene.beginUpdate();
+        previousX = playerX;
+        previousY = playerY;
+        previousAngle = playerAngle;
+        updateGame(dt);
+        scene.endUpdate();
     }
 
-    private void loop() {
-        while (!window.shouldClose()) {
-            // 清除背景
-            glClearColor(0.2f, 0.3f, 0.3f, 1.0f);
-            glClear(GL_COLOR_BUFFER_BIT);
+    @Override
+    public void render(float alpha) {
+        // 清除背景
+        glClearColor(0.2f, 0.3f, 0.3f, 1.0f);
+        glClear(GL_COLOR_BUFFER_BIT);
 
-            // 更新游戏状态
-            update();
+        // 玩家按插值后的状态绘制，模拟频率低于刷新率时运动依然平滑
+        player.setPosition(previousX + (playerX - previousX) * alpha, previousY + (playerY - previousY) * alpha, 0.0f);
+        player.setRotation(0, 0, previousAngle + (playerAngle - previousAngle) * alpha);
 
-            // 渲染场景
-            renderer.render();
+        // 渲染场景
+        renderer.render();
 
-            // 渲染UI文本
-            renderUI();
+        // 渲染UI文本，常驻文本不变时不再排版和上传
+        textRenderer.begin();
+        renderUI(null);
+        textRenderer.flush();
+    }
 
-            // 更新窗口
-            window.update();
-        }
+    @Override
+    public void capture(RenderSnapshot snapshot) {
+        snapshot.captureScene(scene);
+        renderUI(snapshot);
+    }
+
+    @Override
+    public void render(RenderSnapshot previous, RenderSnapshot snapshot, float alpha) {
+        glClearColor(0.2f, 0.3f, 0.3f, 1.0f);
+        glClear(GL_COLOR_BUFFER_BIT);
+        // 玩家在上一个快照和最新快照之间插值，与串行模式一样平滑
+        snapshotRenderer.render(previous, snapshot, alpha);
     }
 
-    private void renderUI() {
-        // 渲染分数
-        textRenderer.renderText("Score: " + score, 10, 40, 0.7f, new float[] { 1.0f, 1.0f, 1.0f });
-        textRenderer.renderText("High Score: " + highScore, 10, 70, 0.7f, new float[] { 1.0f, 1.0f, 1.0f });
-        textRenderer.renderText("Level: " + level, 10, 100, 0.7f, new float[] { 1.0f, 1.0f, 1.0f });
-        textRenderer.renderText("Time: " + String.format("%.1f", LEVEL_TIME - gameTime), 10, 130, 0.7f,
-                new float[] { 1.0f, 1.0f, 1.0f });
+    /**
+     * 渲染UI文本
+     * @param snapshot 流水线模式下写入的快照，为null时直接绘制
+     */
+    private void renderUI(RenderSnapshot snapshot) {
+        refreshHud();
+        // 渲染分数、关卡和时间
+        for (int i = 0; i < HUD_LINES; i++) {
+            if (snapshot != null) {
+                snapshot.addText(hudTexts[i], 10, 40 + 30 * i, 0.7f, WHITE);
+            } else {
+                textRenderer.drawText(hudHandles[i]);
+            }
+        }
 
         if (gameOver) {
-            textRenderer.renderText("Game Over! Press R to restart", WIDTH / 2 - 350, HEIGHT / 2, 1f,
-                    new float[] { 1.0f, 0.0f, 0.0f });
+            if (snapshot != null) {
+                snapshot.addText(GAME_OVER_TEXT, WIDTH / 2 - 350, HEIGHT / 2, 1f, RED);
+            } else {
+                textRenderer.drawText(gameOverHandle);
+            }
+        }
+    }
+
+    /**
+     * 数值变化时才重新生成HUD字符串，串行模式下同时更新常驻文本
+     */
+    private void refreshHud() {
+        int tenths = Math.round((LEVEL_TIME - gameTime) * 10.0f);
+        int[] values = { score, highScore, level, tenths };
+        for (int i = 0; i < HUD_LINES; i++) {
+            if (hudTexts[i] != null && hudValues[i] == values[i]) {
+                continue;
+            }
+            hudValues[i] = values[i];
+            hudTexts[i] = i == 3 ? "Time: " + tenths / 10 + "." + tenths % 10 : HUD_LABELS[i] + values[i];
+            if (!pipelined) {
+                textRenderer.updateText(hudHandles[i], hudTexts[i], 10, 40 + 30 * i, 0.7f, WHITE);
+            }
         }
     }
 
-    private void update() {
+    private void updateGame(float dt) {
         if (gameOver) {
             // 检查是否按下R键重新开始
             if (window.isKeyPressed(GLFW_KEY_R)) {
@@ -157,7 +266,7 @@ public class Game {
         }
 
         // 更新游戏时间
-        gameTime += 0.016f; // 假设60FPS
+        gameTime += dt;
 
         // 检查关卡时间
         if (gameTime >= LEVEL_TIME) {
@@ -165,17 +274,17 @@ public class Game {
         }
 
         // 处理输入
-        handleInput();
+        handleInput(dt);
+
+        // 碰撞检测使用当前模拟状态
+        player.setPosition(playerX, playerY, 0.0f);
+        player.setRotation(0, 0, playerAngle);
 
         // 检测碰撞
         checkCollisions();
     }
 
-    private void handleInput() {
-        // 获取玩家当前位置
-        float playerX = player.getPosition().x;
-        float playerY = player.getPosition().y;
-
+    private void handleInput(float dt) {
         // 处理键盘输入
         boolean pressedW = window.isKeyPressed(GLFW_KEY_W);
         boolean pressedS = window.isKeyPressed(GLFW_KEY_S);
@@ -183,58 +292,58 @@ public class Game {
         boolean pressedD = window.isKeyPressed(GLFW_KEY_D);
 
         // 设置旋转角度
-        float rotation = player.getRotation().z;
         if (pressedA) {
-            rotation += 0.05f; // 向左旋转
+            playerAngle += turnSpeed * dt; // 向左旋转
         }
         if (pressedD) {
-            rotation -= 0.05f; // 向右旋转
+            playerAngle -= turnSpeed * dt; // 向右旋转
         }
-        player.setRotation(0, 0, rotation); // 更新玩家旋转
 
         // 更新位置
+        float step = playerSpeed * dt;
         if (pressedW) {
-            playerX += Math.cos(rotation + (float) Math.PI / 2f) * playerSpeed; // 前进
-            playerY += Math.sin(rotation + (float) Math.PI / 2f) * playerSpeed; // 前进
+            playerX += Math.cos(playerAngle + (float) Math.PI / 2f) * step; // 前进
+            playerY += Math.sin(playerAngle + (float) Math.PI / 2f) * step; // 前进
         }
         if (pressedS) {
-            playerX -= Math.cos(rotation + (float) Math.PI / 2f) * playerSpeed; // 后退
-            playerY -= Math.sin(rotation + (float) Math.PI / 2f) * playerSpeed; // 后退
+            playerX -= Math.cos(playerAngle + (float) Math.PI / 2f) * step; // 后退
+            playerY -= Math.sin(playerAngle + (float) Math.PI / 2f) * step; // 后退
         }
 
         // 限制玩家移动范围
         playerX = Math.max(-1.0f, Math.min(1.0f, playerX));
         playerY = Math.max(-1.0f, Math.min(1.0f, playerY));
+    }
 
-        // 更新玩家位置
-        player.setPosition(playerX, playerY, 0.0f);
+    /**
+     * 玩家回到中心，不与上一步插值
+     */
+    private void resetPlayer() {
+        playerX = previousX = 0f;
+        playerY = previousY = 0f;
+        playerAngle = previousAngle = 0f;
+        player.setPosition(0f, 0f, 0f);
+        player.setRotation(0, 0, 0);
     }
 
     private void checkCollisions() {
-        float playerX = player.getPosition().x;
-        float playerY = player.getPosition().y;
-
-        // 使用迭代器来安全地移除元素
-        Iterator<Mesh> iterator = targets.iterator();
-        while (iterator.hasNext()) {
-            Mesh target = iterator.next();
-            float targetX = target.getPosition().x;
-            float targetY = target.getPosition().y;
-
-            // 计算距离
-            float dx = playerX - targetX;
-            float dy = playerY - targetY;
-            float distance = (float) Math.sqrt(dx * dx + dy * dy);
-
-            // 检测碰撞
-            if (distance < COLLISION_DISTANCE) {
+        // 宽检测只返回玩家与目标的包围盒重叠对，再按实际形状做精确检测
+        PairBuffer pairs = collisions.update();
+        for (int i = 0; i < pairs.size(); i++) {
+            int first = pairs.getFirst(i);
+            int second = pairs.getSecond(i);
+            int targetCollider = first == playerCollider ? second : first;
+            Mesh target = collisions.getMesh(targetCollider);
+
+            if (narrowphase.collide(collisions, first, second, contact)) {
                 // 移除目标
+                collisions.remove(targetCollider);
                 scene.removeMesh(target);
-                iterator.remove();
+                remainingTargets--;
                 score += 10 * level; // 分数随关卡增加
 
                 // 检查是否所有目标都被收集
-                if (targets.isEmpty()) {
+                if (remainingTargets == 0) {
                     nextLevel();
                 }
                 break;
@@ -246,14 +355,8 @@ public class Game {
         level++;
         gameTime = 0f;
 
-        // 清除当前目标
-        for (Mesh target : targets) {
-            scene.removeMesh(target);
-        }
-        targets.clear();
-
         // 重置玩家位置
-        player.setPosition(0f, 0f, 0f);
+        resetPlayer();
 
         // 创建新的目标
         createGameObjects();
@@ -272,14 +375,17 @@ public class Game {
         gameOver = false;
 
         // 清除场景
-        scene.getMeshes().clear();
-        targets.clear();
+        scene.clear();
+        collisions.clear();
 
         // 重新创建游戏对象
         createGameObjects();
     }
 
     private void cleanup() {
+        if (snapshotRenderer != null) {
+            snapshotRenderer.cleanup();
+        }
         renderer.cleanup();
         shader.cleanup();
         textRenderer.cleanup();
@@ -288,6 +394,12 @@ public class Game {
 
     public static void main(String[] args) {
         Game game = new Game();
+        // --pipelined：模拟和渲染在两个线程上并行执行
+        for (String arg : args) {
+            if (arg.equals("--pipelined")) {
+                game.pipelined = true;
+            }
+        }
         game.run();
     }
 }
@@ -0,0 +1,121 @@
+import com.hmengine.Camera;
+import com.hmengine.ComputeShader;
+import com.hmengine.Renderer;
+import com.hmengine.Scene;
+import com.hmengine.Shader;
+import com.hmengine.Window;
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.render.RenderStats;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * GPU剔除检查
+ * 在不显示的窗口中创建OpenGL 4.5核心上下文，用cull.comp剔除一个已知网格阵列，
+ * 检查回读的绘制/剔除实例数与预期值以及CPU端视锥体检测的结果一致，再检查不再使用的几何体会被移出共享VBO。
+ * 可在Mesa llvmpipe上运行，例如：
+ * xvfb-run -a env LIBGL_ALWAYS_SOFTWARE=1 GALLIUM_DRIVER=llvmpipe \
+ *     mvn -B test-compile exec:java -Dexec.mainClass=GpuCullingCheck -Dexec.classpathScope=test \
+ *     -Dhmengine.experimentalGpuCulling=true
+ * 全部通过时退出码为0，否则为1
+ */
+public class GpuCullingCheck {
+    // 17x17的六边形阵列，间距0.25，覆盖[-2, 2]
+    private static final int SIDE = 17;
+    private static final float SPACING = 0.25f;
+    private static final float SCALE = 0.05f;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        Window window = new Window(256, 256, "GPU剔除检查", false);
+        window.setContextVersion(4, 5);
+        window.setVisible(false);
+        window.init();
+        System.out.println("OpenGL: " + glGetString(GL_VERSION) + " / " + glGetString(GL_RENDERER));
+
+        Shader shader = new Shader("resources/shaders/basic.vert", "resources/shaders/basic.frag");
+        Camera camera = new Camera(1.0f);
+        Renderer renderer = new Renderer(shader, camera);
+        if (!renderer.isGpuCullingSupported()) {
+            System.out.println("失败: 上下文不支持OpenGL 4.3计算着色器");
+            System.exit(1);
+        }
+        renderer.setGpuCullingShaders(new ComputeShader("resources/shaders/cull.comp"),
+                new Shader("resources/shaders/indirect.vert", "resources/shaders/indirect.frag"));
+        renderer.setGpuCullingEnabled(true);
+        if (!renderer.isGpuCullingEnabled()) {
+            System.out.println("失败: 需要用-D" + Renderer.GPU_CULLING_PROPERTY + "=true开启实验性的GPU剔除");
+            System.exit(1);
+        }
+
+        Scene scene = new Scene();
+        for (int i = 0; i < SIDE * SIDE; i++) {
+            Mesh mesh = Geometry.createHexagon();
+            mesh.setPosition((i % SIDE - SIDE / 2) * SPACING, (i / SIDE - SIDE / 2) * SPACING, 0.0f);
+            mesh.setScale(SCALE, SCALE, 1.0f);
+            scene.addMesh(mesh);
+        }
+        renderer.setScene(scene);
+
+        // 缩放1：可见范围x、y都在[-1, 1]，每个方向9列
+        check("缩放1 原点", renderer, scene, camera, 1.0f, 0.0f, 0.0f, 81);
+        // 缩放2：可见范围[0.5, 1.5]，每个方向5列
+        check("缩放2 (1, 1)", renderer, scene, camera, 2.0f, 1.0f, 1.0f, 25);
+        // 完全移出阵列
+        check("缩放2 (5, 5)", renderer, scene, camera, 2.0f, 5.0f, 5.0f, 0);
+
+        // 换成另一种几何体，六边形在若干帧后应被移出共享VBO
+        scene.clear();
+        for (int i = 0; i < 10; i++) {
+            Mesh mesh = Geometry.createTriangle();
+            mesh.setScale(SCALE, SCALE, 1.0f);
+            scene.addMesh(mesh);
+        }
+        camera.setZoom(1.0f);
+        camera.setPosition(0.0f, 0.0f, 0.0f);
+        for (int frame = 0; frame < 70; frame++) {
+            renderer.render();
+        }
+        int geometries = renderer.getGpuCuller().getGeometryCount();
+        report("几何体回收", geometries == 1, "登记的几何体数 " + geometries + "，预期 1");
+        report("几何体回收后绘制", renderer.getStats().getInstancesDrawn() == 10,
+                "绘制 " + renderer.getStats().getInstancesDrawn() + "，预期 10");
+
+        renderer.cleanup();
+        shader.cleanup();
+        window.cleanup();
+        System.out.println(failures == 0 ? "全部通过" : failures + " 项失败");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void check(String name, Renderer renderer, Scene scene, Camera camera, float zoom, float x, float y,
+            int expectedDrawn) {
+        camera.setZoom(zoom);
+        camera.setPosition(x, y, 0.0f);
+        renderer.render();
+        glFinish();
+
+        int cpuDrawn = 0;
+        for (Mesh mesh : scene.getMeshes()) {
+            if (camera.isInFrustum(mesh.getWorldX(), mesh.getWorldY(), mesh.getWorldZ(),
+                    mesh.getWorldBoundingRadius())) {
+                cpuDrawn++;
+            }
+        }
+        RenderStats stats = renderer.getStats();
+        int total = scene.getMeshes().size();
+        boolean ok = stats.getInstancesDrawn() == expectedDrawn && cpuDrawn == expectedDrawn
+                && stats.getInstancesCulled() == total - expectedDrawn;
+        report(name, ok, "绘制 " + stats.getInstancesDrawn() + " 剔除 " + stats.getInstancesCulled()
+                + "，CPU检测 " + cpuDrawn + "，预期 " + expectedDrawn + "/" + (total - expectedDrawn));
+    }
+
+    private static void report(String name, boolean ok, String detail) {
+        System.out.println((ok ? "通过 " : "失败 ") + name + ": " + detail);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import com.hmengine.Camera;
+import com.hmengine.ecs.EntityWorld;
+import com.hmengine.ecs.TransformStore;
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.MeshData;
+import com.hmengine.jobs.JobSystem;
+
+/**
+ * 任务系统基准测试
+ * 用不同工作线程数的任务系统执行EntityWorld的变换更新和视锥体剔除，输出每帧耗时和相对单线程的加速比。
+ * 不需要OpenGL上下文，可直接运行：java JobBenchmark [物体数量] [帧数]
+ */
+public class JobBenchmark {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Camera camera = new Camera(16.0f / 9.0f);
+        camera.setZoom(0.05f);
+        int side = (int) Math.ceil(Math.sqrt(count));
+        MeshData hexagon = Geometry.createHexagon().getMeshData();
+        EntityWorld world = new EntityWorld();
+        for (int i = 0; i < count; i++) {
+            world.createSprite(hexagon, (i % side) - side / 2.0f, (i / side) - side / 2.0f, 0.0f, 0.4f, 0.4f,
+                    1.0f, 1.0f, 1.0f, 1.0f);
+        }
+        TransformStore transforms = world.getTransforms();
+
+        System.out.println("处理器核心数: " + Runtime.getRuntime().availableProcessors());
+        double baseline = 0.0;
+        for (int workers : new int[] { 1, 2, 4, 8 }) {
+            JobSystem jobs = new JobSystem(workers);
+            world.setJobSystem(jobs);
+            double updateMs = 0.0;
+            double cullMs = 0.0;
+            int visible = 0;
+            // 第一轮用于预热JIT，只统计第二轮
+            for (int pass = 0; pass < 2; pass++) {
+                long updateNanos = 0;
+                long cullNanos = 0;
+                for (int f = 0; f < frames; f++) {
+                    for (int i = 0; i < count; i++) {
+                        transforms.setRotationAt(i, f * 0.01f + i * 1e-5f);
+                    }
+                    long start = System.nanoTime();
+                    world.update();
+                    long culled = System.nanoTime();
+                    visible = world.getCullingSystem().cull(transforms, world.getSprites(), count,
+                            world.getGeometries(), camera);
+                    long end = System.nanoTime();
+                    jobs.completeFrame();
+                    updateNanos += culled - start;
+                    cullNanos += end - culled;
+                }
+                updateMs = updateNanos / 1e6 / frames;
+                cullMs = cullNanos / 1e6 / frames;
+            }
+            double total = updateMs + cullMs;
+            if (workers == 1) {
+                baseline = total;
+            }
+            System.out.printf("%d 个工作线程: 变换 %.2f ms, 剔除 %.2f ms, 加速比 %.2fx, 可见 %d%n",
+                    workers, updateMs, cullMs, baseline / total, visible);
+            jobs.shutdown();
+        }
+    }
+}
@@ -1,4 +1,5 @@
 import com.hmengine.Camera;
+import com.hmengine.ComputeShader;
 import com.hmengine.Renderer;
 import com.hmengine.Scene;
 import com.hmengine.Shader;
@@ -24,6 +25,13 @@ public class Main {
     private float rotation = 0.0f;
     private long lastToggleTime = 0;
 
+    // 是否使用GPU剔除（需要OpenGL 4.5上下文和-Dhmengine.experimentalGpuCulling=true，可在Mesa llvmpipe上运行）
+    private boolean gpuCulling = false;
+    // GPU剔除统计的屏幕文本，数值变化时才重新排版
+    private int cullStatsHandle;
+    private int shownDrawn = -1;
+    private int shownCulled = -1;
+
     // 背景颜色设置
     private float[] backgroundColor = { 0.2f, 0.3f, 0.3f, 1.0f };
 
@@ -39,6 +47,9 @@ public class Main {
     private void init() {
         // 创建并初始化窗口
         window = new Window(WIDTH, HEIGHT, "渲染测试 WSAD控制相机移动 空格键控制网格线显示", true);
+        if (gpuCulling) {
+            window.setContextVersion(4, 5);
+        }
         window.init();
 
         // 创建着色器程序
@@ -54,8 +65,17 @@ public class Main {
         camera.setPosition(0f, 0f, 0f);
         camera.setRotation(1.3f, 0.0f, 0.0f);
 
-        // 创建渲染器
+        // 创建渲染器，相同几何形状的网格使用实例化渲染
         renderer = new Renderer(shader, camera);
+        renderer.setInstanceShader(new Shader("resources/shaders/instanced.vert", "resources/shaders/instanced.frag"));
+        renderer.setInstancingEnabled(true);
+        if (gpuCulling) {
+            renderer.setGpuCullingShaders(new ComputeShader("resources/shaders/cull.comp"),
+                    new Shader("resources/shaders/indirect.vert", "resources/shaders/indirect.frag"));
+            renderer.setGpuCullingEnabled(true);
+            // 没有显式开启实验功能时渲染器保持CPU剔除
+            gpuCulling = renderer.isGpuCullingEnabled();
+        }
 
         // 创建场景
         scene = new Scene();
@@ -75,6 +95,9 @@ public class Main {
                 
         // 设置场景
         renderer.setScene(scene);
+        if (gpuCulling) {
+            cullStatsHandle = textRenderer.createText("", 10, 30, 0.5f, new float[] { 1.0f, 1.0f, 1.0f });
+        }
     }
 
     private void loop() {
@@ -103,10 +126,28 @@ public class Main {
             handleCameraControl();
 
             renderer.render();
+            if (gpuCulling) {
+                drawCullStats();
+            }
             window.update();
         }
     }
 
+    /**
+     * 在屏幕左上角显示GPU剔除回读的绘制/剔除实例数
+     */
+    private void drawCullStats() {
+        int drawn = renderer.getStats().getInstancesDrawn();
+        int culled = renderer.getStats().getInstancesCulled();
+        if (drawn != shownDrawn || culled != shownCulled) {
+            shownDrawn = drawn;
+            shownCulled = culled;
+            textRenderer.updateText(cullStatsHandle, "GPU culling: drawn " + drawn + " culled " + culled,
+                    10, 30, 0.5f, new float[] { 1.0f, 1.0f, 1.0f });
+        }
+        textRenderer.drawText(cullStatsHandle);
+    }
+
     /**
      * 使用方向键控制相机，空格键控制网格线显示
      */
@@ -146,6 +187,12 @@ public class Main {
     }
 
     public static void main(String[] args) {
-        new Main().run();
+        Main main = new Main();
+        for (String arg : args) {
+            if (arg.equals("--gpu-culling")) {
+                main.gpuCulling = true;
+            }
+        }
+        main.run();
     }
 }
@@ -0,0 +1,79 @@
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.jobs.JobSystem;
+import com.hmengine.physics.PhysicsWorld;
+
+/**
+ * 物理世界基准测试
+ * 在静态地面上堆放多列方块（每列是一个独立的岛），分别用1、4、8个工作线程的任务系统推进，
+ * 输出每毫秒处理的刚体数，并与确定性单线程模式的结果逐位比较。
+ * 不需要OpenGL上下文，可直接运行：java PhysicsBenchmark [列数] [每列方块数] [步数]
+ */
+public class PhysicsBenchmark {
+    private static final float DT = 1.0f / 60.0f;
+
+    public static void main(String[] args) {
+        int columns = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        float[] reference = run(columns, height, steps, 1, true, false);
+        for (int threads : new int[] { 1, 4, 8 }) {
+            // 预热一次让JIT编译热点代码
+            run(columns, height, steps / 4, threads, false, false);
+            float[] result = run(columns, height, steps, threads, false, true);
+            boolean identical = java.util.Arrays.equals(reference, result);
+            System.out.println("  与确定性模式结果一致: " + identical);
+        }
+    }
+
+    /**
+     * 创建场景并推进指定步数
+     * @return 所有刚体最终的位置和旋转
+     */
+    private static float[] run(int columns, int height, int steps, int threads, boolean deterministic, boolean print) {
+        PhysicsWorld world = new PhysicsWorld();
+        JobSystem jobs = new JobSystem(threads);
+        world.setJobSystem(jobs);
+        world.setDeterministic(deterministic);
+        // 关闭休眠，保证每步工作量不变
+        world.setSleepingEnabled(false);
+
+        float spacing = 2.0f;
+        Mesh ground = Geometry.createRectangle();
+        ground.setScale(columns * spacing + 2.0f, 1.0f, 1.0f);
+        ground.setPosition(columns * spacing / 2.0f, -0.5f, 0.0f);
+        world.addBody(ground, 0.0f);
+
+        int[] bodies = new int[columns * height];
+        for (int c = 0; c < columns; c++) {
+            for (int h = 0; h < height; h++) {
+                Mesh box = Geometry.createRectangle();
+                box.setScale(0.5f, 0.5f, 1.0f);
+                box.setPosition(c * spacing + 0.01f * h, 0.25f + h * 0.52f, 0.0f);
+                bodies[c * height + h] = world.addBody(box, 1.0f);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++) {
+            world.step(DT);
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        if (print) {
+            double bodiesPerMs = (double) bodies.length * steps / millis;
+            System.out.printf("线程数 %d: %d 个刚体, %d 步, 耗时 %.1f ms, %.0f 刚体/ms, 接触点 %d%n",
+                    threads, bodies.length, steps, millis, bodiesPerMs, world.getContactCount());
+        }
+
+        float[] state = new float[bodies.length * 3];
+        for (int i = 0; i < bodies.length; i++) {
+            state[i * 3] = world.getPositionX(bodies[i]);
+            state[i * 3 + 1] = world.getPositionY(bodies[i]);
+            state[i * 3 + 2] = world.getAngle(bodies[i]);
+        }
+        jobs.shutdown();
+        return state;
+    }
+}
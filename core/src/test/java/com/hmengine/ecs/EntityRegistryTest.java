@@ -0,0 +1,81 @@
+package com.hmengine.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 实体注册表测试：句柄的代数检查
+ */
+public class EntityRegistryTest {
+
+    @Test
+    public void destroyedHandleIsNoLongerAlive() {
+        EntityRegistry registry = new EntityRegistry();
+        int entity = registry.create();
+        assertTrue(registry.isAlive(entity));
+        assertEquals(1, registry.size());
+
+        assertTrue(registry.destroy(entity));
+        assertFalse(registry.isAlive(entity));
+        assertFalse(registry.destroy(entity));
+        assertEquals(0, registry.size());
+        assertFalse(registry.isAlive(Entity.NULL));
+    }
+
+    @Test
+    public void reusedSlotGetsNewGeneration() {
+        EntityRegistry registry = new EntityRegistry();
+        int first = registry.create();
+        registry.destroy(first);
+        // 空闲槽位积累到一定数量后才复用，先创建足够多的实体把它们送进空闲队列
+        int[] others = new int[1100];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = registry.create();
+        }
+        for (int other : others) {
+            registry.destroy(other);
+        }
+
+        int reused = registry.create();
+        assertEquals(Entity.index(first), Entity.index(reused));
+        assertEquals(Entity.generation(first) + 1, Entity.generation(reused));
+        assertNotEquals(first, reused);
+        assertTrue(registry.isAlive(reused));
+        assertFalse(registry.isAlive(first));
+    }
+
+    @Test
+    public void handleFromAnotherGenerationIsRejected() {
+        EntityRegistry registry = new EntityRegistry();
+        int entity = registry.create();
+        int forged = Entity.make(Entity.index(entity), Entity.generation(entity) + 1);
+        assertFalse(registry.isAlive(forged));
+        assertFalse(registry.destroy(forged));
+        assertTrue(registry.isAlive(entity));
+        // 超出已分配槽位的句柄同样无效
+        assertFalse(registry.isAlive(Entity.make(Entity.index(entity) + 1, 0)));
+    }
+
+    @Test
+    public void clearInvalidatesAllHandles() {
+        EntityRegistry registry = new EntityRegistry();
+        int[] entities = new int[10];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = registry.create();
+        }
+        registry.clear();
+        assertEquals(0, registry.size());
+        for (int entity : entities) {
+            assertFalse(registry.isAlive(entity));
+        }
+        int created = registry.create();
+        assertTrue(registry.isAlive(created));
+        for (int entity : entities) {
+            assertNotEquals(entity, created);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.hmengine.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.hmengine.jobs.JobSystem;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * 碰撞世界测试：与逐对检测的结果比较，检查层掩码过滤、移除和并行扫描
+ */
+public class CollisionWorldTest {
+
+    @Test
+    public void pairsMatchBruteForce() {
+        CollisionWorld world = new CollisionWorld();
+        float[][] boxes = randomBoxes(new Random(1), 500, 20.0f);
+        int[] layers = new int[boxes.length];
+        int[] masks = new int[boxes.length];
+        for (int i = 0; i < boxes.length; i++) {
+            // 三种层：0与1互相碰撞，2只与自己碰撞
+            layers[i] = 1 << (i % 3);
+            masks[i] = i % 3 == 2 ? 1 << 2 : 0b011;
+            float[] b = boxes[i];
+            assertEquals(i, world.add(b[0], b[1], b[2], b[3], layers[i], masks[i]));
+        }
+
+        Set<Long> expected = new HashSet<>();
+        for (int a = 0; a < boxes.length; a++) {
+            for (int b = a + 1; b < boxes.length; b++) {
+                if (overlaps(boxes[a], boxes[b]) && (layers[a] & masks[b]) != 0 && (layers[b] & masks[a]) != 0) {
+                    expected.add(key(a, b));
+                }
+            }
+        }
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, toSet(world.update()));
+        // 第二次更新利用上次的顺序，结果不变
+        assertEquals(expected, toSet(world.update()));
+    }
+
+    @Test
+    public void touchingBoxesOverlapAndRemovedCollidersAreSkipped() {
+        CollisionWorld world = new CollisionWorld();
+        int a = world.add(0.0f, 0.0f, 1.0f, 1.0f, CollisionWorld.ALL_LAYERS, CollisionWorld.ALL_LAYERS);
+        int b = world.add(1.0f, 0.0f, 2.0f, 1.0f, CollisionWorld.ALL_LAYERS, CollisionWorld.ALL_LAYERS);
+        int c = world.add(3.0f, 0.0f, 4.0f, 1.0f, CollisionWorld.ALL_LAYERS, CollisionWorld.ALL_LAYERS);
+        PairBuffer pairs = world.update();
+        assertEquals(1, pairs.size());
+        assertEquals(a, pairs.getFirst(0));
+        assertEquals(b, pairs.getSecond(0));
+
+        world.remove(b);
+        world.setBounds(c, 0.5f, 0.5f, 1.5f, 1.5f);
+        Set<Long> expected = new HashSet<>();
+        expected.add(key(a, c));
+        assertEquals(expected, toSet(world.update()));
+    }
+
+    @Test
+    public void parallelSweepMatchesSerialOrder() {
+        float[][] boxes = randomBoxes(new Random(2), 6000, 60.0f);
+        JobSystem single = new JobSystem(1);
+        JobSystem parallel = new JobSystem(4);
+        try {
+            PairBuffer serial = fill(single, boxes).update();
+            PairBuffer split = fill(parallel, boxes).update();
+            assertTrue(serial.size() > 0);
+            assertEquals(serial.size(), split.size());
+            for (int i = 0; i < serial.size(); i++) {
+                assertEquals(serial.getFirst(i), split.getFirst(i));
+                assertEquals(serial.getSecond(i), split.getSecond(i));
+            }
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    private static CollisionWorld fill(JobSystem jobs, float[][] boxes) {
+        CollisionWorld world = new CollisionWorld();
+        world.setJobSystem(jobs);
+        for (float[] b : boxes) {
+            world.add(b[0], b[1], b[2], b[3], CollisionWorld.ALL_LAYERS, CollisionWorld.ALL_LAYERS);
+        }
+        return world;
+    }
+
+    private static float[][] randomBoxes(Random random, int count, float extent) {
+        float[][] boxes = new float[count][];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * extent;
+            float y = random.nextFloat() * extent;
+            float w = 0.1f + random.nextFloat() * 0.6f;
+            float h = 0.1f + random.nextFloat() * 0.6f;
+            boxes[i] = new float[] { x, y, x + w, y + h };
+        }
+        return boxes;
+    }
+
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    private static long key(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    private static Set<Long> toSet(PairBuffer pairs) {
+        Set<Long> set = new HashSet<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            assertTrue(pairs.getFirst(i) < pairs.getSecond(i));
+            assertTrue("重复的碰撞对", set.add(key(pairs.getFirst(i), pairs.getSecond(i))));
+        }
+        return set;
+    }
+}
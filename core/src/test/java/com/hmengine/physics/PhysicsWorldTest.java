@@ -0,0 +1,77 @@
+package com.hmengine.physics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.Mesh;
+import com.hmengine.jobs.JobSystem;
+import org.junit.Test;
+
+/**
+ * 物理世界测试：确定性模式与多线程求解的结果逐位一致
+ */
+public class PhysicsWorldTest {
+    private static final float DT = 1.0f / 60.0f;
+    private static final int COLUMNS = 60;
+    private static final int HEIGHT = 6;
+    private static final int STEPS = 120;
+
+    @Test
+    public void parallelSolveMatchesDeterministicMode() {
+        JobSystem single = new JobSystem(1);
+        JobSystem parallel = new JobSystem(4);
+        try {
+            int[] reference = simulate(single, true);
+            int[] result = simulate(parallel, false);
+            assertArrayEquals(reference, result);
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * 在地面上堆放若干列方块（每列一个岛）并推进，返回所有刚体最终状态的位表示
+     */
+    private static int[] simulate(JobSystem jobs, boolean deterministic) {
+        PhysicsWorld world = new PhysicsWorld();
+        world.setJobSystem(jobs);
+        world.setDeterministic(deterministic);
+        // 关闭休眠，保证每步都求解所有岛
+        world.setSleepingEnabled(false);
+
+        float spacing = 2.0f;
+        Mesh ground = Geometry.createRectangle();
+        ground.setScale(COLUMNS * spacing + 2.0f, 1.0f, 1.0f);
+        ground.setPosition(COLUMNS * spacing / 2.0f, -0.5f, 0.0f);
+        world.addBody(ground, 0.0f);
+
+        int[] bodies = new int[COLUMNS * HEIGHT];
+        for (int c = 0; c < COLUMNS; c++) {
+            for (int h = 0; h < HEIGHT; h++) {
+                Mesh box = Geometry.createRectangle();
+                box.setScale(0.5f, 0.5f, 1.0f);
+                box.setPosition(c * spacing + 0.01f * h, 0.25f + h * 0.52f, 0.0f);
+                bodies[c * HEIGHT + h] = world.addBody(box, 1.0f);
+                world.setAngularVelocity(bodies[c * HEIGHT + h], 0.1f * (c % 3 - 1));
+            }
+        }
+        for (int i = 0; i < STEPS; i++) {
+            world.step(DT);
+        }
+        assertTrue(world.getContactCount() > 0);
+
+        int[] state = new int[bodies.length * 6];
+        for (int i = 0; i < bodies.length; i++) {
+            int id = bodies[i];
+            state[i * 6] = Float.floatToRawIntBits(world.getPositionX(id));
+            state[i * 6 + 1] = Float.floatToRawIntBits(world.getPositionY(id));
+            state[i * 6 + 2] = Float.floatToRawIntBits(world.getAngle(id));
+            state[i * 6 + 3] = Float.floatToRawIntBits(world.getVelocityX(id));
+            state[i * 6 + 4] = Float.floatToRawIntBits(world.getVelocityY(id));
+            state[i * 6 + 5] = Float.floatToRawIntBits(world.getAngularVelocity(id));
+        }
+        return state;
+    }
+}
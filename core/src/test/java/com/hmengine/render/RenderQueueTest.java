@@ -0,0 +1,94 @@
+package com.hmengine.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
+import static org.lwjgl.opengl.GL11.GL_TRIANGLE_FAN;
+
+import com.hmengine.geometry.Geometry;
+import com.hmengine.geometry.Mesh;
+import org.junit.Test;
+
+/**
+ * 渲染队列测试：排序键的字段和排序后的顺序
+ */
+public class RenderQueueTest {
+
+    @Test
+    public void keyFieldsRoundTrip() {
+        long key = RenderQueue.makeKey(RenderQueue.PASS_LINES, 4095, GL_TRIANGLE_FAN, 0xFFFFF, 1.0f);
+        assertEquals(RenderQueue.PASS_LINES, RenderQueue.getPass(key));
+        assertEquals(4095, RenderQueue.getShader(key));
+        assertEquals(GL_TRIANGLE_FAN, RenderQueue.getPrimitiveType(key));
+        assertEquals(0xFFFFF, RenderQueue.getBuffer(key));
+
+        // 深度超出[0, 1]时被截断，不会溢出到相邻字段
+        long far = RenderQueue.makeKey(RenderQueue.PASS_FILL, 1, GL_TRIANGLES, 7, 5.0f);
+        long near = RenderQueue.makeKey(RenderQueue.PASS_FILL, 1, GL_TRIANGLES, 7, -5.0f);
+        assertEquals(RenderQueue.makeKey(RenderQueue.PASS_FILL, 1, GL_TRIANGLES, 7, 1.0f), far);
+        assertEquals(RenderQueue.makeKey(RenderQueue.PASS_FILL, 1, GL_TRIANGLES, 7, 0.0f), near);
+        assertEquals(7, RenderQueue.getBuffer(far));
+        assertEquals(RenderQueue.PASS_FILL, RenderQueue.getPass(far));
+    }
+
+    @Test
+    public void sortsByShaderThenPrimitiveThenBufferThenDepth() {
+        RenderQueue queue = new RenderQueue();
+        long[] expected = {
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 2, 0.1f),
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 2, 0.9f),
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 3, 0.0f),
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLE_FAN, 1, 0.0f),
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 1, GL_TRIANGLES, 1, 0.0f),
+            RenderQueue.makeKey(RenderQueue.PASS_FILL, 2, GL_TRIANGLES, 0, 0.5f),
+        };
+        Mesh[] meshes = new Mesh[expected.length];
+        for (int i = expected.length - 1; i >= 0; i--) {
+            meshes[i] = Geometry.createRectangle();
+            queue.submit(expected[i], meshes[i]);
+        }
+        queue.sort();
+        assertEquals(expected.length, queue.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], queue.getKey(i));
+            assertSame(meshes[i], queue.getMesh(i));
+        }
+    }
+
+    @Test
+    public void gridLinesFollowTheirOwnFill() {
+        RenderQueue queue = new RenderQueue();
+        Mesh near = Geometry.createRectangle();
+        Mesh far = Geometry.createRectangle();
+        for (Mesh mesh : new Mesh[] { far, near }) {
+            float depth = mesh == near ? 0.2f : 0.8f;
+            queue.submit(RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 1, depth), mesh);
+            queue.submit(RenderQueue.makeKey(RenderQueue.PASS_LINES, 0, GL_TRIANGLES, 1, depth), mesh);
+        }
+        queue.sort();
+        Mesh[] meshes = { near, near, far, far };
+        int[] passes = { RenderQueue.PASS_FILL, RenderQueue.PASS_LINES, RenderQueue.PASS_FILL, RenderQueue.PASS_LINES };
+        for (int i = 0; i < meshes.length; i++) {
+            assertSame(meshes[i], queue.getMesh(i));
+            assertEquals(passes[i], RenderQueue.getPass(queue.getKey(i)));
+        }
+    }
+
+    @Test
+    public void equalKeysKeepSubmissionOrder() {
+        RenderQueue queue = new RenderQueue();
+        long key = RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 1, 0.5f);
+        Mesh[] meshes = new Mesh[300];
+        for (int i = 0; i < meshes.length; i++) {
+            meshes[i] = Geometry.createRectangle();
+            // 穿插不同缓冲区的命令，迫使排序真正移动元素
+            queue.submit(key, meshes[i]);
+            queue.submit(RenderQueue.makeKey(RenderQueue.PASS_FILL, 0, GL_TRIANGLES, 0, 0.5f), meshes[i]);
+        }
+        queue.sort();
+        for (int i = 0; i < meshes.length; i++) {
+            assertSame(meshes[i], queue.getMesh(meshes.length + i));
+            assertEquals(key, queue.getKey(meshes.length + i));
+        }
+    }
+}
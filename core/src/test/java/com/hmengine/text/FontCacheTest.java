@@ -0,0 +1,89 @@
+package com.hmengine.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 字体磁盘缓存测试：加载、保存、再加载
+ */
+public class FontCacheTest {
+    private static final String FONT_FILE = "resources/fonts/arial.ttf";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Font first;
+    private Font second;
+    private Font third;
+
+    @Before
+    public void setUp() {
+        directory = folder.getRoot().toPath();
+    }
+
+    @After
+    public void tearDown() {
+        for (Font font : new Font[] { first, second, third }) {
+            if (font != null) {
+                font.cleanup();
+            }
+        }
+    }
+
+    @Test
+    public void saveWhileMappedWritesNextGeneration() throws Exception {
+        first = createFont();
+        assertFalse(FontCache.load(first, directory));
+        first.appendText(new TextBatch(), "Hello", 0, 0, 1, 1, 1, 1);
+        assertTrue(FontCache.save(first, directory));
+        Path initial = FontCache.file(first, directory);
+        assertNotNull(initial);
+
+        // 第二个字体映射了缓存文件，在映射仍然有效时增加字形并保存
+        second = createFont();
+        assertTrue(FontCache.load(second, directory));
+        assertEquals(first.getGlyphCount(), second.getGlyphCount());
+        assertEquals(0, second.getRasterizedCount());
+        assertFalse(FontCache.save(second, directory));
+        second.appendText(new TextBatch(), "World", 0, 0, 1, 1, 1, 1);
+        assertTrue(FontCache.save(second, directory));
+
+        Path latest = FontCache.file(second, directory);
+        assertFalse(initial.equals(latest));
+        assertEquals(1, countCacheFiles());
+
+        third = createFont();
+        assertTrue(FontCache.load(third, directory));
+        assertEquals(second.getGlyphCount(), third.getGlyphCount());
+        assertEquals(0, third.getRasterizedCount());
+        GlyphAtlas expected = second.getAtlas();
+        GlyphAtlas actual = third.getAtlas();
+        assertEquals(expected.getPageCount(), actual.getPageCount());
+        int pageBytes = expected.getPageSize() * expected.getPageSize();
+        for (int page = 0; page < expected.getPageCount(); page++) {
+            assertEquals(expected.pagePixels(page).slice(0, pageBytes), actual.pagePixels(page).slice(0, pageBytes));
+        }
+    }
+
+    private Font createFont() {
+        return new Font(FONT_FILE, 32, new GlyphAtlas(256, 2));
+    }
+
+    private long countCacheFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".fontcache")).count();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.hmengine.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 字形图集淘汰测试：本帧用过的货架不被淘汰
+ */
+public class GlyphAtlasTest {
+    private static final int PAGE_SIZE = 64;
+
+    @Test
+    public void doesNotEvictShelvesUsedThisFrame() {
+        GlyphAtlas atlas = new GlyphAtlas(PAGE_SIZE, 1);
+        atlas.nextFrame();
+        // 每个字形占满一行货架，一页放得下4个
+        Glyph[] glyphs = new Glyph[4];
+        for (int i = 0; i < glyphs.length; i++) {
+            glyphs[i] = glyph(i);
+            assertTrue(atlas.allocate(glyphs[i]));
+        }
+
+        Glyph extra = glyph(4);
+        assertFalse(atlas.allocate(extra));
+        assertEquals(0, atlas.getEvictionCount());
+        for (Glyph glyph : glyphs) {
+            assertTrue(glyph.page >= 0);
+        }
+
+        // 新的一帧里只用到第一个字形，淘汰最久未使用的第二个
+        atlas.nextFrame();
+        atlas.touch(glyphs[0]);
+        assertTrue(atlas.allocate(extra));
+        assertEquals(1, atlas.getEvictionCount());
+        assertEquals(0, glyphs[0].page);
+        assertEquals(-1, glyphs[1].page);
+        assertEquals(glyphs[1].y, extra.y);
+        atlas.cleanup();
+    }
+
+    private static Glyph glyph(int index) {
+        Glyph glyph = new Glyph('a' + index, index);
+        glyph.width = PAGE_SIZE - 1;
+        glyph.height = PAGE_SIZE / 4 - 1;
+        return glyph;
+    }
+}
@@ -4,8 +4,17 @@ layout (location = 0) in vec3 aPos;
 uniform mat4 projectionMatrix;
 uniform mat4 viewMatrix;
 uniform mat4 modelMatrix;
+uniform mat3x2 modelAffine;
+uniform int useAffine;
 
 void main()
 {
-    gl_Position = projectionMatrix * viewMatrix * modelMatrix * vec4(aPos, 1.0);
-} 
\ No newline at end of file
+    // 二维网格只上传3x2仿射矩阵，需要三维旋转时使用4x4模型矩阵
+    vec4 worldPos;
+    if (useAffine == 1) {
+        worldPos = vec4(modelAffine * vec3(aPos.xy, 1.0), aPos.z, 1.0);
+    } else {
+        worldPos = modelMatrix * vec4(aPos, 1.0);
+    }
+    gl_Position = projectionMatrix * viewMatrix * worldPos;
+}
@@ -0,0 +1,11 @@
+#version 330 core
+in vec4 vertexColor;
+out vec4 FragColor;
+
+uniform vec4 color;
+uniform int useUniformColor;
+
+void main()
+{
+    FragColor = useUniformColor != 0 ? color : vertexColor;
+}
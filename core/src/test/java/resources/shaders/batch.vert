@@ -0,0 +1,15 @@
+#version 330 core
+layout (location = 0) in vec3 aPos;
+layout (location = 1) in vec4 aColor;
+
+uniform mat4 projectionMatrix;
+uniform mat4 viewMatrix;
+
+out vec4 vertexColor;
+
+void main()
+{
+    // 顶点已在CPU上变换到世界坐标
+    gl_Position = projectionMatrix * viewMatrix * vec4(aPos, 1.0);
+    vertexColor = aColor;
+}
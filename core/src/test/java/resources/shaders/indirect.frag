@@ -0,0 +1,11 @@
+#version 430 core
+in vec4 instanceColor;
+out vec4 FragColor;
+
+uniform vec4 color;
+uniform int useUniformColor;
+
+void main()
+{
+    FragColor = useUniformColor != 0 ? color : instanceColor;
+}
@@ -0,0 +1,24 @@
+#version 430 core
+layout (location = 0) in vec3 aPos;
+layout (location = 1) in uint aInstance;
+
+struct Instance {
+    mat4 model;
+    vec4 color;
+    vec4 params;
+};
+
+layout (std430, binding = 0) readonly buffer Instances {
+    Instance instances[];
+};
+
+uniform mat4 projectionMatrix;
+uniform mat4 viewMatrix;
+
+out vec4 instanceColor;
+
+void main()
+{
+    gl_Position = projectionMatrix * viewMatrix * instances[aInstance].model * vec4(aPos, 1.0);
+    instanceColor = instances[aInstance].color;
+}
@@ -0,0 +1,19 @@
+#version 330 core
+layout (location = 0) in vec3 aPos;
+layout (location = 1) in vec2 aAffine0;
+layout (location = 2) in vec2 aAffine1;
+layout (location = 3) in vec2 aAffine2;
+layout (location = 5) in vec4 aColor;
+
+uniform mat4 projectionMatrix;
+uniform mat4 viewMatrix;
+
+out vec4 instanceColor;
+
+void main()
+{
+    mat3x2 model = mat3x2(aAffine0, aAffine1, aAffine2);
+    vec4 worldPos = vec4(model * vec3(aPos.xy, 1.0), aPos.z, 1.0);
+    gl_Position = projectionMatrix * viewMatrix * worldPos;
+    instanceColor = aColor;
+}
@@ -1,9 +1,12 @@
 #version 330 core
 layout (location = 0) in vec2 position;
 layout (location = 1) in vec2 texCoord;
+layout (location = 2) in vec3 color;
 out vec2 TexCoord;
+out vec3 Color;
 uniform mat4 projection;
 void main() {
     gl_Position = projection * vec4(position, 0.0, 1.0);
     TexCoord = texCoord;
-}
\ No newline at end of file
+    Color = color;
+}
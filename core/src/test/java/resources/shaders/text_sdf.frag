@@ -0,0 +1,12 @@
+#version 330 core
+in vec2 TexCoord;
+in vec3 Color;
+out vec4 FragColor;
+uniform sampler2D text;
+void main() {
+    // 距离场在轮廓处为0.5，按屏幕空间的变化率取过渡宽度，任意缩放下边缘都只有约一个像素的抗锯齿
+    float distance = texture(text, TexCoord).r;
+    float width = max(fwidth(distance), 1e-4);
+    float alpha = smoothstep(0.5 - width, 0.5 + width, distance);
+    FragColor = vec4(Color, alpha);
+}